@@ -0,0 +1,125 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chess.Board;
+import chess.BoardState;
+import chess.MoveList;
+
+/**
+ * This class measures the queries the user interfaces and games make of a Board in an opening, a
+ * middlegame, and an endgame position. Since a Board caches the legal moves of its position, the
+ * benchmarks ending in AfterMove make and unmake a move first so that the moves are generated
+ * again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+	@Param({ "opening", "middlegame", "endgame" })
+	public String position;
+
+	private Board board;
+	private BoardState state;
+	private int move; // a legal move of white, made and unmade to clear the cached moves
+
+	/**
+	 * This method sets up the board in the chosen position.
+	 */
+	@Setup
+	public void setUp() {
+		board = Positions.createBoard(position);
+		state = board.getBoardState(false);
+		MoveList moves = new MoveList();
+		board.generateMoves(false, moves);
+		move = moves.get(0);
+	}
+
+	/**
+	 * This method gets the legal moves of every square, as the user interfaces do when showing the
+	 * moves of a selected piece.
+	 * 
+	 * @param blackhole the blackhole consuming the moves
+	 */
+	@Benchmark
+	public void getLegalMoves(Blackhole blackhole) {
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				blackhole.consume(board.getLegalMoves(row, col, false));
+			}
+		}
+	}
+
+	/**
+	 * This method gets the legal moves of every square after the cached moves have been cleared.
+	 * 
+	 * @param blackhole the blackhole consuming the moves
+	 */
+	@Benchmark
+	public void getLegalMovesAfterMove(Blackhole blackhole) {
+		board.makeMove(move);
+		board.unmakeMove(move);
+		getLegalMoves(blackhole);
+	}
+
+	/**
+	 * @return whether white has any legal moves
+	 */
+	@Benchmark
+	public boolean anyLegalMoves() {
+		return board.anyLegalMoves(false);
+	}
+
+	/**
+	 * @return whether white has any legal moves, after the cached moves have been cleared
+	 */
+	@Benchmark
+	public boolean anyLegalMovesAfterMove() {
+		board.makeMove(move);
+		board.unmakeMove(move);
+		return board.anyLegalMoves(false);
+	}
+
+	/**
+	 * This method measures MoveValidator.isCheck(), which the board calls for the king of the
+	 * given player.
+	 * 
+	 * @return whether white is in check
+	 */
+	@Benchmark
+	public boolean isCheck() {
+		return board.isCheck(false);
+	}
+
+	/**
+	 * @return the state of the board, as stored by a game for the threefold repetition rule
+	 */
+	@Benchmark
+	public BoardState getBoardState() {
+		return board.getBoardState(false);
+	}
+
+	/**
+	 * @return the hash code of a state of the board
+	 */
+	@Benchmark
+	public int boardStateHashCode() {
+		return state.hashCode();
+	}
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.Board;
+import main.Mediator;
+import ui.UserInterface;
+
+/**
+ * This class measures playing a recorded game from the starting position by selecting squares, as
+ * a user would, which includes updating the user interface and checking for the end of the game
+ * after every move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+	@Param({ "opera", "promotion" })
+	public String game;
+
+	private int[][] squares;
+
+	/**
+	 * This class is a user interface that does not display anything.
+	 */
+	static class SilentUserInterface extends UserInterface {
+		@Override
+		protected void updateBoard(byte[][] board) {
+			// do nothing
+		}
+
+		@Override
+		protected void display() {
+			// do nothing
+		}
+
+		/**
+		 * @return the mediator
+		 */
+		Mediator getMediator() {
+			return mediator;
+		}
+	}
+
+	/**
+	 * This method converts the moves of the chosen game to squares.
+	 */
+	@Setup
+	public void setUp() {
+		String[] moves = Positions.getGame(game);
+		squares = new int[moves.length][];
+		for (int i = 0; i < moves.length; i++) {
+			squares[i] = Positions.squares(moves[i]);
+		}
+	}
+
+	/**
+	 * This method plays the chosen game in a new game, promoting pawns to queens.
+	 * 
+	 * @return the result of selecting the last square
+	 */
+	@Benchmark
+	public int handleSelectedSquare() {
+		Mediator mediator = new SilentUserInterface().getMediator();
+		int result = Board.FAILURE;
+		for (int[] move : squares) {
+			mediator.handleSelectedSquare(move[0], move[1]);
+			result = mediator.handleSelectedSquare(move[2], move[3]);
+			if (result == Board.PROMOTE)
+				mediator.handleSelectedOption(Mediator.QUEEN);
+		}
+		return result;
+	}
+}
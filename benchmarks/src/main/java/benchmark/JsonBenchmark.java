@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ui.js.JavaScriptUserInterface;
+
+/**
+ * This class measures building the JSON responses of the web user interface.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+	// the session used for requests, which is created by the first request
+	private static final int SESSION = 1;
+
+	private JavaScriptUserInterface ui;
+
+	/**
+	 * This method creates a user interface in the starting position.
+	 */
+	@Setup
+	public void setUp() {
+		ui = new JavaScriptUserInterface(SESSION);
+	}
+
+	/**
+	 * @return the JSON response for a board without a selected piece
+	 */
+	@Benchmark
+	public String returnJson() {
+		return ui.returnJson();
+	}
+
+	/**
+	 * This method selects the knight on g1 and then unselects it by selecting its square again, so
+	 * that one of the responses includes the legal moves of the knight.
+	 * 
+	 * @param blackhole the blackhole consuming the responses
+	 */
+	@Benchmark
+	public void selectSquare(Blackhole blackhole) {
+		blackhole.consume(JavaScriptUserInterface.handleSelectedSquare(7, 6, SESSION));
+		blackhole.consume(JavaScriptUserInterface.handleSelectedSquare(7, 6, SESSION));
+	}
+}
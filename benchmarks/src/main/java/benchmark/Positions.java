@@ -0,0 +1,103 @@
+package benchmark;
+
+import chess.Board;
+
+/**
+ * This class holds the positions and recorded games used by the benchmarks. Moves are written in
+ * coordinate notation, such as "e2e4" or "g7h8q". The opening and middlegame positions are reached
+ * by playing the moves of a game on a new board, while the endgame is loaded from FEN.
+ */
+final class Positions {
+	// the Ruy Lopez: 1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7
+	static final String[] RUY_LOPEZ = { "e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4",
+			"g8f6", "e1g1", "f8e7" };
+
+	// the Opera Game, Morphy vs. the Duke of Brunswick and Count Isouard, Paris 1858
+	static final String[] OPERA_GAME = { "e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5",
+			"g4f3", "d1f3", "d6e5", "f1c4", "g8f6", "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5",
+			"c3b5", "c6b5", "c4b5", "b8d7", "e1c1", "a8d8", "d1d7", "d8d7", "h1d1", "e7e6", "b5d7",
+			"f6d7", "b3b8", "d7b8", "d1d8" };
+
+	// a short game with an en passant capture and a promotion with capture
+	static final String[] PROMOTION_GAME = { "e2e4", "d7d5", "e4e5", "f7f5", "e5f6", "b8c6",
+			"f6g7", "g8f6", "g7h8q" };
+
+	// the middlegame is the Opera Game after 11... Nbd7, just before white castles queenside
+	static final int MIDDLEGAME_PLIES = 22;
+
+	// a rook endgame with pawns on both sides of the king, white to move
+	static final String ENDGAME = "8/5pk1/6p1/p6p/R6P/6P1/5PK1/1r6 w - - 0 1";
+
+	/**
+	 * This constructor is private since this class only contains static methods.
+	 */
+	private Positions() {
+	}
+
+	/**
+	 * This method creates a board in the named position. In every position it is white's turn to
+	 * move.
+	 * 
+	 * @param name "opening" for the Ruy Lopez, "middlegame" for the Opera Game after 11... Nbd7,
+	 *             or "endgame" for a rook endgame
+	 * @return a new board in the named position
+	 */
+	static Board createBoard(String name) {
+		switch (name) {
+		case "opening":
+			return play(RUY_LOPEZ, RUY_LOPEZ.length);
+		case "middlegame":
+			return play(OPERA_GAME, MIDDLEGAME_PLIES);
+		case "endgame":
+			return new Board(ENDGAME);
+		default:
+			throw new IllegalArgumentException("Unknown position: " + name);
+		}
+	}
+
+	/**
+	 * This method returns the moves of the named game.
+	 * 
+	 * @param name "opera" for the Opera Game or "promotion" for a short game with en passant and
+	 *             promotion
+	 * @return the moves of the game in coordinate notation
+	 */
+	static String[] getGame(String name) {
+		switch (name) {
+		case "opera":
+			return OPERA_GAME;
+		case "promotion":
+			return PROMOTION_GAME;
+		default:
+			throw new IllegalArgumentException("Unknown game: " + name);
+		}
+	}
+
+	/**
+	 * @param move a move in coordinate notation
+	 * @return the row and col of the square the piece moves from and of the square it moves to
+	 */
+	static int[] squares(String move) {
+		return new int[] { '8' - move.charAt(1), move.charAt(0) - 'a', '8' - move.charAt(3),
+				move.charAt(2) - 'a' };
+	}
+
+	/**
+	 * This method plays the first moves of a game on a new board.
+	 * 
+	 * @param moves the moves of the game in coordinate notation
+	 * @param plies the number of moves to play
+	 * @return the board after the moves have been played
+	 */
+	private static Board play(String[] moves, int plies) {
+		Board board = new Board();
+		for (int i = 0; i < plies; i++) {
+			int[] squares = squares(moves[i]);
+			boolean blackToMove = (i % 2) == 1;
+			board.handleSelectedSquare(squares[0], squares[1], blackToMove);
+			if (board.handleSelectedSquare(squares[2], squares[3], blackToMove) == Board.FAILURE)
+				throw new IllegalStateException("Illegal move: " + moves[i]);
+		}
+		return board;
+	}
+}
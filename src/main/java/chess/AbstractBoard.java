@@ -0,0 +1,317 @@
+package chess;
+
+import java.util.List;
+
+/**
+ * This class represents a chessboard. Subclasses decide how the position is stored: Board keeps a
+ * matrix of ChessPiece objects, while BitBoard keeps one 64-bit mask per piece type and color.
+ */
+public abstract class AbstractBoard {
+	// return values for handleSelectedSquare()
+	public static final int FAILURE = 0;
+	public static final int MOVE = 1;
+	public static final int SELECT = 2;
+	public static final int PROMOTE = 3;
+	public static final int CAPTURE = 4;
+	public static final int PAWN_MOVE = 5;
+
+	/**
+	 * This method returns an 8x8 matrix representing the current state of the board. Empty squares
+	 * are represented by zeros, and occupied squares are represented by the return value of the
+	 * occupying piece's toByte() method.
+	 * 
+	 * @return an 8x8 matrix representing the current state of the board
+	 */
+	public abstract byte[][] toByteArray();
+
+	/**
+	 * This method returns the piece on the given square, using the piece indices of BitBoard.
+	 * 
+	 * @param square the square, numbered 8 * row + col
+	 * @return the index of the piece on the square, such as BitBoard.PAWN for a white pawn or
+	 *         BitBoard.PAWN + BitBoard.BLACK_OFFSET for a black pawn, or BitBoard.EMPTY if the
+	 *         square is empty
+	 */
+	public abstract int getPiece(int square);
+
+	/**
+	 * @return the mask of occupied squares, with bit 8 * row + col set for each occupied square
+	 */
+	public abstract long getOccupancy();
+
+	/**
+	 * This method returns the pieces of both colors that attack the given square, for example to
+	 * work out an exchange of pieces on it. Only pieces on the given occupied squares count, and
+	 * sliding pieces are blocked only by those squares, so removing the pieces that have already
+	 * captured from the mask reveals the pieces behind them.
+	 * 
+	 * @param square   the square, numbered 8 * row + col
+	 * @param occupied the mask of squares to treat as occupied
+	 * @return the mask of squares of the attacking pieces
+	 */
+	public abstract long getAttackers(int square, long occupied);
+
+	/**
+	 * This method is run when the user selects a square on the chessboard.
+	 * 
+	 * @param row         the row of the selected square
+	 * @param col         the col of the selected square
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return one of the following constants: SELECT for successfully selecting a piece, PROMOTE
+	 *         for a successful move resulting in a pawn needing to be promoted, CAPTURE for a move
+	 *         resulting in a piece being captured, PAWN_MOVE for any other successful move of a
+	 *         pawn, MOVE for any other successful move, or FAILURE if unsuccessful
+	 */
+	public abstract int handleSelectedSquare(int row, int col, boolean blackToMove);
+
+	/**
+	 * This method returns a String representing the type of chess piece at the selected square, or
+	 * null if the square is empty.
+	 * 
+	 * @param row the row of the selected square
+	 * @param col the col of the selected square
+	 * @return "King", "Queen", "Rook", "Knight", "Bishop", or "Pawn", depending on the type of the
+	 *         chess piece at the selected square, or null if the square is empty
+	 */
+	public abstract String getPieceType(int row, int col);
+
+	/**
+	 * This method returns a two-character String identifying the selected square. The first
+	 * character is a lowercase letter between 'a' (left) and 'h' (right) identifying the column,
+	 * and the second character is a digit between '1' (bottom) and '8' (top) identifying the row.
+	 * 
+	 * @param row the row of the selected square
+	 * @param col the col of the selected square
+	 * @return a two-character String identifying the column and row of the selected square
+	 */
+	public String getSquareName(int row, int col) {
+		char colChar = (char) (97 + col);
+		char rowChar = (char) (56 - row);
+		return "" + colChar + rowChar;
+	}
+
+	/**
+	 * This method promotes the selected piece to the given piece type and then unselects the piece.
+	 * 
+	 * @param pieceType 'q' for Queen, 'r' for Rook, 'n' for Knight, or 'b' for Bishop
+	 */
+	public abstract void promote(char pieceType);
+
+	/**
+	 * This method checks whether the king of the specified color is in check in the current board
+	 * setup.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if white's turn
+	 * @return true if the king is in check and false if not
+	 */
+	public abstract boolean isCheck(boolean blackToMove);
+
+	/**
+	 * This method checks whether the current player has any legal moves.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return true if the current player has at least one legal move and false otherwise
+	 */
+	public abstract boolean anyLegalMoves(boolean blackToMove);
+
+	/**
+	 * This method returns a list of moves the piece at the specified location can legally make; if
+	 * the specified location is empty or if the piece is not the current player's color, this
+	 * method returns an empty list. Each move is represented as a two-element array, where the
+	 * first element indicates the row and the second element indicates the col of the piece's
+	 * position at the end of the move.
+	 * 
+	 * @param row         the row of the selected piece
+	 * @param col         the col of the selected piece
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return a list of legal moves, each represented as a two-element array containing the row and
+	 *         col of the piece's position at the end of the move
+	 */
+	public abstract List<int[]> getLegalMoves(int row, int col, boolean blackToMove);
+
+	/**
+	 * This method adds every legal move of the specified player to the given list, encoded by the
+	 * Move class. Promotions are added once for each piece a pawn can be promoted to.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param moves       the list to which the moves are added
+	 */
+	public abstract void generateMoves(boolean blackToMove, MoveList moves);
+
+	/**
+	 * This method adds the legal captures and promotions of the specified player to the given list,
+	 * which are the moves of generateMoves() that change the material on the board. Subclasses may
+	 * override it to generate these moves without generating the others.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param moves       the list to which the moves are added
+	 */
+	public void generateCaptures(boolean blackToMove, MoveList moves) {
+		MoveList allMoves = new MoveList();
+		generateMoves(blackToMove, allMoves);
+		for (int i = 0; i < allMoves.size(); i++) {
+			int move = allMoves.get(i);
+			if (Move.isCapture(move) || Move.isPromotion(move))
+				moves.add(move);
+		}
+	}
+
+	/**
+	 * This method adds the legal moves of the specified player that generateCaptures() does not add
+	 * to the given list. Subclasses may override it to generate these moves without generating the
+	 * others.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param moves       the list to which the moves are added
+	 */
+	public void generateQuietMoves(boolean blackToMove, MoveList moves) {
+		MoveList allMoves = new MoveList();
+		generateMoves(blackToMove, allMoves);
+		for (int i = 0; i < allMoves.size(); i++) {
+			int move = allMoves.get(i);
+			if (!Move.isCapture(move) && !Move.isPromotion(move))
+				moves.add(move);
+		}
+	}
+
+	/**
+	 * This method checks whether the given encoded move is one of the moves generateMoves() would
+	 * add, for example to check a move from a transposition table before making it. Subclasses may
+	 * override it to check the move without generating every move.
+	 * 
+	 * @param move        the encoded move
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return true if the move is legal and false otherwise
+	 */
+	public boolean isLegalMove(int move, boolean blackToMove) {
+		MoveList allMoves = new MoveList();
+		generateMoves(blackToMove, allMoves);
+		return allMoves.contains(move);
+	}
+
+	/**
+	 * This method makes the given legal move, encoded by the Move class. Unlike
+	 * handleSelectedSquare(), it does not select any squares, and promotions are completed
+	 * immediately.
+	 * 
+	 * @param move the move to make
+	 */
+	public abstract void makeMove(int move);
+
+	/**
+	 * This method undoes the given move, which must be the last move made by makeMove() that has
+	 * not yet been undone.
+	 * 
+	 * @param move the move to undo
+	 */
+	public abstract void unmakeMove(int move);
+
+	/**
+	 * This method passes the turn to the other player without moving a piece (a null move), which
+	 * is not a legal move in chess but lets a search test whether a position is still good when
+	 * the player to move does nothing. The en passant square is cleared, since a pawn that moved
+	 * two spaces can only be captured immediately. The player to move must not be in check.
+	 */
+	public abstract void makeNullMove();
+
+	/**
+	 * This method undoes the last null move, which must have been made by makeNullMove() after the
+	 * last move made by makeMove() that has not yet been undone.
+	 */
+	public abstract void unmakeNullMove();
+
+	/**
+	 * This method checks whether the given player has a piece other than the king and pawns. A
+	 * player with only the king and pawns is the most likely to be in zugzwang, where every move
+	 * makes the position worse.
+	 * 
+	 * @param isBlack true for the black player and false for the white player
+	 * @return true if the player has a knight, bishop, rook, or queen and false otherwise
+	 */
+	public abstract boolean hasNonPawnMaterial(boolean isBlack);
+
+	/**
+	 * This method returns the Zobrist key of the current position, which covers the pieces, the
+	 * player to move, the castling rights, and the file of a pawn that can legally be captured by
+	 * en passant. The key of the pieces is updated as moves are made, so this method does not scan
+	 * the board.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the Zobrist key of the current position
+	 */
+	public abstract long getZobristKey(boolean blackToMove);
+
+	/**
+	 * This method returns the castling rights of both players. A right is only included while the
+	 * king and the rook on that side are on their starting squares.
+	 * 
+	 * @return the castling rights, combined from the constants in BitBoard such as WHITE_KINGSIDE
+	 */
+	public abstract int getCastlingRights();
+
+	/**
+	 * This method returns the square a pawn passed over if the last move was a pawn moving two
+	 * spaces, whether or not the pawn can actually be captured by en passant.
+	 * 
+	 * @return the square, numbered 8 * row + col, or -1 if the last move was not a pawn moving two
+	 *         spaces
+	 */
+	public abstract int getEnPassantSquare();
+
+	/**
+	 * This method returns the current position in Forsyth-Edwards Notation without the halfmove
+	 * clock and fullmove number, which are kept by the game.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the piece placement, active color, castling, and en passant fields of the position
+	 */
+	public String toFen(boolean blackToMove) {
+		StringBuilder fen = new StringBuilder(90);
+		byte[][] board = toByteArray();
+		for (int row = 0; row < 8; row++) {
+			if (row > 0)
+				fen.append('/');
+			int empty = 0;
+			for (int col = 0; col < 8; col++) {
+				byte piece = board[row][col];
+				if (piece == 0) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					fen.append((char) ('0' + empty));
+					empty = 0;
+				}
+				// toByte() uses capital letters for black pieces, while FEN uses them for white
+				char c = (char) piece;
+				fen.append(Character.isUpperCase(c) ? Character.toLowerCase(c)
+						: Character.toUpperCase(c));
+			}
+			if (empty > 0)
+				fen.append((char) ('0' + empty));
+		}
+		fen.append(blackToMove ? " b " : " w ");
+		int rights = getCastlingRights();
+		if (rights == 0)
+			fen.append('-');
+		if ((rights & BitBoard.WHITE_KINGSIDE) != 0)
+			fen.append('K');
+		if ((rights & BitBoard.WHITE_QUEENSIDE) != 0)
+			fen.append('Q');
+		if ((rights & BitBoard.BLACK_KINGSIDE) != 0)
+			fen.append('k');
+		if ((rights & BitBoard.BLACK_QUEENSIDE) != 0)
+			fen.append('q');
+		int enPassantSquare = getEnPassantSquare();
+		fen.append(' ').append((enPassantSquare < 0) ? "-" : Move.squareName(enPassantSquare));
+		return fen.toString();
+	}
+
+	/**
+	 * This method returns a BoardState object representing the current board state.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return a BoardState object representing the current board state
+	 */
+	public abstract BoardState getBoardState(boolean blackToMove);
+}
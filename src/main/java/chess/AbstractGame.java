@@ -2,6 +2,7 @@ package chess;
 
 import java.util.List;
 
+import chess.engine.OpeningBook;
 import main.Mediator;
 
 /**
@@ -9,7 +10,7 @@ import main.Mediator;
  * interface.
  */
 public abstract class AbstractGame {
-	protected Board board;
+	protected AbstractBoard board;
 	protected Mediator mediator;
 	protected boolean blackToMove;
 	protected boolean isPromotion = false;
@@ -125,4 +126,16 @@ public abstract class AbstractGame {
 	 *         col of the piece's position at the end of the move
 	 */
 	public abstract List<int[]> getLegalMoves(int row, int col);
+
+	/**
+	 * This method chooses a move for the player to move from the given opening book, for example
+	 * to give the user a hint.
+	 * 
+	 * @param book the opening book
+	 * @return the move encoded by the Move class, or Move.NONE if the book has no move for the
+	 *         position or a pawn is being promoted
+	 */
+	public int getBookMove(OpeningBook book) {
+		return isPromotion ? Move.NONE : book.chooseMove(board, blackToMove);
+	}
 }
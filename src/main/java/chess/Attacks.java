@@ -0,0 +1,285 @@
+package chess;
+
+/**
+ * This class holds precomputed attack tables. Squares are numbered from 0 to 63 as (8 * row + col),
+ * and sets of squares are represented as 64-bit masks with the bit for each square in the set
+ * turned on. Knight, king, and pawn attacks are plain lookups by square. Rook and bishop attacks
+ * depend on which squares are occupied, so they are looked up with magic bitboards: the occupied
+ * squares that can block the piece are multiplied by a magic number chosen so that the top bits of
+ * the product index a table holding the attacks for every arrangement of blockers.
+ */
+public final class Attacks {
+	// colors, used as indices into PAWN_ATTACKS
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	private static final long[] KING_ATTACKS = new long[64];
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+	// the squares strictly between two squares on the same row, col, or diagonal, or zero for
+	// squares that are not aligned
+	private static final long[][] BETWEEN = new long[64][64];
+
+	// magic bitboard tables for rooks and bishops
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] ROOK_OFFSETS = new int[64];
+	private static final long[] ROOK_TABLE = new long[0x19000];
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	private static final long[] BISHOP_TABLE = new long[0x1480];
+
+	private static final int[][] KNIGHT_DELTAS = { { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 },
+			{ 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 } };
+	private static final int[][] STRAIGHT_DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+	private static final int[][] DIAGONAL_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 },
+			{ -1, -1 } };
+
+	// magic numbers for each square; these were found by trying sparse random numbers until one
+	// mapped every arrangement of blockers to a table entry without a conflicting collision
+	private static final long[] ROOK_MAGICS = {
+			0x0480_0462_8140_0010L, 0x80C0_2000_1000_4000L, 0x8780_2000_0830_0180L,
+			0x8880_0608_0010_0080L, 0x2100_0300_1008_0084L, 0x0100_0400_0100_0802L,
+			0x0200_0408_0081_0200L, 0x0580_0080_0240_7100L, 0x1000_8000_8040_0020L,
+			0x0080_4010_0040_2001L, 0x800C_8020_0210_0880L, 0x800A_0022_0088_4010L,
+			0x2046_0020_0810_8600L, 0x0222_0090_0200_0804L, 0x100B_0004_2100_1200L,
+			0x0240_8001_0000_4080L, 0x4540_0080_2040_8006L, 0x8010_0540_2008_4002L,
+			0x7D10_0101_0020_0040L, 0x1408_0080_1000_0882L, 0x4408_0100_0500_0810L,
+			0x001E_0080_0400_0280L, 0x0230_0400_0108_0210L, 0x0000_0200_0400_4081L,
+			0x0100_4000_8020_8001L, 0x1000_8423_0040_0100L, 0x1060_1000_8020_0082L,
+			0x3219_004B_0010_0020L, 0x9010_0800_8080_0400L, 0x8440_0200_8080_0400L,
+			0x6008_0100_8080_0200L, 0x4123_0082_0001_0044L, 0x0280_0020_0140_0240L,
+			0x0220_1000_4040_0020L, 0x0060_8010_0380_2008L, 0x0008_1000_8080_0800L,
+			0x0105_0008_0100_1004L, 0x100B_0008_0300_0400L, 0x0000_0248_1400_1021L,
+			0x0040_8000_C280_2100L, 0x4C40_0040_2080_8002L, 0x4410_5004_2002_4000L,
+			0x00C0_1000_2000_8080L, 0x0000_1000_0800_8080L, 0x8002_0008_0422_0011L,
+			0x0802_0008_0401_0100L, 0x0243_1002_0104_0008L, 0x0000_0091_0042_0014L,
+			0x1000_4002_8002_2480L, 0x0020_2000_4010_0040L, 0x00A0_0010_0800_C140L,
+			0x0410_0014_0800_8080L, 0x0000_0800_0400_8080L, 0x0100_0200_0400_8080L,
+			0x0303_0002_0004_0300L, 0x1480_0061_0400_8200L, 0x0000_8002_204A_1101L,
+			0x1040_0900_1022_4081L, 0x4300_C020_0011_000DL, 0x8002_0410_0100_2009L,
+			0x2005_0008_0002_0411L, 0x110A_0084_0810_0102L, 0x0006_0001_0800_8402L,
+			0x0200_0029_0088_4402L };
+	private static final long[] BISHOP_MAGICS = {
+			0x4808_1010_008A_2A80L, 0x0009_4811_0C0B_2081L, 0x0944_1404_0050_0000L,
+			0x4984_104A_0000_0101L, 0x4004_0308_1828_3008L, 0x0206_0124_6200_0121L,
+			0x1A02_0130_0804_0001L, 0x0001_0080_4420_0440L, 0x0000_3122_0808_0880L,
+			0x0220_0210_0200_9900L, 0x8080_8808_0108_2000L, 0x000C_1104_0080_102AL,
+			0x1402_4404_2100_0210L, 0x0010_1208_0208_0A81L, 0x0080_0842_0210_4028L,
+			0x1100_0020_8208_2082L, 0x0008_4034_2908_0820L, 0x8104_8682_0404_0412L,
+			0x6424_0840_4306_0030L, 0x1108_0004_2040_1000L, 0x9004_1012_0202_0240L,
+			0x0032_4006_0820_0412L, 0x0001_0096_1082_2080L, 0x0008_4034_2908_0820L,
+			0x0008_0683_4010_4200L, 0x0010_1028_5809_0121L, 0x8100_4C00_1808_0313L,
+			0x4048_0800_0482_0002L, 0x0009_0040_1C00_4049L, 0x0009_4201_21C1_101CL,
+			0x4828_5040_0504_0211L, 0x4828_5040_0504_0211L, 0x0041_0413_8120_2000L,
+			0x0100_8C10_0560_1680L, 0x01D0_1090_0002_040AL, 0x4040_0200_8008_0080L,
+			0x4801_0802_0080_2200L, 0x4801_0802_0080_2200L, 0x0010_0461_0810_8080L,
+			0x9040_9090_810A_0220L, 0x8004_0202_4220_1020L, 0x8004_0202_4220_1020L,
+			0x0202_0100_2802_0480L, 0x0000_0411_4400_0801L, 0x0000_2000_A402_1080L,
+			0x0504_0900_4504_0200L, 0x8182_0411_0209_4400L, 0x0550_0081_0048_0101L,
+			0xC002_0804_0404_0400L, 0x0382_0041_0829_2000L, 0x1200_0100_A804_0020L,
+			0xA005_0204_4208_8020L, 0x2000_0011_0202_0300L, 0x0000_21E0_420C_8808L,
+			0x3060_2004_8488_8400L, 0x0128_0101_021A_0802L, 0x1030_8201_1001_0500L,
+			0x0080_0126_0802_5800L, 0x0002_8100_8400_8800L, 0x8000_8000_0C20_8800L,
+			0xA408_0021_4002_8204L, 0x0010_0060_2032_2084L, 0x0210_4010_4411_0050L,
+			0x4010_6000_A116_0020L };
+
+	static {
+		for (int square = 0; square < 64; square++) {
+			int row = square >> 3;
+			int col = square & 7;
+			for (int[] delta : KNIGHT_DELTAS) {
+				KNIGHT_ATTACKS[square] |= bit(row + delta[0], col + delta[1]);
+			}
+			for (int i = -1; i <= 1; i++) {
+				for (int j = -1; j <= 1; j++) {
+					if ((i != 0) || (j != 0))
+						KING_ATTACKS[square] |= bit(row + i, col + j);
+				}
+			}
+			// white pawns move towards row 0 and black pawns towards row 7
+			PAWN_ATTACKS[WHITE][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+			PAWN_ATTACKS[BLACK][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+
+			// walk each ray, recording the squares passed over before reaching each square
+			for (int[][] directions : new int[][][] { STRAIGHT_DIRECTIONS, DIAGONAL_DIRECTIONS }) {
+				for (int[] direction : directions) {
+					long passed = 0;
+					int r = row + direction[0];
+					int c = col + direction[1];
+					while (bit(r, c) != 0) {
+						BETWEEN[square][(r << 3) + c] = passed;
+						passed |= bit(r, c);
+						r += direction[0];
+						c += direction[1];
+					}
+				}
+			}
+		}
+		initMagics(STRAIGHT_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS,
+				ROOK_TABLE);
+		initMagics(DIAGONAL_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS,
+				BISHOP_TABLE);
+	}
+
+	private Attacks() {
+	}
+
+	/**
+	 * This method returns a mask with only the bit for the specified location set, or zero if the
+	 * location is outside of the bounds of the board.
+	 * 
+	 * @param row the row of the square
+	 * @param col the col of the square
+	 * @return a mask containing only the specified square
+	 */
+	static long bit(int row, int col) {
+		if ((row < 0) || (row >= 8) || (col < 0) || (col >= 8))
+			return 0;
+		return 1L << ((row << 3) + col);
+	}
+
+	/**
+	 * This method computes the squares attacked by a sliding piece by walking each of its rays
+	 * until the edge of the board or an occupied square. It is only used to fill the magic tables.
+	 * 
+	 * @param square     the square of the piece
+	 * @param occupied   the mask of occupied squares
+	 * @param directions the directions in which the piece moves
+	 * @return the mask of attacked squares
+	 */
+	private static long slidingAttacks(int square, long occupied, int[][] directions) {
+		long attacks = 0;
+		for (int[] direction : directions) {
+			int row = (square >> 3) + direction[0];
+			int col = (square & 7) + direction[1];
+			while (bit(row, col) != 0) {
+				attacks |= bit(row, col);
+				if ((occupied & bit(row, col)) != 0)
+					break;
+				row += direction[0];
+				col += direction[1];
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * This method fills in the attack table for a sliding piece moving in the given directions.
+	 * 
+	 * @param directions the directions in which the piece moves
+	 * @param magics     the magic number for each square
+	 * @param masks      filled with the squares that can block the piece on each square
+	 * @param shifts     filled with the shift applied to the product for each square
+	 * @param offsets    filled with the start of each square's section of the table
+	 * @param table      filled with the attacks for every arrangement of blockers
+	 */
+	private static void initMagics(int[][] directions, long[] magics, long[] masks, int[] shifts,
+			int[] offsets, long[] table) {
+		int offset = 0;
+		for (int square = 0; square < 64; square++) {
+			// pieces on the edge of the board never block a ray, unless the piece is on that edge
+			int row = square >> 3;
+			int col = square & 7;
+			long edges = ((0xFFL | 0xFF00_0000_0000_0000L) & ~(0xFFL << (row << 3)))
+					| ((0x0101_0101_0101_0101L | 0x8080_8080_8080_8080L)
+							& ~(0x0101_0101_0101_0101L << col));
+			long mask = slidingAttacks(square, 0, directions) & ~edges;
+			masks[square] = mask;
+			shifts[square] = 64 - Long.bitCount(mask);
+			offsets[square] = offset;
+
+			// enumerate every subset of the mask and store the attacks it produces
+			long subset = 0;
+			do {
+				int index = (int) ((subset * magics[square]) >>> shifts[square]);
+				table[offset + index] = slidingAttacks(square, subset, directions);
+				subset = (subset - mask) & mask;
+			} while (subset != 0);
+			offset += 1 << Long.bitCount(mask);
+		}
+	}
+
+	/**
+	 * This method returns the squares a knight on the given square attacks.
+	 * 
+	 * @param square the square of the knight
+	 * @return the mask of attacked squares
+	 */
+	public static long knightAttacks(int square) {
+		return KNIGHT_ATTACKS[square];
+	}
+
+	/**
+	 * This method returns the squares a king on the given square attacks.
+	 * 
+	 * @param square the square of the king
+	 * @return the mask of attacked squares
+	 */
+	public static long kingAttacks(int square) {
+		return KING_ATTACKS[square];
+	}
+
+	/**
+	 * This method returns the squares a pawn of the given color on the given square attacks.
+	 * 
+	 * @param color  WHITE or BLACK
+	 * @param square the square of the pawn
+	 * @return the mask of attacked squares
+	 */
+	public static long pawnAttacks(int color, int square) {
+		return PAWN_ATTACKS[color][square];
+	}
+
+	/**
+	 * This method returns the squares a rook on the given square attacks.
+	 * 
+	 * @param square   the square of the rook
+	 * @param occupied the mask of occupied squares
+	 * @return the mask of attacked squares
+	 */
+	public static long rookAttacks(int square, long occupied) {
+		int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square])
+				>>> ROOK_SHIFTS[square]);
+		return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+	}
+
+	/**
+	 * This method returns the squares a bishop on the given square attacks.
+	 * 
+	 * @param square   the square of the bishop
+	 * @param occupied the mask of occupied squares
+	 * @return the mask of attacked squares
+	 */
+	public static long bishopAttacks(int square, long occupied) {
+		int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square])
+				>>> BISHOP_SHIFTS[square]);
+		return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+	}
+
+	/**
+	 * This method returns the squares a queen on the given square attacks.
+	 * 
+	 * @param square   the square of the queen
+	 * @param occupied the mask of occupied squares
+	 * @return the mask of attacked squares
+	 */
+	public static long queenAttacks(int square, long occupied) {
+		return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+	}
+
+	/**
+	 * This method returns the squares strictly between two squares that share a row, col, or
+	 * diagonal, which are the squares a piece can move to in order to block an attack from one
+	 * square to the other.
+	 * 
+	 * @param from the first square
+	 * @param to   the second square
+	 * @return the mask of squares between the two squares, or zero if they are not aligned
+	 */
+	public static long between(int from, int to) {
+		return BETWEEN[from][to];
+	}
+}
@@ -0,0 +1,969 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import chess.engine.EvaluationParameters;
+import chess.piece.ChessPiece;
+import chess.piece.King;
+
+/**
+ * This class represents a chessboard whose position is stored as bitboards: one 64-bit mask for
+ * each of the twelve piece types, plus one mask per color and one for all occupied squares. Bit
+ * (8 * row + col) of a mask is set if the corresponding square is occupied, so row 0 (the eighth
+ * rank) occupies the lowest eight bits.
+ */
+public class BitBoard extends AbstractBoard {
+	// piece types; the index of a piece in pieceMasks is its type plus BLACK_OFFSET for black
+	// pieces
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+	public static final int BLACK_OFFSET = 6;
+	public static final byte EMPTY = -1;
+
+	// colors, used as indices into colorMasks
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	// castling rights, stored as bits in castlingRights
+	public static final int WHITE_KINGSIDE = 0b1;
+	public static final int WHITE_QUEENSIDE = 0b10;
+	public static final int BLACK_KINGSIDE = 0b100;
+	public static final int BLACK_QUEENSIDE = 0b1000;
+
+	// the character representing each piece index, as returned by ChessPiece.toByte()
+	private static final String PIECE_CHARS = "pnbrqkPNBRQK";
+	// the character representing each piece index in FEN
+	private static final String FEN_CHARS = "PNBRQKpnbrqk";
+	private static final String[] PIECE_NAMES = { "Pawn", "Knight", "Bishop", "Rook", "Queen",
+			"King" };
+	// the rows on which pawns are promoted
+	private static final long PROMOTION_ROWS = 0xffL | (0xffL << 56);
+
+	private long[] pieceMasks = new long[12];
+	private long[] colorMasks = new long[2];
+	private long occupancy;
+	private byte[] squares = new byte[64]; // the piece index on each square, or EMPTY
+	private int castlingRights;
+	private int enPassantSquare = -1; // the square a pawn passed over when moving two spaces
+	private int selectedSquare = -1;
+	private long pieceKey; // the Zobrist key of the pieces, updated by addPiece() and removePiece()
+	private long pawnKey; // the Zobrist key of the pawns alone, updated in the same way
+
+	// the sums of the evaluation terms of the pieces, updated by addPiece() and removePiece(), so
+	// that a position can be evaluated without looking at every square
+	private EvaluationParameters evaluationParameters = EvaluationParameters.getDefault();
+	private int middlegameScore; // from white's side
+	private int endgameScore; // from white's side
+	private int phase;
+
+	// the state found by findChecksAndPins() for the player to move
+	private long checkMask; // the squares to which a piece other than the king may move
+	private long pinned; // the player's pieces that are pinned against the king
+	private long[] pinRays = new long[64]; // the squares to which each pinned piece may move
+
+	// the state needed to undo each move made by makeMove() that has not been undone: the captured
+	// piece plus one in bits 0-3, the castling rights in bits 4-7, and the en passant square plus
+	// one in bits 8-14
+	private int[] undoStack = new int[256];
+	private int undoCount = 0;
+	private MoveList checkedMoves = new MoveList(4); // the moves generated by isLegalMove()
+
+	/**
+	 * This method initializes a chessboard with all pieces in their normal starting positions.
+	 */
+	public BitBoard() {
+		Arrays.fill(squares, EMPTY);
+		int[] backRow = { ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK };
+		for (int col = 0; col < 8; col++) {
+			addPiece(col, backRow[col] + BLACK_OFFSET);
+			addPiece(8 + col, PAWN + BLACK_OFFSET);
+			addPiece(48 + col, PAWN);
+			addPiece(56 + col, backRow[col]);
+		}
+		castlingRights = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+	}
+
+	/**
+	 * This method initializes a chessboard with the pieces in the specified array. The array is
+	 * copied, so later changes to it are not reflected by this board.
+	 * 
+	 * @param pieces    the pieces to use
+	 * @param blackKing the black king
+	 * @param whiteKing the white king
+	 */
+	public BitBoard(ChessPiece[][] pieces, King blackKing, King whiteKing) {
+		Arrays.fill(squares, EMPTY);
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				if (pieces[row][col] != null) {
+					addPiece((row << 3) + col, PIECE_CHARS.indexOf(pieces[row][col].toByte()));
+				}
+			}
+		}
+		// a king can only castle if it and the rook on that side are still on their starting
+		// squares
+		if (isOnSquare(whiteKing, 60)) {
+			if (whiteKing.canCastleKingside() && (squares[63] == ROOK))
+				castlingRights |= WHITE_KINGSIDE;
+			if (whiteKing.canCastleQueenside() && (squares[56] == ROOK))
+				castlingRights |= WHITE_QUEENSIDE;
+		}
+		if (isOnSquare(blackKing, 4)) {
+			if (blackKing.canCastleKingside() && (squares[7] == ROOK + BLACK_OFFSET))
+				castlingRights |= BLACK_KINGSIDE;
+			if (blackKing.canCastleQueenside() && (squares[0] == ROOK + BLACK_OFFSET))
+				castlingRights |= BLACK_QUEENSIDE;
+		}
+	}
+
+	/**
+	 * This method initializes a chessboard with the position described by the given FEN string.
+	 * Only the piece placement, castling rights, and en passant fields are used; the player to move
+	 * and the move counters are left to the caller.
+	 * 
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @throws IllegalArgumentException if the piece placement or en passant field is invalid or if
+	 *                                  a player does not have exactly one king
+	 */
+	public BitBoard(String fen) {
+		Arrays.fill(squares, EMPTY);
+		String[] fields = fen.trim().split("\\s+");
+		int square = 0;
+		for (char c : fields[0].toCharArray()) {
+			if (c == '/')
+				continue;
+			if ((c >= '1') && (c <= '8')) {
+				square += c - '0';
+				continue;
+			}
+			// FEN uses capital letters for white pieces
+			int piece = FEN_CHARS.indexOf(c);
+			if ((piece < 0) || (square >= 64))
+				throw new IllegalArgumentException("Invalid FEN: " + fen);
+			addPiece(square++, piece);
+		}
+		if ((square != 64) || (Long.bitCount(pieceMasks[KING]) != 1)
+				|| (Long.bitCount(pieceMasks[KING + BLACK_OFFSET]) != 1))
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+
+		// a king can only castle if it and the rook on that side are on their starting squares
+		if (fields.length > 2) {
+			for (char c : fields[2].toCharArray()) {
+				if ((c == 'K') && (squares[60] == KING) && (squares[63] == ROOK))
+					castlingRights |= WHITE_KINGSIDE;
+				else if ((c == 'Q') && (squares[60] == KING) && (squares[56] == ROOK))
+					castlingRights |= WHITE_QUEENSIDE;
+				else if ((c == 'k') && (squares[4] == KING + BLACK_OFFSET)
+						&& (squares[7] == ROOK + BLACK_OFFSET))
+					castlingRights |= BLACK_KINGSIDE;
+				else if ((c == 'q') && (squares[4] == KING + BLACK_OFFSET)
+						&& (squares[0] == ROOK + BLACK_OFFSET))
+					castlingRights |= BLACK_QUEENSIDE;
+			}
+		}
+		if ((fields.length > 3) && !fields[3].equals("-")) {
+			String name = fields[3];
+			if ((name.length() != 2) || (name.charAt(0) < 'a') || (name.charAt(0) > 'h')
+					|| ((name.charAt(1) != '3') && (name.charAt(1) != '6')))
+				throw new IllegalArgumentException("Invalid FEN: " + fen);
+			enPassantSquare = (('8' - name.charAt(1)) << 3) + (name.charAt(0) - 'a');
+		}
+	}
+
+	/**
+	 * This method initializes a chessboard with the same position as the given board. Only the
+	 * position is copied; the selected square and the moves that can be undone are not.
+	 * 
+	 * @param other the board to copy
+	 */
+	public BitBoard(BitBoard other) {
+		pieceMasks = other.pieceMasks.clone();
+		colorMasks = other.colorMasks.clone();
+		occupancy = other.occupancy;
+		squares = other.squares.clone();
+		castlingRights = other.castlingRights;
+		enPassantSquare = other.enPassantSquare;
+		pieceKey = other.pieceKey;
+		pawnKey = other.pawnKey;
+		evaluationParameters = other.evaluationParameters;
+		middlegameScore = other.middlegameScore;
+		endgameScore = other.endgameScore;
+		phase = other.phase;
+	}
+
+	/**
+	 * This method replaces the position of this board with the given pieces, without castling
+	 * rights or an en passant square, so that many positions can be visited with one board, for
+	 * example to generate an endgame tablebase. Moves made before cannot be undone.
+	 * 
+	 * @param pieces       the index of each piece
+	 * @param pieceSquares the square of each piece, which must all be different
+	 */
+	public void setPosition(int[] pieces, int[] pieceSquares) {
+		for (long occupied = occupancy; occupied != 0; occupied &= occupied - 1) {
+			removePiece(Long.numberOfTrailingZeros(occupied));
+		}
+		for (int i = 0; i < pieces.length; i++) {
+			addPiece(pieceSquares[i], pieces[i]);
+		}
+		castlingRights = 0;
+		enPassantSquare = -1;
+		selectedSquare = -1;
+		undoCount = 0;
+	}
+
+	/**
+	 * This method checks whether the given piece is located on the specified square.
+	 * 
+	 * @param piece  the piece to check
+	 * @param square the square to check
+	 * @return true if the piece is not null and is located on the square and false otherwise
+	 */
+	private static boolean isOnSquare(ChessPiece piece, int square) {
+		return (piece != null) && ((piece.getRow() << 3) + piece.getCol() == square);
+	}
+
+	/**
+	 * This method places a piece on an empty square.
+	 * 
+	 * @param square the square on which to place the piece
+	 * @param piece  the index of the piece
+	 */
+	private void addPiece(int square, int piece) {
+		long mask = 1L << square;
+		pieceMasks[piece] |= mask;
+		colorMasks[piece / BLACK_OFFSET] |= mask;
+		occupancy |= mask;
+		squares[square] = (byte) piece;
+		pieceKey ^= Zobrist.piece(piece, square);
+		if ((piece % BLACK_OFFSET) == PAWN)
+			pawnKey ^= Zobrist.piece(piece, square);
+		middlegameScore += evaluationParameters.getMiddlegameScore(piece, square);
+		endgameScore += evaluationParameters.getEndgameScore(piece, square);
+		phase += evaluationParameters.getPhaseWeight(piece);
+	}
+
+	/**
+	 * This method removes the piece on an occupied square.
+	 * 
+	 * @param square the square from which to remove the piece
+	 */
+	private void removePiece(int square) {
+		int piece = squares[square];
+		long mask = ~(1L << square);
+		pieceMasks[piece] &= mask;
+		colorMasks[piece / BLACK_OFFSET] &= mask;
+		occupancy &= mask;
+		squares[square] = EMPTY;
+		pieceKey ^= Zobrist.piece(piece, square);
+		if ((piece % BLACK_OFFSET) == PAWN)
+			pawnKey ^= Zobrist.piece(piece, square);
+		middlegameScore -= evaluationParameters.getMiddlegameScore(piece, square);
+		endgameScore -= evaluationParameters.getEndgameScore(piece, square);
+		phase -= evaluationParameters.getPhaseWeight(piece);
+	}
+
+	/**
+	 * This method checks whether the given square is attacked by any piece of the given color.
+	 * Pieces on the squares in the excluded mask are ignored, which allows a move to be tested
+	 * without being made.
+	 * 
+	 * @param square   the square to check
+	 * @param color    the color of the attacking pieces
+	 * @param occupied the mask of occupied squares
+	 * @param excluded the mask of squares whose pieces should be ignored
+	 * @return true if the square is attacked and false otherwise
+	 */
+	private boolean isAttacked(int square, int color, long occupied, long excluded) {
+		int offset = color * BLACK_OFFSET;
+		// a pawn of the given color attacks the square if a pawn of the other color on the square
+		// would attack the pawn
+		if ((Attacks.pawnAttacks(1 - color, square) & pieceMasks[PAWN + offset] & ~excluded) != 0)
+			return true;
+		if ((Attacks.knightAttacks(square) & pieceMasks[KNIGHT + offset] & ~excluded) != 0)
+			return true;
+		if ((Attacks.kingAttacks(square) & pieceMasks[KING + offset]) != 0)
+			return true;
+		long queens = pieceMasks[QUEEN + offset];
+		long straight = (pieceMasks[ROOK + offset] | queens) & ~excluded;
+		if ((straight != 0) && ((Attacks.rookAttacks(square, occupied) & straight) != 0))
+			return true;
+		long diagonal = (pieceMasks[BISHOP + offset] | queens) & ~excluded;
+		return (diagonal != 0) && ((Attacks.bishopAttacks(square, occupied) & diagonal) != 0);
+	}
+
+	/**
+	 * This method returns the square of the king of the given color, or -1 if there is no such
+	 * king.
+	 * 
+	 * @param color the color of the king
+	 * @return the square of the king, or -1 if there is none
+	 */
+	private int kingSquare(int color) {
+		long king = pieceMasks[KING + (color * BLACK_OFFSET)];
+		return (king == 0) ? -1 : Long.numberOfTrailingZeros(king);
+	}
+
+	/**
+	 * This method checks whether moving the piece on one square to another would leave the
+	 * player's own king in check, without making the move.
+	 * 
+	 * @param from the square the piece moves from
+	 * @param to   the square the piece moves to
+	 * @return true if the move leaves the king in check and false otherwise
+	 */
+	private boolean doesMoveEndInCheck(int from, int to) {
+		int piece = squares[from];
+		int color = piece / BLACK_OFFSET;
+		int kingSquare = (piece % BLACK_OFFSET == KING) ? to : kingSquare(color);
+		if (kingSquare < 0)
+			return false;
+		long captured = 1L << to;
+		if ((piece % BLACK_OFFSET == PAWN) && (to == enPassantSquare)) {
+			captured = 1L << (to + ((color == WHITE) ? 8 : -8));
+		}
+		long occupied = (occupancy & ~(1L << from) & ~captured) | (1L << to);
+		return isAttacked(kingSquare, 1 - color, occupied, captured);
+	}
+
+	/**
+	 * This method returns the squares the piece on the given square could move to if check were
+	 * ignored. Castling is not included.
+	 * 
+	 * @param square the square of the piece
+	 * @return the mask of reachable squares
+	 */
+	private long pseudoLegalTargets(int square) {
+		int piece = squares[square];
+		int color = piece / BLACK_OFFSET;
+		long own = colorMasks[color];
+		long enemy = colorMasks[1 - color];
+		switch (piece % BLACK_OFFSET) {
+		case PAWN:
+			long pawn = 1L << square;
+			long empty = ~occupancy;
+			long targets;
+			if (color == WHITE) {
+				long single = (pawn >>> 8) & empty;
+				targets = single | ((square >> 3 == 6) ? (single >>> 8) & empty : 0);
+			} else {
+				long single = (pawn << 8) & empty;
+				targets = single | ((square >> 3 == 1) ? (single << 8) & empty : 0);
+			}
+			long captures = enemy;
+			// en passant is only possible for the color whose pawn did not just move two spaces
+			if ((enPassantSquare >= 0) && ((enPassantSquare >> 3) == ((color == WHITE) ? 2 : 5))) {
+				captures |= 1L << enPassantSquare;
+			}
+			return targets | (Attacks.pawnAttacks(color, square) & captures);
+		case KNIGHT:
+			return Attacks.knightAttacks(square) & ~own;
+		case BISHOP:
+			return Attacks.bishopAttacks(square, occupancy) & ~own;
+		case ROOK:
+			return Attacks.rookAttacks(square, occupancy) & ~own;
+		case QUEEN:
+			return Attacks.queenAttacks(square, occupancy) & ~own;
+		default:
+			return Attacks.kingAttacks(square) & ~own;
+		}
+	}
+
+	/**
+	 * This method checks whether the king of the given color can castle to the given side.
+	 * 
+	 * @param color the color of the king
+	 * @param right the castling right for that side, such as WHITE_KINGSIDE
+	 * @return true if castling is legal and false otherwise
+	 */
+	private boolean isCastleLegal(int color, int right) {
+		if ((castlingRights & right) == 0)
+			return false;
+		int kingSquare = (color == WHITE) ? 60 : 4;
+		boolean kingside = (right == WHITE_KINGSIDE) || (right == BLACK_KINGSIDE);
+		int direction = kingside ? 1 : -1;
+		int rookSquare = kingside ? kingSquare + 3 : kingSquare - 4;
+		if (squares[rookSquare] != ROOK + (color * BLACK_OFFSET))
+			return false;
+		// all squares between the king and the rook must be empty
+		for (int square = kingSquare + direction; square != rookSquare; square += direction) {
+			if (squares[square] != EMPTY)
+				return false;
+		}
+		// the king may not castle out of, through, or into check
+		for (int i = 0; i <= 2; i++) {
+			if (isAttacked(kingSquare + (i * direction), 1 - color, occupancy, 0))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method returns the pieces of the given color that attack the given square.
+	 * 
+	 * @param square   the square to check
+	 * @param color    the color of the attacking pieces
+	 * @param occupied the mask of occupied squares to use for sliding pieces
+	 * @return the mask of squares of the attacking pieces
+	 */
+	private long attackers(int square, int color, long occupied) {
+		int offset = color * BLACK_OFFSET;
+		long queens = pieceMasks[QUEEN + offset];
+		return (Attacks.pawnAttacks(1 - color, square) & pieceMasks[PAWN + offset])
+				| (Attacks.knightAttacks(square) & pieceMasks[KNIGHT + offset])
+				| (Attacks.kingAttacks(square) & pieceMasks[KING + offset])
+				| (Attacks.rookAttacks(square, occupied) & (pieceMasks[ROOK + offset] | queens))
+				| (Attacks.bishopAttacks(square, occupied)
+						& (pieceMasks[BISHOP + offset] | queens));
+	}
+
+	/**
+	 * This method finds the pieces checking the king of the given color and the pieces pinned
+	 * against it, which legalTargets() uses to check moves of that color without making them. It
+	 * must be called again whenever the board changes.
+	 * 
+	 * @param color the color of the king
+	 */
+	private void findChecksAndPins(int color) {
+		checkMask = -1L;
+		pinned = 0;
+		int kingSquare = kingSquare(color);
+		if (kingSquare < 0)
+			return;
+
+		// a piece other than the king can only answer a single check, by capturing the checking
+		// piece or moving between it and the king
+		long checkers = attackers(kingSquare, 1 - color, occupancy);
+		if ((checkers & (checkers - 1)) != 0) {
+			checkMask = 0;
+		} else if (checkers != 0) {
+			checkMask = checkers
+					| Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+		}
+
+		// a piece is pinned if it is the only piece between the king and an opposing sliding
+		// piece that would otherwise attack the king
+		int offset = (1 - color) * BLACK_OFFSET;
+		long queens = pieceMasks[QUEEN + offset];
+		long snipers = (Attacks.rookAttacks(kingSquare, 0) & (pieceMasks[ROOK + offset] | queens))
+				| (Attacks.bishopAttacks(kingSquare, 0) & (pieceMasks[BISHOP + offset] | queens));
+		while (snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = Attacks.between(kingSquare, sniper) & occupancy;
+			if ((blockers != 0) && ((blockers & (blockers - 1)) == 0)
+					&& ((blockers & colorMasks[color]) != 0)) {
+				pinned |= blockers;
+				pinRays[Long.numberOfTrailingZeros(blockers)] = Attacks.between(kingSquare, sniper)
+						| (1L << sniper);
+			}
+		}
+	}
+
+	/**
+	 * This method returns the squares the piece on the given square can legally move to, using the
+	 * checks and pins found by the last call to findChecksAndPins() for the piece's color.
+	 * 
+	 * @param square the square of the piece
+	 * @return the mask of legal target squares
+	 */
+	private long legalTargets(int square) {
+		int piece = squares[square];
+		int color = piece / BLACK_OFFSET;
+		long candidates = pseudoLegalTargets(square);
+		if (piece % BLACK_OFFSET == KING) {
+			// the king must not move to an attacked square, including squares on the far side of
+			// it from a sliding piece that is checking it
+			long targets = 0;
+			long occupied = occupancy & ~(1L << square);
+			while (candidates != 0) {
+				int to = Long.numberOfTrailingZeros(candidates);
+				candidates &= candidates - 1;
+				if (!isAttacked(to, 1 - color, occupied, 0))
+					targets |= 1L << to;
+			}
+			if (isCastleLegal(color, (color == WHITE) ? WHITE_KINGSIDE : BLACK_KINGSIDE))
+				targets |= 1L << (square + 2);
+			if (isCastleLegal(color, (color == WHITE) ? WHITE_QUEENSIDE : BLACK_QUEENSIDE))
+				targets |= 1L << (square - 2);
+			return targets;
+		}
+
+		// en passant can discover a check along the row of both pawns, so it is tested by making
+		// the move
+		long enPassant = 0;
+		if ((piece % BLACK_OFFSET == PAWN) && (enPassantSquare >= 0)) {
+			enPassant = candidates & (1L << enPassantSquare);
+			candidates &= ~enPassant;
+			if ((enPassant != 0) && doesMoveEndInCheck(square, enPassantSquare))
+				enPassant = 0;
+		}
+		long targets = candidates & checkMask;
+		if ((pinned & (1L << square)) != 0)
+			targets &= pinRays[square];
+		return targets | enPassant;
+	}
+
+	/**
+	 * This method removes the castling rights that depend on a piece remaining on the given square.
+	 * 
+	 * @param square a square that a piece moved from or to
+	 */
+	private void updateCastlingRights(int square) {
+		switch (square) {
+		case 0:
+			castlingRights &= ~BLACK_QUEENSIDE;
+			break;
+		case 4:
+			castlingRights &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+			break;
+		case 7:
+			castlingRights &= ~BLACK_KINGSIDE;
+			break;
+		case 56:
+			castlingRights &= ~WHITE_QUEENSIDE;
+			break;
+		case 60:
+			castlingRights &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+			break;
+		case 63:
+			castlingRights &= ~WHITE_KINGSIDE;
+			break;
+		}
+	}
+
+	/**
+	 * This method moves the piece on one square to another, handling captures, en passant,
+	 * castling, and castling rights. The move must be legal. Pawns reaching the last row are not
+	 * promoted by this method.
+	 * 
+	 * @param from the square the piece moves from
+	 * @param to   the square the piece moves to
+	 */
+	private void move(int from, int to) {
+		int piece = squares[from];
+		int type = piece % BLACK_OFFSET;
+		if (squares[to] != EMPTY) {
+			removePiece(to);
+		} else if ((type == PAWN) && (to == enPassantSquare)) {
+			removePiece(to + ((piece < BLACK_OFFSET) ? 8 : -8));
+		} else if ((type == KING) && (Math.abs(to - from) == 2)) {
+			// move the rook to the square the king passed over
+			int rookFrom = (to > from) ? from + 3 : from - 4;
+			int rook = squares[rookFrom];
+			removePiece(rookFrom);
+			addPiece((from + to) >> 1, rook);
+		}
+		removePiece(from);
+		addPiece(to, piece);
+		enPassantSquare = ((type == PAWN) && (Math.abs(to - from) == 16)) ? (from + to) >> 1 : -1;
+		updateCastlingRights(from);
+		updateCastlingRights(to);
+	}
+
+	@Override
+	public byte[][] toByteArray() {
+		byte[][] array = new byte[8][8];
+		for (int square = 0; square < 64; square++) {
+			if (squares[square] != EMPTY) {
+				array[square >> 3][square & 7] = (byte) PIECE_CHARS.charAt(squares[square]);
+			}
+		}
+		return array;
+	}
+
+	@Override
+	public int getPiece(int square) {
+		return squares[square];
+	}
+
+	@Override
+	public long getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * @param piece the piece index, such as PAWN for a white pawn or PAWN + BLACK_OFFSET for a
+	 *              black pawn
+	 * @return the mask of the squares of the pieces with the given index
+	 */
+	public long getPieceMask(int piece) {
+		return pieceMasks[piece];
+	}
+
+	/**
+	 * @return the Zobrist key of the pawns alone, which only changes when a pawn moves, is
+	 *         captured, or is promoted
+	 */
+	public long getPawnKey() {
+		return pawnKey;
+	}
+
+	/**
+	 * @return the evaluation parameters used by getMiddlegameScore(), getEndgameScore(), and
+	 *         getPhase(), which are the default parameters when the board was created
+	 */
+	public EvaluationParameters getEvaluationParameters() {
+		return evaluationParameters;
+	}
+
+	/**
+	 * @return the sum of the middlegame values and square bonuses of the pieces, from white's side
+	 */
+	public int getMiddlegameScore() {
+		return middlegameScore;
+	}
+
+	/**
+	 * @return the sum of the endgame values and square bonuses of the pieces, from white's side
+	 */
+	public int getEndgameScore() {
+		return endgameScore;
+	}
+
+	/**
+	 * @return the sum of the phase weights of the pieces, which is getMaxPhase() of the evaluation
+	 *         parameters in the starting position and decreases as pieces are captured
+	 */
+	public int getPhase() {
+		return phase;
+	}
+
+	@Override
+	public long getAttackers(int square, long occupied) {
+		long queens = pieceMasks[QUEEN] | pieceMasks[QUEEN + BLACK_OFFSET];
+		long straight = pieceMasks[ROOK] | pieceMasks[ROOK + BLACK_OFFSET] | queens;
+		long diagonal = pieceMasks[BISHOP] | pieceMasks[BISHOP + BLACK_OFFSET] | queens;
+		// a piece attacks the square if it stands on a square that a piece of the same type on the
+		// given square would attack, with pawns of the other color
+		long attackers = (Attacks.pawnAttacks(BLACK, square) & pieceMasks[PAWN])
+				| (Attacks.pawnAttacks(WHITE, square) & pieceMasks[PAWN + BLACK_OFFSET])
+				| (Attacks.knightAttacks(square)
+						& (pieceMasks[KNIGHT] | pieceMasks[KNIGHT + BLACK_OFFSET]))
+				| (Attacks.kingAttacks(square)
+						& (pieceMasks[KING] | pieceMasks[KING + BLACK_OFFSET]))
+				| (Attacks.rookAttacks(square, occupied) & straight)
+				| (Attacks.bishopAttacks(square, occupied) & diagonal);
+		return attackers & occupied;
+	}
+
+	@Override
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	@Override
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+
+	@Override
+	public int handleSelectedSquare(int row, int col, boolean blackToMove) {
+		int square = (row << 3) + col;
+		// if a piece has already been selected, attempt to move the selected piece to the selected
+		// square
+		if (selectedSquare >= 0) {
+			int from = selectedSquare;
+			selectedSquare = -1;
+			findChecksAndPins(squares[from] / BLACK_OFFSET);
+			if ((legalTargets(from) & (1L << square)) == 0)
+				return FAILURE;
+			boolean isPawnMove = squares[from] % BLACK_OFFSET == PAWN;
+			boolean isCapture = (squares[square] != EMPTY)
+					|| (isPawnMove && (square == enPassantSquare));
+			move(from, square);
+			// a pawn reaching the last row stays selected until it is promoted
+			if (isPawnMove && ((row == 0) || (row == 7))) {
+				selectedSquare = square;
+				return PROMOTE;
+			}
+			return isCapture ? CAPTURE : (isPawnMove ? PAWN_MOVE : MOVE);
+		}
+		// if no piece has been selected, select the piece at the chosen square if it is the correct
+		// color
+		if ((squares[square] == EMPTY) || ((squares[square] >= BLACK_OFFSET) != blackToMove))
+			return FAILURE;
+		selectedSquare = square;
+		return SELECT;
+	}
+
+	@Override
+	public String getPieceType(int row, int col) {
+		int piece = squares[(row << 3) + col];
+		if (piece == EMPTY)
+			return null;
+		return PIECE_NAMES[piece % BLACK_OFFSET];
+	}
+
+	@Override
+	public void promote(char pieceType) {
+		if (selectedSquare < 0)
+			return;
+		int type;
+		switch (pieceType) {
+		case 'q':
+			type = QUEEN;
+			break;
+		case 'r':
+			type = ROOK;
+			break;
+		case 'n':
+			type = KNIGHT;
+			break;
+		case 'b':
+			type = BISHOP;
+			break;
+		default:
+			return;
+		}
+		int color = squares[selectedSquare] / BLACK_OFFSET;
+		removePiece(selectedSquare);
+		addPiece(selectedSquare, type + (color * BLACK_OFFSET));
+		selectedSquare = -1;
+	}
+
+	@Override
+	public boolean isCheck(boolean blackToMove) {
+		int color = blackToMove ? BLACK : WHITE;
+		int kingSquare = kingSquare(color);
+		return (kingSquare >= 0) && isAttacked(kingSquare, 1 - color, occupancy, 0);
+	}
+
+	@Override
+	public boolean anyLegalMoves(boolean blackToMove) {
+		long pieces = colorMasks[blackToMove ? BLACK : WHITE];
+		findChecksAndPins(blackToMove ? BLACK : WHITE);
+		while (pieces != 0) {
+			if (legalTargets(Long.numberOfTrailingZeros(pieces)) != 0)
+				return true;
+			pieces &= pieces - 1;
+		}
+		return false;
+	}
+
+	@Override
+	public List<int[]> getLegalMoves(int row, int col, boolean blackToMove) {
+		List<int[]> moves = new ArrayList<>();
+		int piece = squares[(row << 3) + col];
+		if ((piece == EMPTY) || ((piece >= BLACK_OFFSET) != blackToMove))
+			return moves;
+		findChecksAndPins(blackToMove ? BLACK : WHITE);
+		long targets = legalTargets((row << 3) + col);
+		while (targets != 0) {
+			int square = Long.numberOfTrailingZeros(targets);
+			moves.add(new int[] { square >> 3, square & 7 });
+			targets &= targets - 1;
+		}
+		return moves;
+	}
+
+	@Override
+	public void generateMoves(boolean blackToMove, MoveList moves) {
+		generateMoves(blackToMove, moves, -1L, -1L);
+	}
+
+	@Override
+	public void generateCaptures(boolean blackToMove, MoveList moves) {
+		int color = blackToMove ? BLACK : WHITE;
+		generateMoves(blackToMove, moves, colorMasks[1 - color], noisyPawnTargets(color));
+	}
+
+	@Override
+	public void generateQuietMoves(boolean blackToMove, MoveList moves) {
+		int color = blackToMove ? BLACK : WHITE;
+		generateMoves(blackToMove, moves, ~colorMasks[1 - color], ~noisyPawnTargets(color));
+	}
+
+	@Override
+	public boolean isLegalMove(int move, boolean blackToMove) {
+		int from = Move.from(move);
+		int piece = squares[from];
+		if ((piece == EMPTY) || ((piece >= BLACK_OFFSET) != blackToMove))
+			return false;
+		findChecksAndPins(blackToMove ? BLACK : WHITE);
+		// the flags of the move must also match those generateMoves() would give it
+		checkedMoves.clear();
+		addMoves(from, legalTargets(from) & (1L << Move.to(move)), checkedMoves);
+		return checkedMoves.contains(move);
+	}
+
+	/**
+	 * This method returns the squares on which a pawn of the given color captures or is promoted.
+	 * 
+	 * @param color the color of the pawn
+	 * @return the mask of the squares
+	 */
+	private long noisyPawnTargets(int color) {
+		long targets = colorMasks[1 - color] | PROMOTION_ROWS;
+		return (enPassantSquare >= 0) ? targets | (1L << enPassantSquare) : targets;
+	}
+
+	/**
+	 * This method adds the legal moves of the specified player to the given squares to the given
+	 * list.
+	 * 
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param moves       the list to which the moves are added
+	 * @param targetMask  the squares to which pieces other than pawns may move
+	 * @param pawnMask    the squares to which pawns may move
+	 */
+	private void generateMoves(boolean blackToMove, MoveList moves, long targetMask,
+			long pawnMask) {
+		long pieces = colorMasks[blackToMove ? BLACK : WHITE];
+		findChecksAndPins(blackToMove ? BLACK : WHITE);
+		while (pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			long mask = (squares[from] % BLACK_OFFSET == PAWN) ? pawnMask : targetMask;
+			addMoves(from, legalTargets(from) & mask, moves);
+		}
+	}
+
+	/**
+	 * This method adds the moves of the piece on the given square to the given squares to the given
+	 * list, encoded by the Move class.
+	 * 
+	 * @param from    the square of the piece
+	 * @param targets the squares to which the piece may legally move
+	 * @param moves   the list to which the moves are added
+	 */
+	private void addMoves(int from, long targets, MoveList moves) {
+		int type = squares[from] % BLACK_OFFSET;
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			boolean isCapture = squares[to] != EMPTY;
+			int flags = isCapture ? Move.CAPTURE : Move.QUIET;
+			if (type == PAWN) {
+				if ((to < 8) || (to >= 56)) {
+					for (int promotion = QUEEN; promotion >= KNIGHT; promotion--) {
+						moves.add(Move.createPromotion(from, to, promotion, isCapture));
+					}
+					continue;
+				}
+				if (to == enPassantSquare) {
+					flags = Move.EN_PASSANT;
+				} else if (Math.abs(to - from) == 16) {
+					flags = Move.DOUBLE_PAWN_PUSH;
+				}
+			} else if ((type == KING) && (Math.abs(to - from) == 2)) {
+				flags = (to > from) ? Move.KING_CASTLE : Move.QUEEN_CASTLE;
+			}
+			moves.add(Move.create(from, to, flags));
+		}
+	}
+
+	@Override
+	public void makeMove(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
+		int piece = squares[from];
+		int captured = squares[to];
+		if (flags == Move.EN_PASSANT) {
+			captured = squares[to + ((piece < BLACK_OFFSET) ? 8 : -8)];
+		}
+		if (undoCount == undoStack.length) {
+			undoStack = Arrays.copyOf(undoStack, 2 * undoCount);
+		}
+		undoStack[undoCount++] = (captured + 1) | (castlingRights << 4)
+				| ((enPassantSquare + 1) << 8);
+		move(from, to);
+		if ((flags & Move.PROMOTION) != 0) {
+			removePiece(to);
+			addPiece(to, Move.promotionType(move) + ((piece < BLACK_OFFSET) ? 0 : BLACK_OFFSET));
+		}
+	}
+
+	@Override
+	public void unmakeMove(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
+		int state = undoStack[--undoCount];
+		int piece = squares[to];
+		if ((flags & Move.PROMOTION) != 0) {
+			piece = PAWN + ((piece < BLACK_OFFSET) ? 0 : BLACK_OFFSET);
+		}
+		removePiece(to);
+		addPiece(from, piece);
+		int captured = (state & 0xf) - 1;
+		if (flags == Move.EN_PASSANT) {
+			addPiece(to + ((piece < BLACK_OFFSET) ? 8 : -8), captured);
+		} else if (captured != EMPTY) {
+			addPiece(to, captured);
+		} else if ((flags == Move.KING_CASTLE) || (flags == Move.QUEEN_CASTLE)) {
+			// move the rook back to its corner
+			int rookSquare = (from + to) >> 1;
+			int rook = squares[rookSquare];
+			removePiece(rookSquare);
+			addPiece((flags == Move.KING_CASTLE) ? from + 3 : from - 4, rook);
+		}
+		castlingRights = (state >> 4) & 0xf;
+		enPassantSquare = (state >> 8) - 1;
+	}
+
+	@Override
+	public void makeNullMove() {
+		if (undoCount == undoStack.length) {
+			undoStack = Arrays.copyOf(undoStack, 2 * undoCount);
+		}
+		undoStack[undoCount++] = (castlingRights << 4) | ((enPassantSquare + 1) << 8);
+		enPassantSquare = -1;
+	}
+
+	@Override
+	public void unmakeNullMove() {
+		enPassantSquare = (undoStack[--undoCount] >> 8) - 1;
+	}
+
+	@Override
+	public boolean hasNonPawnMaterial(boolean isBlack) {
+		int offset = isBlack ? BLACK_OFFSET : 0;
+		return (colorMasks[isBlack ? BLACK : WHITE]
+				& ~(pieceMasks[PAWN + offset] | pieceMasks[KING + offset])) != 0;
+	}
+
+	/**
+	 * This method checks whether the pawn that just moved two spaces can be captured by en passant.
+	 * 
+	 * @return true if en passant is legal and false otherwise
+	 */
+	private boolean isEnPassantLegal() {
+		if (enPassantSquare < 0)
+			return false;
+		int color = (enPassantSquare >> 3 == 2) ? WHITE : BLACK;
+		// the pawns that could capture are those that would attack the en passant square if they
+		// were of the other color
+		long pawns = Attacks.pawnAttacks(1 - color, enPassantSquare)
+				& pieceMasks[PAWN + (color * BLACK_OFFSET)];
+		while (pawns != 0) {
+			if (!doesMoveEndInCheck(Long.numberOfTrailingZeros(pawns), enPassantSquare))
+				return true;
+			pawns &= pawns - 1;
+		}
+		return false;
+	}
+
+	@Override
+	public long getZobristKey(boolean blackToMove) {
+		long key = pieceKey ^ Zobrist.castling(castlingRights);
+		if (isEnPassantLegal()) {
+			key ^= Zobrist.enPassantFile(enPassantSquare & 7);
+		}
+		return blackToMove ? key ^ Zobrist.blackToMove() : key;
+	}
+
+	@Override
+	public BoardState getBoardState(boolean blackToMove) {
+		return new BoardState(toByteArray(), blackToMove, isEnPassantLegal(),
+				(castlingRights & BLACK_KINGSIDE) != 0, (castlingRights & BLACK_QUEENSIDE) != 0,
+				(castlingRights & WHITE_KINGSIDE) != 0, (castlingRights & WHITE_QUEENSIDE) != 0);
+	}
+}
@@ -7,9 +7,19 @@ import java.util.List;
 import chess.piece.*;
 
 /**
- * This class represents a chessboard.
+ * This class represents a chessboard whose position is stored as a matrix of ChessPiece objects.
  */
-public class Board {
+public class Board extends AbstractBoard {
+	// the character representing each piece index of BitBoard, as returned by ChessPiece.toByte()
+	private static final String PIECE_CHARS = "pnbrqkPNBRQK";
+	// the steps of each type of piece, as changes of row and col; queens and kings use all eight
+	private static final int[][] KNIGHT_STEPS = { { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 },
+			{ 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 } };
+	private static final int[][] STRAIGHT_STEPS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+	private static final int[][] DIAGONAL_STEPS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+	private static final int[][] KING_STEPS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 },
+			{ 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
 	private ChessPiece[][] pieces;
 	private King blackKing;
 	private King whiteKing;
@@ -19,14 +29,14 @@ public class Board {
 	private Pawn enPassantPawn = null; // if en passant is legal, this is the pawn that can be
 										// captured by en passant
 	private MoveValidator validator;
+	private ArrayList<UndoInfo> undoStack = new ArrayList<>(); // reused by makeMove(int)
+	private int undoCount = 0;
+	private long pieceKey; // the Zobrist key of the pieces, updated by setPiece()
 
-	// return values for handleSelectedSquare()
-	public static final int FAILURE = 0;
-	public static final int MOVE = 1;
-	public static final int SELECT = 2;
-	public static final int PROMOTE = 3;
-	public static final int CAPTURE = 4;
-	public static final int PAWN_MOVE = 5;
+	// the legal moves of the player to move, which are generated once per position
+	private MoveList legalMoves = new MoveList();
+	private long legalMovesKey; // the getCacheKey() of the position in which they were generated
+	private boolean areLegalMovesValid = false;
 
 	/**
 	 * This method initializes a chessboard with all pieces in their normal starting positions.
@@ -71,8 +81,9 @@ public class Board {
 			whitePieces.add(pieces[7][i]);
 		}
 
-		// initialize move validator
-		validator = new MoveValidator(pieces, blackKing, whiteKing);
+		// initialize move validator and key
+		validator = new MoveValidator(this, pieces, blackKing, whiteKing);
+		pieceKey = Zobrist.pieceKey(toByteArray());
 	}
 
 	/**
@@ -86,7 +97,8 @@ public class Board {
 		this.pieces = pieces;
 		this.blackKing = blackKing;
 		this.whiteKing = whiteKing;
-		validator = new MoveValidator(pieces, blackKing, whiteKing);
+		validator = new MoveValidator(this, pieces, blackKing, whiteKing);
+		pieceKey = Zobrist.pieceKey(toByteArray());
 		for (int i = 0; i < 8; i++) {
 			for (int j = 0; j < 8; j++) {
 				ChessPiece piece = pieces[i][j];
@@ -102,12 +114,148 @@ public class Board {
 	}
 
 	/**
-	 * This method returns an 8x8 matrix representing the current state of the board. Empty squares
-	 * are represented by zeros, and occupied squares are represented by the return value of the
-	 * occupying piece's toByte() method.
+	 * This method initializes a chessboard with the position described by the given FEN string,
+	 * which is read in a single pass. Only the piece placement, castling rights, and en passant
+	 * fields are used; the player to move and the move counters are left to the caller.
+	 * 
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @throws IllegalArgumentException if the piece placement or en passant field is invalid or if
+	 *                                  a player does not have exactly one king
+	 */
+	public Board(String fen) {
+		pieces = new ChessPiece[8][8];
+		int length = fen.length();
+		int i = skipSpaces(fen, 0);
+
+		// piece placement
+		int square = 0;
+		for (; (i < length) && (fen.charAt(i) != ' '); i++) {
+			char c = fen.charAt(i);
+			if (c == '/')
+				continue;
+			if ((c >= '1') && (c <= '8')) {
+				square += c - '0';
+				continue;
+			}
+			if (square >= 64)
+				throw new IllegalArgumentException("Invalid FEN: " + fen);
+			// FEN uses capital letters for white pieces
+			int row = square >> 3;
+			int col = square & 7;
+			boolean isBlack = Character.isLowerCase(c);
+			char pieceType = Character.toLowerCase(c);
+			ChessPiece piece;
+			if (pieceType == 'p') {
+				piece = new Pawn(row, col, isBlack);
+			} else if (pieceType == 'k') {
+				if ((isBlack ? blackKing : whiteKing) != null)
+					throw new IllegalArgumentException("Invalid FEN: " + fen);
+				King king = new King(row, col, isBlack);
+				if (isBlack)
+					blackKing = king;
+				else
+					whiteKing = king;
+				piece = king;
+			} else {
+				piece = createPiece(pieceType, row, col, isBlack);
+				if (piece == null)
+					throw new IllegalArgumentException("Invalid FEN: " + fen);
+			}
+			pieces[row][col] = piece;
+			(isBlack ? blackPieces : whitePieces).add(piece);
+			square++;
+		}
+		if ((square != 64) || (blackKing == null) || (whiteKing == null))
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+
+		// the player to move is skipped; a king can only castle if it and the rook on that side
+		// are on their starting squares
+		i = skipSpaces(fen, skipField(fen, skipSpaces(fen, i)));
+		boolean whiteKingside = false, whiteQueenside = false;
+		boolean blackKingside = false, blackQueenside = false;
+		for (; (i < length) && (fen.charAt(i) != ' '); i++) {
+			switch (fen.charAt(i)) {
+			case 'K':
+				whiteKingside = isCastleSquare(whiteKing, 7, 7);
+				break;
+			case 'Q':
+				whiteQueenside = isCastleSquare(whiteKing, 7, 0);
+				break;
+			case 'k':
+				blackKingside = isCastleSquare(blackKing, 0, 7);
+				break;
+			case 'q':
+				blackQueenside = isCastleSquare(blackKing, 0, 0);
+				break;
+			}
+		}
+		whiteKing.setCastle(whiteKingside, whiteQueenside);
+		blackKing.setCastle(blackKingside, blackQueenside);
+
+		// the en passant square is behind the pawn that can be captured
+		i = skipSpaces(fen, i);
+		if ((i < length) && (fen.charAt(i) != '-')) {
+			if ((i + 1 >= length) || (skipField(fen, i) != i + 2) || (fen.charAt(i) < 'a')
+					|| (fen.charAt(i) > 'h')
+					|| ((fen.charAt(i + 1) != '3') && (fen.charAt(i + 1) != '6')))
+				throw new IllegalArgumentException("Invalid FEN: " + fen);
+			int col = fen.charAt(i) - 'a';
+			boolean isBlack = fen.charAt(i + 1) == '6';
+			ChessPiece pawn = pieces[isBlack ? 3 : 4][col];
+			if ((pawn instanceof Pawn) && (pawn.isBlack() == isBlack))
+				enPassantPawn = (Pawn) pawn;
+		}
+
+		// initialize move validator and key
+		validator = new MoveValidator(this, pieces, blackKing, whiteKing);
+		pieceKey = Zobrist.pieceKey(toByteArray());
+	}
+
+	/**
+	 * This method returns the index of the first character at or after the given index that is
+	 * not a space.
+	 * 
+	 * @param fen   the FEN string
+	 * @param index the index at which to start
+	 * @return the index of the next character that is not a space, or the length of the string
+	 */
+	private static int skipSpaces(String fen, int index) {
+		while ((index < fen.length()) && (fen.charAt(index) == ' ')) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * This method returns the index of the first space at or after the given index.
+	 * 
+	 * @param fen   the FEN string
+	 * @param index the index at which to start
+	 * @return the index of the next space, or the length of the string
+	 */
+	private static int skipField(String fen, int index) {
+		while ((index < fen.length()) && (fen.charAt(index) != ' ')) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * This method checks whether the given king and a rook of the same color are on the squares
+	 * from which they can castle.
 	 * 
-	 * @return an 8x8 matrix representing the current state of the board
+	 * @param king    the king
+	 * @param rookRow the row of the rook's starting square
+	 * @param rookCol the col of the rook's starting square
+	 * @return true if the king and rook are on their starting squares and false otherwise
 	 */
+	private boolean isCastleSquare(King king, int rookRow, int rookCol) {
+		ChessPiece rook = pieces[rookRow][rookCol];
+		return (king.getRow() == rookRow) && (king.getCol() == 4) && (rook instanceof Rook)
+				&& (rook.isBlack() == king.isBlack());
+	}
+
+	@Override
 	public byte[][] toByteArray() {
 		byte[][] array = new byte[8][8];
 		for (int i = 0; i < 8; i++) {
@@ -125,6 +273,25 @@ public class Board {
 		return array;
 	}
 
+	/**
+	 * This method places the given piece on the specified square, replacing any piece already
+	 * there, and updates the key of the pieces on the board.
+	 * 
+	 * @param row   the row of the square
+	 * @param col   the col of the square
+	 * @param piece the piece to place, or null to empty the square
+	 */
+	private void setPiece(int row, int col, ChessPiece piece) {
+		ChessPiece oldPiece = pieces[row][col];
+		if (oldPiece != null) {
+			pieceKey ^= Zobrist.piece(oldPiece.toByte(), row, col);
+		}
+		if (piece != null) {
+			pieceKey ^= Zobrist.piece(piece.toByte(), row, col);
+		}
+		pieces[row][col] = piece;
+	}
+
 	/**
 	 * If there is a piece at the specified location, this method removes it from the sets of
 	 * remaining pieces. If the captured piece is a rook at its starting position, this method also
@@ -147,17 +314,7 @@ public class Board {
 		}
 	}
 
-	/**
-	 * This method is run when the user selects a square on the chessboard.
-	 * 
-	 * @param row         the row of the selected square
-	 * @param col         the col of the selected square
-	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
-	 * @return one of the following constants: SELECT for successfully selecting a piece, PROMOTE
-	 *         for a successful move resulting in a pawn needing to be promoted, CAPTURE for a move
-	 *         resulting in a piece being captured, PAWN_MOVE for any other successful move of a
-	 *         pawn, MOVE for any other successful move, or FAILURE if unsuccessful
-	 */
+	@Override
 	public int handleSelectedSquare(int row, int col, boolean blackToMove) {
 		// if a piece has already been selected, attempt to move the selected piece to
 		// the selected
@@ -168,13 +325,13 @@ public class Board {
 			int currentRow = selectedPiece.getRow();
 			int currentCol = selectedPiece.getCol();
 			ChessPiece target = pieces[row][col];
-			// if the specified move would end with the player's own king in check, it is
-			// illegal
-			// in that case unselect the selected piece and return 0
-			if (validator.doesMoveEndInCheck(row, col, blackToMove, selectedPiece, toByteArray())) {
+			// if the specified move is not one of the player's legal moves, unselect the
+			// selected piece and return 0
+			if (!isLegalMove(currentRow, currentCol, row, col, blackToMove)) {
 				selectedPiece = null;
 				return FAILURE;
 			}
+			areLegalMovesValid = false;
 			// attempt to move to the selected square if empty or to capture if occupied
 			boolean isCapture;
 			boolean isPawnMove = selectedPiece instanceof Pawn;
@@ -224,8 +381,8 @@ public class Board {
 				return PAWN_MOVE;
 			case ChessPiece.PROMOTE:
 				capturePiece(row, col);
-				pieces[currentRow][currentCol] = null;
-				pieces[row][col] = selectedPiece;
+				setPiece(currentRow, currentCol, null);
+				setPiece(row, col, selectedPiece);
 				enPassantPawn = null;
 				return PROMOTE;
 			default:
@@ -244,15 +401,7 @@ public class Board {
 		return SELECT;
 	}
 
-	/**
-	 * This method returns a String representing the type of chess piece at the selected square, or
-	 * null if the square is empty.
-	 * 
-	 * @param row the row of the selected square
-	 * @param col the col of the selected square
-	 * @return "King", "Queen", "Rook", "Knight", "Bishop", or "Pawn", depending on the type of the
-	 *         chess piece at the selected square, or null if the square is empty
-	 */
+	@Override
 	public String getPieceType(int row, int col) {
 		ChessPiece piece = pieces[row][col];
 		if (piece == null)
@@ -260,21 +409,6 @@ public class Board {
 		return piece.pieceType();
 	}
 
-	/**
-	 * This method returns a two-character String identifying the selected square. The first
-	 * character is a lowercase letter between 'a' (left) and 'h' (right) identifying the column,
-	 * and the second character is a digit between '1' (bottom) and '8' (top) identifying the row.
-	 * 
-	 * @param row the row of the selected square
-	 * @param col the col of the selected square
-	 * @return a two-character String identifying the column and row of the selected square
-	 */
-	public String getSquareName(int row, int col) {
-		char colChar = (char) (97 + col);
-		char rowChar = (char) (56 - row);
-		return "" + colChar + rowChar;
-	}
-
 	/**
 	 * This method moves the selected piece from the given current position to the given new
 	 * position, and unselects.
@@ -285,55 +419,58 @@ public class Board {
 	 * @param newCol     the col to move to
 	 */
 	private void move(int currentRow, int currentCol, int newRow, int newCol) {
-		pieces[currentRow][currentCol] = null;
-		pieces[newRow][newCol] = selectedPiece;
+		setPiece(currentRow, currentCol, null);
+		setPiece(newRow, newCol, selectedPiece);
 		selectedPiece = null;
 		enPassantPawn = null;
 	}
 
 	/**
-	 * This method promotes the selected piece to the given piece type and then unselects the piece.
+	 * This method creates the piece that a pawn of the given color on the given square would be
+	 * promoted to.
 	 * 
-	 * @param pieceType 'q' for Queen, 'r' for Rook, 'n' for Knight, or 'b' for Bishop
+	 * @param pieceType the type of the new piece: 'q' for queen, 'r' for rook, 'n' for knight, or
+	 *                  'b' for bishop
+	 * @param row       the row of the new piece
+	 * @param col       the col of the new piece
+	 * @param isBlack   true if the new piece is black and false if white
+	 * @return the new piece, or null if the piece type is invalid
 	 */
-	public void promote(char pieceType) {
-		int row = selectedPiece.getRow();
-		int col = selectedPiece.getCol();
-		boolean isBlack = selectedPiece.isBlack();
-		ChessPiece newPiece = null;
+	private ChessPiece createPiece(char pieceType, int row, int col, boolean isBlack) {
 		switch (pieceType) {
 		case 'q':
-			newPiece = new Queen(row, col, isBlack);
-			break;
+			return new Queen(row, col, isBlack);
 		case 'r':
-			newPiece = new Rook(row, col, isBlack);
-			break;
+			return new Rook(row, col, isBlack);
 		case 'n':
-			newPiece = new Knight(row, col, isBlack);
-			break;
+			return new Knight(row, col, isBlack);
 		case 'b':
-			newPiece = new Bishop(row, col, isBlack);
-			break;
+			return new Bishop(row, col, isBlack);
 		default:
-			return;
+			return null;
 		}
+	}
+
+	@Override
+	public void promote(char pieceType) {
+		int row = selectedPiece.getRow();
+		int col = selectedPiece.getCol();
+		boolean isBlack = selectedPiece.isBlack();
+		ChessPiece newPiece = createPiece(pieceType, row, col, isBlack);
+		if (newPiece == null)
+			return;
 		HashSet<ChessPiece> piecesSet = isBlack ? blackPieces : whitePieces;
 		piecesSet.remove(selectedPiece);
 		piecesSet.add(newPiece);
-		pieces[row][col] = newPiece;
+		setPiece(row, col, newPiece);
 		selectedPiece = null;
+		areLegalMovesValid = false;
 	}
 
-	/**
-	 * This method checks whether the king of the specified color is in check in the current board
-	 * setup.
-	 * 
-	 * @param blackToMove true if it is black's turn to move and false if white's turn
-	 * @return true if the king is in check and false if not
-	 */
+	@Override
 	public boolean isCheck(boolean blackToMove) {
 		King king = blackToMove ? blackKing : whiteKing;
-		return validator.isCheck(king.getRow(), king.getCol(), blackToMove, toByteArray());
+		return validator.isCheck(king.getRow(), king.getCol(), blackToMove);
 	}
 
 	/**
@@ -377,7 +514,7 @@ public class Board {
 	 */
 	private int castle(King king, char side, boolean blackToMove) {
 		// if castling is illegal, return FAILURE
-		if (!validator.isCastleLegal(king, side, blackToMove, toByteArray()))
+		if (!validator.isCastleLegal(king, side, blackToMove))
 			return FAILURE;
 
 		// if castling is legal, determine the positions of the king and rook involved
@@ -397,11 +534,11 @@ public class Board {
 
 		// castle and return MOVE
 		Rook rook = (Rook) pieces[row][rookCol];
-		pieces[row][kingCol] = null;
-		pieces[row][kingCol + (2 * direction)] = king;
+		setPiece(row, kingCol, null);
+		setPiece(row, kingCol + (2 * direction), king);
 		king.setPos(row, kingCol + (2 * direction));
-		pieces[row][rookCol] = null;
-		pieces[row][kingCol + direction] = rook;
+		setPiece(row, rookCol, null);
+		setPiece(row, kingCol + direction, rook);
 		rook.setPos(row, kingCol + direction);
 		king.markCastle();
 		enPassantPawn = null;
@@ -417,103 +554,485 @@ public class Board {
 	 * @return CAPTURE if successful or FAILURE if unsuccessful
 	 */
 	private int enPassant(int row, int col, ChessPiece piece) {
-		if (!validator.isEnPassantLegal(row, col, enPassantPawn, piece, toByteArray())) {
+		if (!validator.isEnPassantLegal(row, col, enPassantPawn, piece)) {
 			return FAILURE;
 		}
 		int captureRow = enPassantPawn.getRow();
 		int captureCol = enPassantPawn.getCol();
 		capturePiece(captureRow, captureCol);
-		pieces[captureRow][captureCol] = null;
-		pieces[row][col] = piece;
-		pieces[piece.getRow()][piece.getCol()] = null;
+		setPiece(captureRow, captureCol, null);
+		setPiece(row, col, piece);
+		setPiece(piece.getRow(), piece.getCol(), null);
 		piece.setPos(row, col);
 		enPassantPawn = null;
 		return CAPTURE;
 	}
 
+	@Override
+	public boolean anyLegalMoves(boolean blackToMove) {
+		return getLegalMoves(blackToMove).size() > 0;
+	}
+
+	@Override
+	public List<int[]> getLegalMoves(int row, int col, boolean blackToMove) {
+		// select the moves of the piece at the given location from the legal moves of the player,
+		// listing each promotion only once
+		List<int[]> moves = new ArrayList<>();
+		int from = (row << 3) + col;
+		MoveList allMoves = getLegalMoves(blackToMove);
+		for (int i = 0; i < allMoves.size(); i++) {
+			int move = allMoves.get(i);
+			if ((Move.from(move) == from) && (!Move.isPromotion(move)
+					|| (Move.promotionType(move) == BitBoard.QUEEN))) {
+				moves.add(new int[] { Move.to(move) >> 3, Move.to(move) & 7 });
+			}
+		}
+		return moves;
+	}
+
 	/**
-	 * This method checks whether the current player has any legal moves.
+	 * This method checks whether moving the piece at one location to another is one of the
+	 * player's legal moves.
 	 * 
-	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
-	 * @return true if the current player has at least one legal move and false otherwise
+	 * @param fromRow     the row to move from
+	 * @param fromCol     the col to move from
+	 * @param toRow       the row to move to
+	 * @param toCol       the col to move to
+	 * @param blackToMove true if it is black's turn and false if it is white's turn
+	 * @return true if the move is legal and false otherwise
 	 */
-	public boolean anyLegalMoves(boolean blackToMove) {
-		HashSet<ChessPiece> pieces = blackToMove ? blackPieces : whitePieces;
-
-		// check all pieces of the correct color for legal moves
-		// return true if any piece has a legal move
-		for (ChessPiece piece : pieces) {
-			if (getLegalMoves(piece.getRow(), piece.getCol(), blackToMove).size() > 0)
+	private boolean isLegalMove(int fromRow, int fromCol, int toRow, int toCol,
+			boolean blackToMove) {
+		int from = (fromRow << 3) + fromCol;
+		int to = (toRow << 3) + toCol;
+		MoveList allMoves = getLegalMoves(blackToMove);
+		for (int i = 0; i < allMoves.size(); i++) {
+			int move = allMoves.get(i);
+			if ((Move.from(move) == from) && (Move.to(move) == to))
 				return true;
 		}
+		return false;
+	}
+
+	/**
+	 * This method returns every legal move of the specified player in the current position. The
+	 * moves are generated the first time they are needed in a position and then reused until a
+	 * move is made or the key of the position changes.
+	 * 
+	 * @param blackToMove true if it is black's turn and false if it is white's turn
+	 * @return the list of legal moves, which must not be modified
+	 */
+	private MoveList getLegalMoves(boolean blackToMove) {
+		long key = getCacheKey(blackToMove);
+		if (!areLegalMovesValid || (key != legalMovesKey)) {
+			legalMoves.clear();
+			findLegalMoves(blackToMove, legalMoves);
+			legalMovesKey = key;
+			areLegalMovesValid = true;
+		}
+		return legalMoves;
+	}
+
+	@Override
+	public void generateMoves(boolean blackToMove, MoveList moves) {
+		MoveList allMoves = getLegalMoves(blackToMove);
+		for (int i = 0; i < allMoves.size(); i++) {
+			moves.add(allMoves.get(i));
+		}
+	}
+
+	/**
+	 * This method adds every legal move of the specified player to the given list. The moves are
+	 * found by walking the matrix of pieces directly, so no memory is allocated.
+	 * 
+	 * @param blackToMove true if it is black's turn and false if it is white's turn
+	 * @param moves       the list to which the moves are added
+	 */
+	private void findLegalMoves(boolean blackToMove, MoveList moves) {
+		validator.findChecksAndPins(blackToMove);
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				ChessPiece piece = pieces[row][col];
+				if ((piece == null) || (piece.isBlack() != blackToMove))
+					continue;
+				if (piece instanceof Pawn) {
+					addPawnMoves((Pawn) piece, blackToMove, moves);
+				} else if (piece instanceof Knight) {
+					addSteps(piece, KNIGHT_STEPS, false, moves);
+				} else if (piece instanceof Bishop) {
+					addSteps(piece, DIAGONAL_STEPS, true, moves);
+				} else if (piece instanceof Rook) {
+					addSteps(piece, STRAIGHT_STEPS, true, moves);
+				} else if (piece instanceof Queen) {
+					addSteps(piece, KING_STEPS, true, moves);
+				} else if (piece instanceof King) {
+					addSteps(piece, KING_STEPS, false, moves);
+					int from = (row << 3) + col;
+					if (validator.isCastleLegal((King) piece, 'q', blackToMove))
+						moves.add(Move.create(from, from - 2, Move.QUEEN_CASTLE));
+					if (validator.isCastleLegal((King) piece, 'k', blackToMove))
+						moves.add(Move.create(from, from + 2, Move.KING_CASTLE));
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method adds the legal moves of a piece that moves by the given steps to the given list.
+	 * 
+	 * @param piece     the piece to move, which must be of the color whose turn it is
+	 * @param steps     the steps of the piece, each a change of row followed by a change of col
+	 * @param isSliding true if the piece repeats each step until it is blocked and false if it
+	 *                  makes each step only once
+	 * @param moves     the list to which the moves are added
+	 */
+	private void addSteps(ChessPiece piece, int[][] steps, boolean isSliding, MoveList moves) {
+		for (int[] step : steps) {
+			int row = piece.getRow() + step[0];
+			int col = piece.getCol() + step[1];
+			while ((row >= 0) && (row < 8) && (col >= 0) && (col < 8)) {
+				ChessPiece target = pieces[row][col];
+				if ((target == null) || (target.isBlack() != piece.isBlack()))
+					addMove(piece, row, col, moves);
+				if ((target != null) || !isSliding)
+					break;
+				row += step[0];
+				col += step[1];
+			}
+		}
+	}
+
+	/**
+	 * This method adds the legal moves of a pawn to the given list, including en passant.
+	 * 
+	 * @param pawn        the pawn to move, which must be of the color whose turn it is
+	 * @param blackToMove true if it is black's turn and false if it is white's turn
+	 * @param moves       the list to which the moves are added
+	 */
+	private void addPawnMoves(Pawn pawn, boolean blackToMove, MoveList moves) {
+		int direction = blackToMove ? 1 : -1;
+		int row = pawn.getRow() + direction;
+		int col = pawn.getCol();
+		// a pawn is never on the last row, so the row in front of it is on the board
+		if (pieces[row][col] == null) {
+			addMove(pawn, row, col, moves);
+			boolean isOnStartRow = pawn.getRow() == (blackToMove ? 1 : 6);
+			if (isOnStartRow && (pieces[row + direction][col] == null))
+				addMove(pawn, row + direction, col, moves);
+		}
+		for (int captureCol = col - 1; captureCol <= col + 1; captureCol += 2) {
+			if ((captureCol < 0) || (captureCol >= 8))
+				continue;
+			ChessPiece target = pieces[row][captureCol];
+			if ((target != null) && (target.isBlack() != blackToMove))
+				addMove(pawn, row, captureCol, moves);
+		}
+		if (validator.isEnPassantLegal(enPassantPawn, pawn)) {
+			int from = (pawn.getRow() << 3) + col;
+			int to = (row << 3) + enPassantPawn.getCol();
+			moves.add(Move.create(from, to, Move.EN_PASSANT));
+		}
+	}
+
+	/**
+	 * This method adds a move other than castling or en passant to the given list if it does not
+	 * leave the player's own king in check. The validator must have found the checks and pins of
+	 * the current position.
+	 * 
+	 * @param piece the piece to move, which must be of the color whose turn it is
+	 * @param row   the row to move to
+	 * @param col   the col to move to
+	 * @param moves the list to which the move is added
+	 */
+	private void addMove(ChessPiece piece, int row, int col, MoveList moves) {
+		if (!validator.isMoveLegal(piece, row, col))
+			return;
+		int from = (piece.getRow() << 3) + piece.getCol();
+		int to = (row << 3) + col;
+		boolean isCapture = pieces[row][col] != null;
+		if (piece instanceof Pawn) {
+			if ((row == 0) || (row == 7)) {
+				for (int type = BitBoard.QUEEN; type >= BitBoard.KNIGHT; type--) {
+					moves.add(Move.createPromotion(from, to, type, isCapture));
+				}
+				return;
+			}
+			if (Math.abs(row - piece.getRow()) == 2) {
+				moves.add(Move.create(from, to, Move.DOUBLE_PAWN_PUSH));
+				return;
+			}
+		}
+		moves.add(Move.create(from, to, isCapture ? Move.CAPTURE : Move.QUIET));
+	}
+
+	@Override
+	public void makeMove(int move) {
+		if (undoCount == undoStack.size()) {
+			undoStack.add(new UndoInfo());
+		}
+		int from = Move.from(move);
+		int to = Move.to(move);
+		makeMove(from >> 3, from & 7, to >> 3, to & 7, Move.promotionChar(move),
+				undoStack.get(undoCount++));
+		areLegalMovesValid = false;
+	}
+
+	@Override
+	public void unmakeMove(int move) {
+		unmakeMove(undoStack.get(--undoCount));
+		areLegalMovesValid = false;
+	}
+
+	@Override
+	public void makeNullMove() {
+		if (undoCount == undoStack.size()) {
+			undoStack.add(new UndoInfo());
+		}
+		undoStack.get(undoCount++).enPassantPawn = enPassantPawn;
+		enPassantPawn = null;
+		areLegalMovesValid = false;
+	}
+
+	@Override
+	public void unmakeNullMove() {
+		enPassantPawn = undoStack.get(--undoCount).enPassantPawn;
+		areLegalMovesValid = false;
+	}
 
-		// if no piece has a legal move, return false
+	@Override
+	public boolean hasNonPawnMaterial(boolean isBlack) {
+		for (ChessPiece piece : isBlack ? blackPieces : whitePieces) {
+			if (!(piece instanceof Pawn) && !(piece instanceof King))
+				return true;
+		}
 		return false;
 	}
 
 	/**
-	 * This method returns a list of moves the piece at the specified location can legally make; if
-	 * the specified location is empty or if the piece is not the current player's color, this
-	 * method returns an empty list. Each move is represented as a two-element array, where the
-	 * first element indicates the row and the second element indicates the col of the piece's
-	 * position at the end of the move.
+	 * This method makes the specified move on the board without checking whether it is legal and
+	 * returns the information needed to undo it with unmakeMove().
 	 * 
-	 * @param row         the row of the selected piece
-	 * @param col         the col of the selected piece
-	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
-	 * @return a list of legal moves, each represented as a two-element array containing the row and
-	 *         col of the piece's position at the end of the move
+	 * @param fromRow   the row to move from
+	 * @param fromCol   the col to move from
+	 * @param toRow     the row to move to
+	 * @param toCol     the col to move to
+	 * @param promotion the piece a pawn reaching the last row is promoted to ('q', 'r', 'n', or
+	 *                  'b'), or 0 to leave it as a pawn
+	 * @return the information needed to undo the move
 	 */
-	public List<int[]> getLegalMoves(int row, int col, boolean blackToMove) {
-		ChessPiece piece = pieces[row][col];
+	public UndoInfo makeMove(int fromRow, int fromCol, int toRow, int toCol, char promotion) {
+		UndoInfo undo = new UndoInfo();
+		makeMove(fromRow, fromCol, toRow, toCol, promotion, undo);
+		return undo;
+	}
+
+	/**
+	 * This method makes the specified move on the board without checking whether it is legal,
+	 * storing the information needed to undo it with unmakeMove() in the given UndoInfo object. The
+	 * move is made in place, so no copy of the board is created.
+	 * 
+	 * @param fromRow   the row to move from
+	 * @param fromCol   the col to move from
+	 * @param toRow     the row to move to
+	 * @param toCol     the col to move to
+	 * @param promotion the piece a pawn reaching the last row is promoted to ('q', 'r', 'n', or
+	 *                  'b'), or 0 to leave it as a pawn
+	 * @param undo      the object in which to store the information needed to undo the move
+	 */
+	public void makeMove(int fromRow, int fromCol, int toRow, int toCol, char promotion,
+			UndoInfo undo) {
+		ChessPiece piece = pieces[fromRow][fromCol];
+
+		// save the state that the move may change
+		undo.piece = piece;
+		undo.fromRow = fromRow;
+		undo.fromCol = fromCol;
+		undo.toRow = toRow;
+		undo.toCol = toCol;
+		undo.promoted = null;
+		undo.enPassantPawn = enPassantPawn;
+		undo.blackKingside = blackKing.canCastleKingside();
+		undo.blackQueenside = blackKing.canCastleQueenside();
+		undo.whiteKingside = whiteKing.canCastleKingside();
+		undo.whiteQueenside = whiteKing.canCastleQueenside();
 
-		// return an empty list if the selected square is empty or contains a piece of
-		// the wrong
-		// color
-		if ((piece == null) || (piece.isBlack() != blackToMove)) {
-			return new ArrayList<int[]>();
+		// find the captured piece, which is beside the target square for en passant
+		undo.capturedRow = toRow;
+		undo.capturedCol = toCol;
+		if ((piece instanceof Pawn) && (fromCol != toCol) && (pieces[toRow][toCol] == null)
+				&& (enPassantPawn != null) && (pieces[fromRow][toCol] == enPassantPawn)) {
+			undo.capturedRow = fromRow;
+		}
+		undo.captured = (piece == pieces[undo.capturedRow][undo.capturedCol]) ? null
+				: pieces[undo.capturedRow][undo.capturedCol];
+		if (undo.captured != null) {
+			capturePiece(undo.capturedRow, undo.capturedCol);
+			setPiece(undo.capturedRow, undo.capturedCol, null);
 		}
 
-		// get a list of legal moves ignoring check, en passant, and castling
-		List<int[]> oldMoves = piece.legalMoves(toByteArray());
+		// move the piece
+		setPiece(fromRow, fromCol, null);
+		setPiece(toRow, toCol, piece);
+		piece.setPos(toRow, toCol);
 
-		// make a new list and copy all the elements of the old list that don't result
-		// in check into
-		// the new list
-		List<int[]> newMoves = new ArrayList<>();
-		for (int[] move : oldMoves) {
-			if (!validator.doesMoveEndInCheck(move[0], move[1], blackToMove, piece,
-					toByteArray())) {
-				newMoves.add(move);
+		// if the king is castling, move the rook as well
+		if ((piece instanceof King) && (fromRow == toRow) && (Math.abs(toCol - fromCol) == 2)) {
+			int rookCol = (toCol > fromCol) ? 7 : 0;
+			int newRookCol = (fromCol + toCol) / 2;
+			ChessPiece rook = pieces[fromRow][rookCol];
+			if ((rook instanceof Rook) && (pieces[fromRow][newRookCol] == null)) {
+				setPiece(fromRow, rookCol, null);
+				setPiece(fromRow, newRookCol, rook);
+				rook.setPos(fromRow, newRookCol);
 			}
 		}
 
-		// if en passant or castling is legal, add it to the list
-		if ((piece instanceof Pawn)
-				&& (validator.isEnPassantLegal(enPassantPawn, piece, toByteArray()))) {
-			int direction = blackToMove ? 1 : -1;
-			newMoves.add(new int[] { enPassantPawn.getRow() + direction, enPassantPawn.getCol() });
-		} else if (piece instanceof King) {
-			if (validator.isCastleLegal((King) piece, 'q', blackToMove, toByteArray())) {
-				newMoves.add(new int[] { piece.getRow(), piece.getCol() - 2 });
+		// a rook leaving its starting square can no longer be used to castle
+		if ((piece instanceof Rook) && ((fromCol == 0) || (fromCol == 7))
+				&& (fromRow == (piece.isBlack() ? 0 : 7))) {
+			King king = piece.isBlack() ? blackKing : whiteKing;
+			king.markCastle((fromCol == 0) ? 'q' : 'k');
+		}
+
+		// promote the pawn if it reached the last row
+		if ((piece instanceof Pawn) && ((toRow == 0) || (toRow == 7))) {
+			ChessPiece newPiece = createPiece(promotion, toRow, toCol, piece.isBlack());
+			if (newPiece != null) {
+				HashSet<ChessPiece> piecesSet = piece.isBlack() ? blackPieces : whitePieces;
+				piecesSet.remove(piece);
+				piecesSet.add(newPiece);
+				setPiece(toRow, toCol, newPiece);
+				undo.promoted = newPiece;
 			}
-			if (validator.isCastleLegal((King) piece, 'k', blackToMove, toByteArray())) {
-				newMoves.add(new int[] { piece.getRow(), piece.getCol() + 2 });
+		}
+
+		// en passant is only possible immediately after a pawn moves two spaces
+		enPassantPawn = ((piece instanceof Pawn) && (Math.abs(toRow - fromRow) == 2)) ? (Pawn) piece
+				: null;
+	}
+
+	/**
+	 * This method undoes a move made with makeMove(), restoring the board exactly to the state it
+	 * was in before the move. Moves must be undone in the reverse of the order they were made.
+	 * 
+	 * @param undo the information returned or filled in by makeMove()
+	 */
+	public void unmakeMove(UndoInfo undo) {
+		ChessPiece piece = undo.piece;
+		int fromRow = undo.fromRow;
+		int fromCol = undo.fromCol;
+		int toRow = undo.toRow;
+		int toCol = undo.toCol;
+
+		// replace the promoted piece with the pawn
+		if (undo.promoted != null) {
+			HashSet<ChessPiece> piecesSet = piece.isBlack() ? blackPieces : whitePieces;
+			piecesSet.remove(undo.promoted);
+			piecesSet.add(piece);
+		}
+
+		// move the rook back if the king castled
+		if ((piece instanceof King) && (fromRow == toRow) && (Math.abs(toCol - fromCol) == 2)) {
+			int rookCol = (toCol > fromCol) ? 7 : 0;
+			int newRookCol = (fromCol + toCol) / 2;
+			ChessPiece rook = pieces[fromRow][newRookCol];
+			if ((rook instanceof Rook) && (pieces[fromRow][rookCol] == null)) {
+				setPiece(fromRow, newRookCol, null);
+				setPiece(fromRow, rookCol, rook);
+				rook.setPos(fromRow, rookCol);
 			}
 		}
 
-		// return the list of legal moves
-		return newMoves;
+		// move the piece back and restore the captured piece
+		setPiece(toRow, toCol, null);
+		setPiece(fromRow, fromCol, piece);
+		piece.setPos(fromRow, fromCol);
+		if (undo.captured != null) {
+			setPiece(undo.capturedRow, undo.capturedCol, undo.captured);
+			(undo.captured.isBlack() ? blackPieces : whitePieces).add(undo.captured);
+		}
+
+		// restore en passant and castling
+		enPassantPawn = undo.enPassantPawn;
+		blackKing.setCastle(undo.blackKingside, undo.blackQueenside);
+		whiteKing.setCastle(undo.whiteKingside, undo.whiteQueenside);
+	}
+
+	@Override
+	public int getPiece(int square) {
+		ChessPiece piece = pieces[square >> 3][square & 7];
+		return (piece == null) ? BitBoard.EMPTY : PIECE_CHARS.indexOf(piece.toByte());
+	}
+
+	@Override
+	public long getOccupancy() {
+		long occupancy = 0;
+		for (ChessPiece piece : whitePieces) {
+			occupancy |= 1L << ((piece.getRow() << 3) + piece.getCol());
+		}
+		for (ChessPiece piece : blackPieces) {
+			occupancy |= 1L << ((piece.getRow() << 3) + piece.getCol());
+		}
+		return occupancy;
+	}
+
+	@Override
+	public long getAttackers(int square, long occupied) {
+		return validator.findAttackers(square, occupied);
+	}
+
+	@Override
+	public int getCastlingRights() {
+		int rights = 0;
+		if (whiteKing.canCastleKingside() && isCastleSquare(whiteKing, 7, 7))
+			rights |= BitBoard.WHITE_KINGSIDE;
+		if (whiteKing.canCastleQueenside() && isCastleSquare(whiteKing, 7, 0))
+			rights |= BitBoard.WHITE_QUEENSIDE;
+		if (blackKing.canCastleKingside() && isCastleSquare(blackKing, 0, 7))
+			rights |= BitBoard.BLACK_KINGSIDE;
+		if (blackKing.canCastleQueenside() && isCastleSquare(blackKing, 0, 0))
+			rights |= BitBoard.BLACK_QUEENSIDE;
+		return rights;
+	}
+
+	@Override
+	public int getEnPassantSquare() {
+		if (enPassantPawn == null)
+			return -1;
+		// the square behind the pawn, from the point of view of its player
+		int row = enPassantPawn.getRow() + (enPassantPawn.isBlack() ? -1 : 1);
+		return (row << 3) + enPassantPawn.getCol();
 	}
 
 	/**
-	 * This method returns a BoardState object representing the current board state.
+	 * This method returns the key under which the legal moves of the current position are cached.
+	 * Unlike getZobristKey(), it includes the file of any pawn that has just moved two squares
+	 * without checking whether it can be captured en passant, since that check makes and unmakes a
+	 * move on the board, which is what the cache saves. Two positions with the same key have the
+	 * same pawn to capture, so they also have the same legal moves.
 	 * 
-	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
-	 * @return a BoardState object representing the current board state
+	 * @param blackToMove true if it is black's turn and false if it is white's turn
+	 * @return the key
 	 */
+	private long getCacheKey(boolean blackToMove) {
+		long key = pieceKey ^ Zobrist.castling(getCastlingRights());
+		if (enPassantPawn != null)
+			key ^= Zobrist.enPassantFile(enPassantPawn.getCol());
+		return blackToMove ? key ^ Zobrist.blackToMove() : key;
+	}
+
+	@Override
+	public long getZobristKey(boolean blackToMove) {
+		long key = pieceKey ^ Zobrist.castling(getCastlingRights());
+		if (validator.isEnPassantLegal(enPassantPawn)) {
+			key ^= Zobrist.enPassantFile(enPassantPawn.getCol());
+		}
+		return blackToMove ? key ^ Zobrist.blackToMove() : key;
+	}
+
+	@Override
 	public BoardState getBoardState(boolean blackToMove) {
-		boolean isEnPassantLegal = validator.isEnPassantLegal(enPassantPawn, toByteArray());
+		boolean isEnPassantLegal = validator.isEnPassantLegal(enPassantPawn);
 		return new BoardState(toByteArray(), blackToMove, isEnPassantLegal,
 				blackKing.canCastleKingside(), blackKing.canCastleQueenside(),
 				whiteKing.canCastleKingside(), whiteKing.canCastleQueenside());
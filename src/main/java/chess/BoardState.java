@@ -25,6 +25,9 @@ public class BoardState implements Comparable<BoardState> {
 	// legally castle on which side
 	private byte stateInfo;
 
+	// the hash code is computed from the Zobrist key of the pieces when the object is created
+	private int hash;
+
 	/**
 	 * This method creates a BoardState object with the specified parameters.
 	 * 
@@ -40,9 +43,13 @@ public class BoardState implements Comparable<BoardState> {
 	public BoardState(byte[][] board, boolean blackToMove, boolean isEnPassantLegal,
 			boolean canBlackCastleKingside, boolean canBlackCastleQueenside,
 			boolean canWhiteCastleKingside, boolean canWhiteCastleQueenside) {
+		long key = 0;
 		for (int i = 0; i < 8; i++) {
 			for (int j = 0; j < 8; j++) {
 				rows[i] |= ((((long) board[i][j]) & 0b1111_1111) << (8 * (7 - j)));
+				if (board[i][j] != 0) {
+					key ^= Zobrist.piece(board[i][j], i, j);
+				}
 			}
 		}
 		stateInfo |= (blackToMove ? 0b10_0000 : 0);
@@ -51,6 +58,8 @@ public class BoardState implements Comparable<BoardState> {
 		stateInfo |= (canBlackCastleQueenside ? 0b100 : 0);
 		stateInfo |= (canWhiteCastleKingside ? 0b10 : 0);
 		stateInfo |= (canWhiteCastleQueenside ? 0b1 : 0);
+		key ^= stateInfo * 0x9e3779b97f4a7c15L;
+		hash = (int) (key ^ (key >>> 32));
 	}
 
 	@Override
@@ -93,11 +102,7 @@ public class BoardState implements Comparable<BoardState> {
 
 	@Override
 	public int hashCode() {
-		long hash = stateInfo;
-		for (long row : rows) {
-			hash += row;
-		}
-		return (int) (hash ^ (hash >> 32));
+		return hash;
 	}
 
 }
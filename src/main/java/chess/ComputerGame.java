@@ -0,0 +1,217 @@
+package chess;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+import main.Mediator;
+
+/**
+ * This class represents a game of chess in which the computer plays one of the colors. After each
+ * move of the user, the engine searches a copy of the position on a BitBoard and plays its move by
+ * selecting squares, just as the user does, so the rules of the game are applied in the same way
+ * to both players.
+ * 
+ * The search runs on a thread of its own, so that the thread of the user interface, such as the
+ * Swing event dispatch thread or the thread of a web request, is not blocked while the computer
+ * thinks. The move is then played on the thread given by Mediator.invokeLater(). The methods that
+ * change the game are synchronized, since the move may be played on the thread of the search.
+ */
+public class ComputerGame extends Game {
+	// the default time the computer takes for each move, in milliseconds
+	public static final long DEFAULT_TIME_LIMIT = 1000;
+
+	// the transposition table shared by the engines of all games created with the default engine
+	private static final TranspositionTable SHARED_TABLE = new TranspositionTable(64);
+	// the threads on which the engines of all games search, which do not keep the app running
+	private static final ExecutorService SEARCH_EXECUTOR = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "computer-search");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final boolean isComputerBlack;
+	private final Engine engine;
+	private volatile SearchResult lastResult = null;
+	private volatile Future<?> search = null; // the search for the computer's last move
+	private volatile boolean isAbandoned = false;
+
+	/**
+	 * This method creates a game against the computer, which searches for DEFAULT_TIME_LIMIT
+	 * milliseconds per move. The engines of all such games share one 64 MB transposition table and
+	 * play from the default opening book, if there is one, and Tablebase.getShared().
+	 * 
+	 * @param mediator        the mediator needed to communicate with the UserInterface
+	 * @param isComputerBlack true if the computer plays black and false if it plays white
+	 */
+	public ComputerGame(Mediator mediator, boolean isComputerBlack) {
+		this(mediator, new Board(), isComputerBlack, createEngine());
+	}
+
+	/**
+	 * This method creates a game against the computer, played on the given board. The board should
+	 * be in the starting position.
+	 * 
+	 * @param mediator        the mediator needed to communicate with the UserInterface
+	 * @param board           the board to play on
+	 * @param isComputerBlack true if the computer plays black and false if it plays white
+	 * @param engine          the engine that chooses the computer's moves, with its limits set
+	 */
+	public ComputerGame(Mediator mediator, AbstractBoard board, boolean isComputerBlack,
+			Engine engine) {
+		super(mediator, board);
+		this.isComputerBlack = isComputerBlack;
+		this.engine = engine;
+	}
+
+	/**
+	 * This method creates an engine that searches for DEFAULT_TIME_LIMIT milliseconds per move,
+	 * using the shared transposition table, the default opening book, and Tablebase.getShared().
+	 * 
+	 * @return the new engine
+	 */
+	private static Engine createEngine() {
+		Engine engine = new Engine(SHARED_TABLE);
+		engine.setTimeLimit(DEFAULT_TIME_LIMIT);
+		engine.setOpeningBook(OpeningBook.getDefault());
+		engine.setTablebase(Tablebase.getShared());
+		return engine;
+	}
+
+	/**
+	 * @return the engine that chooses the computer's moves
+	 */
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * @return the result of the search for the computer's last move, or null if the computer has
+	 *         not moved yet
+	 */
+	public SearchResult getLastResult() {
+		return lastResult;
+	}
+
+	/**
+	 * @return true if the computer is searching for its move and false otherwise
+	 */
+	public boolean isComputerThinking() {
+		Future<?> search = this.search;
+		return (search != null) && !search.isDone();
+	}
+
+	/**
+	 * This method waits until the computer has found its move and handed it to
+	 * Mediator.invokeLater(), if it is searching for one.
+	 * 
+	 * @throws IllegalStateException if the search failed
+	 */
+	public void awaitComputerMove() {
+		Future<?> search = this.search;
+		if (search == null)
+			return;
+		try {
+			search.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The computer's search failed", e.getCause());
+		}
+	}
+
+	/**
+	 * This method abandons the game when another game replaces it, so that the computer stops
+	 * searching and its move is not played.
+	 */
+	public void abandon() {
+		isAbandoned = true;
+		engine.stop();
+	}
+
+	@Override
+	public synchronized int handleSelectedSquare(int row, int col) {
+		// the user cannot move the computer's pieces
+		if (blackToMove == isComputerBlack)
+			return Board.FAILURE;
+		int result = super.handleSelectedSquare(row, col);
+		if ((result == Board.MOVE) || (result == Board.CAPTURE) || (result == Board.PAWN_MOVE))
+			playComputerMove();
+		return result;
+	}
+
+	@Override
+	public synchronized void handleSelectedOption(int option) {
+		boolean wasPromotion = isPromotion;
+		super.handleSelectedOption(option);
+		// the computer moves once the user's pawn has been promoted
+		if (wasPromotion && !isPromotion)
+			playComputerMove();
+	}
+
+	@Override
+	public synchronized void start() {
+		super.start();
+		playComputerMove();
+	}
+
+	/**
+	 * This method starts the search for the computer's move if it is the computer's turn and the
+	 * game is not over. The move is played through the mediator when the search ends.
+	 */
+	private void playComputerMove() {
+		if ((blackToMove != isComputerBlack) || isGameOver())
+			return;
+		String fen = board.toFen(blackToMove);
+		// the engine is given the earlier positions of the game, so that it can avoid repeating
+		// them when it is winning and aim for them when it is losing
+		long[] previousKeys = getPreviousPositionKeys();
+		int halfmoveClock = getHalfmoveClock();
+		search = SEARCH_EXECUTOR.submit(() -> {
+			SearchResult result = engine.search(new BitBoard(fen), isComputerBlack, previousKeys,
+					halfmoveClock);
+			mediator.invokeLater(() -> playMove(fen, result));
+		});
+	}
+
+	/**
+	 * This method plays the move the computer found in the given position, unless the game has
+	 * changed since, for example because the user resigned or the game was abandoned.
+	 * 
+	 * @param fen    the position that was searched, as given by AbstractBoard.toFen()
+	 * @param result the result of the search
+	 */
+	private synchronized void playMove(String fen, SearchResult result) {
+		if (isAbandoned || isGameOver() || (blackToMove != isComputerBlack)
+				|| !board.toFen(blackToMove).equals(fen))
+			return;
+		lastResult = result;
+		int move = result.getBestMove();
+		if (move == Move.NONE)
+			return;
+		int from = Move.from(move);
+		int to = Move.to(move);
+		super.handleSelectedSquare(from >> 3, from & 7);
+		if (super.handleSelectedSquare(to >> 3, to & 7) == Board.PROMOTE) {
+			switch (Move.promotionChar(move)) {
+			case 'r':
+				super.handleSelectedOption(Mediator.ROOK);
+				break;
+			case 'n':
+				super.handleSelectedOption(Mediator.KNIGHT);
+				break;
+			case 'b':
+				super.handleSelectedOption(Mediator.BISHOP);
+				break;
+			default:
+				super.handleSelectedOption(Mediator.QUEEN);
+			}
+		}
+	}
+}
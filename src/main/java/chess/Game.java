@@ -1,17 +1,24 @@
 package chess;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 
+import chess.engine.Tablebase;
 import main.Mediator;
 
 /**
  * This class represents a game of chess.
  */
 public class Game extends AbstractGame {
-	private HashMap<BoardState, Integer> boardStates = new HashMap<>();
+	// the Zobrist keys of the positions since the last capture or pawn move, which are the only
+	// positions that can be repeated
+	private long[] positionKeys = new long[128];
+	private int positionCount = 0;
 	private boolean gameOverByThreefoldRepetition = false;
+	private boolean isGameOver = false;
 	private int moveCount = 0; // counts the number of moves since the last capture or pawn move
+	private int moveNumber = 1; // the number of the current move, increased after black moves
+	private Tablebase tablebase = Tablebase.getShared(); // or null for none
 
 	/**
 	 * This method creates a game with the specified mediator.
@@ -19,10 +26,63 @@ public class Game extends AbstractGame {
 	 * @param mediator the mediator needed to communicate with the UserInterface
 	 */
 	public Game(Mediator mediator) {
+		this(mediator, new Board());
+	}
+
+	/**
+	 * This method creates a game with the specified mediator, played on the given board. The board
+	 * should be in the starting position.
+	 * 
+	 * @param mediator the mediator needed to communicate with the UserInterface
+	 * @param board    the board to play on
+	 */
+	public Game(Mediator mediator, AbstractBoard board) {
 		super(mediator);
-		board = new Board();
+		this.board = board;
 		blackToMove = false;
-		board.getBoardState(blackToMove).insertInto(boardStates);
+		addPosition();
+	}
+
+	/**
+	 * This method creates a game with the specified mediator, starting from the position described
+	 * by the given FEN string.
+	 * 
+	 * @param mediator the mediator needed to communicate with the UserInterface
+	 * @param fen      the position in Forsyth-Edwards Notation
+	 * @throws IllegalArgumentException if the FEN string is invalid
+	 */
+	public Game(Mediator mediator, String fen) {
+		this(mediator, new Board(fen), fen);
+	}
+
+	/**
+	 * This method creates a game with the specified mediator, played on the given board. The board
+	 * should be in the position described by the given FEN string, from which the player to move
+	 * and the move counters are read; missing counters default to those of a new game.
+	 * 
+	 * @param mediator the mediator needed to communicate with the UserInterface
+	 * @param board    the board to play on
+	 * @param fen      the position in Forsyth-Edwards Notation
+	 * @throws IllegalArgumentException if the active color or a move counter is invalid
+	 */
+	public Game(Mediator mediator, AbstractBoard board, String fen) {
+		super(mediator);
+		this.board = board;
+		String[] fields = fen.trim().split("\\s+");
+		if ((fields.length > 1) && !fields[1].equals("w") && !fields[1].equals("b"))
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+		blackToMove = (fields.length > 1) && fields[1].equals("b");
+		try {
+			if (fields.length > 4)
+				moveCount = Integer.parseInt(fields[4]);
+			if (fields.length > 5)
+				moveNumber = Integer.parseInt(fields[5]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid FEN: " + fen, e);
+		}
+		if ((moveCount < 0) || (moveNumber < 1))
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+		addPosition();
 	}
 
 	@Override
@@ -48,8 +108,10 @@ public class Game extends AbstractGame {
 			moveCount = -1; // execution will continue into the Board.MOVE case and update to 0
 		case Board.MOVE:
 			moveCount++;
+			if (blackToMove)
+				moveNumber++;
 			blackToMove = !blackToMove;
-			if (board.getBoardState(blackToMove).insertInto(boardStates) >= 3)
+			if (addPosition())
 				gameOverByThreefoldRepetition = true;
 			if (!gameOver())
 				mediator.updateUI(generateData(
@@ -95,8 +157,10 @@ public class Game extends AbstractGame {
 				return;
 			}
 			board.promote(optionChar);
+			if (blackToMove)
+				moveNumber++;
 			blackToMove = !blackToMove;
-			if (board.getBoardState(blackToMove).insertInto(boardStates) >= 3)
+			if (addPosition())
 				gameOverByThreefoldRepetition = true;
 			isPromotion = false;
 			if (!gameOver())
@@ -105,10 +169,12 @@ public class Game extends AbstractGame {
 		} else {
 			switch (option) {
 			case Mediator.DRAW:
+				isGameOver = true;
 				mediator.updateUI(
 						generateData("Game Over!", "The game ended in a draw.", false, true));
 				break;
 			case Mediator.RESIGN:
+				isGameOver = true;
 				mediator.updateUI(generateData("Game Over!",
 						(blackToMove ? "Black" : "White") + " has resigned.", false, true));
 				break;
@@ -125,7 +191,67 @@ public class Game extends AbstractGame {
 	}
 
 	/**
-	 * This method checks whether the game has ended by checkmate, stalemate, or a forced draw.
+	 * This method records the current position and checks whether it has now occurred three times.
+	 * Positions before the last capture or pawn move are forgotten, since they can never occur
+	 * again.
+	 * 
+	 * @return true if the current position has occurred at least three times and false otherwise
+	 */
+	private boolean addPosition() {
+		if (moveCount == 0)
+			positionCount = 0;
+		if (positionCount == positionKeys.length)
+			positionKeys = Arrays.copyOf(positionKeys, 2 * positionCount);
+		long key = board.getZobristKey(blackToMove);
+		positionKeys[positionCount++] = key;
+
+		// the same player must be moving, and a position can occur again four moves later at the
+		// earliest
+		int repetitions = 1;
+		for (int i = positionCount - 5; i >= 0; i -= 2) {
+			if ((positionKeys[i] == key) && (++repetitions == 3))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the Zobrist keys of the positions before the current one since the last capture or
+	 *         pawn move, oldest first
+	 */
+	protected long[] getPreviousPositionKeys() {
+		return Arrays.copyOf(positionKeys, Math.max(positionCount - 1, 0));
+	}
+
+	/**
+	 * @return the number of moves since the last capture or pawn move
+	 */
+	protected int getHalfmoveClock() {
+		return moveCount;
+	}
+
+	/**
+	 * @return the endgame tablebase that adjudicates the game, or null if there is none
+	 */
+	public Tablebase getTablebase() {
+		return tablebase;
+	}
+
+	/**
+	 * This method sets the endgame tablebase that adjudicates the game, which ends as soon as the
+	 * tablebase shows a draw or a checkmate within the fifty-move rule. A new game uses
+	 * Tablebase.getShared().
+	 * 
+	 * @param tablebase the tablebase, or null for none
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * This method checks whether the game has ended by checkmate, stalemate, or a forced draw, or
+	 * whether the endgame tablebase shows a draw, or a checkmate within the fifty-move rule, with
+	 * best play.
 	 * Then, if the game is over, this method updates the UserInterface and returns true, otherwise
 	 * it returns false
 	 * 
@@ -134,10 +260,18 @@ public class Game extends AbstractGame {
 	protected boolean gameOver() {
 		String message;
 		if (board.anyLegalMoves(blackToMove)) {
+			int result = (tablebase == null) ? Tablebase.UNKNOWN
+					: tablebase.probeWdl(board, blackToMove);
 			if (gameOverByThreefoldRepetition) {
 				message = "The game ended in a draw by the threefold repetition rule.";
 			} else if (moveCount >= 100) {
 				message = "The game ended in a draw by the fifty-move rule.";
+			} else if (result == Tablebase.DRAW) {
+				message = "The game ended in a draw, since the endgame tablebase shows that "
+						+ "neither player can win.";
+			} else if ((result != Tablebase.UNKNOWN) && isCheckmateForced()) {
+				message = (((result == Tablebase.WIN) == blackToMove) ? "Black" : "White")
+						+ " wins, since the endgame tablebase shows a forced checkmate.";
 			} else {
 				return false;
 			}
@@ -146,13 +280,44 @@ public class Game extends AbstractGame {
 		} else {
 			message = "The game ended in a stalemate.";
 		}
+		isGameOver = true;
 		mediator.updateUI(generateData("Game Over!", message, false, true));
 		return true;
 	}
 
+	/**
+	 * This method checks whether the winner of a position the endgame tablebase shows as won can
+	 * checkmate before the fifty-move rule ends the game in a draw, which is only known if the
+	 * tablebase knows the distance to checkmate.
+	 * 
+	 * @return true if the checkmate is forced within the fifty-move rule and false otherwise
+	 */
+	private boolean isCheckmateForced() {
+		int distance = tablebase.probeDtm(board, blackToMove);
+		return (distance != Tablebase.UNKNOWN) && (moveCount + distance <= 100);
+	}
+
+	/**
+	 * @return true if the game has ended by checkmate, stalemate, a forced draw, an agreed draw, or
+	 *         resignation and false otherwise
+	 */
+	protected boolean isGameOver() {
+		return isGameOver;
+	}
+
 	@Override
 	public List<int[]> getLegalMoves(int row, int col) {
 		return board.getLegalMoves(row, col, blackToMove);
 	}
 
+	/**
+	 * This method returns the current position in Forsyth-Edwards Notation, including the halfmove
+	 * clock used by the fifty-move rule and the fullmove number.
+	 * 
+	 * @return the current position in Forsyth-Edwards Notation
+	 */
+	public String toFen() {
+		return board.toFen(blackToMove) + " " + moveCount + " " + moveNumber;
+	}
+
 }
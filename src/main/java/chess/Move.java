@@ -0,0 +1,149 @@
+package chess;
+
+/**
+ * This class encodes moves as 16-bit values stored in an int, so that lists of moves can be kept
+ * in primitive arrays. Bits 0-5 hold the square the piece moves from, bits 6-11 the square it moves
+ * to, and bits 12-15 the flags describing the move. Squares are numbered 8 * row + col, so square
+ * 0 is a8 and square 63 is h1.
+ */
+public final class Move {
+	// flags; promotions set the PROMOTION bit and store the new piece type in the lowest two bits
+	// of the flags, and captures set the CAPTURE bit
+	public static final int QUIET = 0;
+	public static final int DOUBLE_PAWN_PUSH = 1;
+	public static final int KING_CASTLE = 2;
+	public static final int QUEEN_CASTLE = 3;
+	public static final int CAPTURE = 4;
+	public static final int EN_PASSANT = 5;
+	public static final int PROMOTION = 8;
+
+	// a value that is never a valid move
+	public static final int NONE = 0;
+
+	// the character for each promotion piece, indexed by the lowest two bits of the flags
+	private static final String PROMOTION_CHARS = "nbrq";
+
+	/**
+	 * This constructor is private since this class only contains static methods.
+	 */
+	private Move() {
+	}
+
+	/**
+	 * This method encodes a move.
+	 * 
+	 * @param from  the square the piece moves from
+	 * @param to    the square the piece moves to
+	 * @param flags the flags describing the move
+	 * @return the encoded move
+	 */
+	public static int create(int from, int to, int flags) {
+		return from | (to << 6) | (flags << 12);
+	}
+
+	/**
+	 * This method encodes a promotion.
+	 * 
+	 * @param from      the square the pawn moves from
+	 * @param to        the square the pawn moves to
+	 * @param pieceType the type of the new piece, from BitBoard.KNIGHT to BitBoard.QUEEN
+	 * @param isCapture true if the pawn captures a piece and false otherwise
+	 * @return the encoded move
+	 */
+	public static int createPromotion(int from, int to, int pieceType, boolean isCapture) {
+		int flags = PROMOTION | (pieceType - BitBoard.KNIGHT) | (isCapture ? CAPTURE : 0);
+		return create(from, to, flags);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the square the piece moves from
+	 */
+	public static int from(int move) {
+		return move & 0x3f;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the square the piece moves to
+	 */
+	public static int to(int move) {
+		return (move >>> 6) & 0x3f;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the flags describing the move
+	 */
+	public static int flags(int move) {
+		return (move >>> 12) & 0xf;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return true if the move captures a piece, including by en passant, and false otherwise
+	 */
+	public static boolean isCapture(int move) {
+		return (flags(move) & CAPTURE) != 0;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return true if the move is a promotion and false otherwise
+	 */
+	public static boolean isPromotion(int move) {
+		return (flags(move) & PROMOTION) != 0;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return true if the move is castling on either side and false otherwise
+	 */
+	public static boolean isCastle(int move) {
+		int flags = flags(move);
+		return (flags == KING_CASTLE) || (flags == QUEEN_CASTLE);
+	}
+
+	/**
+	 * This method returns the type of the piece a pawn is promoted to by the given move, using the
+	 * piece types of BitBoard.
+	 * 
+	 * @param move the encoded move, which must be a promotion
+	 * @return the type of the new piece, from BitBoard.KNIGHT to BitBoard.QUEEN
+	 */
+	public static int promotionType(int move) {
+		return BitBoard.KNIGHT + (flags(move) & 3);
+	}
+
+	/**
+	 * This method returns the character for the piece a pawn is promoted to by the given move, as
+	 * accepted by AbstractBoard.promote(), or 0 if the move is not a promotion.
+	 * 
+	 * @param move the encoded move
+	 * @return 'n', 'b', 'r', or 'q' for a promotion, or 0 otherwise
+	 */
+	public static char promotionChar(int move) {
+		return isPromotion(move) ? PROMOTION_CHARS.charAt(flags(move) & 3) : (char) 0;
+	}
+
+	/**
+	 * This method returns the name of the given square, such as "e4".
+	 * 
+	 * @param square the square
+	 * @return a two-character String identifying the column and row of the square
+	 */
+	public static String squareName(int square) {
+		return "" + (char) ('a' + (square & 7)) + (char) ('8' - (square >> 3));
+	}
+
+	/**
+	 * This method returns the given move in coordinate notation, such as "e2e4" or "e7e8q".
+	 * 
+	 * @param move the encoded move
+	 * @return the move in coordinate notation
+	 */
+	public static String toString(int move) {
+		String name = squareName(from(move)) + squareName(to(move));
+		return isPromotion(move) ? name + promotionChar(move) : name;
+	}
+}
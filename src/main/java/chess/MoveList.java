@@ -0,0 +1,101 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * This class is a list of moves encoded by the Move class, backed by an int array. A list can be
+ * cleared and reused, so generating moves into it does not allocate any memory once the array is
+ * large enough.
+ */
+public class MoveList {
+	// no legal position has more than 218 moves
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private int[] moves;
+	private int size = 0;
+
+	/**
+	 * This method creates an empty list with the default capacity.
+	 */
+	public MoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * This method creates an empty list with the given capacity.
+	 * 
+	 * @param capacity the number of moves the list can hold before its array must be enlarged
+	 */
+	public MoveList(int capacity) {
+		moves = new int[capacity];
+	}
+
+	/**
+	 * This method adds a move to the end of the list.
+	 * 
+	 * @param move the encoded move
+	 */
+	public void add(int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, 2 * size);
+		}
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param index the index of the move
+	 * @return the move at the given index
+	 */
+	public int get(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return moves[index];
+	}
+
+	/**
+	 * @param index the index of the move
+	 * @param move  the encoded move to store at the given index
+	 */
+	public void set(int index, int move) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		moves[index] = move;
+	}
+
+	/**
+	 * @return the number of moves in the list
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method removes all moves from the list without releasing its array.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return true if the list contains the given move and false otherwise
+	 */
+	public boolean contains(int move) {
+		for (int i = 0; i < size; i++) {
+			if (moves[i] == move)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			if (i > 0)
+				builder.append(' ');
+			builder.append(Move.toString(moves[i]));
+		}
+		return builder.toString();
+	}
+}
@@ -1,27 +1,57 @@
 package chess;
 
+import java.util.Arrays;
+
 import chess.piece.ChessPiece;
 import chess.piece.King;
 import chess.piece.Pawn;
+import chess.piece.Rook;
 
 /**
  * This class is used by the board class to check the validity of any move that cannot be checked by
  * the piece making the move, including checking whether castling and en passant are legal and
- * checking whether a given move would result in the player's own king being in check.
+ * checking whether a given move would result in the player's own king being in check. All checks
+ * are made on the board's own array of pieces; moves being tested are made and then undone in
+ * place rather than on a copy of the board. When every move of a position is checked, the pieces
+ * checking the king and the pieces pinned against it are found once instead, after which each
+ * move can be checked without being made.
  */
 public class MoveValidator {
+	private Board board;
 	private ChessPiece[][] pieces;
 	private King blackKing;
 	private King whiteKing;
+	private UndoInfo undo = new UndoInfo(); // reused for every move made while testing
+
+	// indices of the masks found by findPieces(): all occupied squares, the squares of the pieces
+	// of the king's color, and the squares of each type of opposing piece, with queens counted as
+	// both straight and diagonal movers
+	private static final int OCCUPIED = 0;
+	private static final int OWN = 1;
+	private static final int PAWNS = 2;
+	private static final int KNIGHTS = 3;
+	private static final int KINGS = 4;
+	private static final int STRAIGHT_MOVERS = 5;
+	private static final int DIAGONAL_MOVERS = 6;
+	private long[] checkMasks = new long[7]; // used by isCheck() and findAttackers()
+
+	// the state found by findChecksAndPins() for the player to move
+	private long[] pinMasks = new long[7];
+	private int kingSquare;
+	private long checkMask; // the squares to which a piece other than the king may move
+	private long pinned; // the player's pieces that are pinned against the king
+	private long[] pinRays = new long[64]; // the squares to which each pinned piece may move
 
 	/**
-	 * This method creates a MoveValidator for the board with the specified pieces.
+	 * This method creates a MoveValidator for the given board with the specified pieces.
 	 * 
+	 * @param board     the board whose moves are checked
 	 * @param pieces    the array of pieces on the board
 	 * @param blackKing the black king
 	 * @param whiteKing the white king
 	 */
-	public MoveValidator(ChessPiece[][] pieces, King blackKing, King whiteKing) {
+	public MoveValidator(Board board, ChessPiece[][] pieces, King blackKing, King whiteKing) {
+		this.board = board;
 		this.pieces = pieces;
 		this.blackKing = blackKing;
 		this.whiteKing = whiteKing;
@@ -42,12 +72,9 @@ public class MoveValidator {
 	 * This method checks whether en passant is legal.
 	 * 
 	 * @param enPassantPawn the pawn that can potentially be captured by en passant
-	 * @param board         an 8x8 matrix representing the current state of the board, with empty
-	 *                      squares represented by zeros and occupied squares represented by the
-	 *                      return value of the occupying piece's toByte() method
 	 * @return true if en passant is legal and false otherwise
 	 */
-	protected boolean isEnPassantLegal(Pawn enPassantPawn, byte[][] board) {
+	protected boolean isEnPassantLegal(Pawn enPassantPawn) {
 		// if the last move was not a pawn moving two spaces, return false
 		if (enPassantPawn == null)
 			return false;
@@ -63,8 +90,8 @@ public class MoveValidator {
 		// return true if at least one of the two pieces can capture by en passant and
 		// false
 		// otherwise
-		return (isEnPassantLegal(enPassantPawn, piece1, board)
-				|| (isEnPassantLegal(enPassantPawn, piece2, board)));
+		return (isEnPassantLegal(enPassantPawn, piece1)
+				|| (isEnPassantLegal(enPassantPawn, piece2)));
 	}
 
 	/**
@@ -72,12 +99,9 @@ public class MoveValidator {
 	 * 
 	 * @param enPassantPawn the pawn that can potentially be captured by en passant
 	 * @param piece         the piece to check
-	 * @param board         an 8x8 matrix representing the current state of the board, with empty
-	 *                      squares represented by zeros and occupied squares represented by the
-	 *                      return value of the occupying piece's toByte() method
 	 * @return true if the piece can capture by en passant and false otherwise
 	 */
-	protected boolean isEnPassantLegal(Pawn enPassantPawn, ChessPiece piece, byte[][] board) {
+	protected boolean isEnPassantLegal(Pawn enPassantPawn, ChessPiece piece) {
 		// if the last move was not a pawn moving two spaces or if the given piece is
 		// null, return
 		// false
@@ -101,10 +125,7 @@ public class MoveValidator {
 		// own king being
 		// in check
 		if (isPawn(piece, blackToMove)) {
-			board[row + direction][col] = board[row][pieceCol];
-			board[row][col] = 0;
-			board[row][pieceCol] = 0;
-			return !isCheck(blackToMove, board);
+			return !doesMoveEndInCheck(row + direction, col, blackToMove, piece);
 		}
 		return false;
 	}
@@ -117,13 +138,9 @@ public class MoveValidator {
 	 * @param col           the col to check
 	 * @param enPassantPawn the pawn that can potentially be captured by en passant
 	 * @param piece         the piece to check
-	 * @param board         an 8x8 matrix representing the current state of the board, with empty
-	 *                      squares represented by zeros and occupied squares represented by the
-	 *                      return value of the occupying piece's toByte() method
 	 * @return true if the piece can capture by en passant and false otherwise
 	 */
-	protected boolean isEnPassantLegal(int row, int col, Pawn enPassantPawn, ChessPiece piece,
-			byte[][] board) {
+	protected boolean isEnPassantLegal(int row, int col, Pawn enPassantPawn, ChessPiece piece) {
 		// if the last move was not a pawn moving two spaces, return false
 		if (enPassantPawn == null)
 			return false;
@@ -138,164 +155,199 @@ public class MoveValidator {
 		// if the given location is correct, check whether the given piece can legally
 		// capture by en
 		// passant
-		return isEnPassantLegal(enPassantPawn, piece, board);
+		return isEnPassantLegal(enPassantPawn, piece);
 	}
 
 	/**
 	 * This method checks whether moving the given piece to the specified location would result in
-	 * the player's own king being in check.
+	 * the player's own king being in check. The move is made on the board and then undone.
 	 * 
 	 * @param row         the row to move to
 	 * @param col         the col to move to
 	 * @param blackToMove true if it is black's turn and false if white's turn
 	 * @param piece       the piece being moved
-	 * @param board       an 8x8 matrix representing the current state of the board, with empty
-	 *                    squares represented by zeros and occupied squares represented by the
-	 *                    return value of the occupying piece's toByte() method
 	 * @return true if the move results in the player's own king being in check and false otherwise
 	 */
-	protected boolean doesMoveEndInCheck(int row, int col, boolean blackToMove, ChessPiece piece,
-			byte[][] board) {
-		int startRow = piece.getRow();
-		int startCol = piece.getCol();
-		board[row][col] = board[startRow][startCol];
-		board[startRow][startCol] = 0;
-		King king = blackToMove ? blackKing : whiteKing;
-		int kingRow, kingCol;
-		if (king == piece) {
-			kingRow = row;
-			kingCol = col;
-		} else {
-			kingRow = king.getRow();
-			kingCol = king.getCol();
-		}
-		return isCheck(kingRow, kingCol, blackToMove, board);
+	protected boolean doesMoveEndInCheck(int row, int col, boolean blackToMove, ChessPiece piece) {
+		board.makeMove(piece.getRow(), piece.getCol(), row, col, (char) 0, undo);
+		boolean isCheck = isCheck(blackToMove);
+		board.unmakeMove(undo);
+		return isCheck;
 	}
 
 	/**
-	 * This method checks whether the king of the specified color is in check in the given board
+	 * This method checks whether the king of the specified color is in check in the current board
 	 * setup.
 	 * 
-	 * @param isBlackKing true if the king is black and false if white
-	 * @param board       an 8x8 matrix representing the current state of the board, with empty
-	 *                    squares represented by zeros and occupied squares represented by the
-	 *                    return value of the occupying piece's toByte() method
+	 * @param blackToMove true if the king is black and false if white
 	 * @return true if the king is in check and false if not
 	 */
-	protected boolean isCheck(boolean blackToMove, byte[][] board) {
+	protected boolean isCheck(boolean blackToMove) {
 		King king = blackToMove ? blackKing : whiteKing;
-		return isCheck(king.getRow(), king.getCol(), blackToMove, board);
+		return isCheck(king.getRow(), king.getCol(), blackToMove);
 	}
 
 	/**
 	 * This method checks whether the king of the specified color at the specified location is in
-	 * check in the given board setup.
+	 * check in the current board setup.
 	 * 
 	 * @param kingRow     the row at which the king is located
 	 * @param kingCol     the col at which the king is located
 	 * @param isBlackKing true if the king is black and false if white
-	 * @param board       an 8x8 matrix representing the current state of the board, with empty
-	 *                    squares represented by zeros and occupied squares represented by the
-	 *                    return value of the occupying piece's toByte() method
 	 * @return true if the king is in check and false if not
 	 */
-	protected boolean isCheck(int kingRow, int kingCol, boolean isBlackKing, byte[][] board) {
-		char piece;
-
-		// check if the king's square is reachable by a pawn
-		int direction = isBlackKing ? 1 : -1;
-		piece = pieceAt(kingRow + direction, kingCol - 1, board);
-		if (matches(piece, 'p', !isBlackKing))
-			return true;
-		piece = pieceAt(kingRow + direction, kingCol + 1, board);
-		if (matches(piece, 'p', !isBlackKing))
-			return true;
-
-		// check if the king's square is reachable by a knight
-		int[][] deltas = { { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 }, { 2, 1 }, { 2, -1 },
-				{ -2, 1 }, { -2, -1 } };
-		for (int[] delta : deltas) {
-			piece = pieceAt(kingRow + delta[0], kingCol + delta[1], board);
-			if (matches(piece, 'n', !isBlackKing))
-				return true;
-		}
+	protected boolean isCheck(int kingRow, int kingCol, boolean isBlackKing) {
+		findPieces(isBlackKing, checkMasks);
+		return attackers((kingRow << 3) + kingCol, isBlackKing, checkMasks,
+				checkMasks[OCCUPIED]) != 0;
+	}
 
-		// check if the king's square is reachable by a king
-		for (int i = -1; i <= 1; i++) {
-			for (int j = -1; j <= 1; j++) {
-				piece = pieceAt(kingRow + i, kingCol + j, board);
-				if (matches(piece, 'k', !isBlackKing))
-					return true;
-			}
-		}
+	/**
+	 * This method returns the pieces of both colors that attack the given square, counting only
+	 * pieces on the given occupied squares and letting sliding pieces pass through the others.
+	 * 
+	 * @param square   the square, numbered 8 * row + col
+	 * @param occupied the mask of squares to treat as occupied
+	 * @return the mask of squares of the attacking pieces
+	 */
+	protected long findAttackers(int square, long occupied) {
+		// the pieces opposing a black king are white, and those opposing a white king are black
+		findPieces(true, checkMasks);
+		long attackers = attackers(square, true, checkMasks, occupied);
+		findPieces(false, checkMasks);
+		attackers |= attackers(square, false, checkMasks, occupied);
+		return attackers & occupied;
+	}
 
-		// check if the king's square is reachable by a rook or queen moving
-		// horizontally or
-		// vertically
-		int[][] rookDirections = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-		for (int[] rookDirection : rookDirections) {
-			for (int i = 1; i < 8; i++) {
-				piece = pieceAt(kingRow + (i * rookDirection[0]), kingCol + (i * rookDirection[1]),
-						board);
-				if ((matches(piece, 'r', !isBlackKing)) || matches(piece, 'q', !isBlackKing))
-					return true;
-				if (piece != 0)
+	/**
+	 * This method finds the occupied squares and the squares of each type of piece opposing the
+	 * king of the specified color in a single pass over the board.
+	 * 
+	 * @param isBlackKing true if the king is black and false if white
+	 * @param masks       the array in which to store the masks, indexed by OCCUPIED, OWN, PAWNS,
+	 *                    KNIGHTS, KINGS, STRAIGHT_MOVERS, and DIAGONAL_MOVERS
+	 */
+	private void findPieces(boolean isBlackKing, long[] masks) {
+		Arrays.fill(masks, 0);
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				if (pieces[row][col] == null)
+					continue;
+				char piece = (char) pieces[row][col].toByte();
+				long square = 1L << ((row << 3) + col);
+				masks[OCCUPIED] |= square;
+				if (Character.isUpperCase(piece) == isBlackKing) {
+					masks[OWN] |= square;
+					continue;
+				}
+				switch (Character.toUpperCase(piece)) {
+				case 'P':
+					masks[PAWNS] |= square;
 					break;
-			}
-		}
-
-		// check if the king's square is reachable by a bishop or queen moving
-		// diagonally
-		int[][] bishopDirections = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
-		for (int[] bishopDirection : bishopDirections) {
-			for (int i = 1; i < 8; i++) {
-				piece = pieceAt(kingRow + (i * bishopDirection[0]),
-						kingCol + (i * bishopDirection[1]), board);
-				if ((matches(piece, 'b', !isBlackKing)) || matches(piece, 'q', !isBlackKing))
-					return true;
-				if (piece != 0)
+				case 'N':
+					masks[KNIGHTS] |= square;
+					break;
+				case 'K':
+					masks[KINGS] |= square;
+					break;
+				case 'R':
+					masks[STRAIGHT_MOVERS] |= square;
+					break;
+				case 'B':
+					masks[DIAGONAL_MOVERS] |= square;
 					break;
+				case 'Q':
+					masks[STRAIGHT_MOVERS] |= square;
+					masks[DIAGONAL_MOVERS] |= square;
+					break;
+				}
 			}
 		}
+	}
 
-		// if this point is reached, the king is not in check
-		return false;
+	/**
+	 * This method returns the opposing pieces that attack the given square.
+	 * 
+	 * @param square      the square, numbered 8 * row + col
+	 * @param isBlackKing true if the opposing pieces are white and false if black
+	 * @param masks       the masks found by findPieces()
+	 * @param occupied    the mask of occupied squares to use for sliding pieces
+	 * @return the mask of squares of the attacking pieces
+	 */
+	private static long attackers(int square, boolean isBlackKing, long[] masks, long occupied) {
+		// an opposing piece attacks the square if it stands on a square that a piece of the same
+		// type on the given square would attack
+		return (Attacks.pawnAttacks(isBlackKing ? Attacks.BLACK : Attacks.WHITE, square)
+				& masks[PAWNS]) | (Attacks.knightAttacks(square) & masks[KNIGHTS])
+				| (Attacks.kingAttacks(square) & masks[KINGS])
+				| (Attacks.rookAttacks(square, occupied) & masks[STRAIGHT_MOVERS])
+				| (Attacks.bishopAttacks(square, occupied) & masks[DIAGONAL_MOVERS]);
 	}
 
 	/**
-	 * This method determines whether the specified piece is a piece of the specified type and
-	 * color.
+	 * This method finds the pieces checking the king of the specified color and the pieces pinned
+	 * against it, so that isMoveLegal() can then check any move of that color without making it.
+	 * It must be called again whenever the board changes.
 	 * 
-	 * @param piece     the piece to check
-	 * @param pieceType the piece type to check
-	 * @param isBlack   true to check if piece is black and false to check if white
-	 * @return true if the given piece matches the given piece type and color
+	 * @param blackToMove true if it is black's turn and false if white's turn
 	 */
-	private boolean matches(char piece, char pieceType, boolean isBlack) {
-		// if the piece is the null char, there is no match
-		// if the piece is the wrong color (uppercase characters are black), there is no
-		// match
-		// if the piece is not null and is the right color, check whether it matches the
-		// piece type
-		return (piece != 0) && (Character.isUpperCase(piece) == isBlack)
-				&& (Character.toUpperCase(piece) == Character.toUpperCase(pieceType));
+	protected void findChecksAndPins(boolean blackToMove) {
+		King king = blackToMove ? blackKing : whiteKing;
+		kingSquare = (king.getRow() << 3) + king.getCol();
+		findPieces(blackToMove, pinMasks);
+
+		// a piece other than the king can only answer a single check, by capturing the checking
+		// piece or moving between it and the king
+		checkMask = -1L;
+		long checkers = attackers(kingSquare, blackToMove, pinMasks, pinMasks[OCCUPIED]);
+		if ((checkers & (checkers - 1)) != 0) {
+			checkMask = 0;
+		} else if (checkers != 0) {
+			checkMask = checkers
+					| Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+		}
+
+		// a piece is pinned if it is the only piece between the king and an opposing sliding
+		// piece that would otherwise attack the king
+		pinned = 0;
+		long snipers = (Attacks.rookAttacks(kingSquare, 0) & pinMasks[STRAIGHT_MOVERS])
+				| (Attacks.bishopAttacks(kingSquare, 0) & pinMasks[DIAGONAL_MOVERS]);
+		while (snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = Attacks.between(kingSquare, sniper) & pinMasks[OCCUPIED];
+			if ((blockers != 0) && ((blockers & (blockers - 1)) == 0)
+					&& ((blockers & pinMasks[OWN]) != 0)) {
+				pinned |= blockers;
+				pinRays[Long.numberOfTrailingZeros(blockers)] = Attacks.between(kingSquare, sniper)
+						| (1L << sniper);
+			}
+		}
 	}
 
 	/**
-	 * This method returns the char representing the piece at the given location in the given board,
-	 * or the null char if the specified location is outside of the bounds of the board
+	 * This method checks whether moving the given piece to the specified location would leave the
+	 * player's own king out of check, using the checks and pins found by the last call to
+	 * findChecksAndPins(). The move must be a valid move for the piece other than castling or en
+	 * passant, which are checked by isCastleLegal() and isEnPassantLegal().
 	 * 
-	 * @param row   the row to check
-	 * @param col   the col to check
-	 * @param board the board to check
-	 * @return the char representing the piece at the given location in the given board, or the null
-	 *         char if the specified location is outside of the bounds of the board
+	 * @param piece the piece being moved, which must be of the color passed to findChecksAndPins()
+	 * @param row   the row to move to
+	 * @param col   the col to move to
+	 * @return true if the move is legal and false otherwise
 	 */
-	private char pieceAt(int row, int col, byte[][] board) {
-		if ((row >= 0) && (row < 8) && (col >= 0) && (col < 8)) {
-			return (char) board[row][col];
+	protected boolean isMoveLegal(ChessPiece piece, int row, int col) {
+		int from = (piece.getRow() << 3) + piece.getCol();
+		int to = (row << 3) + col;
+		if (from == kingSquare) {
+			// the king must not move to an attacked square, including squares on the far side of
+			// it from a sliding piece that is checking it
+			long occupied = pinMasks[OCCUPIED] & ~(1L << from);
+			return attackers(to, piece.isBlack(), pinMasks, occupied) == 0;
 		}
-		return 0;
+		if ((checkMask & (1L << to)) == 0)
+			return false;
+		return ((pinned & (1L << from)) == 0) || ((pinRays[from] & (1L << to)) != 0);
 	}
 
 	/**
@@ -305,12 +357,9 @@ public class MoveValidator {
 	 * @param side        the side to which the king is moving, either 'q' for queenside or 'k' for
 	 *                    kingside
 	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
-	 * @param board       an 8x8 matrix representing the current state of the board, with empty
-	 *                    squares represented by zeros and occupied squares represented by the
-	 *                    return value of the occupying piece's toByte() method
 	 * @return 1 if successful or 0 if unsuccessful
 	 */
-	protected boolean isCastleLegal(King king, char side, boolean blackToMove, byte[][] board) {
+	protected boolean isCastleLegal(King king, char side, boolean blackToMove) {
 		// if the king can't castle on the selected side due to either it or the rook on
 		// that side
 		// having moved, return 0, otherwise determine the direction the king must move
@@ -335,33 +384,30 @@ public class MoveValidator {
 		// if the rook of the correct color is not located in the correct position,
 		// return 0
 		int row = king.getRow();
-		byte rook = board[row][rookCol];
-		if (!(Character.toUpperCase(rook) == 'R') || !(Character.isUpperCase(rook) == blackToMove))
+		ChessPiece rook = pieces[row][rookCol];
+		if (!(rook instanceof Rook) || (rook.isBlack() != blackToMove))
 			return false;
 
 		// if there are any pieces between the king and the rook on the selected side,
 		// return 0
 		int kingCol = king.getCol();
 		for (int i = kingCol + direction; i != rookCol; i += direction) {
-			if (board[row][i] != 0)
+			if (pieces[row][i] != null)
 				return false;
 		}
 
 		// if the king is in check, return 0
-		if (isCheck(blackToMove, board))
+		if (isCheck(blackToMove))
 			return false;
 
-		// if the square the king would pass through is under attack, return 0
-		byte kingByte = board[row][kingCol];
-		board[row][kingCol] = 0;
-		board[row][kingCol + direction] = kingByte;
-		if (isCheck(row, kingCol + direction, blackToMove, board))
+		// if the square the king would pass through is under attack, return 0; the king stays on
+		// its own square, which can only block an attack along the row that would already be
+		// putting it in check
+		if (isCheck(row, kingCol + direction, blackToMove))
 			return false;
 
 		// if the square the king would land on is under attack, return 0
-		board[row][kingCol + direction] = 0;
-		board[row][kingCol + (2 * direction)] = kingByte;
-		if (isCheck(row, kingCol + (2 * direction), blackToMove, board))
+		if (isCheck(row, kingCol + (2 * direction), blackToMove))
 			return false;
 
 		// if all of the above checks pass, return true
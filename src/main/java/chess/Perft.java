@@ -0,0 +1,228 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class counts the leaf nodes of the tree of legal moves to a given depth, which is used to
+ * verify move generation against known node counts and to measure its speed. Counts of subtrees
+ * can optionally be cached in a hash table shared by all threads, and the moves at the root can
+ * be split across threads.
+ */
+public class Perft {
+	// the standard reference positions and their node counts at depths 1, 2, 3, and so on
+	public static final String START_POSITION =
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	public static final String[] POSITIONS = { START_POSITION,
+			// "Kiwipete", which contains castling, en passant, and promotions
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			// en passant discovering a check along a rank
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			// castling rights, promotions, and pinned pieces
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			// promotions with capture and checks
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			// a quiet middlegame position
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10" };
+	public static final long[][] NODE_COUNTS = { { 20, 400, 8902, 197281, 4865609 },
+			{ 48, 2039, 97862, 4085603 }, { 14, 191, 2812, 43238, 674624 },
+			{ 6, 264, 9467, 422333 }, { 44, 1486, 62379, 2103487 },
+			{ 46, 2079, 89890, 3894594 } };
+
+	// the maximum depth supported, which bounds the number of move lists needed
+	private static final int MAX_DEPTH = 64;
+
+	// the cache stores the key of each position XORed with its data, so that an entry torn by two
+	// threads writing at once fails to match instead of returning a wrong count; the data holds the
+	// count in the upper 56 bits and the depth in the lowest 8 bits
+	private final long[] cacheKeys;
+	private final long[] cacheData;
+	private final int cacheMask;
+
+	/**
+	 * This method creates a Perft object without a cache.
+	 */
+	public Perft() {
+		this(0);
+	}
+
+	/**
+	 * This method creates a Perft object with a cache of 2^cacheBits entries, or without a cache if
+	 * cacheBits is zero. Each entry uses 16 bytes.
+	 * 
+	 * @param cacheBits the base 2 logarithm of the number of entries in the cache, or zero for no
+	 *                  cache
+	 */
+	public Perft(int cacheBits) {
+		if (cacheBits > 0) {
+			cacheKeys = new long[1 << cacheBits];
+			cacheData = new long[1 << cacheBits];
+			cacheMask = (1 << cacheBits) - 1;
+		} else {
+			cacheKeys = null;
+			cacheData = null;
+			cacheMask = 0;
+		}
+	}
+
+	/**
+	 * This method checks whether it is black's turn in the position described by the given FEN
+	 * string.
+	 * 
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @return true if it is black's turn to move and false if it is white's turn
+	 */
+	public static boolean isBlackToMove(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		return (fields.length > 1) && fields[1].equals("b");
+	}
+
+	/**
+	 * This method returns the number of leaf nodes of the tree of legal moves of the given depth
+	 * starting from the current position of the given board. The board is restored before this
+	 * method returns.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param depth       the depth of the tree, at most 64
+	 * @return the number of leaf nodes
+	 */
+	public long perft(AbstractBoard board, boolean blackToMove, int depth) {
+		return perft(board, blackToMove, depth, createMoveLists());
+	}
+
+	/**
+	 * This method returns the number of leaf nodes of the tree of legal moves of the given depth
+	 * below each legal move in the current position of the given board, in the order the moves are
+	 * generated. The board is restored before this method returns.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param depth       the depth of the tree including the root moves, between 1 and 64
+	 * @return a map from each move in coordinate notation to its number of leaf nodes
+	 */
+	public Map<String, Long> divide(AbstractBoard board, boolean blackToMove, int depth) {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		MoveList[] lists = createMoveLists();
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			board.makeMove(move);
+			counts.put(Move.toString(move), perft(board, !blackToMove, depth - 1, lists));
+			board.unmakeMove(move);
+		}
+		return counts;
+	}
+
+	/**
+	 * This method returns the number of leaf nodes of the tree of legal moves of the given depth
+	 * starting from the position described by the given FEN string, counting the subtree below
+	 * each move at the root on a separate board in the common fork-join pool.
+	 * 
+	 * @param fen   the position in Forsyth-Edwards Notation
+	 * @param depth the depth of the tree, at most 64
+	 * @return the number of leaf nodes
+	 */
+	public long parallelPerft(String fen, int depth) {
+		BitBoard board = new BitBoard(fen);
+		boolean blackToMove = isBlackToMove(fen);
+		if (depth <= 1)
+			return perft(board, blackToMove, depth);
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		List<RecursiveTask<Long>> tasks = new ArrayList<>();
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			tasks.add(new RecursiveTask<Long>() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Long compute() {
+					BitBoard copy = new BitBoard(board);
+					copy.makeMove(move);
+					return perft(copy, !blackToMove, depth - 1);
+				}
+			});
+		}
+		return ForkJoinPool.commonPool().invoke(new RecursiveTask<Long>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Long compute() {
+				long nodes = 0;
+				for (RecursiveTask<Long> task : invokeAll(tasks)) {
+					nodes += task.join();
+				}
+				return nodes;
+			}
+		});
+	}
+
+	/**
+	 * This method creates one move list for each ply of the search, so that no lists need to be
+	 * created while searching.
+	 * 
+	 * @return an array of empty move lists
+	 */
+	private static MoveList[] createMoveLists() {
+		MoveList[] lists = new MoveList[MAX_DEPTH];
+		for (int i = 0; i < MAX_DEPTH; i++) {
+			lists[i] = new MoveList();
+		}
+		return lists;
+	}
+
+	/**
+	 * This method returns the number of leaf nodes of the tree of legal moves of the given depth,
+	 * using lists[depth - 1] to hold the moves of the current position.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param depth       the depth of the tree
+	 * @param lists       the move lists for each ply
+	 * @return the number of leaf nodes
+	 */
+	private long perft(AbstractBoard board, boolean blackToMove, int depth, MoveList[] lists) {
+		if (depth == 0)
+			return 1;
+
+		// look up the count in the cache
+		long key = 0;
+		int index = 0;
+		boolean useCache = (cacheKeys != null) && (depth > 1);
+		if (useCache) {
+			key = board.getZobristKey(blackToMove);
+			index = (int) key & cacheMask;
+			long data = cacheData[index];
+			if (((cacheKeys[index] ^ data) == key) && ((data & 0xff) == depth))
+				return data >>> 8;
+		}
+
+		MoveList moves = lists[depth - 1];
+		moves.clear();
+		board.generateMoves(blackToMove, moves);
+		// the leaves are the legal moves themselves, so there is no need to make them
+		if (depth == 1)
+			return moves.size();
+
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			board.makeMove(move);
+			nodes += perft(board, !blackToMove, depth - 1, lists);
+			board.unmakeMove(move);
+		}
+
+		if (useCache) {
+			long data = (nodes << 8) | depth;
+			cacheKeys[index] = key ^ data;
+			cacheData[index] = data;
+		}
+		return nodes;
+	}
+}
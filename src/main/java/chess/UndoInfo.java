@@ -0,0 +1,27 @@
+package chess;
+
+import chess.piece.ChessPiece;
+import chess.piece.Pawn;
+
+/**
+ * This class holds the information needed to undo a move made with Board.makeMove(). A single
+ * UndoInfo object can be reused for any number of moves, as long as each move is undone before the
+ * object is used for the next one.
+ */
+public class UndoInfo {
+	// the piece that moved and the squares it moved between
+	ChessPiece piece;
+	int fromRow, fromCol, toRow, toCol;
+
+	// the captured piece, if any, and its square, which differs from the target square for en
+	// passant
+	ChessPiece captured;
+	int capturedRow, capturedCol;
+
+	// the piece a pawn was promoted to, if any
+	ChessPiece promoted;
+
+	// the state of the board before the move
+	Pawn enPassantPawn;
+	boolean blackKingside, blackQueenside, whiteKingside, whiteQueenside;
+}
@@ -0,0 +1,138 @@
+package chess;
+
+/**
+ * This class holds the random numbers used to compute Zobrist keys, 64-bit hashes of positions. The
+ * key of a position is the XOR of the number for each piece on its square, the number for the
+ * castling rights, the number for the file of a pawn that can be captured by en passant, and the
+ * number for black to move if it is black's turn. Since XOR is its own inverse, a board can update
+ * its key as pieces move instead of scanning the whole position.
+ */
+public final class Zobrist {
+	// the character representing each piece index, as returned by ChessPiece.toByte(); the index
+	// of a piece is the same as in BitBoard
+	private static final String PIECE_CHARS = "pnbrqkPNBRQK";
+
+	private static final long[][] PIECES = new long[12][64];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT_FILE = new long[8];
+	private static final long BLACK_TO_MOVE;
+
+	static {
+		// the numbers are generated by a fixed xorshift generator so that keys are the same in
+		// every run
+		long seed = 0x2545f4914f6cdd1dL;
+		for (long[] squares : PIECES) {
+			for (int square = 0; square < 64; square++) {
+				seed = next(seed);
+				squares[square] = seed * 0x2545f4914f6cdd1dL;
+			}
+		}
+		// castling rights are combined from one number per right so that removing a right only
+		// changes the key by that right's number
+		long[] rights = new long[4];
+		for (int i = 0; i < 4; i++) {
+			seed = next(seed);
+			rights[i] = seed * 0x2545f4914f6cdd1dL;
+		}
+		for (int i = 0; i < 16; i++) {
+			for (int right = 0; right < 4; right++) {
+				if ((i & (1 << right)) != 0)
+					CASTLING[i] ^= rights[right];
+			}
+		}
+		for (int file = 0; file < 8; file++) {
+			seed = next(seed);
+			EN_PASSANT_FILE[file] = seed * 0x2545f4914f6cdd1dL;
+		}
+		seed = next(seed);
+		BLACK_TO_MOVE = seed * 0x2545f4914f6cdd1dL;
+	}
+
+	/**
+	 * This constructor is private since this class only contains static methods.
+	 */
+	private Zobrist() {
+	}
+
+	/**
+	 * This method advances the state of a xorshift random number generator.
+	 * 
+	 * @param seed the current state, which must not be zero
+	 * @return the next state
+	 */
+	private static long next(long seed) {
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed;
+	}
+
+	/**
+	 * This method returns the number for a piece on a square.
+	 * 
+	 * @param piece  the index of the piece, as in BitBoard
+	 * @param square the square, numbered 8 * row + col
+	 * @return the number for the piece on the square
+	 */
+	public static long piece(int piece, int square) {
+		return PIECES[piece][square];
+	}
+
+	/**
+	 * This method returns the number for a piece on a square.
+	 * 
+	 * @param piece the byte representing the piece, as returned by ChessPiece.toByte()
+	 * @param row   the row of the square
+	 * @param col   the col of the square
+	 * @return the number for the piece on the square
+	 */
+	public static long piece(byte piece, int row, int col) {
+		return PIECES[PIECE_CHARS.indexOf(piece)][(row << 3) + col];
+	}
+
+	/**
+	 * This method returns the number for a set of castling rights.
+	 * 
+	 * @param rights the castling rights, combined from the constants in BitBoard such as
+	 *               WHITE_KINGSIDE
+	 * @return the number for the castling rights
+	 */
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+
+	/**
+	 * This method returns the number for a pawn that can be captured by en passant on the given
+	 * file.
+	 * 
+	 * @param col the col of the pawn
+	 * @return the number for the en passant file
+	 */
+	public static long enPassantFile(int col) {
+		return EN_PASSANT_FILE[col];
+	}
+
+	/**
+	 * @return the number for black to move
+	 */
+	public static long blackToMove() {
+		return BLACK_TO_MOVE;
+	}
+
+	/**
+	 * This method computes the key of the pieces in the given array without any other state.
+	 * 
+	 * @param board an 8x8 matrix representing the board, as returned by AbstractBoard.toByteArray()
+	 * @return the XOR of the numbers for each piece on its square
+	 */
+	public static long pieceKey(byte[][] board) {
+		long key = 0;
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				if (board[row][col] != 0)
+					key ^= piece(board[row][col], row, col);
+			}
+		}
+		return key;
+	}
+}
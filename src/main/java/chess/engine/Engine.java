@@ -0,0 +1,522 @@
+package chess.engine;
+
+import java.util.function.Consumer;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * This class searches for the best move with a negamax alpha-beta search and iterative deepening:
+ * the position is searched to depth 1, then to depth 2, and so on, until the maximum depth is
+ * reached or the time or node budget runs out. Results are kept in a transposition table, whose
+ * best moves are searched first, so each depth mostly follows the best line of the previous one.
+ * At the end of each line, captures are searched until the position is quiet, so that the score
+ * does not depend on where an exchange of pieces is cut off.
+ * The search is selective: a position where passing the turn still leaves the player to move
+ * above beta is not searched further (null-move pruning), moves late in the move order are first
+ * searched to a lower depth (late-move reductions), and quiet moves near the end of a line are
+ * skipped when the position is too far below alpha for them to matter (futility pruning and
+ * razoring). Each of these can be switched off, for example to measure what it saves.
+ * If the engine has an opening book with a move for the position, that move is played without
+ * searching. If it has a tablebase, positions the tablebase covers are scored as won, drawn, or
+ * lost without being searched, and when the root position is covered, only the moves that keep
+ * its result are searched, or none if the tablebase knows the distance to checkmate after every
+ * move.
+ * In a game with a clock, a TimeManager decides how long each move is searched from the time
+ * left, the increment, and the moves to the next time control: the search stops after a depth when
+ * the best move is stable, searches longer when the score drops, and never runs past a hard limit
+ * that keeps the clock from running out.
+ * The search makes and unmakes moves on the given board, which is restored before the search
+ * returns.
+ * 
+ * With more than one thread the engine uses Lazy SMP: helper threads search copies of the board
+ * at the same time as the main thread, sharing nothing but the transposition table. The helpers
+ * start at different depths, so they mostly search different parts of the tree, and the results
+ * they store make the main thread's search faster. Only the main thread reports results.
+ */
+public class Engine {
+	// the score of checkmate at the root; checkmates further away score closer to zero
+	public static final int MATE = 30000;
+	public static final int INFINITY = 32000;
+	// the maximum number of plies searched
+	public static final int MAX_PLY = 64;
+	// the score of a position the tablebase shows is won at the root, less the ply at which it is
+	// found; it is below every checkmate score, so a checkmate found by the search is preferred
+	public static final int TABLEBASE_WIN = MATE - 2 * MAX_PLY;
+
+	// the size of the transposition table of a new engine, in megabytes
+	public static final int DEFAULT_HASH_SIZE = 16;
+	// the history of a search without earlier positions
+	private static final long[] NO_POSITIONS = new long[0];
+
+	private int maxDepth = MAX_PLY;
+	private long timeLimit = 0; // in milliseconds, or 0 for no limit
+	private long nodeLimit = 0; // or 0 for no limit
+	// the clock of the player to move, in milliseconds, or 0 if the game has no clock
+	private long remainingTime = 0;
+	private long increment = 0;
+	private int movesToGo = 0;
+	private boolean nullMovePruning = true;
+	private boolean lateMoveReductions = true;
+	private boolean futilityPruning = true;
+	private boolean razoring = true;
+	private OpeningBook openingBook = null;
+	private Tablebase tablebase = null;
+	private Consumer<SearchResult> listener = null;
+	private final TranspositionTable table;
+	// the searcher of the main thread followed by those of the helper threads
+	private Searcher[] searchers;
+	private volatile boolean isStopped;
+
+	/**
+	 * This method creates an engine without a time or node limit, which searches to the maximum
+	 * depth with one thread, with its own transposition table of DEFAULT_HASH_SIZE megabytes.
+	 */
+	public Engine() {
+		this(new TranspositionTable(DEFAULT_HASH_SIZE));
+	}
+
+	/**
+	 * This method creates an engine without a time or node limit, which searches to the maximum
+	 * depth with one thread, using the given transposition table. A table may be shared by several
+	 * engines, even when they search at the same time.
+	 * 
+	 * @param table the transposition table
+	 */
+	public Engine(TranspositionTable table) {
+		this.table = table;
+		setThreads(1);
+	}
+
+	/**
+	 * @return the transposition table
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * @param maxDepth the maximum depth to search, between 1 and MAX_PLY
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY));
+	}
+
+	/**
+	 * @param timeLimit the maximum time to search in milliseconds, or 0 for no limit
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * This method sets the clock of the player to move for the next search, whose time is then
+	 * managed by a TimeManager. The time limit, if there is one, still applies.
+	 * 
+	 * @param remainingTime the time left on the clock in milliseconds, or 0 for no clock
+	 * @param increment     the time added to the clock after each move in milliseconds
+	 * @param movesToGo     the number of moves to play before the next time control, including
+	 *                      this one, or 0 if there is no time control ahead
+	 */
+	public void setClock(long remainingTime, long increment, int movesToGo) {
+		this.remainingTime = remainingTime;
+		this.increment = increment;
+		this.movesToGo = movesToGo;
+	}
+
+	/**
+	 * @param nodeLimit the maximum number of nodes to search by all threads together, or 0 for no
+	 *                  limit
+	 */
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * @return true if positions where passing the turn fails high are pruned and false otherwise
+	 */
+	public boolean isNullMovePruning() {
+		return nullMovePruning;
+	}
+
+	/**
+	 * This method switches null-move pruning on or off. It is never used when the player to move is
+	 * in check or has only the king and pawns, since zugzwang is common in such positions and
+	 * passing would then be better than any legal move.
+	 * 
+	 * @param nullMovePruning true to prune positions where passing the turn fails high
+	 */
+	public void setNullMovePruning(boolean nullMovePruning) {
+		this.nullMovePruning = nullMovePruning;
+	}
+
+	/**
+	 * @return true if quiet moves late in the move order are searched to a lower depth and false
+	 *         otherwise
+	 */
+	public boolean isLateMoveReductions() {
+		return lateMoveReductions;
+	}
+
+	/**
+	 * This method switches late-move reductions on or off. A reduced move that turns out better
+	 * than the best move so far is searched again to the full depth.
+	 * 
+	 * @param lateMoveReductions true to search quiet moves late in the move order to a lower depth
+	 */
+	public void setLateMoveReductions(boolean lateMoveReductions) {
+		this.lateMoveReductions = lateMoveReductions;
+	}
+
+	/**
+	 * @return true if futility pruning is used and false otherwise
+	 */
+	public boolean isFutilityPruning() {
+		return futilityPruning;
+	}
+
+	/**
+	 * This method switches futility pruning on or off. Near the end of a line, it skips the quiet
+	 * moves of a position whose evaluation is so far below alpha that no quiet move can raise it,
+	 * and returns the evaluation of a position so far above beta that no move of the opponent can
+	 * bring it back.
+	 * 
+	 * @param futilityPruning true to use futility pruning
+	 */
+	public void setFutilityPruning(boolean futilityPruning) {
+		this.futilityPruning = futilityPruning;
+	}
+
+	/**
+	 * @return true if razoring is used and false otherwise
+	 */
+	public boolean isRazoring() {
+		return razoring;
+	}
+
+	/**
+	 * This method switches razoring on or off. Near the end of a line, razoring replaces the search
+	 * of a position whose evaluation is far below alpha with the quiescence search, trusting it if
+	 * it confirms that the position is below alpha.
+	 * 
+	 * @param razoring true to use razoring
+	 */
+	public void setRazoring(boolean razoring) {
+		this.razoring = razoring;
+	}
+
+	/**
+	 * @return the opening book, or null if the engine has none
+	 */
+	public OpeningBook getOpeningBook() {
+		return openingBook;
+	}
+
+	/**
+	 * @param openingBook the opening book whose moves are played without searching, or null for
+	 *                    none
+	 */
+	public void setOpeningBook(OpeningBook openingBook) {
+		this.openingBook = openingBook;
+	}
+
+	/**
+	 * @return the endgame tablebase, or null if the engine has none
+	 */
+	public Tablebase getTablebase() {
+		return tablebase;
+	}
+
+	/**
+	 * @param tablebase the endgame tablebase that scores the positions it covers without searching,
+	 *                  or null for none
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * @return the number of threads that search at the same time
+	 */
+	public int getThreads() {
+		return searchers.length;
+	}
+
+	/**
+	 * This method sets the number of threads that search at the same time. A search with one thread
+	 * is deterministic, while the result of a search with several threads depends on how the
+	 * threads are scheduled. This method must not be called during a search.
+	 * 
+	 * @param threads the number of threads, at least 1
+	 */
+	public void setThreads(int threads) {
+		searchers = new Searcher[Math.max(1, threads)];
+		for (int i = 0; i < searchers.length; i++) {
+			searchers[i] = new Searcher(this, table);
+		}
+	}
+
+	/**
+	 * This method sets a listener that receives the result of each completed depth, for example to
+	 * report the progress of the search.
+	 * 
+	 * @param listener the listener, or null for none
+	 */
+	public void setListener(Consumer<SearchResult> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * This method stops the current search, which then returns the result of the last completed
+	 * depth. It can be called from any thread.
+	 */
+	public void stop() {
+		isStopped = true;
+	}
+
+	/**
+	 * @return true if the current search has been stopped and false otherwise
+	 */
+	public boolean isStopped() {
+		return isStopped;
+	}
+
+	/**
+	 * This method searches the current position of the given board for the best move, within the
+	 * depth, time, and node limits and the clock of this engine. At least depth 1 is always
+	 * completed, so a move is returned whenever there is a legal move. A move from the opening
+	 * book is returned with depth 0 and score 0, and a move from the tablebase with depth 0 and the
+	 * score of the checkmate it leads to.
+	 * 
+	 * @param board       the board, which is restored before this method returns
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the result of the deepest completed depth
+	 */
+	public SearchResult search(AbstractBoard board, boolean blackToMove) {
+		return search(board, blackToMove, NO_POSITIONS, 0);
+	}
+
+	/**
+	 * This method searches the current position of the given board as search(board, blackToMove)
+	 * does, in a game whose earlier positions are given. A position that repeats an earlier one of
+	 * the search or of the game is scored as a draw, and so is a position reached after fifty
+	 * moves by each player without a capture or pawn move, so the engine can see the draws the
+	 * moves played so far make possible.
+	 * 
+	 * @param board         the board, which is restored before this method returns
+	 * @param blackToMove   true if it is black's turn to move and false if it is white's turn
+	 * @param previousKeys  the keys given by getZobristKey() of the positions of the game before
+	 *                      the current one since the last capture or pawn move, oldest first
+	 * @param halfmoveClock the number of moves since the last capture or pawn move, as in the
+	 *                      halfmove clock of a position in Forsyth-Edwards Notation
+	 * @return the result of the deepest completed depth
+	 */
+	public SearchResult search(AbstractBoard board, boolean blackToMove, long[] previousKeys,
+			int halfmoveClock) {
+		isStopped = false;
+		previousKeys = previousKeys.clone();
+		long startTime = System.currentTimeMillis();
+		if (openingBook != null) {
+			int bookMove = openingBook.chooseMove(board, blackToMove);
+			if (bookMove != Move.NONE)
+				return new SearchResult(bookMove, 0, 0, 0, System.currentTimeMillis() - startTime,
+						new int[] { bookMove });
+		}
+		// positions the tablebase covers are only looked up in the search if the root is not one
+		// of them, since their scores cannot tell which move makes progress towards checkmate
+		MoveList rootMoves = null;
+		Tablebase searchTablebase = tablebase;
+		int rootResult = (tablebase != null) ? tablebase.probeWdl(board, blackToMove)
+				: Tablebase.UNKNOWN;
+		if (rootResult != Tablebase.UNKNOWN) {
+			rootMoves = new MoveList();
+			SearchResult result = probeRoot(board, blackToMove, rootResult, rootMoves, startTime);
+			if (result != null)
+				return result;
+			if (rootMoves.size() == 0)
+				rootMoves = null;
+			searchTablebase = null;
+		}
+		long deadline = (timeLimit > 0) ? startTime + timeLimit : Long.MAX_VALUE;
+		TimeManager timeManager = null;
+		if (remainingTime > 0) {
+			timeManager = new TimeManager(remainingTime, increment, movesToGo);
+			deadline = Math.min(deadline, startTime + timeManager.getHardLimit());
+		}
+		// each thread gets an equal share of the node budget
+		long threadNodeLimit = (nodeLimit > 0) ? Math.max(1, nodeLimit / searchers.length) : 0;
+		table.newSearch();
+
+		Thread[] helpers = new Thread[searchers.length - 1];
+		if (helpers.length > 0) {
+			String fen = board.toFen(blackToMove);
+			for (int i = 0; i < helpers.length; i++) {
+				Searcher helper = searchers[i + 1];
+				helper.start(new BitBoard(fen), previousKeys, halfmoveClock, rootMoves,
+						searchTablebase, threadNodeLimit, deadline);
+				int firstDepth = 1 + ((i + 1) % 2);
+				helpers[i] = new Thread(() -> searchHelper(helper, firstDepth, blackToMove),
+						"search-helper-" + (i + 1));
+				helpers[i].setDaemon(true);
+				helpers[i].start();
+			}
+		}
+
+		Searcher searcher = searchers[0];
+		searcher.start(board, previousKeys, halfmoveClock, rootMoves, searchTablebase,
+				threadNodeLimit, deadline);
+		SearchResult result = null;
+		int bestMove = Move.NONE;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			int score = searcher.searchRoot(depth, blackToMove, bestMove);
+			// a search that was stopped is incomplete, so its result is discarded unless no depth
+			// has been completed yet
+			if (isStopped && (result != null))
+				break;
+			int[] principalVariation = searcher.getPrincipalVariation();
+			bestMove = (principalVariation.length > 0) ? principalVariation[0] : Move.NONE;
+			result = new SearchResult(bestMove, score, depth, getNodes(),
+					System.currentTimeMillis() - startTime, principalVariation);
+			if (listener != null)
+				listener.accept(result);
+			// stop when there are no legal moves, the budget is used up, a checkmate has been found
+			// within the depth searched, or the time manager expects no better move in its time
+			if (isStopped || (bestMove == Move.NONE)
+					|| (result.isMateScore() && (MATE - Math.abs(score) <= depth))
+					|| ((timeManager != null) && timeManager.update(bestMove, score,
+							result.getMillis())))
+				break;
+		}
+		searcher.finish();
+
+		if (helpers.length > 0) {
+			isStopped = true;
+			for (Thread helper : helpers) {
+				try {
+					helper.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			// the result counts the nodes of every thread
+			result = new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+					getNodes(), System.currentTimeMillis() - startTime,
+					result.getPrincipalVariation());
+		}
+		return result;
+	}
+
+	/**
+	 * This method looks up the position after each move of a root position the tablebase covers.
+	 * The moves that keep the result of the root position are added to the given list. If the
+	 * tablebase knows the distance to checkmate after every move of a won or lost position, the
+	 * move that wins the fastest or loses the slowest is returned without searching. Otherwise, if
+	 * it knows the distance to the next capture, pawn move, or checkmate after every move that
+	 * keeps the result, the move that reaches it the fastest when winning, or the slowest when
+	 * losing, is returned, which keeps a win within the fifty-move rule.
+	 * 
+	 * @param board       the board, which is restored before this method returns
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param rootResult  the result of the root position from the tablebase
+	 * @param rootMoves   the list to which the moves that keep the result are added
+	 * @param startTime   the time at which the search started, in milliseconds
+	 * @return the result with the best move and its score, or null if the moves must be searched
+	 */
+	private SearchResult probeRoot(AbstractBoard board, boolean blackToMove, int rootResult,
+			MoveList rootMoves, long startTime) {
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		boolean isDistanceKnown = rootResult != Tablebase.DRAW;
+		boolean isProgressKnown = rootResult != Tablebase.DRAW;
+		int bestMove = Move.NONE;
+		int bestScore = -INFINITY;
+		int progressMove = Move.NONE;
+		int bestProgress = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			boolean isZeroing = Move.isCapture(move) || (board.getPiece(Move.from(move))
+					% BitBoard.BLACK_OFFSET == BitBoard.PAWN);
+			board.makeMove(move);
+			int result = tablebase.probeWdl(board, !blackToMove);
+			int distance = isDistanceKnown ? tablebase.probeDtm(board, !blackToMove)
+					: Tablebase.UNKNOWN;
+			// the number of plies to the next capture, pawn move, or checkmate after the move,
+			// counting the move itself, which is 0 for a checkmate
+			int progress = Tablebase.UNKNOWN;
+			if (isProgressKnown && (result == -rootResult)) {
+				if (board.isCheck(!blackToMove) && !board.anyLegalMoves(!blackToMove)) {
+					progress = 0;
+				} else if (isZeroing) {
+					progress = 1;
+				} else {
+					progress = tablebase.probeDtz(board, !blackToMove);
+					if (progress != Tablebase.UNKNOWN)
+						progress = Math.abs(progress) + 1;
+				}
+			}
+			board.unmakeMove(move);
+			if (result == -rootResult) {
+				rootMoves.add(move);
+				if (progress == Tablebase.UNKNOWN) {
+					isProgressKnown = false;
+				} else if ((progressMove == Move.NONE) || ((rootResult == Tablebase.WIN)
+						? progress < bestProgress
+						: progress > bestProgress)) {
+					progressMove = move;
+					bestProgress = progress;
+				}
+			}
+			if (distance == Tablebase.UNKNOWN) {
+				isDistanceKnown = false;
+			} else if (result != Tablebase.DRAW) {
+				// the checkmate comes one ply later than it does after the move
+				int score = -result * (MATE - 1 - distance);
+				if (score > bestScore) {
+					bestScore = score;
+					bestMove = move;
+				}
+			}
+		}
+		if (isDistanceKnown && (bestMove != Move.NONE))
+			return new SearchResult(bestMove, bestScore, 0, 0,
+					System.currentTimeMillis() - startTime, new int[] { bestMove });
+		if (!isProgressKnown || (progressMove == Move.NONE))
+			return null;
+		int score = rootResult * (TABLEBASE_WIN - bestProgress);
+		return new SearchResult(progressMove, score, 0, 0, System.currentTimeMillis() - startTime,
+				new int[] { progressMove });
+	}
+
+	/**
+	 * This method runs the iterative deepening of a helper thread, which only fills the
+	 * transposition table, until the main thread stops the search.
+	 * 
+	 * @param helper      the searcher of the helper thread
+	 * @param firstDepth  the first depth to search
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 */
+	private void searchHelper(Searcher helper, int firstDepth, boolean blackToMove) {
+		int bestMove = Move.NONE;
+		for (int depth = firstDepth; (depth <= maxDepth) && !isStopped; depth++) {
+			helper.searchRoot(depth, blackToMove, bestMove);
+			int[] principalVariation = helper.getPrincipalVariation();
+			if (principalVariation.length == 0)
+				break;
+			bestMove = principalVariation[0];
+		}
+		helper.finish();
+	}
+
+	/**
+	 * @return the number of nodes searched by all threads in the current search
+	 */
+	private long getNodes() {
+		long nodes = 0;
+		for (Searcher searcher : searchers) {
+			nodes += searcher.getNodes();
+		}
+		return nodes;
+	}
+}
@@ -0,0 +1,210 @@
+package chess.engine;
+
+import chess.AbstractBoard;
+import chess.Attacks;
+import chess.BitBoard;
+
+/**
+ * This class evaluates positions for the engine. Each piece has a value and a bonus or penalty for
+ * its square, both for the middlegame and for the endgame, and the two scores are blended by the
+ * game phase, which falls from the middlegame to the endgame as pieces are captured. A BitBoard
+ * keeps these sums up to date as moves are made, so evaluating it only adds a few terms that are
+ * cheap to find from its bitboards. The pawn structure is evaluated only when a position with the
+ * same pawns is not in the pawn table. Scores are in centipawns, so a pawn is worth about 100, and
+ * the weights come from EvaluationParameters. Positions with a king and pawn against a king are
+ * scored from the KpkBitbase instead, as drawn or as won by KNOWN_WIN on top of the usual score.
+ */
+public final class Evaluation {
+	// the bonus for a position the player to move is known to win, far above any material
+	// advantage but below the scores of checkmates
+	public static final int KNOWN_WIN = 10000;
+
+	// the squares on the files next to each file
+	private static final long[] ADJACENT_FILES = new long[8];
+	// for each color and square, the squares in front of a pawn on its file, the squares in front
+	// of it on its file and the files next to it, the squares on the files next to it that are not
+	// in front of it, and the squares one or two rows in front of a king on the same three files
+	private static final long[][] FRONT_SPANS = new long[2][64];
+	private static final long[][] PASSED_MASKS = new long[2][64];
+	private static final long[][] SUPPORT_MASKS = new long[2][64];
+	private static final long[][] SHIELD_MASKS = new long[2][64];
+	static {
+		for (int square = 0; square < 64; square++) {
+			int row = square >> 3;
+			int col = square & 7;
+			for (int other = 0; other < 64; other++) {
+				int rowsAhead = row - (other >> 3); // in front of white, which moves to row 0
+				int files = Math.abs((other & 7) - col);
+				long bit = 1L << other;
+				if (files == 1)
+					ADJACENT_FILES[col] |= bit;
+				if (files > 1)
+					continue;
+				if ((files == 0) && (rowsAhead > 0))
+					FRONT_SPANS[Attacks.WHITE][square] |= bit;
+				if ((files == 0) && (rowsAhead < 0))
+					FRONT_SPANS[Attacks.BLACK][square] |= bit;
+				if (rowsAhead > 0)
+					PASSED_MASKS[Attacks.WHITE][square] |= bit;
+				if (rowsAhead < 0)
+					PASSED_MASKS[Attacks.BLACK][square] |= bit;
+				if ((files == 1) && (rowsAhead <= 0))
+					SUPPORT_MASKS[Attacks.WHITE][square] |= bit;
+				if ((files == 1) && (rowsAhead >= 0))
+					SUPPORT_MASKS[Attacks.BLACK][square] |= bit;
+				if ((rowsAhead == 1) || (rowsAhead == 2))
+					SHIELD_MASKS[Attacks.WHITE][square] |= bit;
+				if ((rowsAhead == -1) || (rowsAhead == -2))
+					SHIELD_MASKS[Attacks.BLACK][square] |= bit;
+			}
+		}
+	}
+
+	/**
+	 * This constructor is private since this class only contains static methods.
+	 */
+	private Evaluation() {
+	}
+
+	/**
+	 * This method evaluates the current position of the given board without a pawn table.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the score of the position for the player to move, in centipawns
+	 */
+	public static int evaluate(AbstractBoard board, boolean blackToMove) {
+		return evaluate(board, blackToMove, new PawnTable(0));
+	}
+
+	/**
+	 * This method evaluates the current position of the given board, looking up its pawn structure
+	 * in the given pawn table and storing it there if it is not found.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param pawnTable   the pawn table, which must only be used by the current thread
+	 * @return the score of the position for the player to move, in centipawns
+	 */
+	public static int evaluate(AbstractBoard board, boolean blackToMove, PawnTable pawnTable) {
+		// other boards do not keep the sums, so the position is copied to a BitBoard
+		BitBoard bitBoard = (board instanceof BitBoard) ? (BitBoard) board
+				: new BitBoard(board.toFen(blackToMove));
+		int knownResult = (Long.bitCount(bitBoard.getOccupancy()) == 3)
+				? KpkBitbase.getInstance().probeWdl(bitBoard, blackToMove)
+				: Tablebase.UNKNOWN;
+		if (knownResult == Tablebase.DRAW)
+			return 0;
+		EvaluationParameters parameters = bitBoard.getEvaluationParameters();
+		int middlegame = bitBoard.getMiddlegameScore();
+		int endgame = bitBoard.getEndgameScore();
+
+		long whitePawns = bitBoard.getPieceMask(BitBoard.PAWN);
+		long blackPawns = bitBoard.getPieceMask(BitBoard.PAWN + BitBoard.BLACK_OFFSET);
+		long pawnKey = bitBoard.getPawnKey();
+		if (!pawnTable.probe(pawnKey, parameters))
+			evaluatePawns(parameters, whitePawns, blackPawns, pawnKey, pawnTable);
+		middlegame += pawnTable.getMiddlegameScore();
+		endgame += pawnTable.getEndgameScore();
+
+		// passed pawns are worth more when nothing blocks them
+		long passedPawns = pawnTable.getPassedPawns();
+		long empty = ~bitBoard.getOccupancy();
+		int unblocked = Long.bitCount(((passedPawns & whitePawns) >>> 8) & empty)
+				- Long.bitCount(((passedPawns & blackPawns) << 8) & empty);
+		middlegame += unblocked * parameters.getMiddlegamePassedUnblocked();
+		endgame += unblocked * parameters.getEndgamePassedUnblocked();
+
+		int shield = countShield(bitBoard.getPieceMask(BitBoard.KING), whitePawns, Attacks.WHITE)
+				- countShield(bitBoard.getPieceMask(BitBoard.KING + BitBoard.BLACK_OFFSET),
+						blackPawns, Attacks.BLACK);
+		middlegame += shield * parameters.getMiddlegamePawnShield();
+		endgame += shield * parameters.getEndgamePawnShield();
+
+		if (Long.bitCount(bitBoard.getPieceMask(BitBoard.BISHOP)) >= 2) {
+			middlegame += parameters.getMiddlegameBishopPair();
+			endgame += parameters.getEndgameBishopPair();
+		}
+		if (Long.bitCount(bitBoard.getPieceMask(BitBoard.BISHOP + BitBoard.BLACK_OFFSET)) >= 2) {
+			middlegame -= parameters.getMiddlegameBishopPair();
+			endgame -= parameters.getEndgameBishopPair();
+		}
+
+		// promotions can raise the phase above that of the starting position
+		int maxPhase = parameters.getMaxPhase();
+		int phase = Math.min(bitBoard.getPhase(), maxPhase);
+		int score = ((middlegame * phase) + (endgame * (maxPhase - phase))) / maxPhase;
+		score = (blackToMove ? -score : score) + parameters.getTempo();
+		// the usual score still leads the winner to advance the pawn
+		return (knownResult == Tablebase.UNKNOWN) ? score : score + knownResult * KNOWN_WIN;
+	}
+
+	/**
+	 * This method counts the pawns shielding a king.
+	 * 
+	 * @param king  the mask of the king's square
+	 * @param pawns the mask of the pawns of the king's color
+	 * @param color the color of the king
+	 * @return the number of pawns on the two rows in front of the king and next to it
+	 */
+	private static int countShield(long king, long pawns, int color) {
+		if (king == 0)
+			return 0;
+		return Long.bitCount(SHIELD_MASKS[color][Long.numberOfTrailingZeros(king)] & pawns);
+	}
+
+	/**
+	 * This method evaluates the pawn structure and stores it in the entry of the pawn table found
+	 * by the last probe. A pawn behind another pawn of its color is doubled, a pawn without pawns
+	 * of its color on the files next to it is isolated, and a pawn whose neighbors have all
+	 * advanced past it and whose next square is attacked by an opposing pawn is backward. A pawn
+	 * with no opposing pawns in front of it on its file or the files next to it is passed, unless
+	 * it is doubled.
+	 * 
+	 * @param parameters the evaluation parameters
+	 * @param whitePawns the mask of the white pawns
+	 * @param blackPawns the mask of the black pawns
+	 * @param pawnKey    the Zobrist key of the pawns
+	 * @param pawnTable  the pawn table
+	 */
+	private static void evaluatePawns(EvaluationParameters parameters, long whitePawns,
+			long blackPawns, long pawnKey, PawnTable pawnTable) {
+		int[] doubled = parameters.getValues("pawn.doubled");
+		int[] isolated = parameters.getValues("pawn.isolated");
+		int[] backward = parameters.getValues("pawn.backward");
+		int[] middlegamePassed = parameters.getValues("middlegame.passed");
+		int[] endgamePassed = parameters.getValues("endgame.passed");
+		int middlegame = 0;
+		int endgame = 0;
+		long passedPawns = 0;
+		for (int color = Attacks.WHITE; color <= Attacks.BLACK; color++) {
+			long own = (color == Attacks.WHITE) ? whitePawns : blackPawns;
+			long opposing = (color == Attacks.WHITE) ? blackPawns : whitePawns;
+			int sign = (color == Attacks.WHITE) ? 1 : -1;
+			long pawns = own;
+			while (pawns != 0) {
+				int square = Long.numberOfTrailingZeros(pawns);
+				pawns &= pawns - 1;
+				if ((own & FRONT_SPANS[color][square]) != 0) {
+					middlegame += sign * doubled[0];
+					endgame += sign * doubled[1];
+				} else if ((opposing & PASSED_MASKS[color][square]) == 0) {
+					passedPawns |= 1L << square;
+					int rank = (color == Attacks.WHITE) ? 7 - (square >> 3) : square >> 3;
+					middlegame += sign * middlegamePassed[rank];
+					endgame += sign * endgamePassed[rank];
+				}
+				int next = square + ((color == Attacks.WHITE) ? -8 : 8);
+				if ((own & ADJACENT_FILES[square & 7]) == 0) {
+					middlegame += sign * isolated[0];
+					endgame += sign * isolated[1];
+				} else if (((own & SUPPORT_MASKS[color][square]) == 0) && (next >= 0) && (next < 64)
+						&& ((Attacks.pawnAttacks(color, next) & opposing) != 0)) {
+					middlegame += sign * backward[0];
+					endgame += sign * backward[1];
+				}
+			}
+		}
+		pawnTable.store(pawnKey, middlegame, endgame, passedPawns);
+	}
+}
@@ -0,0 +1,412 @@
+package chess.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import chess.BitBoard;
+
+/**
+ * This class holds the weights of the evaluation, each a named list of numbers in centipawns, so
+ * that they can be tuned offline and read back from a parameter file. A parameter file contains
+ * each name followed by its numbers, separated by whitespace, with comments starting with '#';
+ * weights that are left out keep their default values. Each score has a middlegame and an endgame
+ * weight, which the evaluation blends by the game phase, found from the pieces left on the board.
+ * 
+ * Parameters are immutable, so a board can keep scores computed from them while they are replaced
+ * for new boards with setDefault().
+ */
+public final class EvaluationParameters {
+	// the names of the piece types, indexed as in BitBoard, as used in the names of the tables
+	private static final String[] PIECE_NAMES = { "pawn", "knight", "bishop", "rook", "queen",
+			"king" };
+
+	// the default weights, in the order in which they are written
+	private static final Map<String, int[]> DEFAULT_WEIGHTS = new LinkedHashMap<>();
+	static {
+		// the value of each piece type, indexed as in BitBoard
+		DEFAULT_WEIGHTS.put("middlegame.values", new int[] { 100, 320, 330, 500, 900, 0 });
+		DEFAULT_WEIGHTS.put("endgame.values", new int[] { 120, 300, 320, 540, 960, 0 });
+		// how much each piece type counts towards the middlegame
+		DEFAULT_WEIGHTS.put("phase.weights", new int[] { 0, 1, 1, 2, 4, 0 });
+		// the bonus for having both bishops, in the middlegame and the endgame
+		DEFAULT_WEIGHTS.put("bishop.pair", new int[] { 30, 50 });
+		// the bonus for being the player to move
+		DEFAULT_WEIGHTS.put("tempo", new int[] { 10 });
+		// the penalties for a pawn behind another pawn of its color, a pawn without pawns of its
+		// color on the files next to it, and a pawn that those pawns can no longer defend and
+		// that cannot advance safely, in the middlegame and the endgame
+		DEFAULT_WEIGHTS.put("pawn.doubled", new int[] { -10, -20 });
+		DEFAULT_WEIGHTS.put("pawn.isolated", new int[] { -10, -15 });
+		DEFAULT_WEIGHTS.put("pawn.backward", new int[] { -8, -10 });
+		// the bonus for a passed pawn on each rank, counted from its own side
+		DEFAULT_WEIGHTS.put("middlegame.passed", new int[] { 0, 5, 10, 15, 25, 40, 60, 0 });
+		DEFAULT_WEIGHTS.put("endgame.passed", new int[] { 0, 10, 20, 35, 55, 85, 120, 0 });
+		// the bonus for a passed pawn whose next square is empty
+		DEFAULT_WEIGHTS.put("passed.unblocked", new int[] { 0, 20 });
+		// the bonus for each pawn on the two rows in front of the king and next to it
+		DEFAULT_WEIGHTS.put("pawn.shield", new int[] { 15, 0 });
+
+		// the bonus for a white piece of each type on each square, numbered 8 * row + col so that
+		// each table reads like a board seen from white's side; black uses the mirrored square
+		DEFAULT_WEIGHTS.put("middlegame.pawn", new int[] {
+				  0,   0,   0,   0,   0,   0,   0,   0,
+				 50,  50,  50,  50,  50,  50,  50,  50,
+				 10,  10,  20,  30,  30,  20,  10,  10,
+				  5,   5,  10,  25,  25,  10,   5,   5,
+				  0,   0,   0,  20,  20,   0,   0,   0,
+				  5,  -5, -10,   0,   0, -10,  -5,   5,
+				  5,  10,  10, -20, -20,  10,  10,   5,
+				  0,   0,   0,   0,   0,   0,   0,   0 });
+		DEFAULT_WEIGHTS.put("middlegame.knight", new int[] {
+				-50, -40, -30, -30, -30, -30, -40, -50,
+				-40, -20,   0,   0,   0,   0, -20, -40,
+				-30,   0,  10,  15,  15,  10,   0, -30,
+				-30,   5,  15,  20,  20,  15,   5, -30,
+				-30,   0,  15,  20,  20,  15,   0, -30,
+				-30,   5,  10,  15,  15,  10,   5, -30,
+				-40, -20,   0,   5,   5,   0, -20, -40,
+				-50, -40, -30, -30, -30, -30, -40, -50 });
+		DEFAULT_WEIGHTS.put("middlegame.bishop", new int[] {
+				-20, -10, -10, -10, -10, -10, -10, -20,
+				-10,   0,   0,   0,   0,   0,   0, -10,
+				-10,   0,   5,  10,  10,   5,   0, -10,
+				-10,   5,   5,  10,  10,   5,   5, -10,
+				-10,   0,  10,  10,  10,  10,   0, -10,
+				-10,  10,  10,  10,  10,  10,  10, -10,
+				-10,   5,   0,   0,   0,   0,   5, -10,
+				-20, -10, -10, -10, -10, -10, -10, -20 });
+		DEFAULT_WEIGHTS.put("middlegame.rook", new int[] {
+				  0,   0,   0,   0,   0,   0,   0,   0,
+				  5,  10,  10,  10,  10,  10,  10,   5,
+				 -5,   0,   0,   0,   0,   0,   0,  -5,
+				 -5,   0,   0,   0,   0,   0,   0,  -5,
+				 -5,   0,   0,   0,   0,   0,   0,  -5,
+				 -5,   0,   0,   0,   0,   0,   0,  -5,
+				 -5,   0,   0,   0,   0,   0,   0,  -5,
+				  0,   0,   0,   5,   5,   0,   0,   0 });
+		DEFAULT_WEIGHTS.put("middlegame.queen", new int[] {
+				-20, -10, -10,  -5,  -5, -10, -10, -20,
+				-10,   0,   0,   0,   0,   0,   0, -10,
+				-10,   0,   5,   5,   5,   5,   0, -10,
+				 -5,   0,   5,   5,   5,   5,   0,  -5,
+				  0,   0,   5,   5,   5,   5,   0,  -5,
+				-10,   5,   5,   5,   5,   5,   0, -10,
+				-10,   0,   5,   0,   0,   0,   0, -10,
+				-20, -10, -10,  -5,  -5, -10, -10, -20 });
+		DEFAULT_WEIGHTS.put("middlegame.king", new int[] {
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-20, -30, -30, -40, -40, -30, -30, -20,
+				-10, -20, -20, -20, -20, -20, -20, -10,
+				 20,  20,   0,   0,   0,   0,  20,  20,
+				 20,  30,  10,   0,   0,  10,  30,  20 });
+		// in the endgame, pawns gain more by advancing and the king belongs in the center
+		DEFAULT_WEIGHTS.put("endgame.pawn", new int[] {
+				  0,   0,   0,   0,   0,   0,   0,   0,
+				 90,  90,  90,  90,  90,  90,  90,  90,
+				 60,  60,  60,  60,  60,  60,  60,  60,
+				 35,  35,  35,  35,  35,  35,  35,  35,
+				 20,  20,  20,  20,  20,  20,  20,  20,
+				 10,  10,  10,  10,  10,  10,  10,  10,
+				  0,   0,   0,   0,   0,   0,   0,   0,
+				  0,   0,   0,   0,   0,   0,   0,   0 });
+		DEFAULT_WEIGHTS.put("endgame.knight", DEFAULT_WEIGHTS.get("middlegame.knight"));
+		DEFAULT_WEIGHTS.put("endgame.bishop", DEFAULT_WEIGHTS.get("middlegame.bishop"));
+		DEFAULT_WEIGHTS.put("endgame.rook", new int[64]);
+		DEFAULT_WEIGHTS.put("endgame.queen", DEFAULT_WEIGHTS.get("middlegame.queen"));
+		DEFAULT_WEIGHTS.put("endgame.king", new int[] {
+				-50, -40, -30, -20, -20, -30, -40, -50,
+				-30, -20, -10,   0,   0, -10, -20, -30,
+				-30, -10,  20,  30,  30,  20, -10, -30,
+				-30, -10,  30,  40,  40,  30, -10, -30,
+				-30, -10,  30,  40,  40,  30, -10, -30,
+				-30, -10,  20,  30,  30,  20, -10, -30,
+				-30, -30,   0,   0,   0,   0, -30, -30,
+				-50, -30, -30, -30, -30, -30, -30, -50 });
+	}
+
+	private static volatile EvaluationParameters defaultParameters = new EvaluationParameters(
+			DEFAULT_WEIGHTS);
+
+	private final Map<String, int[]> weights = new LinkedHashMap<>();
+	// the value plus the square bonus of each piece index on each square, negated for black
+	private final int[][] middlegameScores = new int[12][64];
+	private final int[][] endgameScores = new int[12][64];
+	private final int[] phaseWeights;
+	private final int maxPhase; // the phase of the starting position
+	private final int[] bishopPair;
+	private final int tempo;
+	private final int[] passedUnblocked;
+	private final int[] pawnShield;
+
+	/**
+	 * This method creates parameters with the given weights.
+	 * 
+	 * @param weights the weights, which must contain every name of DEFAULT_WEIGHTS with the same
+	 *                number of values
+	 */
+	private EvaluationParameters(Map<String, int[]> weights) {
+		for (Map.Entry<String, int[]> entry : weights.entrySet()) {
+			this.weights.put(entry.getKey(), entry.getValue().clone());
+		}
+		int[] middlegameValues = this.weights.get("middlegame.values");
+		int[] endgameValues = this.weights.get("endgame.values");
+		for (int type = BitBoard.PAWN; type <= BitBoard.KING; type++) {
+			int[] middlegameBonuses = this.weights.get("middlegame." + PIECE_NAMES[type]);
+			int[] endgameBonuses = this.weights.get("endgame." + PIECE_NAMES[type]);
+			int black = type + BitBoard.BLACK_OFFSET;
+			for (int square = 0; square < 64; square++) {
+				middlegameScores[type][square] = middlegameValues[type] + middlegameBonuses[square];
+				endgameScores[type][square] = endgameValues[type] + endgameBonuses[square];
+				middlegameScores[black][square ^ 56] = -middlegameScores[type][square];
+				endgameScores[black][square ^ 56] = -endgameScores[type][square];
+			}
+		}
+		phaseWeights = this.weights.get("phase.weights");
+		maxPhase = Math.max(1,
+				(16 * phaseWeights[BitBoard.PAWN]) + (4 * phaseWeights[BitBoard.KNIGHT])
+						+ (4 * phaseWeights[BitBoard.BISHOP]) + (4 * phaseWeights[BitBoard.ROOK])
+						+ (2 * phaseWeights[BitBoard.QUEEN]));
+		bishopPair = this.weights.get("bishop.pair");
+		tempo = this.weights.get("tempo")[0];
+		passedUnblocked = this.weights.get("passed.unblocked");
+		pawnShield = this.weights.get("pawn.shield");
+	}
+
+	/**
+	 * @return the parameters used by new boards, which are the default weights unless setDefault()
+	 *         has been called
+	 */
+	public static EvaluationParameters getDefault() {
+		return defaultParameters;
+	}
+
+	/**
+	 * This method sets the parameters used by boards created from now on. Existing boards keep
+	 * the parameters they were created with.
+	 * 
+	 * @param parameters the parameters
+	 */
+	public static void setDefault(EvaluationParameters parameters) {
+		defaultParameters = parameters;
+	}
+
+	/**
+	 * This method reads parameters from a parameter file, using the default weights for any
+	 * weights the file leaves out.
+	 * 
+	 * @param path the path of the parameter file
+	 * @return the parameters
+	 * @throws IOException              if the file cannot be read
+	 * @throws IllegalArgumentException if the file contains an unknown name, a number that is not
+	 *                                  an integer, or the wrong number of values for a name
+	 */
+	public static EvaluationParameters read(Path path) throws IOException {
+		Map<String, int[]> weights = new LinkedHashMap<>(DEFAULT_WEIGHTS);
+		StringBuilder text = new StringBuilder();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int comment = line.indexOf('#');
+				text.append((comment >= 0) ? line.substring(0, comment) : line).append(' ');
+			}
+		}
+		String[] tokens = text.toString().trim().split("\\s+");
+		int i = 0;
+		while ((i < tokens.length) && !tokens[i].isEmpty()) {
+			String name = tokens[i++];
+			int[] defaults = DEFAULT_WEIGHTS.get(name);
+			if (defaults == null)
+				throw new IllegalArgumentException("Unknown evaluation parameter: " + name);
+			int[] values = new int[defaults.length];
+			for (int j = 0; j < values.length; j++) {
+				try {
+					values[j] = Integer.parseInt(tokens[i++]);
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					throw new IllegalArgumentException(
+							name + " should have " + values.length + " integer values");
+				}
+			}
+			weights.put(name, values);
+		}
+		return new EvaluationParameters(weights);
+	}
+
+	/**
+	 * This method writes these parameters to a parameter file that read() accepts, with the tables
+	 * of square bonuses written 8 values per line.
+	 * 
+	 * @param path the path of the parameter file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(Path path) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, int[]> entry : weights.entrySet()) {
+				writer.write(entry.getKey());
+				int[] values = entry.getValue();
+				for (int i = 0; i < values.length; i++) {
+					writer.write(((values.length == 64) && ((i % 8) == 0)) ? "\n" : " ");
+					writer.write(Integer.toString(values[i]));
+				}
+				writer.write("\n");
+			}
+		}
+	}
+
+	/**
+	 * This method returns parameters equal to these except for the given weight, for example to
+	 * try a change while tuning.
+	 * 
+	 * @param name   the name of the weight
+	 * @param values the new values of the weight
+	 * @return the new parameters
+	 * @throws IllegalArgumentException if the name is unknown or the number of values is wrong
+	 */
+	public EvaluationParameters with(String name, int... values) {
+		int[] defaults = DEFAULT_WEIGHTS.get(name);
+		if ((defaults == null) || (defaults.length != values.length))
+			throw new IllegalArgumentException("Invalid evaluation parameter: " + name);
+		Map<String, int[]> newWeights = new LinkedHashMap<>(weights);
+		newWeights.put(name, values);
+		return new EvaluationParameters(newWeights);
+	}
+
+	/**
+	 * @param name the name of a weight
+	 * @return a copy of the values of the weight, or null if the name is unknown
+	 */
+	public int[] get(String name) {
+		int[] values = weights.get(name);
+		return (values == null) ? null : values.clone();
+	}
+
+	/**
+	 * This method returns the values of the given weight without copying them, for terms that are
+	 * evaluated rarely enough that looking up the name does not matter.
+	 * 
+	 * @param name the name of a weight
+	 * @return the values of the weight, which must not be changed, or null if the name is unknown
+	 */
+	int[] getValues(String name) {
+		return weights.get(name);
+	}
+
+	/**
+	 * This method returns the middlegame value plus square bonus of the given piece on the given
+	 * square, from white's side, so it is negative for black pieces.
+	 * 
+	 * @param piece  the piece index, as in BitBoard
+	 * @param square the square, numbered 8 * row + col
+	 * @return the middlegame score
+	 */
+	public int getMiddlegameScore(int piece, int square) {
+		return middlegameScores[piece][square];
+	}
+
+	/**
+	 * This method returns the endgame value plus square bonus of the given piece on the given
+	 * square, from white's side, so it is negative for black pieces.
+	 * 
+	 * @param piece  the piece index, as in BitBoard
+	 * @param square the square, numbered 8 * row + col
+	 * @return the endgame score
+	 */
+	public int getEndgameScore(int piece, int square) {
+		return endgameScores[piece][square];
+	}
+
+	/**
+	 * @param piece the piece index, as in BitBoard
+	 * @return how much the piece counts towards the middlegame
+	 */
+	public int getPhaseWeight(int piece) {
+		return phaseWeights[piece % BitBoard.BLACK_OFFSET];
+	}
+
+	/**
+	 * @return the phase of the starting position, which is pure middlegame, while a phase of 0 is
+	 *         pure endgame
+	 */
+	public int getMaxPhase() {
+		return maxPhase;
+	}
+
+	/**
+	 * @return the middlegame bonus for having both bishops
+	 */
+	public int getMiddlegameBishopPair() {
+		return bishopPair[0];
+	}
+
+	/**
+	 * @return the endgame bonus for having both bishops
+	 */
+	public int getEndgameBishopPair() {
+		return bishopPair[1];
+	}
+
+	/**
+	 * @return the bonus for being the player to move
+	 */
+	public int getTempo() {
+		return tempo;
+	}
+
+	/**
+	 * @return the middlegame bonus for a passed pawn whose next square is empty
+	 */
+	public int getMiddlegamePassedUnblocked() {
+		return passedUnblocked[0];
+	}
+
+	/**
+	 * @return the endgame bonus for a passed pawn whose next square is empty
+	 */
+	public int getEndgamePassedUnblocked() {
+		return passedUnblocked[1];
+	}
+
+	/**
+	 * @return the middlegame bonus for each pawn shielding the king
+	 */
+	public int getMiddlegamePawnShield() {
+		return pawnShield[0];
+	}
+
+	/**
+	 * @return the endgame bonus for each pawn shielding the king
+	 */
+	public int getEndgamePawnShield() {
+		return pawnShield[1];
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof EvaluationParameters))
+			return false;
+		Map<String, int[]> other = ((EvaluationParameters) obj).weights;
+		for (Map.Entry<String, int[]> entry : weights.entrySet()) {
+			if (!Arrays.equals(entry.getValue(), other.get(entry.getKey())))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int[] values : weights.values()) {
+			hash = 31 * hash + Arrays.hashCode(values);
+		}
+		return hash;
+	}
+}
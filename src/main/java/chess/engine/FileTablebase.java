@@ -0,0 +1,182 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+
+/**
+ * This class is a tablebase read from a directory of files, one for each set of pieces, named by
+ * its material signature with the extension EXTENSION, such as "KQK.tb". Each file holds the
+ * distance to checkmate of every position with its pieces, as described in TablebaseFile, and
+ * also covers the positions in which the colors of the pieces are swapped. The files are
+ * memory-mapped, so they are loaded only as positions are probed, take no space on the heap, and
+ * share the page cache of the operating system with every other tablebase reading them.
+ * 
+ * Positions with only the two kings are always drawn, so they need no file, and the results of
+ * a king and pawn against a king are taken from the KpkBitbase when there is no file for them.
+ * 
+ * Only files in this format, as generated by TablebaseGenerator, can be read. Syzygy files are
+ * read by SyzygyTablebase instead.
+ */
+public class FileTablebase extends Tablebase {
+	// the system property holding the directory of the tablebase returned by getDefault()
+	public static final String DIRECTORY_PROPERTY = "chess.tablebases";
+	public static final String EXTENSION = ".tb";
+
+	private static FileTablebase defaultTablebase = null;
+	private static boolean isDefaultOpened = false;
+
+	private final Map<String, TablebaseFile> files = new HashMap<>();
+	private final int maxPieces;
+
+	/**
+	 * This method opens every tablebase file in the given directory.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if the directory or one of its files cannot be read, or a file is not a
+	 *                     valid tablebase file
+	 */
+	public FileTablebase(Path directory) throws IOException {
+		int maxPieces = 3; // the KpkBitbase covers three pieces
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+				"*" + EXTENSION)) {
+			for (Path path : paths) {
+				String name = path.getFileName().toString();
+				String signature = name.substring(0, name.length() - EXTENSION.length());
+				// the mapping stays valid after the channel is closed
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					TablebaseFile file = new TablebaseFile(signature,
+							channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+					files.put(signature, file);
+					maxPieces = Math.max(maxPieces, file.getPieces().length);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Invalid tablebase file name: " + name, e);
+				}
+			}
+		}
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * This method returns the tablebase shared by every game, which is opened the first time this
+	 * method is called from the directory in the system property DIRECTORY_PROPERTY, unless
+	 * setDefault() has been called.
+	 * 
+	 * @return the tablebase, or null if the system property is not set
+	 * @throws UncheckedIOException if the tablebase cannot be opened
+	 */
+	public static synchronized FileTablebase getDefault() {
+		if (!isDefaultOpened) {
+			isDefaultOpened = true;
+			String directory = System.getProperty(DIRECTORY_PROPERTY);
+			if (directory != null) {
+				try {
+					defaultTablebase = new FileTablebase(Paths.get(directory));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return defaultTablebase;
+	}
+
+	/**
+	 * This method sets the tablebase shared by every game created from now on.
+	 * 
+	 * @param tablebase the tablebase, or null for none
+	 */
+	public static synchronized void setDefault(FileTablebase tablebase) {
+		defaultTablebase = tablebase;
+		isDefaultOpened = true;
+	}
+
+	/**
+	 * This method checks whether the tablebase has a file for the given material signature or the
+	 * one with the colors swapped.
+	 * 
+	 * @param signature the signature, such as "KQK"
+	 * @return true if the positions with the signature are covered and false otherwise
+	 */
+	public boolean contains(String signature) {
+		return files.containsKey(signature) || files.containsKey(swapColors(signature));
+	}
+
+	@Override
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	@Override
+	public int probeWdl(AbstractBoard board, boolean blackToMove) {
+		int value = probe(board, blackToMove);
+		return (value == UNKNOWN) ? KpkBitbase.getInstance().probeWdl(board, blackToMove)
+				: Integer.signum(value);
+	}
+
+	@Override
+	public int probeDtm(AbstractBoard board, boolean blackToMove) {
+		int value = probe(board, blackToMove);
+		if ((value == UNKNOWN) || (value == TablebaseFile.DRAW))
+			return (value == UNKNOWN) ? UNKNOWN : 0;
+		return (value > 0) ? 2 * value - 1 : -2 * (value + 1);
+	}
+
+	/**
+	 * This method looks up the stored value of the current position of the given board.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the value, as described in TablebaseFile, or UNKNOWN if the position is not covered
+	 */
+	private int probe(AbstractBoard board, boolean blackToMove) {
+		long occupied = board.getOccupancy();
+		int pieceCount = Long.bitCount(occupied);
+		if ((pieceCount > maxPieces) || (board.getCastlingRights() != 0)
+				|| (board.getEnPassantSquare() >= 0))
+			return UNKNOWN;
+		if (pieceCount == 2)
+			return TablebaseFile.DRAW;
+
+		// a position with the colors swapped is looked up by mirroring its ranks
+		String signature = getSignature(board);
+		TablebaseFile file = files.get(signature);
+		int mirror = 0;
+		if (file == null) {
+			file = files.get(swapColors(signature));
+			if (file == null)
+				return UNKNOWN;
+			mirror = 56;
+		}
+
+		// give each piece of the signature the square of a matching piece on the board
+		int[] pieces = file.getPieces();
+		int[] squares = new int[pieces.length];
+		long unused = occupied;
+		for (int i = 0; i < pieces.length; i++) {
+			for (long candidates = unused; candidates != 0; candidates &= candidates - 1) {
+				int square = Long.numberOfTrailingZeros(candidates);
+				int piece = board.getPiece(square);
+				if (mirror != 0)
+					piece = (piece + BitBoard.BLACK_OFFSET) % (2 * BitBoard.BLACK_OFFSET);
+				if (piece == pieces[i]) {
+					squares[i] = square ^ mirror;
+					unused &= ~(1L << square);
+					break;
+				}
+			}
+		}
+		int value = file.getValue(TablebaseFile.getIndex(squares, blackToMove != (mirror != 0),
+				file.hasPawns()));
+		return (value == TablebaseFile.ILLEGAL) ? UNKNOWN : value;
+	}
+}
@@ -0,0 +1,213 @@
+package chess.engine;
+
+import chess.AbstractBoard;
+import chess.Attacks;
+import chess.BitBoard;
+
+/**
+ * This class is a tablebase of the endgame of a king and pawn against a king, which only knows
+ * whether each position is won or drawn. It holds one bit for each placement of the kings and of a
+ * white pawn on files a to d with either player to move, 24 KB in all, and is computed in memory
+ * the first time it is used, so it needs no files. Positions with a black pawn or a pawn on files
+ * e to h are looked up by mirroring their ranks or files.
+ * 
+ * The pawn only moves forward, so the positions with the pawn on each square are solved in turn,
+ * from the square before promotion back to the starting row. A position is won when the pawn
+ * promotes without the black king capturing the new queen at once, when black is checkmated, or
+ * when the pawn moves into a won position. Each position found to be won is put on a list, and the
+ * positions from which a king move leads to it are then looked at: a position in which white is
+ * to move is won as soon as one move wins, and one in which black is to move is won once every
+ * move of the black king is known to lose, which is found by counting the moves still open. The
+ * positions never found to be won are drawn.
+ */
+public final class KpkBitbase extends Tablebase {
+	// the number of squares of the pawn, and of positions with the pawn on a given square for each
+	// player to move
+	private static final int PAWN_SQUARES = 24;
+	private static final int SLICE_SIZE = 64 * 64;
+
+	private static final KpkBitbase INSTANCE = new KpkBitbase();
+
+	// the bits of the positions in which white is to move, followed by those in which black is
+	private final long[] bits = new long[2 * PAWN_SQUARES * SLICE_SIZE / 64];
+
+	/**
+	 * This method computes the bitbase.
+	 */
+	private KpkBitbase() {
+		// the number of moves not known to lose of each position with black to move, or -1 for
+		// an illegal one, and the list of won positions whose predecessors are still to be found
+		int[] openMoves = new int[SLICE_SIZE];
+		int[] wonPositions = new int[2 * SLICE_SIZE];
+		for (int pawnIndex = 0; pawnIndex < PAWN_SQUARES; pawnIndex++) {
+			int pawn = (((pawnIndex >> 2) + 1) << 3) + (pawnIndex & 3);
+			long pawnAttacks = Attacks.pawnAttacks(Attacks.WHITE, pawn);
+			int wonCount = 0;
+			for (int kings = 0; kings < SLICE_SIZE; kings++) {
+				int whiteKing = kings >> 6;
+				int blackKing = kings & 63;
+				openMoves[kings] = -1;
+				if ((whiteKing == blackKing) || (whiteKing == pawn) || (blackKing == pawn)
+						|| ((Attacks.kingAttacks(whiteKing) & (1L << blackKing)) != 0))
+					continue;
+
+				// the black king may capture an undefended pawn, which draws
+				openMoves[kings] = Long.bitCount(Attacks.kingAttacks(blackKing)
+						& ~(Attacks.kingAttacks(whiteKing) | pawnAttacks));
+				boolean isCheck = (pawnAttacks & (1L << blackKing)) != 0;
+				if (isCheck && (openMoves[kings] == 0)) {
+					setWon(pawnIndex, kings, true);
+					wonPositions[wonCount++] = SLICE_SIZE + kings;
+				}
+				if (!isCheck && isPawnMoveWon(pawn, whiteKing, blackKing)) {
+					setWon(pawnIndex, kings, false);
+					wonPositions[wonCount++] = kings;
+				}
+			}
+
+			// find the positions from which a king move leads to a won one
+			for (int i = 0; i < wonCount; i++) {
+				int whiteKing = (wonPositions[i] >> 6) & 63;
+				int blackKing = wonPositions[i] & 63;
+				if (wonPositions[i] >= SLICE_SIZE) {
+					// the white king cannot have come from the square of the pawn, and black
+					// cannot have been in check with white to move
+					long origins = Attacks.kingAttacks(whiteKing) & ~(1L << pawn);
+					for (; origins != 0; origins &= origins - 1) {
+						int kings = (Long.numberOfTrailingZeros(origins) << 6) | blackKing;
+						if ((openMoves[kings] >= 0) && ((pawnAttacks & (1L << blackKing)) == 0)
+								&& !isWon(pawnIndex, kings, false)) {
+							setWon(pawnIndex, kings, false);
+							wonPositions[wonCount++] = kings;
+						}
+					}
+				} else {
+					long origins = Attacks.kingAttacks(blackKing);
+					for (; origins != 0; origins &= origins - 1) {
+						int kings = (whiteKing << 6) | Long.numberOfTrailingZeros(origins);
+						if ((openMoves[kings] > 0) && (--openMoves[kings] == 0)) {
+							setWon(pawnIndex, kings, true);
+							wonPositions[wonCount++] = SLICE_SIZE + kings;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the bitbase shared by every engine and game, which is computed the first time this
+	 *         class is used
+	 */
+	public static KpkBitbase getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public int getMaxPieces() {
+		return 3;
+	}
+
+	@Override
+	public int probeWdl(AbstractBoard board, boolean blackToMove) {
+		long occupied = board.getOccupancy();
+		if (Long.bitCount(occupied) != 3)
+			return UNKNOWN;
+		int whiteKing = -1;
+		int blackKing = -1;
+		int pawn = -1;
+		boolean isPawnBlack = false;
+		for (; occupied != 0; occupied &= occupied - 1) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			int piece = board.getPiece(square);
+			if (piece == BitBoard.KING) {
+				whiteKing = square;
+			} else if (piece == BitBoard.KING + BitBoard.BLACK_OFFSET) {
+				blackKing = square;
+			} else if (piece % BitBoard.BLACK_OFFSET == BitBoard.PAWN) {
+				pawn = square;
+				isPawnBlack = piece >= BitBoard.BLACK_OFFSET;
+			}
+		}
+		if ((whiteKing < 0) || (blackKing < 0) || (pawn < 8) || (pawn >= 56))
+			return UNKNOWN;
+
+		// a black pawn is looked up as a white one by mirroring the ranks and swapping the colors,
+		// and a pawn on files e to h by mirroring the files
+		if (isPawnBlack) {
+			int strongKing = blackKing ^ 56;
+			blackKing = whiteKing ^ 56;
+			whiteKing = strongKing;
+			pawn ^= 56;
+		}
+		int mirror = ((pawn & 7) > 3) ? 7 : 0;
+		boolean strongToMove = blackToMove == isPawnBlack;
+		if (!isWon(getPawnIndex(pawn ^ mirror), ((whiteKing ^ mirror) << 6) | (blackKing ^ mirror),
+				!strongToMove))
+			return DRAW;
+		return strongToMove ? WIN : LOSS;
+	}
+
+	/**
+	 * This method checks whether a position is won.
+	 * 
+	 * @param pawnIndex   the index of the square of the pawn, as given by getPawnIndex()
+	 * @param kings       the square of the white king times 64 plus that of the black king
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return true if the position is known to be won and false otherwise
+	 */
+	private boolean isWon(int pawnIndex, int kings, boolean blackToMove) {
+		int index = ((blackToMove ? PAWN_SQUARES : 0) + pawnIndex) * SLICE_SIZE + kings;
+		return (bits[index >> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * This method marks a position as won.
+	 * 
+	 * @param pawnIndex   the index of the square of the pawn, as given by getPawnIndex()
+	 * @param kings       the square of the white king times 64 plus that of the black king
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 */
+	private void setWon(int pawnIndex, int kings, boolean blackToMove) {
+		int index = ((blackToMove ? PAWN_SQUARES : 0) + pawnIndex) * SLICE_SIZE + kings;
+		bits[index >> 6] |= 1L << index;
+	}
+
+	/**
+	 * This method checks whether white wins a legal position with white to move by moving the
+	 * pawn, from the results of the positions with the pawn on the squares in front of it.
+	 * 
+	 * @param pawn      the square of the pawn
+	 * @param whiteKing the square of the white king
+	 * @param blackKing the square of the black king
+	 * @return true if a move of the pawn wins and false otherwise
+	 */
+	private boolean isPawnMoveWon(int pawn, int whiteKing, int blackKing) {
+		int push = pawn - 8;
+		if ((push == whiteKing) || (push == blackKing))
+			return false;
+		if (push < 8) {
+			// the new queen wins unless the black king can capture it
+			long promotion = 1L << push;
+			return ((Attacks.kingAttacks(blackKing) & promotion) == 0)
+					|| ((Attacks.kingAttacks(whiteKing) & promotion) != 0);
+		}
+		int kings = (whiteKing << 6) | blackKing;
+		if (isWon(getPawnIndex(push), kings, true))
+			return true;
+		int doublePush = push - 8;
+		return ((pawn >> 3) == 6) && (doublePush != whiteKing) && (doublePush != blackKing)
+				&& isWon(getPawnIndex(doublePush), kings, true);
+	}
+
+	/**
+	 * This method returns the index of the square of a pawn among the PAWN_SQUARES squares on
+	 * rows 1 to 6 and files a to d, counted from the square a pawn on row 1 promotes from.
+	 * 
+	 * @param pawn the square of the pawn
+	 * @return the index
+	 */
+	private static int getPawnIndex(int pawn) {
+		return 4 * ((pawn >> 3) - 1) + (pawn & 7);
+	}
+}
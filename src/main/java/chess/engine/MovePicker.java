@@ -0,0 +1,240 @@
+package chess.engine;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * This class picks the legal moves of a position one at a time in the order the search should try
+ * them: first the move from the transposition table, then captures and promotions, most valuable
+ * victim first and least valuable attacker first among equal victims (MVV-LVA), then the killer
+ * moves, which caused cutoffs in sibling positions, then the other quiet moves ordered by how
+ * often they caused cutoffs (the history heuristic), and finally the captures that lose material
+ * according to static exchange evaluation. Captures are only generated once the table move has
+ * been tried, and quiet moves once the captures have been tried, so a cutoff by an early move
+ * saves generating the rest.
+ * 
+ * For the quiescence search, a picker can instead pick only the captures and promotions, again
+ * leaving out those that lose material.
+ */
+class MovePicker {
+	// the stages of picking, in order
+	private static final int TABLE_MOVE = 0;
+	private static final int GENERATE_CAPTURES = 1;
+	private static final int CAPTURES = 2;
+	private static final int GENERATE_QUIET_MOVES = 3;
+	private static final int QUIET_MOVES = 4;
+	private static final int BAD_CAPTURES = 5;
+	private static final int DONE = 6;
+
+	// the score of a move that has already been picked or must not be picked
+	private static final int SKIP = Integer.MIN_VALUE;
+	// the score of the first killer move, which is above every history score
+	private static final int KILLER_SCORE = Integer.MAX_VALUE;
+	// the bonus for promoting to a queen, which puts it above every capture of a queen
+	private static final int QUEEN_PROMOTION_SCORE = 64;
+	private static final int[] NO_KILLERS = {};
+
+	private final MoveList moves = new MoveList();
+	private final int[] scores = new int[MoveList.DEFAULT_CAPACITY];
+	private final MoveList badCaptures = new MoveList(); // the captures that lose material
+	private final int[] exchangeGains; // the array static exchange evaluation works in
+	private AbstractBoard board;
+	private boolean blackToMove;
+	private int tableMove;
+	private int[] killers;
+	private int[] history;
+	private boolean isQuiescence; // true if only captures that do not lose material are picked
+	private int stage;
+	private int index;
+
+	/**
+	 * This method creates a move picker.
+	 * 
+	 * @param exchangeGains the array of at least StaticExchange.MAX_CAPTURES elements that static
+	 *                      exchange evaluation works in, which may be shared by the pickers of a
+	 *                      thread since it is only used within each evaluation
+	 */
+	MovePicker(int[] exchangeGains) {
+		this.exchangeGains = exchangeGains;
+	}
+
+	/**
+	 * This method starts picking the moves of the current position of the given board.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param tableMove   the move from the transposition table, or Move.NONE; it is only picked if
+	 *                    it is legal
+	 * @param killers     the killer moves of the position's ply, best first
+	 * @param history     the history scores of the player to move, indexed by historyIndex()
+	 */
+	void start(AbstractBoard board, boolean blackToMove, int tableMove, int[] killers,
+			int[] history) {
+		this.board = board;
+		this.blackToMove = blackToMove;
+		this.tableMove = tableMove;
+		this.killers = killers;
+		this.history = history;
+		isQuiescence = false;
+		badCaptures.clear();
+		stage = TABLE_MOVE;
+	}
+
+	/**
+	 * This method starts picking the captures and promotions of the current position of the given
+	 * board that do not lose material, for the quiescence search.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 */
+	void startQuiescence(AbstractBoard board, boolean blackToMove) {
+		start(board, blackToMove, Move.NONE, NO_KILLERS, null);
+		isQuiescence = true;
+	}
+
+	/**
+	 * This method returns the index of the given move in a table of history scores.
+	 * 
+	 * @param move the encoded move
+	 * @return the index, from 0 to 4095
+	 */
+	static int historyIndex(int move) {
+		return move & 0xfff;
+	}
+
+	/**
+	 * This method returns the next move to try. The board must be in the position given to start().
+	 * 
+	 * @return the next move, or Move.NONE if every legal move has been picked
+	 */
+	int next() {
+		switch (stage) {
+		case TABLE_MOVE:
+			stage = GENERATE_CAPTURES;
+			if ((tableMove != Move.NONE) && board.isLegalMove(tableMove, blackToMove))
+				return tableMove;
+			// fall through
+		case GENERATE_CAPTURES:
+			moves.clear();
+			board.generateCaptures(blackToMove, moves);
+			scoreCaptures();
+			index = 0;
+			stage = CAPTURES;
+			// fall through
+		case CAPTURES:
+			int move;
+			while ((move = pickBest()) != Move.NONE) {
+				// the quiescence search leaves underpromotions to the full search
+				if (isQuiescence && Move.isPromotion(move)
+						&& (Move.promotionType(move) != BitBoard.QUEEN))
+					continue;
+				// a capture that loses material is tried after the quiet moves, or never in the
+				// quiescence search
+				if (Move.isCapture(move)
+						&& (StaticExchange.evaluate(board, move, exchangeGains) < 0)) {
+					if (!isQuiescence)
+						badCaptures.add(move);
+					continue;
+				}
+				return move;
+			}
+			if (isQuiescence) {
+				stage = DONE;
+				return Move.NONE;
+			}
+			stage = GENERATE_QUIET_MOVES;
+			// fall through
+		case GENERATE_QUIET_MOVES:
+			moves.clear();
+			board.generateQuietMoves(blackToMove, moves);
+			scoreQuietMoves();
+			index = 0;
+			stage = QUIET_MOVES;
+			// fall through
+		case QUIET_MOVES:
+			move = pickBest();
+			if (move != Move.NONE)
+				return move;
+			index = 0;
+			stage = BAD_CAPTURES;
+			// fall through
+		case BAD_CAPTURES:
+			if (index < badCaptures.size())
+				return badCaptures.get(index++);
+			stage = DONE;
+			// fall through
+		default:
+			return Move.NONE;
+		}
+	}
+
+	/**
+	 * This method scores the generated captures and promotions by MVV-LVA.
+	 */
+	private void scoreCaptures() {
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (move == tableMove) {
+				scores[i] = SKIP;
+				continue;
+			}
+			int attacker = board.getPiece(Move.from(move)) % BitBoard.BLACK_OFFSET;
+			int victim = BitBoard.EMPTY;
+			if (Move.flags(move) == Move.EN_PASSANT) {
+				victim = BitBoard.PAWN;
+			} else if (Move.isCapture(move)) {
+				victim = board.getPiece(Move.to(move)) % BitBoard.BLACK_OFFSET;
+			}
+			int score = 8 * (victim + 1) - attacker;
+			if (Move.isPromotion(move))
+				score += (Move.promotionType(move) == BitBoard.QUEEN) ? QUEEN_PROMOTION_SCORE
+						: -QUEEN_PROMOTION_SCORE;
+			scores[i] = score;
+		}
+	}
+
+	/**
+	 * This method scores the generated quiet moves by the history heuristic, with the killer moves
+	 * first.
+	 */
+	private void scoreQuietMoves() {
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (move == tableMove) {
+				scores[i] = SKIP;
+				continue;
+			}
+			scores[i] = history[historyIndex(move)];
+			for (int j = 0; j < killers.length; j++) {
+				if (move == killers[j])
+					scores[i] = KILLER_SCORE - j;
+			}
+		}
+	}
+
+	/**
+	 * This method picks the generated move with the highest score that has not been picked yet,
+	 * moving it to the front of the moves not yet picked.
+	 * 
+	 * @return the move, or Move.NONE if no move is left
+	 */
+	private int pickBest() {
+		int best = index;
+		for (int i = index + 1; i < moves.size(); i++) {
+			if (scores[i] > scores[best])
+				best = i;
+		}
+		if ((best >= moves.size()) || (scores[best] == SKIP))
+			return Move.NONE;
+		int move = moves.get(best);
+		int score = scores[best];
+		moves.set(best, moves.get(index));
+		scores[best] = scores[index];
+		moves.set(index, move);
+		scores[index] = score;
+		index++;
+		return move;
+	}
+}
@@ -0,0 +1,347 @@
+package chess.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * This class reads an opening book in the Polyglot format: a file of 16-byte entries sorted by
+ * key, each holding the key of a position, a move, a weight, and learning data, all big-endian.
+ * The file is memory-mapped instead of read, so a book of hundreds of megabytes opens at once,
+ * takes no space on the heap, and is shared by every thread and game that uses it. The entries of
+ * a position are found by binary search on its key, and one of their moves is chosen at random
+ * with a probability proportional to its weight.
+ * 
+ * Polyglot keys are Zobrist keys computed from 781 fixed random numbers published with the format,
+ * not from the numbers of the Zobrist class. open() reads them from the resource
+ * polyglot-random64.txt next to this class, which must be supplied along with the book and holds
+ * the numbers in hexadecimal in Polyglot's order; the constructor takes them directly instead.
+ */
+public class OpeningBook {
+	// the system property holding the path of the book returned by getDefault()
+	public static final String BOOK_PROPERTY = "chess.book";
+	// the number of random numbers: one for each of 12 pieces on 64 squares, one for each castling
+	// right, one for each en passant file, and one for white to move
+	public static final int RANDOMS = 781;
+
+	private static final String RANDOMS_RESOURCE = "polyglot-random64.txt";
+	// the key of the starting position given by the Polyglot format
+	private static final long START_KEY = 0x463b96181691fc9cL;
+	// the offsets of the groups of random numbers after those of the pieces
+	private static final int CASTLING_OFFSET = 768;
+	private static final int EN_PASSANT_OFFSET = 772;
+	private static final int TURN_OFFSET = 780;
+	// the castling rights in Polyglot's order
+	private static final int[] CASTLING_RIGHTS = { BitBoard.WHITE_KINGSIDE,
+			BitBoard.WHITE_QUEENSIDE, BitBoard.BLACK_KINGSIDE, BitBoard.BLACK_QUEENSIDE };
+	private static final int ENTRY_SIZE = 16;
+	private static final Logger LOGGER = Logger.getLogger(OpeningBook.class.getName());
+
+	private static OpeningBook defaultBook = null;
+	private static boolean isDefaultOpened = false;
+
+	private final ByteBuffer entries;
+	private final int size; // the number of entries
+	private final long[] randoms;
+
+	/**
+	 * This method opens the given book, which must use Polyglot's own random numbers.
+	 * 
+	 * @param path the path of the book
+	 * @return the book
+	 * @throws IOException if the book or the resource holding Polyglot's random numbers cannot be
+	 *                     read, or the numbers do not give the format's key of the starting
+	 *                     position
+	 */
+	public static OpeningBook open(Path path) throws IOException {
+		OpeningBook book;
+		try (InputStream in = OpeningBook.class.getResourceAsStream(RANDOMS_RESOURCE)) {
+			if (in == null)
+				throw new IOException("The resource " + RANDOMS_RESOURCE
+						+ " holding the Polyglot random numbers was not found");
+			book = new OpeningBook(path, readRandoms(in));
+		}
+		// numbers that are wrong or out of order would find no moves instead of failing
+		if (book.getKey(new BitBoard(), false) != START_KEY)
+			throw new IOException("The resource " + RANDOMS_RESOURCE
+					+ " does not hold Polyglot's random numbers in Polyglot's order");
+		return book;
+	}
+
+	/**
+	 * This method opens the given book, whose keys were computed from the given random numbers.
+	 * 
+	 * @param path    the path of the book
+	 * @param randoms the RANDOMS random numbers, in Polyglot's order
+	 * @throws IOException              if the book cannot be read or its size is not a whole number
+	 *                                  of entries
+	 * @throws IllegalArgumentException if the number of random numbers is not RANDOMS
+	 */
+	public OpeningBook(Path path, long[] randoms) throws IOException {
+		if (randoms.length != RANDOMS)
+			throw new IllegalArgumentException(
+					"Expected " + RANDOMS + " random numbers but got " + randoms.length);
+		this.randoms = randoms.clone();
+		// the mapping stays valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if ((length % ENTRY_SIZE != 0) || (length > Integer.MAX_VALUE))
+				throw new IOException(path + " is not a Polyglot book of at most 2 GB");
+			entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			size = (int) (length / ENTRY_SIZE);
+		}
+	}
+
+	/**
+	 * This method reads random numbers written in hexadecimal, separated by whitespace or commas,
+	 * with comments starting with '#'. Each number may have a "0x" prefix and a "U", "L", "UL",
+	 * or "ULL" suffix, so the array of Polyglot's source code can be used as it is.
+	 * 
+	 * @param in the stream to read, which is not closed
+	 * @return the numbers
+	 * @throws IOException              if the stream cannot be read
+	 * @throws IllegalArgumentException if a number is invalid or there are not RANDOMS numbers
+	 */
+	public static long[] readRandoms(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(in, StandardCharsets.US_ASCII));
+		long[] numbers = new long[RANDOMS];
+		int count = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			int comment = line.indexOf('#');
+			if (comment >= 0)
+				line = line.substring(0, comment);
+			for (String token : line.split("[\\s,]+")) {
+				token = token.toLowerCase().replaceFirst("^0x", "").replaceFirst("u?l*$", "");
+				if (token.isEmpty())
+					continue;
+				if (count == RANDOMS)
+					throw new IllegalArgumentException("More than " + RANDOMS + " random numbers");
+				try {
+					numbers[count++] = Long.parseUnsignedLong(token, 16);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid random number: " + token);
+				}
+			}
+		}
+		if (count != RANDOMS)
+			throw new IllegalArgumentException(
+					"Expected " + RANDOMS + " random numbers but got " + count);
+		return numbers;
+	}
+
+	/**
+	 * This method returns the book shared by every game, which is opened the first time this
+	 * method is called from the path in the system property BOOK_PROPERTY, unless setDefault() has
+	 * been called. If the book or Polyglot's random numbers cannot be read, a warning is logged
+	 * once and the games play without a book.
+	 * 
+	 * @return the book, or null if the system property is not set or the book cannot be opened
+	 */
+	public static synchronized OpeningBook getDefault() {
+		if (!isDefaultOpened) {
+			isDefaultOpened = true;
+			String path = System.getProperty(BOOK_PROPERTY);
+			if (path != null) {
+				try {
+					defaultBook = open(Paths.get(path));
+				} catch (IOException | IllegalArgumentException e) {
+					LOGGER.log(Level.WARNING, "The opening book " + path + " cannot be opened", e);
+				}
+			}
+		}
+		return defaultBook;
+	}
+
+	/**
+	 * This method sets the book shared by every game created from now on.
+	 * 
+	 * @param book the book, or null for none
+	 */
+	public static synchronized void setDefault(OpeningBook book) {
+		defaultBook = book;
+		isDefaultOpened = true;
+	}
+
+	/**
+	 * @return the number of entries of the book
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method returns the Polyglot key of the current position of the given board. Unlike the
+	 * Zobrist key of the board, it only covers en passant if a pawn of the player to move stands
+	 * beside the pawn that moved two spaces, whether or not the capture would be legal.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the key
+	 */
+	public long getKey(AbstractBoard board, boolean blackToMove) {
+		long key = 0;
+		for (int square = 0; square < 64; square++) {
+			int piece = board.getPiece(square);
+			if (piece == BitBoard.EMPTY)
+				continue;
+			// Polyglot orders the pieces black pawn, white pawn, black knight, and so on, and
+			// numbers the squares from a1
+			boolean isBlack = piece >= BitBoard.BLACK_OFFSET;
+			int kind = 2 * (piece % BitBoard.BLACK_OFFSET) + (isBlack ? 0 : 1);
+			key ^= randoms[64 * kind + 8 * (7 - (square >> 3)) + (square & 7)];
+		}
+		int castlingRights = board.getCastlingRights();
+		for (int i = 0; i < CASTLING_RIGHTS.length; i++) {
+			if ((castlingRights & CASTLING_RIGHTS[i]) != 0)
+				key ^= randoms[CASTLING_OFFSET + i];
+		}
+		int enPassantSquare = board.getEnPassantSquare();
+		if (enPassantSquare >= 0) {
+			int pawnSquare = enPassantSquare + (blackToMove ? -8 : 8);
+			int pawn = BitBoard.PAWN + (blackToMove ? BitBoard.BLACK_OFFSET : 0);
+			int file = enPassantSquare & 7;
+			if (((file > 0) && (board.getPiece(pawnSquare - 1) == pawn))
+					|| ((file < 7) && (board.getPiece(pawnSquare + 1) == pawn)))
+				key ^= randoms[EN_PASSANT_OFFSET + file];
+		}
+		if (!blackToMove)
+			key ^= randoms[TURN_OFFSET];
+		return key;
+	}
+
+	/**
+	 * This method returns the legal moves the book gives for the current position of the given
+	 * board, in the order of the book. Each move is represented as a two-element array, where the
+	 * first element is the move encoded by the Move class and the second element is its weight.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return a list of moves with their weights, which is empty if the book has no move for the
+	 *         position
+	 */
+	public List<int[]> getMoves(AbstractBoard board, boolean blackToMove) {
+		List<int[]> bookMoves = new ArrayList<>();
+		long key = getKey(board, blackToMove);
+		MoveList legalMoves = null;
+		for (int i = findFirst(key); (i < size) && (entries.getLong(i * ENTRY_SIZE) == key); i++) {
+			if (legalMoves == null) {
+				legalMoves = new MoveList();
+				board.generateMoves(blackToMove, legalMoves);
+			}
+			int move = toMove(board, entries.getShort(i * ENTRY_SIZE + 8) & 0xffff, legalMoves);
+			if (move != Move.NONE)
+				bookMoves.add(new int[] { move, entries.getShort(i * ENTRY_SIZE + 10) & 0xffff });
+		}
+		return bookMoves;
+	}
+
+	/**
+	 * This method chooses one of the moves the book gives for the current position of the given
+	 * board at random, with a probability proportional to its weight.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the move, or Move.NONE if the book has no move with a positive weight
+	 */
+	public int chooseMove(AbstractBoard board, boolean blackToMove) {
+		return chooseMove(board, blackToMove, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * This method chooses one of the moves the book gives for the current position of the given
+	 * board, with a probability proportional to its weight, using the given random numbers.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param random      the source of random numbers
+	 * @return the move, or Move.NONE if the book has no move with a positive weight
+	 */
+	public int chooseMove(AbstractBoard board, boolean blackToMove, Random random) {
+		List<int[]> bookMoves = getMoves(board, blackToMove);
+		int totalWeight = 0;
+		for (int[] bookMove : bookMoves) {
+			totalWeight += bookMove[1];
+		}
+		if (totalWeight == 0)
+			return Move.NONE;
+		int choice = random.nextInt(totalWeight);
+		for (int[] bookMove : bookMoves) {
+			choice -= bookMove[1];
+			if (choice < 0)
+				return bookMove[0];
+		}
+		return Move.NONE;
+	}
+
+	/**
+	 * This method finds the first entry whose key is at least the given key by binary search.
+	 * Keys are compared as unsigned numbers, as in the sorted book.
+	 * 
+	 * @param key the key
+	 * @return the index of the entry, or the number of entries if every key is smaller
+	 */
+	private int findFirst(long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(entries.getLong(middle * ENTRY_SIZE), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * This method converts a move in Polyglot's encoding to the legal move it stands for.
+	 * Polyglot gives the file and rank of the target square in bits 0-5, those of the starting
+	 * square in bits 6-11, and the promotion piece in bits 12-14, and encodes castling as the king
+	 * capturing its own rook.
+	 * 
+	 * @param board      the board
+	 * @param bookMove   the move in Polyglot's encoding
+	 * @param legalMoves the legal moves of the position
+	 * @return the move encoded by the Move class, or Move.NONE if it is not legal
+	 */
+	private static int toMove(AbstractBoard board, int bookMove, MoveList legalMoves) {
+		int to = 8 * (7 - ((bookMove >> 3) & 7)) + (bookMove & 7);
+		int from = 8 * (7 - ((bookMove >> 9) & 7)) + ((bookMove >> 6) & 7);
+		// Polyglot numbers the promotion pieces from the knight, as BitBoard does
+		int promotionType = (bookMove >> 12) & 7;
+		int piece = board.getPiece(from);
+		if ((piece % BitBoard.BLACK_OFFSET == BitBoard.KING)
+				&& (board.getPiece(to) == piece - BitBoard.KING + BitBoard.ROOK)) {
+			to = (to > from) ? from + 2 : from - 2;
+		}
+		for (int i = 0; i < legalMoves.size(); i++) {
+			int move = legalMoves.get(i);
+			if ((Move.from(move) == from) && (Move.to(move) == to)
+					&& (Move.isPromotion(move) ? Move.promotionType(move) == promotionType
+							: promotionType == 0))
+				return move;
+		}
+		return Move.NONE;
+	}
+}
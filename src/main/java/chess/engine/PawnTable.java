@@ -0,0 +1,115 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * This class is a small hash table of pawn structure evaluations, indexed by the Zobrist key of
+ * the pawns alone. Pawns move rarely compared with other pieces, so most positions the search
+ * evaluates share their pawns with a position evaluated shortly before. Each entry keeps the
+ * middlegame and endgame scores of the pawns and the masks of the passed pawns of both colors. A
+ * table is not thread-safe, so each search thread has its own.
+ */
+public class PawnTable {
+	// the key of an empty entry; a position whose pawn key equals it is simply never found
+	private static final long EMPTY_KEY = -1;
+
+	private final long[] keys;
+	private final int[] middlegameScores;
+	private final int[] endgameScores;
+	private final long[] passedPawns;
+	private final int mask;
+	private EvaluationParameters parameters; // the parameters of the stored scores
+	private int index; // the entry found or chosen by the last call to probe()
+	private long probes;
+	private long hits;
+
+	/**
+	 * This method creates an empty table.
+	 * 
+	 * @param bits the base 2 logarithm of the number of entries, from 0 to 24
+	 */
+	public PawnTable(int bits) {
+		int size = 1 << Math.max(0, Math.min(bits, 24));
+		keys = new long[size];
+		middlegameScores = new int[size];
+		endgameScores = new int[size];
+		passedPawns = new long[size];
+		mask = size - 1;
+		clear();
+	}
+
+	/**
+	 * This method removes every entry and resets the hit rate.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY_KEY);
+		probes = 0;
+		hits = 0;
+	}
+
+	/**
+	 * This method looks up the pawns with the given key. If they are found, getMiddlegameScore(),
+	 * getEndgameScore(), and getPassedPawns() return their entry; otherwise store() fills the entry
+	 * for them. Entries stored with other parameters are discarded.
+	 * 
+	 * @param key        the Zobrist key of the pawns
+	 * @param parameters the parameters of the evaluation
+	 * @return true if the pawns were found and false otherwise
+	 */
+	public boolean probe(long key, EvaluationParameters parameters) {
+		if (parameters != this.parameters) {
+			clear();
+			this.parameters = parameters;
+		}
+		probes++;
+		index = (int) key & mask;
+		if (keys[index] != key)
+			return false;
+		hits++;
+		return true;
+	}
+
+	/**
+	 * This method stores the evaluation of the pawns looked up by the last call to probe().
+	 * 
+	 * @param key             the Zobrist key of the pawns
+	 * @param middlegameScore the middlegame score of the pawns, from white's side
+	 * @param endgameScore    the endgame score of the pawns, from white's side
+	 * @param passedPawns     the mask of the passed pawns of both colors
+	 */
+	public void store(long key, int middlegameScore, int endgameScore, long passedPawns) {
+		keys[index] = key;
+		middlegameScores[index] = middlegameScore;
+		endgameScores[index] = endgameScore;
+		this.passedPawns[index] = passedPawns;
+	}
+
+	/**
+	 * @return the middlegame score of the pawns of the last call to probe(), from white's side
+	 */
+	public int getMiddlegameScore() {
+		return middlegameScores[index];
+	}
+
+	/**
+	 * @return the endgame score of the pawns of the last call to probe(), from white's side
+	 */
+	public int getEndgameScore() {
+		return endgameScores[index];
+	}
+
+	/**
+	 * @return the mask of the passed pawns of both colors of the last call to probe()
+	 */
+	public long getPassedPawns() {
+		return passedPawns[index];
+	}
+
+	/**
+	 * @return the fraction of calls to probe() that found the pawns since the table was cleared, or
+	 *         0 if there were none
+	 */
+	public double getHitRate() {
+		return (probes == 0) ? 0 : (double) hits / probes;
+	}
+}
@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.Move;
+
+/**
+ * This class holds the result of one iteration of a search: the best move and its score, the
+ * depth searched, and the number of nodes and time used by the search so far.
+ */
+public class SearchResult {
+	private final int bestMove;
+	private final int score;
+	private final int depth;
+	private final long nodes;
+	private final long millis;
+	private final int[] principalVariation;
+
+	/**
+	 * This method creates a SearchResult with the specified values.
+	 * 
+	 * @param bestMove           the best move found, or Move.NONE if there are no legal moves
+	 * @param score              the score of the best move for the player to move, in centipawns
+	 * @param depth              the depth searched
+	 * @param nodes              the number of nodes searched
+	 * @param millis             the time used, in milliseconds
+	 * @param principalVariation the moves expected to be played, starting with the best move
+	 */
+	public SearchResult(int bestMove, int score, int depth, long nodes, long millis,
+			int[] principalVariation) {
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.millis = millis;
+		this.principalVariation = principalVariation;
+	}
+
+	/**
+	 * @return the best move found, or Move.NONE if there are no legal moves
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * @return the score of the best move for the player to move, in centipawns
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the depth searched
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return the number of nodes searched
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the time used, in milliseconds
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * @return the number of nodes searched per second
+	 */
+	public long getNodesPerSecond() {
+		return nodes * 1000 / Math.max(millis, 1);
+	}
+
+	/**
+	 * @return the moves expected to be played, starting with the best move
+	 */
+	public int[] getPrincipalVariation() {
+		return principalVariation.clone();
+	}
+
+	/**
+	 * This method checks whether the score is a forced checkmate for either player.
+	 * 
+	 * @return true if the score is a checkmate and false otherwise
+	 */
+	public boolean isMateScore() {
+		return Math.abs(score) >= Engine.MATE - Engine.MAX_PLY;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("depth ").append(depth).append(" score ");
+		if (isMateScore()) {
+			// the number of moves, rather than plies, to checkmate
+			int plies = Engine.MATE - Math.abs(score);
+			builder.append("mate ").append((score > 0) ? (plies + 1) / 2 : -(plies / 2));
+		} else {
+			builder.append("cp ").append(score);
+		}
+		builder.append(" nodes ").append(nodes).append(" nps ").append(getNodesPerSecond())
+				.append(" time ").append(millis).append(" pv");
+		for (int move : principalVariation) {
+			builder.append(' ').append(Move.toString(move));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,483 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * This class holds the state of one thread of a search: its own board, move pickers, best lines,
+ * killer moves, history scores, and pawn table. The threads of an engine share only its
+ * transposition table and its stop flag, so a searcher must only be used by one thread at a time.
+ */
+class Searcher {
+	// the number of nodes searched between checks of the clock
+	private static final int CHECK_INTERVAL = 1024;
+	// the number of killer moves kept for each ply
+	private static final int KILLERS = 2;
+	// the history score above which all history scores are halved
+	private static final int MAX_HISTORY = 1 << 20;
+	// the base 2 logarithm of the number of entries of the pawn table
+	private static final int PAWN_TABLE_BITS = 14;
+	// the margin of futility pruning at each remaining depth up to the last one where it is used
+	private static final int[] FUTILITY_MARGINS = { 0, 150, 300, 450 };
+	// the margin of razoring at each remaining depth up to the last one where it is used
+	private static final int[] RAZOR_MARGINS = { 0, 300, 500 };
+	// the depth by which a null move is reduced, on top of the ply it passes
+	private static final int NULL_MOVE_REDUCTION = 2;
+	// the remaining depth from which a null move is reduced by one more ply
+	private static final int DEEP_NULL_MOVE_DEPTH = 6;
+	// the smallest remaining depth at which late moves are reduced
+	private static final int LATE_MOVE_DEPTH = 3;
+	// the number of moves searched to the full depth before the first reduced one
+	private static final int FULL_DEPTH_MOVES = 3;
+	// the reduction of each move by remaining depth and number of moves searched before it,
+	// growing with the logarithm of both
+	private static final int[][] REDUCTIONS = new int[Engine.MAX_PLY + 1][Engine.MAX_PLY + 1];
+
+	static {
+		for (int depth = 1; depth <= Engine.MAX_PLY; depth++) {
+			for (int moves = 1; moves <= Engine.MAX_PLY; moves++) {
+				REDUCTIONS[depth][moves] = (int) (0.75 + Math.log(depth) * Math.log(moves) / 2.25);
+			}
+		}
+	}
+
+	private final Engine engine;
+	private final TranspositionTable table;
+	private AbstractBoard board;
+	private long nodes;
+	private long nodeLimit; // or 0 for no limit
+	private long deadline;
+	private int rootFirstMove; // the move to search first at the root, or Move.NONE
+	private MoveList rootMoves; // the moves searched at the root, or null for every move
+	private Tablebase tablebase; // or null to search every position
+	private MovePicker[] movePickers = new MovePicker[Engine.MAX_PLY + 1];
+	// the array in which the move pickers of every ply evaluate exchanges
+	private final int[] exchangeGains = new int[StaticExchange.MAX_CAPTURES];
+	private long[] keys = new long[Engine.MAX_PLY + 1]; // the key of the position at each ply
+	// the keys of the positions of the game before the root since the last capture or pawn move,
+	// oldest first
+	private long[] previousKeys = new long[0];
+	private int rootHalfmoveClock;
+	// the number of moves since the last capture or pawn move at each ply, for the fifty-move rule
+	private int[] halfmoveClocks = new int[Engine.MAX_PLY + 1];
+	// whether the move from each ply to the next was a null move
+	private boolean[] isNullMove = new boolean[Engine.MAX_PLY + 1];
+	private int[][] principalVariations = new int[Engine.MAX_PLY + 1][Engine.MAX_PLY + 1];
+	private int[] principalVariationLengths = new int[Engine.MAX_PLY + 1];
+	// the quiet moves that last caused a cutoff at each ply, most recent first
+	private int[][] killers = new int[Engine.MAX_PLY + 1][KILLERS];
+	// the history score of each quiet move for each color, indexed by MovePicker.historyIndex()
+	private int[][] history = new int[2][4096];
+	private PawnTable pawnTable = new PawnTable(PAWN_TABLE_BITS);
+
+	/**
+	 * This method creates a searcher for the given engine.
+	 * 
+	 * @param engine the engine, whose stop flag ends the search
+	 * @param table  the transposition table of the engine
+	 */
+	Searcher(Engine engine, TranspositionTable table) {
+		this.engine = engine;
+		this.table = table;
+		for (int i = 0; i <= Engine.MAX_PLY; i++) {
+			movePickers[i] = new MovePicker(exchangeGains);
+		}
+	}
+
+	/**
+	 * This method prepares a new search of the given board. The killer moves of the last search
+	 * are cleared, while its history scores are halved so that they still guide the new search.
+	 * 
+	 * @param board         the board, which is restored after each call of searchRoot()
+	 * @param previousKeys  the Zobrist keys of the positions of the game before the root since the
+	 *                      last capture or pawn move, oldest first, which are not modified
+	 * @param halfmoveClock the number of moves since the last capture or pawn move at the root
+	 * @param rootMoves     the moves to search at the root, or null for every move
+	 * @param tablebase     the tablebase that scores the positions it covers, or null for none
+	 * @param nodeLimit     the maximum number of nodes to search, or 0 for no limit
+	 * @param deadline      the time at which the search stops, in milliseconds
+	 */
+	void start(AbstractBoard board, long[] previousKeys, int halfmoveClock, MoveList rootMoves,
+			Tablebase tablebase, long nodeLimit, long deadline) {
+		this.board = board;
+		this.previousKeys = previousKeys;
+		rootHalfmoveClock = halfmoveClock;
+		this.rootMoves = rootMoves;
+		this.tablebase = tablebase;
+		this.nodeLimit = nodeLimit;
+		this.deadline = deadline;
+		nodes = 0;
+		for (int[] plyKillers : killers) {
+			Arrays.fill(plyKillers, Move.NONE);
+		}
+		halveHistory();
+	}
+
+	/**
+	 * This method releases the board and the tablebase of the last search.
+	 */
+	void finish() {
+		board = null;
+		rootMoves = null;
+		tablebase = null;
+	}
+
+	/**
+	 * @return the number of nodes searched since start() was called
+	 */
+	long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return a copy of the best line found by the last call of searchRoot()
+	 */
+	int[] getPrincipalVariation() {
+		int length = principalVariationLengths[0];
+		int[] principalVariation = new int[length];
+		System.arraycopy(principalVariations[0], 0, principalVariation, 0, length);
+		return principalVariation;
+	}
+
+	/**
+	 * This method searches the root position to the given depth, searching the given move first.
+	 * 
+	 * @param depth       the depth to search
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param firstMove   the move to search first, or Move.NONE
+	 * @return the score of the best move
+	 */
+	int searchRoot(int depth, boolean blackToMove, int firstMove) {
+		rootFirstMove = firstMove;
+		halfmoveClocks[0] = rootHalfmoveClock;
+		return negamax(depth, 0, -Engine.INFINITY, Engine.INFINITY, blackToMove);
+	}
+
+	/**
+	 * This method halves every history score, so that recent cutoffs count more than old ones.
+	 */
+	private void halveHistory() {
+		for (int[] colorHistory : history) {
+			for (int i = 0; i < colorHistory.length; i++) {
+				colorHistory[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * This method records that the given quiet move caused a cutoff at the given ply, making it the
+	 * first killer move of the ply and raising its history score by more the deeper the search.
+	 * 
+	 * @param move        the quiet move
+	 * @param depth       the remaining depth at which it caused the cutoff
+	 * @param ply         the ply at which it caused the cutoff
+	 * @param blackToMove true if black made the move and false if white made it
+	 */
+	private void updateQuietMove(int move, int depth, int ply, boolean blackToMove) {
+		int[] plyKillers = killers[ply];
+		if (plyKillers[0] != move) {
+			System.arraycopy(plyKillers, 0, plyKillers, 1, KILLERS - 1);
+			plyKillers[0] = move;
+		}
+		int[] colorHistory = history[blackToMove ? 1 : 0];
+		int index = MovePicker.historyIndex(move);
+		colorHistory[index] += depth * depth;
+		if (colorHistory[index] > MAX_HISTORY)
+			halveHistory();
+	}
+
+	/**
+	 * This method checks whether the time or node budget has been used up, and stops the search of
+	 * every thread if it has.
+	 */
+	private void checkLimits() {
+		if (((nodeLimit > 0) && (nodes >= nodeLimit))
+				|| (((nodes % CHECK_INTERVAL) == 0) && (System.currentTimeMillis() >= deadline)))
+			engine.stop();
+	}
+
+	/**
+	 * This method checks whether the position at the given ply already occurred earlier in the
+	 * search or in the game before the root with the same player to move, which makes it a draw
+	 * if it is repeated. Only positions since the last capture or pawn move are compared, and
+	 * positions before a null move are not, since the game cannot actually return to them.
+	 * 
+	 * @param ply the ply of the position
+	 * @return true if the position is a repetition and false otherwise
+	 */
+	private boolean isRepetition(int ply) {
+		for (int i = ply - 2; i >= ply - halfmoveClocks[ply]; i -= 2) {
+			if (((i >= 0) && isNullMove[i]) || ((i >= -1) && isNullMove[i + 1]))
+				return false;
+			if (i < -previousKeys.length)
+				return false;
+			long key = (i >= 0) ? keys[i] : previousKeys[previousKeys.length + i];
+			if ((i <= ply - 4) && (key == keys[ply]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method searches the current position with a negamax alpha-beta search, storing the best
+	 * line found in principalVariations[ply]. After the first move, moves are searched with a null
+	 * window, which only tells whether they are better than the best move so far, and searched
+	 * again with the full window if they are. Positions searched with a null window are pruned or
+	 * searched to a lower depth where the switches of the engine allow it.
+	 * 
+	 * @param depth       the remaining depth
+	 * @param ply         the number of moves made since the root
+	 * @param alpha       the score the player to move is already guaranteed
+	 * @param beta        the score above which the opponent will avoid this position
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the score of the position for the player to move
+	 */
+	private int negamax(int depth, int ply, int alpha, int beta, boolean blackToMove) {
+		principalVariationLengths[ply] = 0;
+		isNullMove[ply] = false;
+		// another thread may stop the search before this one starts, but the root is still searched
+		// so that it has a first move
+		if (engine.isStopped() && (ply > 0))
+			return 0;
+		long key = board.getZobristKey(blackToMove);
+		keys[ply] = key;
+		if ((ply > 0) && isRepetition(ply))
+			return 0;
+		// after fifty moves by each player without a capture or pawn move, the game is drawn
+		// unless the last move was checkmate
+		if ((ply > 0) && (halfmoveClocks[ply] >= 100)
+				&& (!board.isCheck(blackToMove) || board.anyLegalMoves(blackToMove)))
+			return 0;
+		if ((depth <= 0) || (ply == Engine.MAX_PLY))
+			return quiescence(ply, alpha, beta, blackToMove);
+		nodes++;
+		checkLimits();
+
+		// the result of a position the tablebase covers is known without searching it
+		if ((tablebase != null) && (ply > 0)
+				&& (Long.bitCount(board.getOccupancy()) <= tablebase.getMaxPieces())) {
+			int result = tablebase.probeWdl(board, blackToMove);
+			if (result != Tablebase.UNKNOWN)
+				return result * (Engine.TABLEBASE_WIN - ply);
+		}
+
+		// a result stored for at least this depth ends the search of the position if its score
+		// is exact or its bound falls outside the window; the root is always searched so that it
+		// has a best line
+		long entry = table.probe(key);
+		int tableMove = Move.NONE;
+		if (entry != TranspositionTable.MISS) {
+			tableMove = TranspositionTable.getMove(entry);
+			int score = TranspositionTable.getScore(entry, ply);
+			int bound = TranspositionTable.getBound(entry);
+			if ((ply > 0) && (TranspositionTable.getDepth(entry) >= depth)
+					&& ((bound == TranspositionTable.EXACT)
+							|| ((bound == TranspositionTable.LOWER_BOUND) && (score >= beta))
+							|| ((bound == TranspositionTable.UPPER_BOUND) && (score <= alpha))))
+				return score;
+		}
+
+		// only positions searched with a null window, whose exact score does not matter, are
+		// pruned, and never when the player to move is in check
+		boolean isCheck = board.isCheck(blackToMove);
+		boolean canPrune = (ply > 0) && (beta - alpha == 1) && !isCheck
+				&& (Math.abs(beta) < Engine.MATE - Engine.MAX_PLY);
+		int staticScore = canPrune ? Evaluation.evaluate(board, blackToMove, pawnTable) : 0;
+		if (canPrune) {
+			// a position far above beta stays above it whatever the opponent does
+			if (engine.isFutilityPruning() && (depth < FUTILITY_MARGINS.length)
+					&& (staticScore - FUTILITY_MARGINS[depth] >= beta))
+				return staticScore;
+
+			// a position far below alpha is only searched further if the quiescence search finds
+			// that a capture brings it back
+			if (engine.isRazoring() && (depth < RAZOR_MARGINS.length)
+					&& (staticScore + RAZOR_MARGINS[depth] < alpha)) {
+				int score = quiescence(ply, alpha, beta, blackToMove);
+				if (score < beta)
+					return score;
+			}
+
+			// if the position is still above beta when the player to move passes, a real move
+			// would almost certainly be too, unless every move makes the position worse, which is
+			// only common when the player has just the king and pawns
+			if (engine.isNullMovePruning() && (depth >= 2) && (staticScore >= beta)
+					&& !isNullMove[ply - 1] && board.hasNonPawnMaterial(blackToMove)) {
+				int reduction = NULL_MOVE_REDUCTION + ((depth >= DEEP_NULL_MOVE_DEPTH) ? 1 : 0);
+				isNullMove[ply] = true;
+				halfmoveClocks[ply + 1] = halfmoveClocks[ply] + 1;
+				board.makeNullMove();
+				int score = -negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1,
+						!blackToMove);
+				board.unmakeNullMove();
+				isNullMove[ply] = false;
+				if (engine.isStopped())
+					return 0;
+				// a checkmate found after passing is not a checkmate of this position
+				if (score >= beta)
+					return (score >= Engine.MATE - Engine.MAX_PLY) ? beta : score;
+			}
+		}
+		// quiet moves cannot raise a position far below alpha near the end of a line
+		boolean isFutile = canPrune && engine.isFutilityPruning()
+				&& (depth < FUTILITY_MARGINS.length)
+				&& (staticScore + FUTILITY_MARGINS[depth] <= alpha);
+
+		// the root searches the best move of the previous depth first, since the table entry of
+		// the root may have been replaced
+		if ((ply == 0) && (rootFirstMove != Move.NONE))
+			tableMove = rootFirstMove;
+		MovePicker movePicker = movePickers[ply];
+		movePicker.start(board, blackToMove, tableMove, killers[ply],
+				history[blackToMove ? 1 : 0]);
+
+		int originalAlpha = alpha;
+		int bestScore = -Engine.INFINITY;
+		int bestMove = Move.NONE;
+		int movesSearched = 0;
+		int move;
+		while ((move = movePicker.next()) != Move.NONE) {
+			if ((ply == 0) && (rootMoves != null) && !rootMoves.contains(move))
+				continue;
+			boolean isQuiet = !Move.isCapture(move) && !Move.isPromotion(move);
+			boolean isPawnMove = board.getPiece(Move.from(move))
+					% BitBoard.BLACK_OFFSET == BitBoard.PAWN;
+			halfmoveClocks[ply + 1] = (isQuiet && !isPawnMove) ? halfmoveClocks[ply] + 1 : 0;
+			board.makeMove(move);
+			boolean givesCheck = board.isCheck(!blackToMove);
+			if (isFutile && isQuiet && !givesCheck && (movesSearched > 0)) {
+				board.unmakeMove(move);
+				continue;
+			}
+			int score;
+			if (movesSearched == 0) {
+				score = -negamax(depth - 1, ply + 1, -beta, -alpha, !blackToMove);
+			} else {
+				// quiet moves late in the move order rarely turn out best, so they are searched to
+				// a lower depth first, the more so the later they come
+				int reduction = 0;
+				if (engine.isLateMoveReductions() && (depth >= LATE_MOVE_DEPTH)
+						&& (movesSearched >= FULL_DEPTH_MOVES) && isQuiet && !isCheck
+						&& !givesCheck) {
+					reduction = REDUCTIONS[Math.min(depth, Engine.MAX_PLY)][Math.min(movesSearched,
+							Engine.MAX_PLY)];
+					if (beta - alpha > 1)
+						reduction--;
+					reduction = Math.max(0, Math.min(reduction, depth - 2));
+				}
+				score = -negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha,
+						!blackToMove);
+				if ((score > alpha) && (reduction > 0))
+					score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha, !blackToMove);
+				if ((score > alpha) && (score < beta))
+					score = -negamax(depth - 1, ply + 1, -beta, -alpha, !blackToMove);
+			}
+			board.unmakeMove(move);
+			movesSearched++;
+			// the scores of a stopped search are meaningless, but the root keeps its first move
+			// so that a move is found even if depth 1 is not completed
+			if (engine.isStopped() && ((ply > 0) || (movesSearched > 1)))
+				return (ply > 0) ? 0 : bestScore;
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				updatePrincipalVariation(ply, move);
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta) {
+					if (isQuiet)
+						updateQuietMove(move, depth, ply, blackToMove);
+					break;
+				}
+			}
+		}
+		if (bestMove == Move.NONE)
+			return isCheck ? -Engine.MATE + ply : 0;
+
+		int bound = (bestScore >= beta) ? TranspositionTable.LOWER_BOUND
+				: ((bestScore > originalAlpha) ? TranspositionTable.EXACT
+						: TranspositionTable.UPPER_BOUND);
+		table.store(key, (bound == TranspositionTable.UPPER_BOUND) ? Move.NONE : bestMove,
+				bestScore, depth, bound, ply);
+		return bestScore;
+	}
+
+	/**
+	 * This method searches the captures of the current position until the position is quiet, so
+	 * that positions in the middle of an exchange are not evaluated. The player to move may instead
+	 * accept the evaluation of the position (stand pat), since a quiet move is usually at least as
+	 * good, unless the player is in check, in which case every move is searched.
+	 * 
+	 * @param ply         the number of moves made since the root
+	 * @param alpha       the score the player to move is already guaranteed
+	 * @param beta        the score above which the opponent will avoid this position
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the score of the position for the player to move
+	 */
+	private int quiescence(int ply, int alpha, int beta, boolean blackToMove) {
+		principalVariationLengths[ply] = 0;
+		if (engine.isStopped())
+			return 0;
+		nodes++;
+		checkLimits();
+		if (ply == Engine.MAX_PLY)
+			return Evaluation.evaluate(board, blackToMove, pawnTable);
+
+		boolean isCheck = board.isCheck(blackToMove);
+		int bestScore = -Engine.INFINITY;
+		MovePicker movePicker = movePickers[ply];
+		if (isCheck) {
+			movePicker.start(board, blackToMove, Move.NONE, killers[ply],
+					history[blackToMove ? 1 : 0]);
+		} else {
+			bestScore = Evaluation.evaluate(board, blackToMove, pawnTable);
+			if (bestScore >= beta)
+				return bestScore;
+			if (bestScore > alpha)
+				alpha = bestScore;
+			movePicker.startQuiescence(board, blackToMove);
+		}
+
+		int move;
+		while ((move = movePicker.next()) != Move.NONE) {
+			board.makeMove(move);
+			int score = -quiescence(ply + 1, -beta, -alpha, !blackToMove);
+			board.unmakeMove(move);
+			// the scores of a stopped search are meaningless, and the best score may still be the
+			// one that marks a checkmate
+			if (engine.isStopped())
+				return 0;
+			if (score > bestScore) {
+				bestScore = score;
+				updatePrincipalVariation(ply, move);
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta)
+					break;
+			}
+		}
+		// a player in check without a move is checkmated
+		if (bestScore == -Engine.INFINITY)
+			return -Engine.MATE + ply;
+		return bestScore;
+	}
+
+	/**
+	 * This method sets the best line at the given ply to the given move followed by the best line
+	 * at the next ply.
+	 * 
+	 * @param ply  the ply
+	 * @param move the best move at the ply
+	 */
+	private void updatePrincipalVariation(int ply, int move) {
+		int[] line = principalVariations[ply];
+		int length = principalVariationLengths[ply + 1];
+		line[0] = move;
+		System.arraycopy(principalVariations[ply + 1], 0, line, 1, length);
+		principalVariationLengths[ply] = length + 1;
+	}
+}
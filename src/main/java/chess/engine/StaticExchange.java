@@ -0,0 +1,125 @@
+package chess.engine;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Move;
+
+/**
+ * This class works out the material won or lost by a capture without searching it (static
+ * exchange evaluation). Both players keep capturing on the target square with their least
+ * valuable attacker, including the pieces revealed behind earlier attackers, and either player
+ * may stop the exchange when continuing would lose material.
+ */
+public final class StaticExchange {
+	// the value of each piece type in an exchange, indexed as in BitBoard; the king is worth more
+	// than everything else together, so capturing it ends any exchange
+	private static final int[] VALUES = { 100, 320, 330, 500, 900, 20000 };
+	// an exchange on one square has at most 32 captures, which is the length of the array that
+	// evaluate() works in
+	public static final int MAX_CAPTURES = 32;
+
+	/**
+	 * This constructor is private since this class only contains static methods.
+	 */
+	private StaticExchange() {
+	}
+
+	/**
+	 * This method returns the material the player making the given move wins by it once the
+	 * exchange on the target square is over, assuming both players only capture on that square. It
+	 * allocates a new array for the exchange, so the search uses the other version of this method.
+	 * 
+	 * @param board the board, in the position before the move
+	 * @param move  the legal move
+	 * @return the material won in centipawns, which is negative if the move loses material
+	 */
+	public static int evaluate(AbstractBoard board, int move) {
+		return evaluate(board, move, new int[MAX_CAPTURES]);
+	}
+
+	/**
+	 * This method returns the material the player making the given move wins by it once the
+	 * exchange on the target square is over, working in the given array so that no memory is
+	 * allocated.
+	 * 
+	 * @param board the board, in the position before the move
+	 * @param move  the legal move
+	 * @param gains an array of at least MAX_CAPTURES elements, whose contents are overwritten
+	 * @return the material won in centipawns, which is negative if the move loses material
+	 */
+	public static int evaluate(AbstractBoard board, int move, int[] gains) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int piece = board.getPiece(from);
+		boolean isBlack = piece >= BitBoard.BLACK_OFFSET;
+		int type = piece % BitBoard.BLACK_OFFSET;
+		long occupied = board.getOccupancy() & ~(1L << from);
+
+		// gains[i] is the material won by the player making capture i if the exchange then stops
+		gains[0] = 0;
+		if (Move.flags(move) == Move.EN_PASSANT) {
+			gains[0] = VALUES[BitBoard.PAWN];
+			occupied &= ~(1L << (to + (isBlack ? -8 : 8)));
+		} else if (Move.isCapture(move)) {
+			gains[0] = VALUES[board.getPiece(to) % BitBoard.BLACK_OFFSET];
+		}
+		if (Move.isPromotion(move)) {
+			type = Move.promotionType(move);
+			gains[0] += VALUES[type] - VALUES[BitBoard.PAWN];
+		}
+
+		int captures = 0;
+		boolean blackCaptures = !isBlack;
+		long attackers = board.getAttackers(to, occupied);
+		while (captures < MAX_CAPTURES - 1) {
+			int attacker = leastValuableAttacker(board, attackers, blackCaptures);
+			if (attacker < 0)
+				break;
+			// the king may only capture if the other player cannot capture it in return
+			int attackerType = board.getPiece(attacker) % BitBoard.BLACK_OFFSET;
+			if ((attackerType == BitBoard.KING)
+					&& (leastValuableAttacker(board, attackers & ~(1L << attacker),
+							!blackCaptures) >= 0))
+				break;
+			captures++;
+			gains[captures] = VALUES[type] - gains[captures - 1];
+			type = attackerType;
+			occupied &= ~(1L << attacker);
+			attackers = board.getAttackers(to, occupied);
+			blackCaptures = !blackCaptures;
+		}
+
+		// each player only makes a capture if it gains more than stopping before it
+		while (captures > 0) {
+			gains[captures - 1] = -Math.max(-gains[captures - 1], gains[captures]);
+			captures--;
+		}
+		return gains[0];
+	}
+
+	/**
+	 * This method finds the least valuable of the given attackers of the given color.
+	 * 
+	 * @param board     the board
+	 * @param attackers the mask of squares of the attacking pieces of both colors
+	 * @param isBlack   true to find a black piece and false to find a white piece
+	 * @return the square of the piece, or -1 if there is none
+	 */
+	private static int leastValuableAttacker(AbstractBoard board, long attackers, boolean isBlack) {
+		int bestSquare = -1;
+		int bestType = BitBoard.KING + 1;
+		while (attackers != 0) {
+			int square = Long.numberOfTrailingZeros(attackers);
+			attackers &= attackers - 1;
+			int piece = board.getPiece(square);
+			if ((piece >= BitBoard.BLACK_OFFSET) != isBlack)
+				continue;
+			int type = piece % BitBoard.BLACK_OFFSET;
+			if (type < bestType) {
+				bestSquare = square;
+				bestType = type;
+			}
+		}
+		return bestSquare;
+	}
+}
@@ -0,0 +1,833 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+
+/**
+ * This class is one file of a SyzygyTablebase: a WDL file, holding the result of every position
+ * of one set of pieces, or a DTZ file, holding the number of plies to the next capture, pawn move,
+ * or checkmate. The file is named by its material signature with a "v" between the pieces of the
+ * two players, such as "KRvK", and also covers the positions in which the colors are swapped.
+ * 
+ * A position is indexed by the squares of its pieces after the board is mirrored, so that the
+ * first piece, or the leading pawn if there are pawns, is on the a1-d1-d4 triangle or on files a
+ * to d. The pieces are split into groups of identical pieces, and the squares of each group are
+ * counted as one combination, whatever the order of its pieces. WDL files hold a table for each
+ * player to move, while DTZ files hold one for a single player, and files with pawns hold a table
+ * for each file of the leading pawn.
+ * 
+ * The values of each table are compressed by recursive pairing, in which each symbol stands for a
+ * value or for a pair of symbols, and the symbols are stored in blocks of a fixed size with a
+ * canonical Huffman code. A sparse index gives the block of every span-th value, from which the
+ * lengths of the blocks lead to the block holding a given value, so only that block is decoded.
+ * Numbers are little-endian, except the codes of the blocks, which are read as big-endian words.
+ * Squares are numbered from a1, as in the files, rather than from a8 as in BitBoard.
+ */
+final class SyzygyTable {
+	static final int WDL_MAGIC = 0x5d23e871;
+	static final int DTZ_MAGIC = 0xa50c66d7;
+	// the value returned when a DTZ file holds the table of the other player to move
+	static final int OTHER_SIDE = Integer.MIN_VALUE + 1;
+
+	// the flags of the file
+	static final int SPLIT = 1;
+	static final int HAS_PAWNS = 2;
+	// the flags of a table
+	static final int BLACK_TO_MOVE = 1;
+	static final int MAPPED = 2;
+	static final int WIN_PLIES = 4;
+	static final int LOSS_PLIES = 8;
+	static final int WIDE = 16;
+	static final int SINGLE_VALUE = 128;
+	// the symbol that marks a leaf of the tree of pairs
+	static final int LEAF = 0xfff;
+
+	// the number of ways to choose k squares out of n
+	private static final long[][] BINOMIAL = new long[6][64];
+	// the index of each square below the a1-h8 diagonal
+	private static final int[] MAP_B1H1H7 = new int[64];
+	// the index of each square of the a1-d1-d4 triangle, with the squares of the diagonal last
+	private static final int[] MAP_A1D1D4 = new int[64];
+	// the index of each placement of two kings, the first on the a1-d1-d4 triangle
+	private static final int[][] MAP_KK = new int[10][64];
+	// the number of squares left for the other pawns when the leading pawn is on each square
+	private static final int[] MAP_PAWNS = new int[64];
+	// the index of each square of the leading pawn, and the number of indices of each file, by
+	// the number of leading pawns
+	private static final int[][] LEAD_PAWN_INDEX = new int[6][64];
+	private static final int[][] LEAD_PAWNS_SIZE = new int[6][4];
+	// the map of a DTZ file to use for each result, from a loss to a win
+	private static final int[] WDL_MAP = { 1, 3, 0, 2, 0 };
+
+	static {
+		Arrays.fill(MAP_A1D1D4, -1);
+		int code = 0;
+		for (int square = 0; square < 64; square++) {
+			if (offDiagonal(square) < 0)
+				MAP_B1H1H7[square] = code++;
+		}
+		code = 0;
+		for (int square = 0; square < 28; square++) {
+			if ((offDiagonal(square) < 0) && ((square & 7) < 4))
+				MAP_A1D1D4[square] = code++;
+		}
+		for (int square = 0; square < 28; square += 9) {
+			MAP_A1D1D4[square] = code++;
+		}
+
+		// placements with both kings on the diagonal come last, and the second king is never
+		// above the diagonal when the first is on it
+		code = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			for (int index = 0; index < 10; index++) {
+				int first = 0;
+				while (MAP_A1D1D4[first] != index) {
+					first++;
+				}
+				boolean isFirstOnDiagonal = offDiagonal(first) == 0;
+				for (int second = 0; second < 64; second++) {
+					boolean isSecondOnDiagonal = offDiagonal(second) == 0;
+					if ((Math.abs((first & 7) - (second & 7)) <= 1)
+							&& (Math.abs((first >> 3) - (second >> 3)) <= 1))
+						continue;
+					if (isFirstOnDiagonal && (offDiagonal(second) > 0))
+						continue;
+					if ((pass == 1) == (isFirstOnDiagonal && isSecondOnDiagonal))
+						MAP_KK[index][second] = code++;
+				}
+			}
+		}
+
+		BINOMIAL[0][0] = 1;
+		for (int n = 1; n < 64; n++) {
+			for (int k = 0; (k < BINOMIAL.length) && (k <= n); k++) {
+				BINOMIAL[k][n] = ((k > 0) ? BINOMIAL[k - 1][n - 1] : 0)
+						+ ((k < n) ? BINOMIAL[k][n - 1] : 0);
+			}
+		}
+
+		// the pawn nearest the edge, and then the one on the lowest rank, leads
+		int availableSquares = 47;
+		for (int leadPawns = 1; leadPawns < LEAD_PAWN_INDEX.length; leadPawns++) {
+			for (int file = 0; file < 4; file++) {
+				int index = 0;
+				for (int rank = 1; rank < 7; rank++) {
+					int square = 8 * rank + file;
+					if (leadPawns == 1) {
+						MAP_PAWNS[square] = availableSquares--;
+						MAP_PAWNS[square ^ 7] = availableSquares--;
+					}
+					LEAD_PAWN_INDEX[leadPawns][square] = index;
+					index += BINOMIAL[leadPawns - 1][MAP_PAWNS[square]];
+				}
+				LEAD_PAWNS_SIZE[leadPawns][file] = index;
+			}
+		}
+	}
+
+	/**
+	 * This class is one table of a file, for one player to move and one file of the leading pawn.
+	 */
+	private static final class Table {
+		private final int[] pieces; // the piece of each position of the order of the table
+		private final int[] groupLengths; // the number of pieces of each group, then 0
+		private final long[] groupFactors; // the factor of the index of each group, then the size
+		private int flags;
+		private int minLength; // the length of the shortest code, or the value of every position
+		private long[] bases; // the first code of each length, shifted to the top of a long
+		private int[] lowestSymbols; // the first symbol of each length
+		private int[] lefts;
+		private int[] rights;
+		private int[] symbolLengths; // the number of values of each symbol minus one
+		private long blockSize;
+		private long span;
+		private int blocks;
+		private int blockLengthCount;
+		private int sparseIndexSize;
+		private int sparseIndex;
+		private int blockLengths;
+		private int data;
+		private final int[] mapIndices = new int[4];
+
+		/**
+		 * This method creates a table of the given number of pieces.
+		 * 
+		 * @param pieceCount the number of pieces
+		 */
+		private Table(int pieceCount) {
+			pieces = new int[pieceCount];
+			groupLengths = new int[pieceCount + 1];
+			groupFactors = new long[pieceCount + 1];
+		}
+
+		/**
+		 * @return the number of positions of the table
+		 */
+		private long getSize() {
+			int groups = 0;
+			while (groupLengths[groups] != 0) {
+				groups++;
+			}
+			return groupFactors[groups];
+		}
+	}
+
+	private final boolean isDtz;
+	private final int pieceCount;
+	private final boolean hasPawns;
+	private final boolean isSymmetric;
+	private final boolean hasUniquePieces;
+	private final boolean hasPawnsOnBothSides;
+	private final Table[][] tables; // indexed by the player to move and the file of the lead pawn
+	private final ByteBuffer buffer;
+	private int map; // the position of the maps of a DTZ file
+
+	/**
+	 * This method reads the tables of the given file.
+	 * 
+	 * @param signature the material signature of the file, such as "KRvK"
+	 * @param buffer    the contents of the file, in big-endian order
+	 * @param isDtz     true for a DTZ file and false for a WDL file
+	 * @throws IOException              if the file does not match its signature or is truncated
+	 * @throws IllegalArgumentException if the signature is invalid
+	 */
+	SyzygyTable(String signature, ByteBuffer buffer, boolean isDtz) throws IOException {
+		String[] sides = signature.split("v", -1);
+		if ((sides.length != 2) || !sides[1].startsWith("K"))
+			throw new IllegalArgumentException("Invalid material signature: " + signature);
+		Tablebase.getPieces(sides[0] + sides[1]);
+		this.isDtz = isDtz;
+		this.buffer = buffer;
+		pieceCount = sides[0].length() + sides[1].length();
+		int whitePawns = count(sides[0], 'P');
+		int blackPawns = count(sides[1], 'P');
+		hasPawns = whitePawns + blackPawns > 0;
+		isSymmetric = sides[0].equals(sides[1]);
+		// the player with fewer pawns leads, as long as it has any
+		boolean isWhiteLeading = (blackPawns == 0)
+				|| ((whitePawns > 0) && (blackPawns >= whitePawns));
+		hasPawnsOnBothSides = hasPawns && ((isWhiteLeading ? blackPawns : whitePawns) > 0);
+		boolean isUnique = false;
+		for (String side : sides) {
+			for (char type : "QRBNP".toCharArray()) {
+				isUnique |= count(side, type) == 1;
+			}
+		}
+		hasUniquePieces = isUnique;
+
+		try {
+			if (getIntLE(0) != (isDtz ? DTZ_MAGIC : WDL_MAGIC)
+					|| (((buffer.get(4) & HAS_PAWNS) != 0) != hasPawns)
+					|| (((buffer.get(4) & SPLIT) != 0) == isSymmetric))
+				throw new IOException("Invalid Syzygy file for " + signature);
+			int sideCount = (!isDtz && !isSymmetric) ? 2 : 1;
+			int fileCount = hasPawns ? 4 : 1;
+			tables = new Table[sideCount][fileCount];
+			int position = 5;
+			for (int file = 0; file < fileCount; file++) {
+				int orders = getByte(position);
+				int pawnOrders = hasPawnsOnBothSides ? getByte(position + 1) : 0xff;
+				position += hasPawnsOnBothSides ? 2 : 1;
+				for (int side = 0; side < sideCount; side++) {
+					tables[side][file] = new Table(pieceCount);
+				}
+				for (int i = 0; i < pieceCount; i++, position++) {
+					for (int side = 0; side < sideCount; side++) {
+						tables[side][file].pieces[i] = (getByte(position) >> (4 * side)) & 15;
+					}
+				}
+				for (int side = 0; side < sideCount; side++) {
+					setGroups(tables[side][file], (orders >> (4 * side)) & 15,
+							(pawnOrders >> (4 * side)) & 15, file);
+				}
+			}
+			position += position & 1;
+			for (Table[] fileTables : transpose(tables)) {
+				for (Table table : fileTables) {
+					position = readSizes(table, position);
+				}
+			}
+			if (isDtz)
+				position = readMaps(position);
+			for (Table[] fileTables : transpose(tables)) {
+				for (Table table : fileTables) {
+					table.sparseIndex = position;
+					position += 6 * table.sparseIndexSize;
+				}
+			}
+			for (Table[] fileTables : transpose(tables)) {
+				for (Table table : fileTables) {
+					table.blockLengths = position;
+					position += 2 * table.blockLengthCount;
+				}
+			}
+			for (Table[] fileTables : transpose(tables)) {
+				for (Table table : fileTables) {
+					position = (position + 63) & ~63;
+					table.data = position;
+					position += table.blocks * table.blockSize;
+				}
+			}
+			if (position > buffer.capacity())
+				throw new IOException("Truncated Syzygy file for " + signature);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Truncated Syzygy file for " + signature, e);
+		}
+	}
+
+	/**
+	 * This method looks up the current position of the given board, whose pieces must be those of
+	 * the file, possibly with the colors swapped.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param isSwapped   true if the pieces of white are those listed after the "v" of the
+	 *                    signature and false otherwise
+	 * @param wdl         for a DTZ file, the result of the position from -2 for a loss to 2 for a
+	 *                    win, as given by the WDL file
+	 * @return for a WDL file, the result from -2 for a loss to 2 for a win, in which -1 is a loss
+	 *         and 1 a win that the fifty-move rule turns into a draw; for a DTZ file, the number
+	 *         of plies to the next capture, pawn move, or checkmate, or OTHER_SIDE if the file
+	 *         only holds the positions of the other player to move
+	 */
+	int probe(AbstractBoard board, boolean blackToMove, boolean isSwapped, int wdl) {
+		// the file holds the positions in which the player listed first, or white in a symmetric
+		// file, is to move
+		boolean isFlipped = isSwapped || (isSymmetric && blackToMove);
+		int flipColor = isFlipped ? 8 : 0;
+		int flipSquare = isFlipped ? 56 : 0;
+		int side = (isFlipped != blackToMove) ? 1 : 0;
+		int[] squares = new int[pieceCount];
+		int[] pieces = new int[pieceCount];
+		int size = 0;
+		int file = 0;
+		long occupied = board.getOccupancy();
+		if (hasPawns) {
+			// the pawns of the leading player are taken first, with the one nearest the edge
+			int leadPawn = tables[0][0].pieces[0];
+			for (long bits = occupied; bits != 0; bits &= bits - 1) {
+				int square = Long.numberOfTrailingZeros(bits);
+				if ((getPiece(board, square) ^ flipColor) == leadPawn) {
+					squares[size] = square ^ 56 ^ flipSquare;
+					pieces[size++] = leadPawn;
+					occupied &= ~(1L << square);
+				}
+			}
+			int leader = 0;
+			for (int i = 1; i < size; i++) {
+				if (MAP_PAWNS[squares[i]] > MAP_PAWNS[squares[leader]])
+					leader = i;
+			}
+			swap(squares, 0, leader);
+			file = Math.min(squares[0] & 7, 7 - (squares[0] & 7));
+		}
+		int leadPawnCount = size;
+		if (isDtz && ((tables[0][file].flags & BLACK_TO_MOVE) != side)
+				&& (hasPawns || !isSymmetric))
+			return OTHER_SIDE;
+		for (long bits = occupied; bits != 0; bits &= bits - 1) {
+			int square = Long.numberOfTrailingZeros(bits);
+			squares[size] = square ^ 56 ^ flipSquare;
+			pieces[size++] = getPiece(board, square) ^ flipColor;
+		}
+
+		// put the pieces in the order of the table
+		Table table = tables[isDtz ? 0 : side][file];
+		for (int i = leadPawnCount; i < size - 1; i++) {
+			for (int j = i + 1; j < size; j++) {
+				if (table.pieces[i] == pieces[j]) {
+					swap(pieces, i, j);
+					swap(squares, i, j);
+					break;
+				}
+			}
+		}
+		int value = decompress(table, getIndex(table, squares, leadPawnCount));
+		return isDtz ? getDistance(table, value, wdl) : value - 2;
+	}
+
+	/**
+	 * This method returns the index of a position in one of the tables of the file. The squares
+	 * are mirrored as needed and the squares of each group are sorted, so the array is changed.
+	 * 
+	 * @param side          0 for the table of the player listed first to move and 1 for the other
+	 * @param file          the file of the leading pawn, from 0 for the a-file to 3 for the d-file,
+	 *                      or 0 if there are no pawns
+	 * @param squares       the square of each piece, numbered from a1, in the order of the table
+	 *                      given by getPieces(), with the leading pawn first
+	 * @param leadPawnCount the number of pawns of the leading player, or 0 if there are no pawns
+	 * @return the index
+	 */
+	long getIndex(int side, int file, int[] squares, int leadPawnCount) {
+		return getIndex(tables[side][file], squares, leadPawnCount);
+	}
+
+	/**
+	 * This method returns the pieces of one of the tables of the file in the order in which they
+	 * are indexed, numbered from 1 for a white pawn to 6 for a white king and from 9 for a black
+	 * pawn to 14 for a black king, where white is the player listed first in the signature.
+	 * 
+	 * @param side 0 for the table of the player listed first to move and 1 for the other
+	 * @param file the file of the leading pawn, or 0 if there are no pawns
+	 * @return the pieces
+	 */
+	int[] getPieces(int side, int file) {
+		return tables[side][file].pieces.clone();
+	}
+
+	/**
+	 * This method returns the number of positions of one of the tables of the file.
+	 * 
+	 * @param side 0 for the table of the player listed first to move and 1 for the other
+	 * @param file the file of the leading pawn, or 0 if there are no pawns
+	 * @return the number of positions
+	 */
+	long getSize(int side, int file) {
+		return tables[side][file].getSize();
+	}
+
+	/**
+	 * This method returns the stored value of the position with the given index, before the maps
+	 * of a DTZ file are applied.
+	 * 
+	 * @param side  0 for the table of the player listed first to move and 1 for the other
+	 * @param file  the file of the leading pawn, or 0 if there are no pawns
+	 * @param index the index, from getIndex()
+	 * @return the value
+	 */
+	int getValue(int side, int file, long index) {
+		return decompress(tables[side][file], index);
+	}
+
+	/**
+	 * This method converts a piece of the given board to the numbering of the files.
+	 * 
+	 * @param board  the board
+	 * @param square the square of the piece
+	 * @return the piece, from 1 for a white pawn to 14 for a black king
+	 */
+	private static int getPiece(AbstractBoard board, int square) {
+		int piece = board.getPiece(square);
+		return (piece >= BitBoard.BLACK_OFFSET) ? piece - BitBoard.BLACK_OFFSET + 9 : piece + 1;
+	}
+
+	/**
+	 * This method returns the index of a position in the given table.
+	 * 
+	 * @param table         the table
+	 * @param squares       the square of each piece, in the order of the table
+	 * @param leadPawnCount the number of pawns of the leading player
+	 * @return the index
+	 */
+	private long getIndex(Table table, int[] squares, int leadPawnCount) {
+		int size = squares.length;
+		if ((squares[0] & 7) > 3) {
+			for (int i = 0; i < size; i++) {
+				squares[i] ^= 7;
+			}
+		}
+		long index;
+		if (hasPawns) {
+			index = LEAD_PAWN_INDEX[leadPawnCount][squares[0]];
+			for (int i = 2; i < leadPawnCount; i++) {
+				for (int j = i; (j > 1) && (MAP_PAWNS[squares[j]] < MAP_PAWNS[squares[j - 1]]);
+						j--) {
+					swap(squares, j, j - 1);
+				}
+			}
+			for (int i = 1; i < leadPawnCount; i++) {
+				index += BINOMIAL[i][MAP_PAWNS[squares[i]]];
+			}
+		} else {
+			if ((squares[0] >> 3) > 3) {
+				for (int i = 0; i < size; i++) {
+					squares[i] ^= 56;
+				}
+			}
+			// the first piece of the leading group off the a1-h8 diagonal is put below it
+			for (int i = 0; i < table.groupLengths[0]; i++) {
+				int offset = offDiagonal(squares[i]);
+				if (offset == 0)
+					continue;
+				if (offset > 0) {
+					for (int j = i; j < size; j++) {
+						squares[j] = ((squares[j] >> 3) | (squares[j] << 3)) & 63;
+					}
+				}
+				break;
+			}
+			if (hasUniquePieces) {
+				index = getUniqueIndex(squares);
+			} else {
+				index = MAP_KK[MAP_A1D1D4[squares[0]]][squares[1]];
+			}
+		}
+		index *= table.groupFactors[0];
+
+		// the squares of each other group are counted as a combination of the squares left
+		boolean isRemainingPawns = hasPawnsOnBothSides;
+		int start = table.groupLengths[0];
+		for (int group = 1; table.groupLengths[group] != 0; group++) {
+			int length = table.groupLengths[group];
+			Arrays.sort(squares, start, start + length);
+			long combination = 0;
+			for (int i = 0; i < length; i++) {
+				int square = squares[start + i];
+				int lower = 0;
+				for (int j = 0; j < start; j++) {
+					if (square > squares[j])
+						lower++;
+				}
+				combination += BINOMIAL[i + 1][square - lower - (isRemainingPawns ? 8 : 0)];
+			}
+			isRemainingPawns = false;
+			index += combination * table.groupFactors[group];
+			start += length;
+		}
+		return index;
+	}
+
+	/**
+	 * This method returns the index of the first three pieces of a position without pawns in
+	 * which they are all different, with the first on the a1-d1-d4 triangle and none of them above
+	 * the a1-h8 diagonal before the first that is off it.
+	 * 
+	 * @param squares the square of each piece
+	 * @return the index
+	 */
+	private static int getUniqueIndex(int[] squares) {
+		int lower1 = (squares[1] > squares[0]) ? 1 : 0;
+		int lower2 = ((squares[2] > squares[0]) ? 1 : 0) + ((squares[2] > squares[1]) ? 1 : 0);
+		if (offDiagonal(squares[0]) != 0)
+			return (MAP_A1D1D4[squares[0]] * 63 + (squares[1] - lower1)) * 62 + squares[2]
+					- lower2;
+		if (offDiagonal(squares[1]) != 0)
+			return (6 * 63 + (squares[0] >> 3) * 28 + MAP_B1H1H7[squares[1]]) * 62 + squares[2]
+					- lower2;
+		if (offDiagonal(squares[2]) != 0)
+			return 6 * 63 * 62 + 4 * 28 * 62 + (squares[0] >> 3) * 7 * 28
+					+ ((squares[1] >> 3) - lower1) * 28 + MAP_B1H1H7[squares[2]];
+		return 6 * 63 * 62 + 4 * 28 * 62 + 4 * 7 * 28 + (squares[0] >> 3) * 7 * 6
+				+ ((squares[1] >> 3) - lower1) * 6 + (squares[2] >> 3) - lower2;
+	}
+
+	/**
+	 * This method splits the pieces of a table into groups and finds the factor of the index of
+	 * each group, given the order in which the groups are encoded.
+	 * 
+	 * @param table     the table
+	 * @param order     the place in the order of the leading group
+	 * @param pawnOrder the place in the order of the pawns of the other player, if both players
+	 *                  have pawns
+	 * @param file      the file of the leading pawn, or 0 if there are no pawns
+	 */
+	private void setGroups(Table table, int order, int pawnOrder, int file) {
+		// the leading group holds the leading pawns, the first three pieces if they are all
+		// different, or else the two kings
+		int[] lengths = table.groupLengths;
+		int groups = 0;
+		int firstLength = hasPawns ? 0 : hasUniquePieces ? 3 : 2;
+		lengths[0] = 1;
+		for (int i = 1; i < pieceCount; i++) {
+			if ((--firstLength > 0) || (table.pieces[i] == table.pieces[i - 1])) {
+				lengths[groups]++;
+			} else {
+				lengths[++groups] = 1;
+			}
+		}
+		lengths[++groups] = 0;
+
+		int next = hasPawnsOnBothSides ? 2 : 1;
+		int freeSquares = 64 - lengths[0] - (hasPawnsOnBothSides ? lengths[1] : 0);
+		long factor = 1;
+		for (int k = 0; (next < groups) || (k == order) || (k == pawnOrder); k++) {
+			if (k == order) {
+				table.groupFactors[0] = factor;
+				factor *= hasPawns ? LEAD_PAWNS_SIZE[lengths[0]][file]
+						: hasUniquePieces ? 31332 : 462;
+			} else if (k == pawnOrder) {
+				table.groupFactors[1] = factor;
+				factor *= BINOMIAL[lengths[1]][48 - lengths[0]];
+			} else {
+				table.groupFactors[next] = factor;
+				factor *= BINOMIAL[lengths[next]][freeSquares];
+				freeSquares -= lengths[next++];
+			}
+		}
+		table.groupFactors[groups] = factor;
+	}
+
+	/**
+	 * This method reads the sizes of the blocks of a table and its Huffman code and tree of
+	 * pairs.
+	 * 
+	 * @param table    the table
+	 * @param position the position of the sizes in the file
+	 * @return the position after them
+	 */
+	private int readSizes(Table table, int position) {
+		table.flags = getByte(position++);
+		if ((table.flags & SINGLE_VALUE) != 0) {
+			table.minLength = getByte(position++);
+			return position;
+		}
+		table.blockSize = 1L << getByte(position++);
+		table.span = 1L << getByte(position++);
+		table.sparseIndexSize = (int) ((table.getSize() + table.span - 1) / table.span);
+		int padding = getByte(position++);
+		table.blocks = getIntLE(position);
+		position += 4;
+		// the lengths of the blocks are padded so that the sparse index stays in range
+		table.blockLengthCount = table.blocks + padding;
+		int maxLength = getByte(position++);
+		table.minLength = getByte(position++);
+
+		// longer codes come first and have lower values, so the first code of each length,
+		// aligned to the top of a long, decreases with the length
+		int lengths = maxLength - table.minLength + 1;
+		table.lowestSymbols = new int[lengths];
+		for (int i = 0; i < lengths; i++) {
+			table.lowestSymbols[i] = getShortLE(position + 2 * i);
+		}
+		position += 2 * lengths;
+		table.bases = new long[lengths];
+		for (int i = lengths - 2; i >= 0; i--) {
+			table.bases[i] = (table.bases[i + 1] + table.lowestSymbols[i]
+					- table.lowestSymbols[i + 1]) / 2;
+		}
+		for (int i = 0; i < lengths; i++) {
+			table.bases[i] <<= 64 - i - table.minLength;
+		}
+
+		int symbols = getShortLE(position);
+		position += 2;
+		table.lefts = new int[symbols];
+		table.rights = new int[symbols];
+		for (int symbol = 0; symbol < symbols; symbol++) {
+			int pair = position + 3 * symbol;
+			table.lefts[symbol] = ((getByte(pair + 1) & 15) << 8) | getByte(pair);
+			table.rights[symbol] = (getByte(pair + 2) << 4) | (getByte(pair + 1) >> 4);
+		}
+		table.symbolLengths = new int[symbols];
+		boolean[] isVisited = new boolean[symbols];
+		for (int symbol = 0; symbol < symbols; symbol++) {
+			setSymbolLength(table, symbol, isVisited);
+		}
+		return position + 3 * symbols + (symbols & 1);
+	}
+
+	/**
+	 * This method finds the number of values a symbol stands for, minus one, after those of the
+	 * symbols of its pair.
+	 * 
+	 * @param table     the table
+	 * @param symbol    the symbol
+	 * @param isVisited whether the length of each symbol has been found
+	 */
+	private static void setSymbolLength(Table table, int symbol, boolean[] isVisited) {
+		if (isVisited[symbol])
+			return;
+		isVisited[symbol] = true;
+		if (table.rights[symbol] == LEAF)
+			return;
+		setSymbolLength(table, table.lefts[symbol], isVisited);
+		setSymbolLength(table, table.rights[symbol], isVisited);
+		table.symbolLengths[symbol] = table.symbolLengths[table.lefts[symbol]]
+				+ table.symbolLengths[table.rights[symbol]] + 1;
+	}
+
+	/**
+	 * This method finds the maps of a DTZ file, which turn the stored values of each result into
+	 * distances.
+	 * 
+	 * @param position the position of the maps in the file
+	 * @return the position after them
+	 */
+	private int readMaps(int position) {
+		map = position;
+		for (Table table : tables[0]) {
+			if ((table.flags & MAPPED) == 0)
+				continue;
+			if ((table.flags & WIDE) != 0) {
+				position += position & 1;
+				for (int i = 0; i < 4; i++) {
+					table.mapIndices[i] = (position - map) / 2 + 1;
+					position += 2 * getShortLE(position) + 2;
+				}
+			} else {
+				for (int i = 0; i < 4; i++) {
+					table.mapIndices[i] = position - map + 1;
+					position += getByte(position) + 1;
+				}
+			}
+		}
+		return position + (position & 1);
+	}
+
+	/**
+	 * This method converts a value of a DTZ file into a number of plies.
+	 * 
+	 * @param table the table of the value
+	 * @param value the value
+	 * @param wdl   the result of the position, from -2 for a loss to 2 for a win
+	 * @return the number of plies
+	 */
+	private int getDistance(Table table, int value, int wdl) {
+		if ((table.flags & MAPPED) != 0) {
+			int index = table.mapIndices[WDL_MAP[wdl + 2]] + value;
+			value = ((table.flags & WIDE) != 0) ? getShortLE(map + 2 * index)
+					: getByte(map + index);
+		}
+		// the distances of results the fifty-move rule changes are always stored in moves
+		if (((wdl == 2) && ((table.flags & WIN_PLIES) == 0))
+				|| ((wdl == -2) && ((table.flags & LOSS_PLIES) == 0)) || (wdl == 1)
+				|| (wdl == -1))
+			value *= 2;
+		return value + 1;
+	}
+
+	/**
+	 * This method decodes the value of the position with the given index.
+	 * 
+	 * @param table the table
+	 * @param index the index
+	 * @return the value
+	 */
+	private int decompress(Table table, long index) {
+		if ((table.flags & SINGLE_VALUE) != 0)
+			return table.minLength;
+
+		// the sparse index gives the block and offset of the middle value of each span, from
+		// which the block holding the value is found by stepping over whole blocks
+		int k = (int) (index / table.span);
+		int block = getIntLE(table.sparseIndex + 6 * k);
+		int offset = getShortLE(table.sparseIndex + 6 * k + 4);
+		offset += (int) (index % table.span - table.span / 2);
+		while (offset < 0) {
+			offset += getShortLE(table.blockLengths + 2 * --block) + 1;
+		}
+		while (offset > getShortLE(table.blockLengths + 2 * block)) {
+			offset -= getShortLE(table.blockLengths + 2 * block++) + 1;
+		}
+
+		// the codes of the block are read until the one whose values include the offset
+		long position = table.data + block * table.blockSize;
+		long bits = buffer.getLong((int) position);
+		position += 8;
+		int bitCount = 64;
+		int symbol;
+		while (true) {
+			int length = 0;
+			while (Long.compareUnsigned(bits, table.bases[length]) < 0) {
+				length++;
+			}
+			symbol = (int) ((bits - table.bases[length]) >>> (64 - length - table.minLength))
+					+ table.lowestSymbols[length];
+			if (offset < table.symbolLengths[symbol] + 1)
+				break;
+			offset -= table.symbolLengths[symbol] + 1;
+			length += table.minLength;
+			bits <<= length;
+			bitCount -= length;
+			if (bitCount <= 32) {
+				bitCount += 32;
+				long word = (position + 4 <= buffer.capacity())
+						? buffer.getInt((int) position) & 0xffffffffL
+						: 0;
+				bits |= word << (64 - bitCount);
+				position += 4;
+			}
+		}
+
+		// the pairs are expanded until the symbol of a single value
+		while (table.symbolLengths[symbol] != 0) {
+			int left = table.lefts[symbol];
+			if (offset < table.symbolLengths[left] + 1) {
+				symbol = left;
+			} else {
+				offset -= table.symbolLengths[left] + 1;
+				symbol = table.rights[symbol];
+			}
+		}
+		return table.lefts[symbol];
+	}
+
+	/**
+	 * This method returns the distance of a square from the a1-h8 diagonal.
+	 * 
+	 * @param square the square, numbered from a1
+	 * @return the rank minus the file, which is positive above the diagonal
+	 */
+	private static int offDiagonal(int square) {
+		return (square >> 3) - (square & 7);
+	}
+
+	/**
+	 * This method counts the pieces of a type in one side of a signature.
+	 * 
+	 * @param side the pieces of one player, such as "KRP"
+	 * @param type the type, such as 'P'
+	 * @return the number of pieces of the type
+	 */
+	private static int count(String side, char type) {
+		return (int) side.chars().filter(c -> c == type).count();
+	}
+
+	/**
+	 * This method swaps two elements of an array.
+	 * 
+	 * @param array the array
+	 * @param i     the index of the first element
+	 * @param j     the index of the second element
+	 */
+	private static void swap(int[] array, int i, int j) {
+		int element = array[i];
+		array[i] = array[j];
+		array[j] = element;
+	}
+
+	/**
+	 * This method returns the tables of the file by the file of the leading pawn and then by the
+	 * player to move, the order in which their data is stored.
+	 * 
+	 * @param tables the tables by the player to move and then by the file
+	 * @return the tables by the file and then by the player to move
+	 */
+	private static Table[][] transpose(Table[][] tables) {
+		Table[][] transposed = new Table[tables[0].length][tables.length];
+		for (int side = 0; side < tables.length; side++) {
+			for (int file = 0; file < tables[side].length; file++) {
+				transposed[file][side] = tables[side][file];
+			}
+		}
+		return transposed;
+	}
+
+	/**
+	 * @param position the position in the file
+	 * @return the unsigned byte at the position
+	 */
+	private int getByte(int position) {
+		return buffer.get(position) & 0xff;
+	}
+
+	/**
+	 * @param position the position in the file
+	 * @return the unsigned little-endian 16-bit number at the position
+	 */
+	private int getShortLE(int position) {
+		return Short.reverseBytes(buffer.getShort(position)) & 0xffff;
+	}
+
+	/**
+	 * @param position the position in the file
+	 * @return the little-endian 32-bit number at the position
+	 */
+	private int getIntLE(int position) {
+		return Integer.reverseBytes(buffer.getInt(position));
+	}
+}
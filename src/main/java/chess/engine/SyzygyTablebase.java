@@ -0,0 +1,328 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * This class is a tablebase read from a directory of Syzygy files, the format in which the
+ * endgame tablebases of up to seven pieces are published. Each set of pieces has a WDL file with
+ * the extension WDL_EXTENSION, such as "KRvK.rtbw", which gives the result of each position, and
+ * a DTZ file with the extension DTZ_EXTENSION, which gives its distance to the next capture, pawn
+ * move, or checkmate, as described in SyzygyTable. The files are memory-mapped, so they are
+ * loaded only as positions are probed and share the page cache of the operating system with
+ * every other tablebase reading them.
+ * 
+ * The files leave out the positions in which a capture is the best move, and store whatever
+ * value compresses best instead, so the captures of a position, and for distances its pawn moves,
+ * are searched before it is looked up. Positions in which a player can capture en passant are
+ * covered in the same way, since the files do not know about en passant, and positions with
+ * castling rights are not covered. Positions with only the two kings are always drawn, so they
+ * need no file. The files do not hold distances to checkmate, so probeDtm() covers no positions.
+ * A win that the fifty-move rule turns into a draw is a draw for probeWdl(), while probeDtz()
+ * gives its distance of more than 100 plies.
+ */
+public class SyzygyTablebase extends Tablebase {
+	// the system property holding the directory of the tablebase returned by getDefault()
+	public static final String DIRECTORY_PROPERTY = "chess.syzygy";
+	public static final String WDL_EXTENSION = ".rtbw";
+	public static final String DTZ_EXTENSION = ".rtbz";
+
+	// the flag of the result of search() set when a capture or pawn move is the best move
+	private static final int ZEROING_BEST_MOVE = 1;
+
+	private static SyzygyTablebase defaultTablebase = null;
+	private static boolean isDefaultOpened = false;
+
+	private final Map<String, SyzygyTable> wdlTables = new HashMap<>();
+	private final Map<String, SyzygyTable> dtzTables = new HashMap<>();
+	private final int maxPieces;
+
+	/**
+	 * This method opens every Syzygy file in the given directory.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if the directory or one of its files cannot be read, or a file is not a
+	 *                     valid Syzygy file
+	 */
+	public SyzygyTablebase(Path directory) throws IOException {
+		int maxPieces = 2;
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+				"*{" + WDL_EXTENSION + "," + DTZ_EXTENSION + "}")) {
+			for (Path path : paths) {
+				String name = path.getFileName().toString();
+				boolean isDtz = name.endsWith(DTZ_EXTENSION);
+				String signature = name.substring(0, name.length() - DTZ_EXTENSION.length());
+				// the mapping stays valid after the channel is closed
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					if (channel.size() > Integer.MAX_VALUE)
+						throw new IOException(path + " is larger than 2 GB");
+					SyzygyTable table = new SyzygyTable(signature,
+							channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), isDtz);
+					(isDtz ? dtzTables : wdlTables).put(signature, table);
+					if (!isDtz)
+						maxPieces = Math.max(maxPieces, signature.length() - 1);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Invalid Syzygy file name: " + name, e);
+				}
+			}
+		}
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * This method returns the tablebase shared by every game, which is opened the first time this
+	 * method is called from the directory in the system property DIRECTORY_PROPERTY, unless
+	 * setDefault() has been called.
+	 * 
+	 * @return the tablebase, or null if the system property is not set
+	 * @throws UncheckedIOException if the tablebase cannot be opened
+	 */
+	public static synchronized SyzygyTablebase getDefault() {
+		if (!isDefaultOpened) {
+			isDefaultOpened = true;
+			String directory = System.getProperty(DIRECTORY_PROPERTY);
+			if (directory != null) {
+				try {
+					defaultTablebase = new SyzygyTablebase(Paths.get(directory));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return defaultTablebase;
+	}
+
+	/**
+	 * This method sets the tablebase shared by every game created from now on.
+	 * 
+	 * @param tablebase the tablebase, or null for none
+	 */
+	public static synchronized void setDefault(SyzygyTablebase tablebase) {
+		defaultTablebase = tablebase;
+		isDefaultOpened = true;
+	}
+
+	/**
+	 * This method checks whether the tablebase has a WDL file for the given material signature or
+	 * the one with the colors swapped.
+	 * 
+	 * @param signature the signature in the form of the files, such as "KQvK"
+	 * @return true if the positions with the signature are covered and false otherwise
+	 */
+	public boolean contains(String signature) {
+		int separator = signature.indexOf('v');
+		return wdlTables.containsKey(signature) || ((separator >= 0) && wdlTables.containsKey(
+				signature.substring(separator + 1) + "v" + signature.substring(0, separator)));
+	}
+
+	@Override
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	@Override
+	public int probeWdl(AbstractBoard board, boolean blackToMove) {
+		if (!isCovered(board))
+			return UNKNOWN;
+		int result = search(board, blackToMove, false);
+		if (result == UNKNOWN)
+			return UNKNOWN;
+		// a win the fifty-move rule turns into a draw is a draw
+		return (Math.abs(result >> 1) == 2) ? Integer.signum(result >> 1) : DRAW;
+	}
+
+	@Override
+	public int probeDtz(AbstractBoard board, boolean blackToMove) {
+		return isCovered(board) ? getDistance(board, blackToMove) : UNKNOWN;
+	}
+
+	/**
+	 * This method checks whether the tablebase can cover the current position of the given board.
+	 * 
+	 * @param board the board
+	 * @return true if no player can castle and there are few enough pieces, and false otherwise
+	 */
+	private boolean isCovered(AbstractBoard board) {
+		return (board.getCastlingRights() == 0)
+				&& (Long.bitCount(board.getOccupancy()) <= maxPieces);
+	}
+
+	/**
+	 * This method finds the result of the current position of the given board by searching its
+	 * captures, and its pawn moves if asked, before looking it up, since the files may hold any
+	 * value for a position in which one of them is the best move.
+	 * 
+	 * @param board               the board, which is restored before this method returns
+	 * @param blackToMove         true if it is black's turn to move and false if it is white's
+	 *                            turn
+	 * @param isPawnMoveSearched  true to search the pawn moves as well as the captures
+	 * @return the result from -2 for a loss to 2 for a win, as given by SyzygyTable.probe(),
+	 *         shifted left by one bit, with ZEROING_BEST_MOVE set if one of the moves searched is
+	 *         the best move, or UNKNOWN if a position is not covered
+	 */
+	private int search(AbstractBoard board, boolean blackToMove, boolean isPawnMoveSearched) {
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		int bestResult = -2;
+		int searched = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (!Move.isCapture(move) && (!isPawnMoveSearched || !isPawnMove(board, move)))
+				continue;
+			searched++;
+			board.makeMove(move);
+			int result = search(board, !blackToMove, false);
+			board.unmakeMove(move);
+			if (result == UNKNOWN)
+				return UNKNOWN;
+			result = -(result >> 1);
+			if (result > bestResult) {
+				bestResult = result;
+				if (result == 2)
+					return (result << 1) | ZEROING_BEST_MOVE;
+			}
+		}
+
+		// the stored value is not needed when every move has been searched, which also covers
+		// positions with en passant
+		boolean isExhausted = (searched > 0) && (searched == moves.size());
+		int result = bestResult;
+		if (!isExhausted) {
+			result = probeTable(wdlTables, board, blackToMove, 0);
+			if (result == UNKNOWN)
+				return UNKNOWN;
+		}
+		if (bestResult >= result)
+			return (bestResult << 1)
+					| (((bestResult > 0) || isExhausted) ? ZEROING_BEST_MOVE : 0);
+		return result << 1;
+	}
+
+	/**
+	 * This method finds the number of plies to the next capture, pawn move, or checkmate in the
+	 * current position of the given board, as probeDtz() does. A DTZ file only holds the
+	 * positions of one player to move, so those of the other are found from the positions after
+	 * their moves.
+	 * 
+	 * @param board       the board, which is restored before this method returns
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the number of plies, or UNKNOWN if a position is not covered
+	 */
+	private int getDistance(AbstractBoard board, boolean blackToMove) {
+		int result = search(board, blackToMove, true);
+		if (result == UNKNOWN)
+			return UNKNOWN;
+		int wdl = result >> 1;
+		if (wdl == 0)
+			return 0;
+		if ((result & ZEROING_BEST_MOVE) != 0)
+			return getZeroingDistance(wdl);
+		int distance = probeTable(dtzTables, board, blackToMove, wdl);
+		if (distance == UNKNOWN)
+			return UNKNOWN;
+		if (distance != SyzygyTable.OTHER_SIDE)
+			return Integer.signum(wdl) * (distance + ((Math.abs(wdl) == 1) ? 100 : 0));
+
+		// the winner takes the move that leads the fastest to the next capture, pawn move, or
+		// checkmate, and the loser the one that leads there the slowest
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			boolean isZeroing = Move.isCapture(move) || isPawnMove(board, move);
+			board.makeMove(move);
+			int moveDistance;
+			if (isZeroing) {
+				moveDistance = search(board, !blackToMove, false);
+				if (moveDistance != UNKNOWN)
+					moveDistance = -getZeroingDistance(moveDistance >> 1);
+			} else {
+				moveDistance = getDistance(board, !blackToMove);
+				if (moveDistance != UNKNOWN)
+					moveDistance = -moveDistance;
+			}
+			if ((moveDistance == 1) && board.isCheck(!blackToMove)
+					&& !board.anyLegalMoves(!blackToMove))
+				bestDistance = 1;
+			board.unmakeMove(move);
+			if (moveDistance == UNKNOWN)
+				return UNKNOWN;
+			if (!isZeroing)
+				moveDistance += Integer.signum(moveDistance);
+			if ((moveDistance < bestDistance)
+					&& (Integer.signum(moveDistance) == Integer.signum(wdl)))
+				bestDistance = moveDistance;
+		}
+		// a player who has no moves is checkmated
+		return (bestDistance == Integer.MAX_VALUE) ? -1 : bestDistance;
+	}
+
+	/**
+	 * This method returns the distance of a position in which a capture or pawn move is the best
+	 * move.
+	 * 
+	 * @param wdl the result of the position, from -2 for a loss to 2 for a win
+	 * @return the distance
+	 */
+	private static int getZeroingDistance(int wdl) {
+		switch (wdl) {
+		case 2:
+			return 1;
+		case 1:
+			return 101;
+		case -1:
+			return -101;
+		case -2:
+			return -1;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * This method looks up the current position of the given board in the file of its pieces.
+	 * 
+	 * @param tables      the WDL or DTZ files, by material signature
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param wdl         the result of the position, for a DTZ file
+	 * @return the value given by SyzygyTable.probe(), or UNKNOWN if there is no file
+	 */
+	private static int probeTable(Map<String, SyzygyTable> tables, AbstractBoard board,
+			boolean blackToMove, int wdl) {
+		if (Long.bitCount(board.getOccupancy()) == 2)
+			return 0;
+		String signature = getSignature(board);
+		int blackKing = signature.indexOf('K', 1);
+		String white = signature.substring(0, blackKing);
+		String black = signature.substring(blackKing);
+		SyzygyTable table = tables.get(white + "v" + black);
+		if (table != null)
+			return table.probe(board, blackToMove, false, wdl);
+		table = tables.get(black + "v" + white);
+		return (table != null) ? table.probe(board, blackToMove, true, wdl) : UNKNOWN;
+	}
+
+	/**
+	 * @param board the board
+	 * @param move  the move
+	 * @return true if the move is made by a pawn and false otherwise
+	 */
+	private static boolean isPawnMove(AbstractBoard board, int move) {
+		return board.getPiece(Move.from(move)) % BitBoard.BLACK_OFFSET == BitBoard.PAWN;
+	}
+}
@@ -0,0 +1,153 @@
+package chess.engine;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+
+/**
+ * This class gives the results of endgame positions with few pieces, found by analyzing every
+ * position with the same pieces in advance instead of by searching. The search uses them to play
+ * known endgames perfectly and to score positions that simplify into them, and a game can be
+ * adjudicated as soon as its result is known. Positions in which a player can still castle are
+ * not covered, and neither are those in which a player can capture en passant unless the
+ * tablebase says otherwise.
+ */
+public abstract class Tablebase {
+	// the results of a position for the player to move
+	public static final int LOSS = -1;
+	public static final int DRAW = 0;
+	public static final int WIN = 1;
+	// the result of a position the tablebase does not cover
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	// the piece types in the order of material signatures, indexed as in BitBoard
+	private static final String SIGNATURE_CHARS = "PNBRQK";
+	// the piece types from the king down, in which order signatures list them
+	private static final int[] SIGNATURE_ORDER = { BitBoard.KING, BitBoard.QUEEN, BitBoard.ROOK,
+			BitBoard.BISHOP, BitBoard.KNIGHT, BitBoard.PAWN };
+
+	/**
+	 * This method returns the tablebase games and engines use unless they are given another, which
+	 * is the default SyzygyTablebase if there is one, then the default FileTablebase if there is
+	 * one, falling back on the KpkBitbase for the positions it has no file for, and otherwise the
+	 * KpkBitbase alone.
+	 * 
+	 * @return the tablebase
+	 * @throws java.io.UncheckedIOException if the default SyzygyTablebase or FileTablebase cannot
+	 *                                      be opened
+	 */
+	public static Tablebase getShared() {
+		Tablebase tablebase = SyzygyTablebase.getDefault();
+		if (tablebase == null)
+			tablebase = FileTablebase.getDefault();
+		return (tablebase != null) ? tablebase : KpkBitbase.getInstance();
+	}
+
+	/**
+	 * @return the largest number of pieces, including the kings, of the positions the tablebase
+	 *         covers
+	 */
+	public abstract int getMaxPieces();
+
+	/**
+	 * This method returns whether the player to move wins, draws, or loses the current position of
+	 * the given board with best play, ignoring the fifty-move rule.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return WIN, DRAW, or LOSS, or UNKNOWN if the tablebase does not cover the position
+	 */
+	public abstract int probeWdl(AbstractBoard board, boolean blackToMove);
+
+	/**
+	 * This method returns the number of plies to checkmate in the current position of the given
+	 * board with best play, in which the winner mates as quickly as possible and the loser delays
+	 * it as long as possible. A tablebase that only knows results covers no distances.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the number of plies, which is 0 for a draw or if the player to move is checkmated,
+	 *         or UNKNOWN if the tablebase does not cover the distance of the position
+	 */
+	public int probeDtm(AbstractBoard board, boolean blackToMove) {
+		return UNKNOWN;
+	}
+
+	/**
+	 * This method returns the number of plies to the next capture, pawn move, or checkmate in the
+	 * current position of the given board with best play, in which the winner gets there as
+	 * quickly as possible and the loser delays it as long as possible, so that the fifty-move rule
+	 * can be kept. A win that the fifty-move rule turns into a draw is more than 100 plies away. A
+	 * tablebase that does not know these distances covers no positions.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the number of plies, which is positive if the player to move wins, negative if the
+	 *         player to move loses, -1 if the player to move is checkmated, and 0 for a draw, or
+	 *         UNKNOWN if the tablebase does not cover the distance of the position
+	 */
+	public int probeDtz(AbstractBoard board, boolean blackToMove) {
+		return UNKNOWN;
+	}
+
+	/**
+	 * This method returns the material signature of the current position of the given board, the
+	 * pieces of white followed by those of black from the king down, such as "KQK" for a king and
+	 * queen against a king.
+	 * 
+	 * @param board the board
+	 * @return the signature
+	 */
+	public static String getSignature(AbstractBoard board) {
+		int[] counts = new int[12];
+		long occupied = board.getOccupancy();
+		while (occupied != 0) {
+			counts[board.getPiece(Long.numberOfTrailingZeros(occupied))]++;
+			occupied &= occupied - 1;
+		}
+		StringBuilder signature = new StringBuilder();
+		for (int offset : new int[] { 0, BitBoard.BLACK_OFFSET }) {
+			for (int type : SIGNATURE_ORDER) {
+				for (int i = 0; i < counts[type + offset]; i++) {
+					signature.append(SIGNATURE_CHARS.charAt(type));
+				}
+			}
+		}
+		return signature.toString();
+	}
+
+	/**
+	 * This method returns the pieces of the given material signature in the order of the
+	 * signature.
+	 * 
+	 * @param signature the signature, such as "KQK"
+	 * @return the index of each piece, as in BitBoard
+	 * @throws IllegalArgumentException if the signature does not contain exactly one king of each
+	 *                                  color followed by its pieces
+	 */
+	public static int[] getPieces(String signature) {
+		int blackKing = signature.indexOf('K', 1);
+		if (!signature.startsWith("K") || (blackKing < 0)
+				|| (signature.indexOf('K', blackKing + 1) >= 0))
+			throw new IllegalArgumentException("Invalid material signature: " + signature);
+		int[] pieces = new int[signature.length()];
+		for (int i = 0; i < pieces.length; i++) {
+			int type = SIGNATURE_CHARS.indexOf(signature.charAt(i));
+			if (type < 0)
+				throw new IllegalArgumentException("Invalid material signature: " + signature);
+			pieces[i] = type + ((i >= blackKing) ? BitBoard.BLACK_OFFSET : 0);
+		}
+		return pieces;
+	}
+
+	/**
+	 * This method swaps the colors of a material signature.
+	 * 
+	 * @param signature the signature, such as "KQK"
+	 * @return the signature with the colors swapped, such as "KKQ"
+	 */
+	static String swapColors(String signature) {
+		int blackKing = signature.indexOf('K', 1);
+		return (blackKing < 0) ? signature
+				: signature.substring(blackKing) + signature.substring(0, blackKing);
+	}
+}
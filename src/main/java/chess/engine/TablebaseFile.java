@@ -0,0 +1,233 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import chess.BitBoard;
+
+/**
+ * This class is one file of a FileTablebase, which holds one byte for every placement of one set
+ * of pieces with either player to move. The file starts with a header of HEADER_SIZE bytes: the
+ * number MAGIC, the number of pieces, and the index of each piece as in BitBoard, in the order of
+ * its material signature, which is also the name of the file.
+ * 
+ * A position is indexed by the player to move and the squares of its pieces in that order, after
+ * the board is mirrored to bring the white king to the a1-d1-d4 triangle, or to files a to d if
+ * there are pawns, since mirroring a position does not change its result. Each byte is a number
+ * of moves: positive if the player to move checkmates in that many moves, negative if the player
+ * to move is checkmated in one less than minus that many moves, and DRAW if neither player can
+ * win. Placements that cannot occur in a game, such as those with two pieces on one square, are
+ * ILLEGAL.
+ * 
+ * This format is specific to this program and is not compressed. It is not the Syzygy format,
+ * whose files are read by SyzygyTable.
+ */
+final class TablebaseFile {
+	static final int MAGIC = 0x43544231; // "CTB1"
+	static final int HEADER_SIZE = 16;
+	static final int MAX_PIECES = HEADER_SIZE - 5;
+	static final byte DRAW = 0;
+	static final byte ILLEGAL = Byte.MIN_VALUE;
+
+	// the index of each square of the a1-d1-d4 triangle, or -1 for the other squares
+	private static final int[] TRIANGLE = new int[64];
+	// the square of each index of the triangle
+	private static final int[] TRIANGLE_SQUARES = new int[10];
+
+	static {
+		Arrays.fill(TRIANGLE, -1);
+		int index = 0;
+		for (int file = 0; file < 4; file++) {
+			for (int rank = 0; rank <= file; rank++) {
+				int square = 8 * (7 - rank) + file;
+				TRIANGLE[square] = index;
+				TRIANGLE_SQUARES[index++] = square;
+			}
+		}
+	}
+
+	private final int[] pieces;
+	private final boolean hasPawns;
+	private final ByteBuffer data;
+
+	/**
+	 * This method reads the header of the given file.
+	 * 
+	 * @param signature the material signature of the file
+	 * @param data      the contents of the file
+	 * @throws IOException              if the header does not match the signature or the file
+	 *                                  has the wrong size
+	 * @throws IllegalArgumentException if the signature is invalid
+	 */
+	TablebaseFile(String signature, ByteBuffer data) throws IOException {
+		pieces = Tablebase.getPieces(signature);
+		hasPawns = hasPawns(pieces);
+		this.data = data;
+		boolean isValid = (pieces.length <= MAX_PIECES) && (data.capacity() >= HEADER_SIZE)
+				&& (data.getInt(0) == MAGIC) && (data.get(4) == pieces.length)
+				&& (data.capacity() == HEADER_SIZE + getSize(pieces.length, hasPawns));
+		for (int i = 0; isValid && (i < pieces.length); i++) {
+			isValid = data.get(5 + i) == pieces[i];
+		}
+		if (!isValid)
+			throw new IOException("Invalid tablebase file for " + signature);
+	}
+
+	/**
+	 * @return the index of each piece, as in BitBoard, in the order of the material signature
+	 */
+	int[] getPieces() {
+		return pieces;
+	}
+
+	/**
+	 * @return true if the pieces include a pawn and false otherwise
+	 */
+	boolean hasPawns() {
+		return hasPawns;
+	}
+
+	/**
+	 * This method returns the stored value of the position with the given index.
+	 * 
+	 * @param index the index, from getIndex()
+	 * @return the value
+	 */
+	byte getValue(int index) {
+		return data.get(HEADER_SIZE + index);
+	}
+
+	/**
+	 * This method checks whether the given pieces include a pawn.
+	 * 
+	 * @param pieces the index of each piece, as in BitBoard
+	 * @return true if there is a pawn and false otherwise
+	 */
+	static boolean hasPawns(int[] pieces) {
+		for (int piece : pieces) {
+			if (piece % BitBoard.BLACK_OFFSET == BitBoard.PAWN)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method returns the number of squares of the white king after mirroring.
+	 * 
+	 * @param hasPawns true if the pieces include a pawn and false otherwise
+	 * @return the number of squares
+	 */
+	static int getKingSquares(boolean hasPawns) {
+		return hasPawns ? 32 : TRIANGLE_SQUARES.length;
+	}
+
+	/**
+	 * This method returns the number of positions of a file.
+	 * 
+	 * @param pieceCount the number of pieces, including the kings
+	 * @param hasPawns   true if the pieces include a pawn and false otherwise
+	 * @return the number of positions
+	 */
+	static int getSize(int pieceCount, boolean hasPawns) {
+		return (2 * getKingSquares(hasPawns)) << (6 * (pieceCount - 1));
+	}
+
+	/**
+	 * This method returns the square of the white king with the given index after mirroring.
+	 * 
+	 * @param kingIndex the index of the square, from 0 to getKingSquares() - 1
+	 * @param hasPawns  true if the pieces include a pawn and false otherwise
+	 * @return the square, numbered 8 * row + col
+	 */
+	static int getKingSquare(int kingIndex, boolean hasPawns) {
+		return hasPawns ? 8 * (kingIndex >> 2) + (kingIndex & 3) : TRIANGLE_SQUARES[kingIndex];
+	}
+
+	/**
+	 * This method returns the index of a position. Positions that are mirror images of each other
+	 * have the same index when the white king is not on a line of symmetry.
+	 * 
+	 * @param squares     the square of each piece, in the order of the material signature, with
+	 *                    the white king first
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param hasPawns    true if the pieces include a pawn and false otherwise
+	 * @return the index
+	 */
+	static int getIndex(int[] squares, boolean blackToMove, boolean hasPawns) {
+		// mirror the files, then the ranks, then along the a1-h8 diagonal as needed
+		int king = squares[0];
+		int mirror = ((king & 7) > 3) ? 7 : 0;
+		if (!hasPawns && (((king ^ mirror) >> 3) < 4))
+			mirror ^= 56;
+		king ^= mirror;
+		boolean isTransposed = !hasPawns && (7 - (king >> 3) > (king & 7));
+		int index = blackToMove ? 1 : 0;
+		if (hasPawns) {
+			index = index * 32 + 4 * (king >> 3) + (king & 7);
+		} else {
+			index = index * TRIANGLE_SQUARES.length
+					+ TRIANGLE[isTransposed ? transpose(king) : king];
+		}
+		for (int i = 1; i < squares.length; i++) {
+			int square = squares[i] ^ mirror;
+			index = (index << 6) | (isTransposed ? transpose(square) : square);
+		}
+		return index;
+	}
+
+	/**
+	 * This method finds the position with the given index, with the white king on the a1-d1-d4
+	 * triangle, or on files a to d if there are pawns. It is the inverse of getIndex() for such
+	 * positions.
+	 * 
+	 * @param index    the index
+	 * @param hasPawns true if the pieces include a pawn and false otherwise
+	 * @param squares  the array in which the square of each piece is put, in the order of the
+	 *                 material signature
+	 * @return true if it is black's turn to move and false if it is white's turn
+	 */
+	static boolean getSquares(int index, boolean hasPawns, int[] squares) {
+		for (int i = squares.length - 1; i > 0; i--) {
+			squares[i] = index & 63;
+			index >>>= 6;
+		}
+		int kingSquares = getKingSquares(hasPawns);
+		squares[0] = getKingSquare(index % kingSquares, hasPawns);
+		return index >= kingSquares;
+	}
+
+	/**
+	 * This method writes a file with the given values.
+	 * 
+	 * @param path   the path of the file
+	 * @param pieces the index of each piece, as in BitBoard, in the order of the material
+	 *               signature
+	 * @param values the value of each position, indexed by getIndex()
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(Path path, int[] pieces, byte[] values) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).put((byte) pieces.length);
+		for (int piece : pieces) {
+			header.put((byte) piece);
+		}
+		try (OutputStream out = Files.newOutputStream(path)) {
+			out.write(header.array());
+			out.write(values);
+		}
+	}
+
+	/**
+	 * This method mirrors a square along the a1-h8 diagonal.
+	 * 
+	 * @param square the square, numbered 8 * row + col
+	 * @return the mirrored square
+	 */
+	static int transpose(int square) {
+		return ((7 - (square & 7)) << 3) | (7 - (square >> 3));
+	}
+}
@@ -0,0 +1,589 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import chess.Attacks;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * This class generates the files of a FileTablebase by retrograde analysis, working backwards
+ * from checkmate. Every placement of the pieces is first set up on a BitBoard to find the illegal
+ * positions, the checkmates, and the results of the moves that capture or promote, which lead to
+ * positions with other pieces whose files are generated first. Then, in pass n, the positions
+ * with a move into a position lost in n - 1 plies are won in n plies, and the positions whose
+ * moves all lead into positions won in at most n - 1 plies are lost in n plies. The positions
+ * checked in each pass are those from which a position resolved in the previous pass can be
+ * reached, found by unmaking moves, and are kept in a bit array, so each pass only sets up the
+ * positions that can change. The positions that are never resolved are drawn.
+ * 
+ * Each pass is split across several threads, which claim the positions in chunks. A position is
+ * only resolved in the pass of its distance to checkmate, whatever order the threads visit the
+ * positions in, so the files do not depend on the number of threads.
+ * 
+ * Positions in which the player to move could capture en passant are not stored in the files,
+ * but the positions from which a pawn can move two squares into them are solved with that
+ * capture taken into account.
+ */
+public class TablebaseGenerator {
+	// the largest number of pieces, including the kings, of the files this class generates
+	public static final int MAX_PIECES = 4;
+
+	// the number of positions each thread claims at a time
+	private static final int CHUNK_SIZE = 1 << 12;
+	// the score of a position won in 0 plies; scores are positive for the player to move winning
+	// in (WIN_SCORE - score) plies, negative for losing in (WIN_SCORE + score) plies, and 0 for a
+	// draw or a position not yet resolved
+	private static final int WIN_SCORE = 1000;
+	// the number of plies of a position not won by a move that captures or promotes
+	private static final short NO_WIN = Short.MAX_VALUE;
+	// the number of plies of a position not lost when every move that captures or promotes loses
+	private static final short NO_LOSS = -1;
+	// the piece types in the order of material signatures
+	private static final String SIGNATURE_ORDER = "KQRBNP";
+
+	private final Path directory;
+	private final int threads;
+
+	// the state of the file being generated, shared by the threads
+	private int[] pieces;
+	private boolean hasPawns;
+	private int size;
+	private byte[] values; // indexed as in TablebaseFile, with 0 until a position is resolved
+	// the fewest plies in which each position is won by a move that captures or promotes
+	private short[] exitWins;
+	// the most plies in which each position is lost if every move that captures or promotes
+	// loses, 0 if there are no such moves, or NO_LOSS
+	private short[] exitLosses;
+	// bit arrays of the positions to check in the current pass and in the next one
+	private AtomicLongArray candidates;
+	private AtomicLongArray nextCandidates;
+	// a bit array of the positions with a move after which en passant is possible
+	private AtomicLongArray enPassantPositions;
+	private Tablebase smallerTablebase;
+	private int pass;
+	private final AtomicInteger maxExitPlies = new AtomicInteger();
+	private final AtomicInteger resolvedCount = new AtomicInteger();
+
+	/**
+	 * This method creates a generator that writes its files to the given directory, using one
+	 * thread for each core.
+	 * 
+	 * @param directory the directory
+	 */
+	public TablebaseGenerator(Path directory) {
+		this(directory, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * This method creates a generator that writes its files to the given directory.
+	 * 
+	 * @param directory the directory
+	 * @param threads   the number of threads that generate each file, at least 1
+	 */
+	public TablebaseGenerator(Path directory, int threads) {
+		this.directory = directory;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * This method generates the file of the given material signature, after the files of the
+	 * signatures its captures and promotions lead to, unless the directory already has them. A
+	 * generator must only generate one file at a time.
+	 * 
+	 * @param signature the signature, such as "KRK"
+	 * @return the path of the file
+	 * @throws IOException              if a file cannot be read or written
+	 * @throws IllegalArgumentException if the signature is invalid or has more than MAX_PIECES
+	 *                                  pieces
+	 */
+	public synchronized Path generate(String signature) throws IOException {
+		int[] signaturePieces = Tablebase.getPieces(signature);
+		if (signaturePieces.length > MAX_PIECES)
+			throw new IllegalArgumentException("More than " + MAX_PIECES + " pieces: " + signature);
+		for (String smaller : getSmallerSignatures(signature)) {
+			if (!exists(smaller) && !exists(Tablebase.swapColors(smaller)))
+				generate(smaller);
+		}
+		smallerTablebase = new FileTablebase(directory);
+		pieces = signaturePieces;
+		hasPawns = TablebaseFile.hasPawns(pieces);
+		size = TablebaseFile.getSize(pieces.length, hasPawns);
+		values = new byte[size];
+		exitWins = new short[size];
+		exitLosses = new short[size];
+		nextCandidates = new AtomicLongArray((size + 63) >> 6);
+		enPassantPositions = new AtomicLongArray((size + 63) >> 6);
+		maxExitPlies.set(0);
+
+		// find the illegal positions, the checkmates, and the results of leaving the file
+		pass = 0;
+		runPass();
+		for (pass = 1; (resolvedCount.get() > 0) || (pass <= maxExitPlies.get() + 1); pass++) {
+			runPass();
+		}
+
+		Path path = directory.resolve(signature + FileTablebase.EXTENSION);
+		TablebaseFile.write(path, pieces, values);
+		values = null;
+		exitWins = null;
+		exitLosses = null;
+		candidates = null;
+		nextCandidates = null;
+		enPassantPositions = null;
+		smallerTablebase = null;
+		return path;
+	}
+
+	/**
+	 * This method checks whether the directory has the file of the given signature.
+	 * 
+	 * @param signature the signature
+	 * @return true if the file exists and false otherwise
+	 */
+	private boolean exists(String signature) {
+		return Files.exists(directory.resolve(signature + FileTablebase.EXTENSION));
+	}
+
+	/**
+	 * This method returns the signatures of the positions that a capture or a promotion leads to
+	 * from a position with the given signature, with at least three pieces, each with the
+	 * stronger side as white.
+	 * 
+	 * @param signature the signature
+	 * @return the signatures
+	 */
+	static Set<String> getSmallerSignatures(String signature) {
+		Set<String> signatures = new LinkedHashSet<>();
+		for (int i = 1; i < signature.length(); i++) {
+			char piece = signature.charAt(i);
+			if (piece == 'K')
+				continue;
+			String before = signature.substring(0, i);
+			String after = signature.substring(i + 1);
+			signatures.add(normalize(before + after));
+			if (piece == 'P') {
+				for (char promoted : "QRBN".toCharArray()) {
+					signatures.add(normalize(before + promoted + after));
+				}
+			}
+		}
+		signatures.removeIf(smaller -> smaller.length() <= 2);
+		return signatures;
+	}
+
+	/**
+	 * This method puts the pieces of each side of a signature in order from the king down, and
+	 * the side with more pieces, or with the stronger pieces if both have as many, first.
+	 * 
+	 * @param signature the signature, with each side starting with its king
+	 * @return the normalized signature
+	 */
+	static String normalize(String signature) {
+		int blackKing = signature.indexOf('K', 1);
+		String white = sortPieces(signature.substring(0, blackKing));
+		String black = sortPieces(signature.substring(blackKing));
+		int comparison = Integer.compare(white.length(), black.length());
+		for (int i = 0; (comparison == 0) && (i < white.length()); i++) {
+			comparison = Integer.compare(SIGNATURE_ORDER.indexOf(black.charAt(i)),
+					SIGNATURE_ORDER.indexOf(white.charAt(i)));
+		}
+		return (comparison >= 0) ? white + black : black + white;
+	}
+
+	/**
+	 * This method puts the pieces of one side of a signature in order from the king down.
+	 * 
+	 * @param pieces the pieces
+	 * @return the sorted pieces
+	 */
+	private static String sortPieces(String pieces) {
+		char[] chars = pieces.toCharArray();
+		Integer[] order = new Integer[chars.length];
+		for (int i = 0; i < chars.length; i++) {
+			order[i] = SIGNATURE_ORDER.indexOf(chars[i]);
+		}
+		Arrays.sort(order);
+		StringBuilder sorted = new StringBuilder();
+		for (int type : order) {
+			sorted.append(SIGNATURE_ORDER.charAt(type));
+		}
+		return sorted.toString();
+	}
+
+	/**
+	 * This method runs the current pass on every thread and waits for them to finish.
+	 * 
+	 * @throws IllegalStateException if a thread fails
+	 */
+	private void runPass() {
+		candidates = nextCandidates;
+		nextCandidates = new AtomicLongArray(candidates.length());
+		resolvedCount.set(0);
+		AtomicInteger nextChunk = new AtomicInteger();
+		Throwable[] failure = new Throwable[1];
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			Worker worker = new Worker();
+			workers[i] = new Thread(() -> {
+				int start;
+				while ((start = nextChunk.getAndAdd(CHUNK_SIZE)) < size) {
+					for (int index = start; index < Math.min(start + CHUNK_SIZE, size); index++) {
+						if (pass == 0)
+							worker.initialize(index);
+						else
+							worker.resolve(index);
+					}
+				}
+			}, "tablebase-generator-" + i);
+			workers[i].setUncaughtExceptionHandler((thread, e) -> {
+				synchronized (failure) {
+					failure[0] = e;
+				}
+			});
+			workers[i].start();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while generating a tablebase", e);
+			}
+		}
+		synchronized (failure) {
+			if (failure[0] != null)
+				throw new IllegalStateException("Failed to generate a tablebase", failure[0]);
+		}
+	}
+
+	/**
+	 * This method sets the bit of the given index in a bit array.
+	 * 
+	 * @param bits  the bit array
+	 * @param index the index
+	 */
+	private static void setBit(AtomicLongArray bits, int index) {
+		long mask = 1L << index;
+		if ((bits.get(index >> 6) & mask) == 0)
+			bits.getAndAccumulate(index >> 6, mask, (word, bit) -> word | bit);
+	}
+
+	/**
+	 * This method checks the bit of the given index in a bit array.
+	 * 
+	 * @param bits  the bit array
+	 * @param index the index
+	 * @return true if the bit is set and false otherwise
+	 */
+	private static boolean getBit(AtomicLongArray bits, int index) {
+		return (bits.get(index >> 6) & (1L << index)) != 0;
+	}
+
+	/**
+	 * This method converts a stored value to a score.
+	 * 
+	 * @param value the value, as described in TablebaseFile
+	 * @return the score
+	 */
+	private static int toScore(byte value) {
+		if (value > 0)
+			return WIN_SCORE - (2 * value - 1);
+		return (value < 0) ? -WIN_SCORE - 2 * (value + 1) : 0;
+	}
+
+	/**
+	 * This class is the state of one thread: its board and the lists and arrays it reuses for
+	 * every position.
+	 */
+	private class Worker {
+		private final BitBoard board = new BitBoard();
+		private final MoveList moves = new MoveList();
+		private final MoveList replies = new MoveList();
+		private final int[] squares = new int[pieces.length];
+		private final int[] movedSquares = new int[pieces.length];
+		private final int[] transposedSquares = new int[pieces.length];
+		private boolean blackToMove; // in the position in squares
+
+		/**
+		 * This method sets up the position with the given index, unless it cannot occur in a
+		 * game, in which case it is marked illegal.
+		 * 
+		 * @param index the index
+		 * @return true if the position is legal and false otherwise
+		 */
+		private boolean setUp(int index) {
+			blackToMove = TablebaseFile.getSquares(index, hasPawns, squares);
+			long occupied = 0;
+			for (int i = 0; i < pieces.length; i++) {
+				long mask = 1L << squares[i];
+				// pawns never stand on the first or last row
+				boolean isPawn = pieces[i] % BitBoard.BLACK_OFFSET == BitBoard.PAWN;
+				if (((occupied & mask) != 0)
+						|| (isPawn && ((squares[i] < 8) || (squares[i] >= 56)))) {
+					values[index] = TablebaseFile.ILLEGAL;
+					return false;
+				}
+				occupied |= mask;
+			}
+			board.setPosition(pieces, squares);
+			if (board.isCheck(!blackToMove)) {
+				values[index] = TablebaseFile.ILLEGAL;
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * This method runs the first pass for the position with the given index, marking it if it
+		 * is illegal or checkmate, and finding the results of its moves that capture or promote.
+		 * 
+		 * @param index the index
+		 */
+		void initialize(int index) {
+			if (!setUp(index))
+				return;
+			moves.clear();
+			board.generateMoves(blackToMove, moves);
+			if (moves.size() == 0) {
+				if (board.isCheck(blackToMove)) {
+					values[index] = -1;
+					resolvedCount.incrementAndGet();
+					addPredecessors(blackToMove);
+				}
+				return;
+			}
+			int exitWin = NO_WIN;
+			int exitLoss = 0;
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				if (Move.isCapture(move) || Move.isPromotion(move)) {
+					board.makeMove(move);
+					int score = probeSmaller(!blackToMove);
+					board.unmakeMove(move);
+					if (score < 0) {
+						exitWin = Math.min(exitWin, WIN_SCORE + score + 1);
+					} else if (score > 0) {
+						exitLoss = (exitLoss == NO_LOSS) ? NO_LOSS
+								: Math.max(exitLoss, WIN_SCORE - score + 1);
+					} else {
+						exitLoss = NO_LOSS;
+					}
+					if (score != 0)
+						maxExitPlies.accumulateAndGet(WIN_SCORE - Math.abs(score) + 1, Math::max);
+				} else if (Move.flags(move) == Move.DOUBLE_PAWN_PUSH) {
+					board.makeMove(move);
+					int score = getEnPassantScore(!blackToMove);
+					board.unmakeMove(move);
+					if (score != Integer.MIN_VALUE)
+						setBit(enPassantPositions, index);
+					if ((score != Integer.MIN_VALUE) && (score != 0))
+						maxExitPlies.accumulateAndGet(WIN_SCORE - Math.abs(score) + 1, Math::max);
+				}
+			}
+			exitWins[index] = (short) exitWin;
+			exitLosses[index] = (short) exitLoss;
+		}
+
+		/**
+		 * This method runs a later pass for the position with the given index, resolving it if it
+		 * is won or lost in as many plies as the number of the pass.
+		 * 
+		 * @param index the index
+		 */
+		void resolve(int index) {
+			if ((values[index] != 0) || !(getBit(candidates, index)
+					|| (exitWins[index] == pass) || (exitLosses[index] == pass)
+					|| getBit(enPassantPositions, index)))
+				return;
+			blackToMove = TablebaseFile.getSquares(index, hasPawns, squares);
+			board.setPosition(pieces, squares);
+			boolean isEnPassantPosition = getBit(enPassantPositions, index);
+			int win = exitWins[index];
+			int loss = exitLosses[index];
+			moves.clear();
+			board.generateQuietMoves(blackToMove, moves);
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				int score = getScore(move, blackToMove);
+				if (isEnPassantPosition && (Move.flags(move) == Move.DOUBLE_PAWN_PUSH)) {
+					board.makeMove(move);
+					score = Math.max(score, getEnPassantScore(!blackToMove));
+					board.unmakeMove(move);
+				}
+				if (score < 0) {
+					win = Math.min(win, WIN_SCORE + score + 1);
+				} else if (score > 0) {
+					loss = (loss == NO_LOSS) ? NO_LOSS : Math.max(loss, WIN_SCORE - score + 1);
+				} else {
+					loss = NO_LOSS;
+				}
+			}
+
+			// odd passes resolve wins and even passes resolve losses
+			if ((pass % 2 == 1) ? (win == pass) : ((win == NO_WIN) && (loss == pass))) {
+				// a win in n moves is stored as n and a loss in n moves as -(n + 1)
+				int value = (pass % 2 == 1) ? (pass + 1) / 2 : -(pass / 2 + 1);
+				if (value < -Byte.MAX_VALUE)
+					throw new IllegalStateException("Checkmate too far away to store");
+				values[index] = (byte) value;
+				resolvedCount.incrementAndGet();
+				addPredecessors(blackToMove);
+			}
+		}
+
+		/**
+		 * This method returns the score, for the player to move after it, of a move that stays
+		 * in the file, as far as it has been resolved.
+		 * 
+		 * @param move        the move, which neither captures nor promotes
+		 * @param blackToMove true if black makes the move and false if white makes it
+		 * @return the score
+		 */
+		private int getScore(int move, boolean blackToMove) {
+			System.arraycopy(squares, 0, movedSquares, 0, squares.length);
+			int from = Move.from(move);
+			for (int i = 0; i < squares.length; i++) {
+				if (squares[i] == from)
+					movedSquares[i] = Move.to(move);
+			}
+			return toScore(values[TablebaseFile.getIndex(movedSquares, !blackToMove, hasPawns)]);
+		}
+
+		/**
+		 * This method looks up the current position of the board in the files of fewer pieces.
+		 * 
+		 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+		 * @return the score of the position
+		 * @throws IllegalStateException if the position is not covered
+		 */
+		private int probeSmaller(boolean blackToMove) {
+			int result = smallerTablebase.probeWdl(board, blackToMove);
+			if (result == Tablebase.UNKNOWN)
+				throw new IllegalStateException(
+						"No tablebase file for " + Tablebase.getSignature(board));
+			int plies = smallerTablebase.probeDtm(board, blackToMove);
+			return (result == Tablebase.DRAW) ? 0 : result * (WIN_SCORE - plies);
+		}
+
+		/**
+		 * This method returns the best score for the player to move of the en passant captures in
+		 * the current position of the board, which lead to positions of the smaller files.
+		 * 
+		 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+		 * @return the score, or Integer.MIN_VALUE if there is no en passant capture
+		 */
+		private int getEnPassantScore(boolean blackToMove) {
+			int bestScore = Integer.MIN_VALUE;
+			replies.clear();
+			board.generateCaptures(blackToMove, replies);
+			for (int i = 0; i < replies.size(); i++) {
+				int reply = replies.get(i);
+				if (Move.flags(reply) != Move.EN_PASSANT)
+					continue;
+				board.makeMove(reply);
+				int score = -probeSmaller(!blackToMove);
+				board.unmakeMove(reply);
+				// the checkmate is one ply further away from the position before the capture
+				score -= Integer.signum(score);
+				bestScore = Math.max(bestScore, score);
+			}
+			return bestScore;
+		}
+
+		/**
+		 * This method marks the positions from which the position in squares can be reached by
+		 * a move that stays in the file as candidates for the next pass.
+		 * 
+		 * @param blackToMove true if it is black's turn to move in the position and false if it
+		 *                    is white's turn
+		 */
+		private void addPredecessors(boolean blackToMove) {
+			long occupied = 0;
+			for (int square : squares) {
+				occupied |= 1L << square;
+			}
+			// the player who made the move is the one not to move
+			int mover = blackToMove ? BitBoard.WHITE : BitBoard.BLACK;
+			System.arraycopy(squares, 0, movedSquares, 0, squares.length);
+			for (int i = 0; i < pieces.length; i++) {
+				if (pieces[i] / BitBoard.BLACK_OFFSET != mover)
+					continue;
+				int square = squares[i];
+				long origins;
+				switch (pieces[i] % BitBoard.BLACK_OFFSET) {
+				case BitBoard.PAWN:
+					origins = getPawnOrigins(square, mover, occupied);
+					break;
+				case BitBoard.KNIGHT:
+					origins = Attacks.knightAttacks(square);
+					break;
+				case BitBoard.BISHOP:
+					origins = Attacks.bishopAttacks(square, occupied);
+					break;
+				case BitBoard.ROOK:
+					origins = Attacks.rookAttacks(square, occupied);
+					break;
+				case BitBoard.QUEEN:
+					origins = Attacks.queenAttacks(square, occupied);
+					break;
+				default:
+					origins = Attacks.kingAttacks(square);
+				}
+				for (origins &= ~occupied; origins != 0; origins &= origins - 1) {
+					movedSquares[i] = Long.numberOfTrailingZeros(origins);
+					addCandidate(movedSquares, !blackToMove);
+				}
+				movedSquares[i] = square;
+			}
+		}
+
+		/**
+		 * This method marks the position with the given squares as a candidate for the next pass.
+		 * Without pawns, a position with the white king on the a1-h8 diagonal has a different
+		 * index than its mirror image along the diagonal, so that both are marked.
+		 * 
+		 * @param squares     the square of each piece
+		 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+		 */
+		private void addCandidate(int[] squares, boolean blackToMove) {
+			setBit(nextCandidates, TablebaseFile.getIndex(squares, blackToMove, hasPawns));
+			if (hasPawns)
+				return;
+			for (int i = 0; i < squares.length; i++) {
+				transposedSquares[i] = TablebaseFile.transpose(squares[i]);
+			}
+			setBit(nextCandidates,
+					TablebaseFile.getIndex(transposedSquares, blackToMove, hasPawns));
+		}
+
+		/**
+		 * This method returns the squares from which a pawn can have moved forward to the given
+		 * square.
+		 * 
+		 * @param square   the square of the pawn
+		 * @param color    the color of the pawn
+		 * @param occupied the mask of occupied squares
+		 * @return the mask of squares, which may include occupied ones
+		 */
+		private long getPawnOrigins(int square, int color, long occupied) {
+			// white pawns move towards row 0 and start on row 6, and black pawns the other way
+			int step = (color == BitBoard.WHITE) ? 8 : -8;
+			int origin = square + step;
+			if ((origin < 8) || (origin >= 56) || ((occupied & (1L << origin)) != 0))
+				return 0;
+			long origins = 1L << origin;
+			if ((square >> 3) == ((color == BitBoard.WHITE) ? 4 : 3))
+				origins |= 1L << (origin + step);
+			return origins;
+		}
+	}
+}
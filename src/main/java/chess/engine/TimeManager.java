@@ -0,0 +1,114 @@
+package chess.engine;
+
+import chess.Move;
+
+/**
+ * This class decides how long the engine searches a move in a game with a clock. From the time
+ * left on the clock, the increment, and the number of moves to the next time control, it finds a
+ * soft limit, after which no new depth is started, and a hard limit, at which the search is
+ * stopped even in the middle of a depth. The soft limit is shortened when the best move has stayed
+ * the same for several depths, since more depths are then unlikely to change it, and lengthened
+ * when the best move changes or the score drops, since the engine may then be about to find a
+ * better move. It never grows beyond the hard limit, which always leaves MOVE_OVERHEAD
+ * milliseconds on the clock.
+ */
+public class TimeManager {
+	// the time kept on the clock for the communication and the overhead of each move, in
+	// milliseconds
+	public static final long MOVE_OVERHEAD = 50;
+	// the number of moves the time is assumed to last when there is no time control ahead
+	public static final int DEFAULT_MOVES_TO_GO = 30;
+
+	// the most time the hard limit may take from the clock, as a share of the time left, unless
+	// the move is the last one before the time control
+	private static final double MAX_SHARE = 0.5;
+	// the hard limit as a multiple of the soft limit
+	private static final double HARD_FACTOR = 4;
+	// the depths after which the best move counts as stable, and the factors by which the soft
+	// limit is scaled when the best move has just changed, has stayed the same for a while, or is
+	// stable
+	private static final int STABLE_DEPTHS = 4;
+	private static final double CHANGED_FACTOR = 1.3;
+	private static final double STEADY_FACTOR = 0.8;
+	private static final double STABLE_FACTOR = 0.5;
+	// the drop of the score from one depth to the next, in centipawns, that extends the search,
+	// and the largest extension for a score that keeps dropping
+	private static final int SCORE_DROP = 30;
+	private static final double DROP_FACTOR = 1.5;
+	private static final double MAX_DROP_FACTOR = 2.5;
+
+	private final long softLimit;
+	private final long hardLimit;
+	private int bestMove = Move.NONE;
+	private int stableDepths = 0; // the number of depths since the best move last changed
+	private int previousScore = 0;
+	private double dropFactor = 1; // grows while the score keeps dropping
+	private double factor = 1; // the factor of the soft limit after the last completed depth
+
+	/**
+	 * This method creates a time manager for a move.
+	 * 
+	 * @param remainingTime the time left on the clock of the player to move, in milliseconds
+	 * @param increment     the time added to the clock after each move, in milliseconds
+	 * @param movesToGo     the number of moves to play before the next time control, including
+	 *                      this one, or 0 if there is no time control ahead
+	 */
+	public TimeManager(long remainingTime, long increment, int movesToGo) {
+		long available = Math.max(1, remainingTime - MOVE_OVERHEAD);
+		int moves = (movesToGo > 0) ? movesToGo : DEFAULT_MOVES_TO_GO;
+		long maxTime = (moves == 1) ? available : Math.max(1, (long) (available * MAX_SHARE));
+		// the increment of this move is only added once the move is played
+		long soft = available / moves + increment * 3 / 4;
+		hardLimit = Math.max(1, Math.min(maxTime, (long) (soft * HARD_FACTOR)));
+		softLimit = Math.min(soft, hardLimit);
+	}
+
+	/**
+	 * @return the time after which no new depth is started if the best move is neither stable nor
+	 *         in doubt, in milliseconds
+	 */
+	public long getSoftLimit() {
+		return softLimit;
+	}
+
+	/**
+	 * @return the time at which the search is stopped, in milliseconds
+	 */
+	public long getHardLimit() {
+		return hardLimit;
+	}
+
+	/**
+	 * @return the time after which no new depth is started, given the depths completed so far, in
+	 *         milliseconds
+	 */
+	public long getCurrentLimit() {
+		return Math.min(hardLimit, (long) (softLimit * factor));
+	}
+
+	/**
+	 * This method records the result of a completed depth and checks whether the search should
+	 * stop instead of starting the next depth.
+	 * 
+	 * @param move    the best move of the depth
+	 * @param score   the score of the best move
+	 * @param elapsed the time since the search started, in milliseconds
+	 * @return true if the search should stop and false otherwise
+	 */
+	public boolean update(int move, int score, long elapsed) {
+		boolean isFirstDepth = bestMove == Move.NONE;
+		stableDepths = (move == bestMove) ? stableDepths + 1 : 0;
+		bestMove = move;
+		if (!isFirstDepth && (score <= previousScore - SCORE_DROP)) {
+			dropFactor = Math.min(MAX_DROP_FACTOR, dropFactor * DROP_FACTOR);
+		} else if (score >= previousScore) {
+			dropFactor = 1;
+		}
+		previousScore = score;
+
+		double stabilityFactor = (stableDepths >= STABLE_DEPTHS) ? STABLE_FACTOR
+				: (stableDepths > 0) ? STEADY_FACTOR : isFirstDepth ? 1 : CHANGED_FACTOR;
+		factor = stabilityFactor * dropFactor;
+		return elapsed >= getCurrentLimit();
+	}
+}
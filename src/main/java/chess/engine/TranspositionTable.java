@@ -0,0 +1,269 @@
+package chess.engine;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import chess.Move;
+
+/**
+ * This class is a fixed-size hash table of search results kept outside the Java heap, so that even
+ * a large table adds no work for the garbage collector. Each entry uses 16 bytes: the key of the
+ * position XORed with the data, followed by the data, which packs the best move, score, depth,
+ * bound type, and the age of the search that stored it. Entries are read and written without locks
+ * by any number of threads; an entry torn by two threads writing at once fails the XOR check and
+ * is treated as missing. Entries are grouped in buckets of four that share a cache line.
+ */
+public class TranspositionTable {
+	// bound types: the stored score is exact, at least the true score, or at most the true score
+	public static final int EXACT = 0;
+	public static final int LOWER_BOUND = 1;
+	public static final int UPPER_BOUND = 2;
+
+	// the value returned by probe() when the position is not in the table
+	public static final long MISS = 0;
+
+	private static final int ENTRY_BYTES = 16;
+	private static final int BUCKET_ENTRIES = 4;
+	private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+
+	// the layout of the data: the move in bits 0-15, the score in bits 16-31, the depth in bits
+	// 32-39, the bound in bits 40-41, and the age in bits 42-47; bit 63 marks a used entry so that
+	// the data is never equal to MISS
+	private static final int SCORE_SHIFT = 16;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int AGE_SHIFT = 42;
+	private static final int AGE_MASK = 0x3f;
+	private static final long USED = 1L << 63;
+
+	private ByteBuffer buffer;
+	private long bucketMask;
+	private int age = 0;
+
+	/**
+	 * This method creates a table using the given amount of memory.
+	 * 
+	 * @param megabytes the size of the table in megabytes, at least 1; the number of entries is
+	 *                  rounded down to a power of two
+	 */
+	public TranspositionTable(int megabytes) {
+		resize(megabytes);
+	}
+
+	/**
+	 * This method replaces the table with an empty table using the given amount of memory. A table
+	 * of the same size is only cleared, and the memory of a table of another size is freed before
+	 * the new table is allocated, rather than when the garbage collector finds it, so that two
+	 * large tables are never held at once. It must not be called while a search is using the table.
+	 * 
+	 * @param megabytes the size of the table in megabytes, at least 1; the number of entries is
+	 *                  rounded down to a power of two
+	 */
+	public void resize(int megabytes) {
+		long bytes = Math.max(megabytes, 1) * (1L << 20);
+		// a ByteBuffer holds at most 2^31 - 1 bytes, so the table is at most 1 GB
+		long buckets = Long.highestOneBit(Math.min(bytes, 1L << 30) / BUCKET_BYTES);
+		if ((buffer != null) && (bucketMask == buckets - 1)) {
+			clear();
+			return;
+		}
+		if (buffer != null) {
+			free(buffer);
+			buffer = null;
+		}
+		buffer = ByteBuffer.allocateDirect((int) (buckets * BUCKET_BYTES))
+				.order(ByteOrder.nativeOrder());
+		bucketMask = buckets - 1;
+		age = 0;
+	}
+
+	/**
+	 * This method frees the memory of a direct buffer at once, which must not be used afterwards.
+	 * Java 9 and later free it through Unsafe.invokeCleaner(), and Java 8 through the cleaner of
+	 * the buffer. If neither is available, the memory is freed by the garbage collector as usual.
+	 * 
+	 * @param buffer the direct buffer
+	 */
+	private static void free(ByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			try {
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				Method getCleaner = buffer.getClass().getMethod("cleaner");
+				getCleaner.setAccessible(true);
+				Object cleaner = getCleaner.invoke(buffer);
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// the garbage collector frees the buffer once it is unreachable
+		}
+	}
+
+	/**
+	 * This method removes all entries from the table without allocating any memory. It must not be
+	 * called while a search is using the table.
+	 */
+	public void clear() {
+		for (int i = 0; i < buffer.capacity(); i += 8) {
+			buffer.putLong(i, 0);
+		}
+		age = 0;
+	}
+
+	/**
+	 * This method marks the start of a new search, so that entries stored by earlier searches are
+	 * replaced first.
+	 */
+	public void newSearch() {
+		age = (age + 1) & AGE_MASK;
+	}
+
+	/**
+	 * @return the size of the table in bytes
+	 */
+	public long getSizeInBytes() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * This method estimates how full the table is from the entries stored by the current search in
+	 * the first thousand buckets, as reported by chess engines.
+	 * 
+	 * @return the number of entries used per thousand
+	 */
+	public int getUsage() {
+		long buckets = Math.min(1000, bucketMask + 1);
+		int used = 0;
+		for (int i = 0; i < buckets * BUCKET_ENTRIES; i++) {
+			long data = buffer.getLong(i * ENTRY_BYTES + 8);
+			if (((data & USED) != 0) && (getAge(data) == age))
+				used++;
+		}
+		return (int) (used * 1000 / (buckets * BUCKET_ENTRIES));
+	}
+
+	/**
+	 * This method looks up the entry for the position with the given key.
+	 * 
+	 * @param key the Zobrist key of the position
+	 * @return the data of the entry, or MISS if the position is not in the table
+	 */
+	public long probe(long key) {
+		int bucket = (int) ((key & bucketMask) * BUCKET_BYTES);
+		for (int offset = bucket; offset < bucket + BUCKET_BYTES; offset += ENTRY_BYTES) {
+			long data = buffer.getLong(offset + 8);
+			if ((buffer.getLong(offset) ^ data) == key)
+				return data;
+		}
+		return MISS;
+	}
+
+	/**
+	 * This method stores a search result. The entry for the same position is replaced if there is
+	 * one; otherwise the entry of the bucket with the lowest depth is replaced, counting entries
+	 * from earlier searches as much shallower than they are.
+	 * 
+	 * @param key   the Zobrist key of the position
+	 * @param move  the best move found, or Move.NONE
+	 * @param score the score, with checkmates counted from the root
+	 * @param depth the depth searched, from 0 to 255
+	 * @param bound EXACT, LOWER_BOUND, or UPPER_BOUND
+	 * @param ply   the number of moves from the root to the position
+	 */
+	public void store(long key, int move, int score, int depth, int bound, int ply) {
+		int bucket = (int) ((key & bucketMask) * BUCKET_BYTES);
+		int replace = bucket;
+		int lowestValue = Integer.MAX_VALUE;
+		for (int offset = bucket; offset < bucket + BUCKET_BYTES; offset += ENTRY_BYTES) {
+			long data = buffer.getLong(offset + 8);
+			if ((buffer.getLong(offset) ^ data) == key) {
+				// keep the move of a deeper search if this search found none
+				if ((move == Move.NONE) && (bound == UPPER_BOUND))
+					move = getMove(data);
+				replace = offset;
+				break;
+			}
+			int value = ((data & USED) == 0) ? -1
+					: getDepth(data) - 8 * ((age - getAge(data)) & AGE_MASK);
+			if (value < lowestValue) {
+				lowestValue = value;
+				replace = offset;
+			}
+		}
+		long data = USED | (move & 0xffffL) | ((toTableScore(score, ply) & 0xffffL) << SCORE_SHIFT)
+				| ((long) Math.min(Math.max(depth, 0), 255) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT) | ((long) age << AGE_SHIFT);
+		buffer.putLong(replace, key ^ data);
+		buffer.putLong(replace + 8, data);
+	}
+
+	/**
+	 * This method converts a checkmate score counted from the root to one counted from the given
+	 * position, so that it stays correct when the position is reached at another ply.
+	 * 
+	 * @param score the score, with checkmates counted from the root
+	 * @param ply   the number of moves from the root to the position
+	 * @return the score, with checkmates counted from the position
+	 */
+	private static int toTableScore(int score, int ply) {
+		if (score >= Engine.MATE - Engine.MAX_PLY)
+			return score + ply;
+		if (score <= -Engine.MATE + Engine.MAX_PLY)
+			return score - ply;
+		return score;
+	}
+
+	/**
+	 * @param data the data of an entry
+	 * @return the best move stored in the entry, or Move.NONE
+	 */
+	public static int getMove(long data) {
+		return (int) (data & 0xffff);
+	}
+
+	/**
+	 * This method returns the score stored in an entry, with checkmates counted from the root.
+	 * 
+	 * @param data the data of an entry
+	 * @param ply  the number of moves from the root to the position
+	 * @return the score
+	 */
+	public static int getScore(long data, int ply) {
+		int score = (short) (data >>> SCORE_SHIFT);
+		if (score >= Engine.MATE - Engine.MAX_PLY)
+			return score - ply;
+		if (score <= -Engine.MATE + Engine.MAX_PLY)
+			return score + ply;
+		return score;
+	}
+
+	/**
+	 * @param data the data of an entry
+	 * @return the depth searched
+	 */
+	public static int getDepth(long data) {
+		return (int) ((data >>> DEPTH_SHIFT) & 0xff);
+	}
+
+	/**
+	 * @param data the data of an entry
+	 * @return EXACT, LOWER_BOUND, or UPPER_BOUND
+	 */
+	public static int getBound(long data) {
+		return (int) ((data >>> BOUND_SHIFT) & 3);
+	}
+
+	/**
+	 * @param data the data of an entry
+	 * @return the age of the search that stored the entry
+	 */
+	private static int getAge(long data) {
+		return (int) ((data >>> AGE_SHIFT) & AGE_MASK);
+	}
+}
@@ -58,6 +58,18 @@ public class King extends ChessPiece {
 		markCastle('b');
 	}
 
+	/**
+	 * This method restores whether the king can castle on each side; it is used when a move is
+	 * undone.
+	 *
+	 * @param canCastleKingside  true if the king can castle kingside and false otherwise
+	 * @param canCastleQueenside true if the king can castle queenside and false otherwise
+	 */
+	public void setCastle(boolean canCastleKingside, boolean canCastleQueenside) {
+		this.canCastleKingside = canCastleKingside;
+		this.canCastleQueenside = canCastleQueenside;
+	}
+
 	@Override
 	protected int move(int row, int col, byte[][] board, boolean isOccupied) {
 		// any move at most one square horizontally and at most one vertically is valid
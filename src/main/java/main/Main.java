@@ -1,31 +1,102 @@
 package main;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+
+import chess.BitBoard;
+import chess.Move;
+import chess.Perft;
+import chess.engine.Engine;
+import chess.engine.SearchResult;
+import chess.engine.TablebaseGenerator;
 import ui.GUI;
 import ui.TextUI;
 import ui.UserInterface;
 
 /**
- * This class is used to run the app. It can be run with either zero or one command line arguments.
- * If one argument is given, it must be either "gui" to use the graphical user interface or "text"
+ * This class is used to run the app. It can be run with zero, one, or two command line arguments.
+ * The first argument, if given, must be either "gui" to use the graphical user interface or "text"
  * to use the text user interface. If no argument is given, the graphical user interface will be
- * used by default.
+ * used by default. A second argument of "computer" makes the computer play black.
+ * 
+ * The app can also be run with "search" followed by a time in milliseconds and a position in FEN
+ * to print the result of each depth the engine searches in that time on all cores, or with
+ * "bench", optionally followed by a time in milliseconds, to print how the speed of the search
+ * scales with the number of threads, or with "selective", optionally followed by a depth, to
+ * print how many nodes the search needs to reach that depth with each selective technique of the
+ * engine switched off in turn, or with "tablebase" followed by a directory and material signatures
+ * such as KQK to generate the endgame tablebase files of those signatures in the directory.
+ * 
+ * With "uci" as the only argument, the app runs the engine under the Universal Chess Interface, so
+ * that tournament managers and analysis GUIs can use it; see the Uci class.
+ * 
+ * The app can also be run with "perft" as the first argument to count the nodes of the move tree
+ * of each reference position in Perft, optionally followed by the maximum depth, or with "divide"
+ * followed by a depth and a position in FEN to count the nodes below each legal move.
  */
 public class Main {
 	private static String uiType = "gui";
 	private static UserInterface ui = null;
+	private static final int PERFT_CACHE_BITS = 22; // the perft cache uses 64 MB
+	private static final long BENCH_TIME = 2000; // in milliseconds per position
+	private static final int SELECTIVE_DEPTH = 6;
+	// the searches compared by selective(), each with its selective techniques switched on or off
+	// in the order null-move pruning, late-move reductions, futility pruning, and razoring
+	private static final String[] SELECTIVE_NAMES = { "all on", "null move off",
+			"late move reductions off", "futility pruning off", "razoring off", "all off" };
+	private static final boolean[][] SELECTIVE_SWITCHES = { { true, true, true, true },
+			{ false, true, true, true }, { true, false, true, true }, { true, true, false, true },
+			{ true, true, true, false }, { false, false, false, false } };
 
 	/**
 	 * This method runs the app.
 	 * 
-	 * @param args the command line arguments; should be empty or contain "text" or "gui" as its
-	 *             only element
+	 * @param args the command line arguments; should be empty or contain "text" or "gui",
+	 *             optionally followed by "computer"
 	 */
 	public static void main(String[] args) {
+		// run perft instead of a user interface if requested
+		if ((args.length > 0) && args[0].equals("perft")) {
+			perft((args.length > 1) ? Integer.parseInt(args[1]) : Integer.MAX_VALUE);
+			return;
+		} else if ((args.length > 2) && args[0].equals("divide")) {
+			String fen = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+			divide(Integer.parseInt(args[1]), fen);
+			return;
+		} else if ((args.length > 2) && args[0].equals("search")) {
+			String fen = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+			search(Long.parseLong(args[1]), fen);
+			return;
+		} else if ((args.length > 0) && args[0].equals("bench")) {
+			bench((args.length > 1) ? Long.parseLong(args[1]) : BENCH_TIME);
+			return;
+		} else if ((args.length > 0) && args[0].equals("selective")) {
+			selective((args.length > 1) ? Integer.parseInt(args[1]) : SELECTIVE_DEPTH);
+			return;
+		} else if ((args.length > 2) && args[0].equals("tablebase")) {
+			generateTablebase(Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+			return;
+		} else if ((args.length == 1) && args[0].equals("uci")) {
+			new Uci(System.in, System.out).run();
+			return;
+		}
+
 		// set uiType based on args
-		if (args.length > 1) {
-			System.out.println("Error: this program should be used with at most one argument");
+		boolean isComputerOpponent = false;
+		if (args.length > 2) {
+			System.out.println("Error: this program should be used with at most two arguments");
 			System.exit(1);
-		} else if (args.length == 0) {
+		} else if (args.length == 2) {
+			if (!args[1].equals("computer")) {
+				System.out.println("Error: second argument must be \"computer\"");
+				System.exit(1);
+			}
+			isComputerOpponent = true;
+		}
+		if (args.length == 0) {
 			// keep default uiType if not specified
 		} else if (args[0].equals("text")) {
 			uiType = "text";
@@ -45,8 +116,172 @@ public class Main {
 
 		// start user interface
 		if (ui != null) {
+			if (isComputerOpponent)
+				ui.playComputer(true);
 			ui.start();
 		}
 	}
 
+	/**
+	 * This method counts the nodes of the move tree of each reference position in Perft at each
+	 * depth with a known node count, up to the given maximum depth, and prints the counts, whether
+	 * they are correct, and the number of nodes per second. The moves at the root are split across
+	 * all cores, and counts of subtrees are cached.
+	 * 
+	 * @param maxDepth the maximum depth to count
+	 */
+	private static void perft(int maxDepth) {
+		boolean allCorrect = true;
+		for (int i = 0; i < Perft.POSITIONS.length; i++) {
+			String fen = Perft.POSITIONS[i];
+			System.out.println(fen);
+			int lastDepth = Math.min(maxDepth, Perft.NODE_COUNTS[i].length);
+			for (int depth = 1; depth <= lastDepth; depth++) {
+				// use a new cache for each count so that earlier counts do not affect the timing
+				Perft perft = new Perft(PERFT_CACHE_BITS);
+				long start = System.nanoTime();
+				long nodes = perft.parallelPerft(fen, depth);
+				long nanos = Math.max(System.nanoTime() - start, 1);
+				boolean isCorrect = nodes == Perft.NODE_COUNTS[i][depth - 1];
+				allCorrect &= isCorrect;
+				System.out.printf("  depth %d: %,d nodes in %.3f s (%,d nodes/s) %s%n", depth,
+						nodes, nanos / 1e9, (long) (nodes * 1e9 / nanos),
+						isCorrect ? "OK" : "expected " + Perft.NODE_COUNTS[i][depth - 1]);
+			}
+		}
+		System.out.println(allCorrect ? "All counts correct" : "Some counts are incorrect");
+	}
+
+	/**
+	 * This method prints the number of nodes of the move tree of the given depth below each legal
+	 * move in the given position, followed by the total.
+	 * 
+	 * @param depth the depth of the tree including the root moves
+	 * @param fen   the position in Forsyth-Edwards Notation
+	 */
+	private static void divide(int depth, String fen) {
+		Map<String, Long> counts = new Perft().divide(new BitBoard(fen), Perft.isBlackToMove(fen),
+				depth);
+		long total = 0;
+		for (Map.Entry<String, Long> entry : counts.entrySet()) {
+			System.out.println(entry.getKey() + ": " + entry.getValue());
+			total += entry.getValue();
+		}
+		System.out.println("Total: " + total);
+	}
+
+	/**
+	 * This method searches the given position for the given time and prints the depth, score,
+	 * number of nodes, nodes per second, and best line of each depth completed, using one thread
+	 * per core.
+	 * 
+	 * @param millis the time to search in milliseconds
+	 * @param fen    the position in Forsyth-Edwards Notation
+	 */
+	private static void search(long millis, String fen) {
+		Engine engine = new Engine();
+		engine.setThreads(Runtime.getRuntime().availableProcessors());
+		engine.setTimeLimit(millis);
+		engine.setListener(result -> System.out.println(result));
+		SearchResult result = engine.search(new BitBoard(fen), Perft.isBlackToMove(fen));
+		System.out.println("bestmove " + Move.toString(result.getBestMove()));
+	}
+
+	/**
+	 * This method searches each reference position in Perft for the given time with 1, 2, 4, and
+	 * so on up to one thread per core, and prints the nodes per second of all threads together,
+	 * the speedup over one thread, and the average depth completed. Each search uses a new
+	 * transposition table so that earlier searches do not affect it.
+	 * 
+	 * @param millis the time to search each position in milliseconds
+	 */
+	private static void bench(long millis) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		long baseNodesPerSecond = 0;
+		for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+			long nodes = 0;
+			long time = 0;
+			int depths = 0;
+			for (String fen : Perft.POSITIONS) {
+				Engine engine = new Engine();
+				engine.setThreads(threads);
+				engine.setTimeLimit(millis);
+				SearchResult result = engine.search(new BitBoard(fen), Perft.isBlackToMove(fen));
+				nodes += result.getNodes();
+				time += result.getMillis();
+				depths += result.getDepth();
+			}
+			long nodesPerSecond = nodes * 1000 / Math.max(time, 1);
+			if (threads == 1)
+				baseNodesPerSecond = Math.max(nodesPerSecond, 1);
+			System.out.printf("threads %d: %,d nodes/s, speedup %.2f, average depth %.1f%n",
+					threads, nodesPerSecond, (double) nodesPerSecond / baseNodesPerSecond,
+					(double) depths / Perft.POSITIONS.length);
+			if (threads == cores)
+				break;
+		}
+	}
+
+	/**
+	 * This method searches each reference position in Perft to the given depth with one thread,
+	 * first with every selective technique of the engine, then with each of them switched off in
+	 * turn, and finally with all of them switched off, and prints the total number of nodes and
+	 * time of each, along with the number of positions whose best move differs from the one found
+	 * with all of them switched off.
+	 * 
+	 * @param depth the depth to search
+	 */
+	private static void selective(int depth) {
+		int last = SELECTIVE_SWITCHES.length - 1;
+		int[][] bestMoves = new int[SELECTIVE_SWITCHES.length][Perft.POSITIONS.length];
+		long[] nodes = new long[SELECTIVE_SWITCHES.length];
+		long[] times = new long[SELECTIVE_SWITCHES.length];
+		for (int i = 0; i < SELECTIVE_SWITCHES.length; i++) {
+			boolean[] switches = SELECTIVE_SWITCHES[i];
+			for (int j = 0; j < Perft.POSITIONS.length; j++) {
+				String fen = Perft.POSITIONS[j];
+				Engine engine = new Engine();
+				engine.setMaxDepth(depth);
+				engine.setNullMovePruning(switches[0]);
+				engine.setLateMoveReductions(switches[1]);
+				engine.setFutilityPruning(switches[2]);
+				engine.setRazoring(switches[3]);
+				SearchResult result = engine.search(new BitBoard(fen), Perft.isBlackToMove(fen));
+				bestMoves[i][j] = result.getBestMove();
+				nodes[i] += result.getNodes();
+				times[i] += result.getMillis();
+			}
+		}
+		for (int i = 0; i < SELECTIVE_SWITCHES.length; i++) {
+			int differences = 0;
+			for (int j = 0; j < Perft.POSITIONS.length; j++) {
+				if (bestMoves[i][j] != bestMoves[last][j])
+					differences++;
+			}
+			System.out.printf("%s: %,d nodes in %.3f s, %d best moves differ from all off%n",
+					SELECTIVE_NAMES[i], nodes[i], times[i] / 1e3, differences);
+		}
+	}
+
+	/**
+	 * This method generates the endgame tablebase files of the given material signatures, and of
+	 * the signatures they lead to, on all cores, and prints the time each signature takes.
+	 * 
+	 * @param directory  the directory of the files
+	 * @param signatures the signatures, such as "KQK"
+	 */
+	private static void generateTablebase(Path directory, String[] signatures) {
+		TablebaseGenerator generator = new TablebaseGenerator(directory);
+		for (String signature : signatures) {
+			long start = System.nanoTime();
+			try {
+				Path path = generator.generate(signature);
+				System.out.printf("%s: %s in %.3f s%n", signature, path,
+						(System.nanoTime() - start) / 1e9);
+			} catch (IOException | IllegalArgumentException e) {
+				System.out.println("Error: " + e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
 }
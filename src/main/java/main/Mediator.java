@@ -2,9 +2,13 @@ package main;
 
 import java.util.List;
 
+import chess.AbstractBoard;
 import chess.AbstractGame;
+import chess.ComputerGame;
 import chess.Game;
 import chess.GameData;
+import chess.Move;
+import chess.engine.OpeningBook;
 import ui.GUI;
 import ui.UserInterface;
 
@@ -16,6 +20,8 @@ import ui.UserInterface;
 public class Mediator {
 	private UserInterface ui;
 	private AbstractGame game;
+	private boolean isComputerOpponent = false; // true if new games are played against the computer
+	private boolean isComputerBlack = true;
 
 	// constants for use with handleSelectedOption()
 	public static final int RESIGN = 1;
@@ -49,10 +55,54 @@ public class Mediator {
 	}
 
 	/**
-	 * This method starts a new game.
+	 * This method starts a new game, against the computer if playComputer() has been called.
 	 */
 	public void initializeGame() {
-		this.game = new Game(this);
+		abandonGame();
+		this.game = isComputerOpponent ? new ComputerGame(this, isComputerBlack) : new Game(this);
+	}
+
+	/**
+	 * This method makes the computer play one of the colors in this and every later game, and
+	 * starts a new game.
+	 * 
+	 * @param isComputerBlack true if the computer plays black and false if it plays white
+	 */
+	public void playComputer(boolean isComputerBlack) {
+		this.isComputerOpponent = true;
+		this.isComputerBlack = isComputerBlack;
+		initializeGame();
+	}
+
+	/**
+	 * This method starts a new game played on the given board.
+	 * 
+	 * @param board the board to play on, in the starting position
+	 */
+	public void initializeGame(AbstractBoard board) {
+		abandonGame();
+		this.game = new Game(this, board);
+	}
+
+	/**
+	 * This method starts a new game from the position described by the given FEN string.
+	 * 
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @throws IllegalArgumentException if the FEN string is invalid
+	 */
+	public void initializeGame(String fen) {
+		Game game = new Game(this, fen);
+		abandonGame();
+		this.game = game;
+	}
+
+	/**
+	 * This method abandons the current game before another replaces it, so that the computer
+	 * stops thinking in a game against the computer.
+	 */
+	private void abandonGame() {
+		if (game instanceof ComputerGame)
+			((ComputerGame) game).abandon();
 	}
 
 	/**
@@ -112,6 +162,46 @@ public class Mediator {
 		return game.getLegalMoves(row, col);
 	}
 
+	/**
+	 * This method returns a move from the default opening book for the player to move, as a hint
+	 * for the user.
+	 * 
+	 * @return the move in coordinate notation, such as "e2e4", or null if there is no default book
+	 *         or it has no move for the position
+	 */
+	public String getBookHint() {
+		OpeningBook book = OpeningBook.getDefault();
+		int move = (book == null) ? Move.NONE : game.getBookMove(book);
+		return (move == Move.NONE) ? null : Move.toString(move);
+	}
+
+	/**
+	 * This method runs the given task on the thread that updates the user interface, such as the
+	 * computer's move once it has been found on another thread.
+	 * 
+	 * @param task the task
+	 */
+	public void invokeLater(Runnable task) {
+		ui.invokeLater(task);
+	}
+
+	/**
+	 * @return true if the computer is searching for its move in a game against the computer and
+	 *         false otherwise
+	 */
+	public boolean isComputerThinking() {
+		return (game instanceof ComputerGame) && ((ComputerGame) game).isComputerThinking();
+	}
+
+	/**
+	 * This method waits until the computer has found its move, if it is searching for one in a game
+	 * against the computer.
+	 */
+	public void awaitComputerMove() {
+		if (game instanceof ComputerGame)
+			((ComputerGame) game).awaitComputerMove();
+	}
+
 	/**
 	 * This method is run when the user selects an option that can be handled by the GUI.
 	 * 
@@ -0,0 +1,428 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+import chess.Perft;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TimeManager;
+import chess.engine.TranspositionTable;
+
+/**
+ * This class lets chess programs such as tournament managers and analysis GUIs use the engine
+ * through the Universal Chess Interface. Commands are read from the input on the thread that calls
+ * run(), while each search runs on a thread of its own, so that commands such as stop are handled
+ * at once while the engine is searching. The engine reports each completed depth in an info line
+ * and the best move in a bestmove line, and uses the default opening book and
+ * Tablebase.getShared().
+ * 
+ * The commands uci, isready, ucinewgame, setoption, position, go, stop, ponderhit, and quit are
+ * supported. The options are Hash, the size of the transposition table in megabytes, and Threads,
+ * the number of threads of each search. A search started with "go infinite" or "go ponder" does
+ * not report its best move until it receives stop, or ponderhit in the case of pondering, after
+ * which it keeps searching for the time its clock or movetime allows, or within its depth or node
+ * limit, and stops at once if it has no limit at all.
+ */
+public class Uci {
+	private static final String NAME = "Chess";
+	private static final int MAX_HASH_SIZE = 1024; // in megabytes, the largest table possible
+	private static final int MAX_THREADS = 256;
+	// the time between the stop requests sent to a search until it ends, in milliseconds
+	private static final long STOP_INTERVAL = 5;
+
+	private final BufferedReader input;
+	private final PrintStream output;
+	private final TranspositionTable table = new TranspositionTable(Engine.DEFAULT_HASH_SIZE);
+	private final Engine engine = new Engine(table);
+	// stops the search when its time runs out after ponderhit
+	private final Timer timer = new Timer("uci-timer", true);
+	private BitBoard board = new BitBoard(Perft.START_POSITION);
+	private boolean blackToMove = false;
+	// the keys of the positions before the current one since the last capture or pawn move, oldest
+	// first, and the number of those moves, which let the engine see repetitions and the
+	// fifty-move rule
+	private long[] previousKeys = new long[0];
+	private int halfmoveClock = 0;
+	private Thread searchThread = null;
+	private TimerTask stopTask = null;
+	// the time to search after ponderhit, in milliseconds, or -1 if the search ends within its
+	// depth or node limit
+	private long ponderTime = -1;
+	// true while the search must not report its best move before stop or ponderhit is received;
+	// guarded by this
+	private boolean isWaiting = false;
+
+	/**
+	 * This method creates an interface that reads commands from the given input and writes its
+	 * responses to the given output.
+	 * 
+	 * @param input  the input the commands are read from
+	 * @param output the output the responses are written to
+	 */
+	public Uci(InputStream input, PrintStream output) {
+		this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		this.output = output;
+		engine.setOpeningBook(OpeningBook.getDefault());
+		engine.setTablebase(Tablebase.getShared());
+		engine.setListener(result -> send("info " + result));
+	}
+
+	/**
+	 * This method reads and handles commands until quit is received or the input ends, and then
+	 * stops the search, if any.
+	 */
+	public void run() {
+		try {
+			String line;
+			while (((line = input.readLine()) != null) && execute(line.trim())) {
+			}
+		} catch (IOException e) {
+			send("info string error: " + e.getMessage());
+		}
+		stopSearch();
+		timer.cancel();
+	}
+
+	/**
+	 * This method handles a command. Unknown commands and options are ignored, as the protocol
+	 * requires.
+	 * 
+	 * @param command the command, with its arguments
+	 * @return false if the command is quit and true otherwise
+	 */
+	private boolean execute(String command) {
+		String[] tokens = command.split("\\s+");
+		try {
+			switch (tokens[0]) {
+			case "uci":
+				send("id name " + NAME);
+				send("option name Hash type spin default " + Engine.DEFAULT_HASH_SIZE
+						+ " min 1 max " + MAX_HASH_SIZE);
+				send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+				send("option name Ponder type check default false");
+				send("uciok");
+				break;
+			case "isready":
+				send("readyok");
+				break;
+			case "ucinewgame":
+				stopSearch();
+				table.clear();
+				board = new BitBoard(Perft.START_POSITION);
+				blackToMove = false;
+				previousKeys = new long[0];
+				halfmoveClock = 0;
+				break;
+			case "setoption":
+				setOption(tokens);
+				break;
+			case "position":
+				setPosition(tokens);
+				break;
+			case "go":
+				go(tokens);
+				break;
+			case "stop":
+				stopSearch();
+				break;
+			case "ponderhit":
+				ponderHit();
+				break;
+			case "quit":
+				return false;
+			default:
+				break;
+			}
+		} catch (RuntimeException e) {
+			// a malformed command must not end the interface
+			send("info string error in \"" + command + "\": " + e);
+		}
+		return true;
+	}
+
+	/**
+	 * This method handles the setoption command, such as "setoption name Hash value 64".
+	 * 
+	 * @param tokens the words of the command
+	 */
+	private void setOption(String[] tokens) {
+		int valueIndex = Arrays.asList(tokens).indexOf("value");
+		if ((tokens.length < 3) || (valueIndex < 0) || (valueIndex + 1 >= tokens.length))
+			return;
+		String name = String.join(" ", Arrays.copyOfRange(tokens, 2, valueIndex));
+		String value = tokens[valueIndex + 1];
+		// the table and the threads must not change during a search
+		if (name.equalsIgnoreCase("Hash")) {
+			stopSearch();
+			table.resize(Math.min(Math.max(Integer.parseInt(value), 1), MAX_HASH_SIZE));
+		} else if (name.equalsIgnoreCase("Threads")) {
+			stopSearch();
+			engine.setThreads(Math.min(Math.max(Integer.parseInt(value), 1), MAX_THREADS));
+		}
+	}
+
+	/**
+	 * This method handles the position command, such as "position startpos moves e2e4 e7e5" or
+	 * "position fen <fen> moves e2e4". If a move is not legal, it is reported and the position
+	 * before it is kept. The positions the moves pass through since the last capture or pawn move
+	 * are recorded for the search.
+	 * 
+	 * @param tokens the words of the command
+	 */
+	private void setPosition(String[] tokens) {
+		int movesIndex = Arrays.asList(tokens).indexOf("moves");
+		if (movesIndex < 0)
+			movesIndex = tokens.length;
+		String fen;
+		if ((tokens.length > 1) && tokens[1].equals("startpos")) {
+			fen = Perft.START_POSITION;
+		} else if ((tokens.length > 2) && tokens[1].equals("fen")) {
+			fen = String.join(" ", Arrays.copyOfRange(tokens, 2, movesIndex));
+		} else {
+			send("info string error: position must be followed by startpos or fen");
+			return;
+		}
+		BitBoard newBoard = new BitBoard(fen);
+		boolean newBlackToMove = Perft.isBlackToMove(fen);
+		String[] fields = fen.split(" ");
+		int newHalfmoveClock = (fields.length > 4) ? Integer.parseInt(fields[4]) : 0;
+		long[] keys = new long[tokens.length - movesIndex];
+		int keyCount = 0;
+		MoveList moves = new MoveList();
+		for (int i = movesIndex + 1; i < tokens.length; i++) {
+			int move = findMove(newBoard, newBlackToMove, tokens[i], moves);
+			if (move == Move.NONE) {
+				send("info string illegal move " + tokens[i]);
+				break;
+			}
+			boolean isPawnMove = newBoard.getPiece(Move.from(move))
+					% BitBoard.BLACK_OFFSET == BitBoard.PAWN;
+			keys[keyCount++] = newBoard.getZobristKey(newBlackToMove);
+			newBoard.makeMove(move);
+			newBlackToMove = !newBlackToMove;
+			// positions before a capture or pawn move can never occur again
+			newHalfmoveClock++;
+			if (Move.isCapture(move) || isPawnMove) {
+				keyCount = 0;
+				newHalfmoveClock = 0;
+			}
+		}
+		board = newBoard;
+		blackToMove = newBlackToMove;
+		previousKeys = Arrays.copyOf(keys, keyCount);
+		halfmoveClock = newHalfmoveClock;
+	}
+
+	/**
+	 * This method finds the legal move with the given name in coordinate notation.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param name        the move in coordinate notation, such as "e2e4" or "e7e8q"
+	 * @param moves       a list to generate the moves in
+	 * @return the move, or Move.NONE if there is no such legal move
+	 */
+	private static int findMove(BitBoard board, boolean blackToMove, String name,
+			MoveList moves) {
+		moves.clear();
+		board.generateMoves(blackToMove, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			if (Move.toString(moves.get(i)).equals(name))
+				return moves.get(i);
+		}
+		return Move.NONE;
+	}
+
+	/**
+	 * This method handles the go command, such as "go wtime 60000 btime 60000 winc 1000" or
+	 * "go depth 10", by starting a search of the current position on a new thread. Limits that are
+	 * not given are switched off, and only the clock of the player to move is used.
+	 * 
+	 * @param tokens the words of the command
+	 */
+	private void go(String[] tokens) {
+		stopSearch();
+		int maxDepth = Engine.MAX_PLY;
+		long nodeLimit = 0;
+		long moveTime = 0;
+		long remainingTime = 0;
+		long increment = 0;
+		int movesToGo = 0;
+		boolean isInfinite = false;
+		boolean isPondering = false;
+		for (int i = 1; i < tokens.length; i++) {
+			switch (tokens[i]) {
+			case "depth":
+				maxDepth = Math.min(Math.max(Integer.parseInt(tokens[++i]), 1), Engine.MAX_PLY);
+				break;
+			case "nodes":
+				nodeLimit = Long.parseLong(tokens[++i]);
+				break;
+			case "movetime":
+				moveTime = Long.parseLong(tokens[++i]);
+				break;
+			case "wtime":
+			case "btime":
+				if (tokens[i].startsWith("b") == blackToMove)
+					remainingTime = Math.max(Long.parseLong(tokens[i + 1]), 1);
+				i++;
+				break;
+			case "winc":
+			case "binc":
+				if (tokens[i].startsWith("b") == blackToMove)
+					increment = Long.parseLong(tokens[i + 1]);
+				i++;
+				break;
+			case "movestogo":
+				movesToGo = Integer.parseInt(tokens[++i]);
+				break;
+			case "infinite":
+				isInfinite = true;
+				break;
+			case "ponder":
+				isPondering = true;
+				break;
+			default:
+				break;
+			}
+		}
+
+		engine.setMaxDepth(maxDepth);
+		engine.setNodeLimit(nodeLimit);
+		if (isPondering) {
+			// the time is only used once the opponent plays the expected move, and a search
+			// without any limit ends as soon as it does, with the move found while pondering
+			if (moveTime > 0) {
+				ponderTime = moveTime;
+			} else if (remainingTime > 0) {
+				ponderTime = new TimeManager(remainingTime, increment, movesToGo).getSoftLimit();
+			} else {
+				ponderTime = ((maxDepth < Engine.MAX_PLY) || (nodeLimit > 0)) ? -1 : 0;
+			}
+			engine.setTimeLimit(0);
+			engine.setClock(0, 0, 0);
+		} else {
+			ponderTime = -1;
+			engine.setTimeLimit(moveTime);
+			engine.setClock(isInfinite ? 0 : remainingTime, increment, movesToGo);
+		}
+
+		BitBoard position = new BitBoard(board);
+		boolean side = blackToMove;
+		long[] keys = previousKeys;
+		int clock = halfmoveClock;
+		synchronized (this) {
+			isWaiting = isInfinite || isPondering;
+		}
+		searchThread = new Thread(() -> search(position, side, keys, clock), "uci-search");
+		searchThread.start();
+	}
+
+	/**
+	 * This method searches a position, waits for stop or ponderhit if the search must not end by
+	 * itself, and reports the best move along with the reply the engine expects.
+	 * 
+	 * @param position      the board, which belongs to the search
+	 * @param blackToMove   true if it is black's turn to move and false if it is white's turn
+	 * @param previousKeys  the keys of the positions of the game before the current one since the
+	 *                      last capture or pawn move, oldest first
+	 * @param halfmoveClock the number of moves since the last capture or pawn move
+	 */
+	private void search(BitBoard position, boolean blackToMove, long[] previousKeys,
+			int halfmoveClock) {
+		SearchResult result = engine.search(position, blackToMove, previousKeys, halfmoveClock);
+		// moves from the opening book and the tablebase are not reported by the listener
+		if (result.getDepth() == 0)
+			send("info " + result);
+		synchronized (this) {
+			while (isWaiting) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		int[] principalVariation = result.getPrincipalVariation();
+		if (result.getBestMove() == Move.NONE) {
+			send("bestmove 0000");
+		} else if (principalVariation.length > 1) {
+			send("bestmove " + Move.toString(result.getBestMove()) + " ponder "
+					+ Move.toString(principalVariation[1]));
+		} else {
+			send("bestmove " + Move.toString(result.getBestMove()));
+		}
+	}
+
+	/**
+	 * This method handles the ponderhit command: the opponent has played the expected move, so the
+	 * search that was pondering on it becomes a normal search, which is stopped once the time it
+	 * was given has passed, or at once if it was given no limit at all.
+	 */
+	private void ponderHit() {
+		synchronized (this) {
+			isWaiting = false;
+			notifyAll();
+		}
+		if ((ponderTime >= 0) && (searchThread != null) && searchThread.isAlive()) {
+			stopTask = new TimerTask() {
+				@Override
+				public void run() {
+					engine.stop();
+				}
+			};
+			timer.schedule(stopTask, ponderTime);
+		}
+	}
+
+	/**
+	 * This method stops the current search, if any, and waits until it has reported its best move.
+	 */
+	private void stopSearch() {
+		if (searchThread == null)
+			return;
+		synchronized (this) {
+			isWaiting = false;
+			notifyAll();
+		}
+		try {
+			// the engine clears its stop flag when a search starts, so the request is repeated
+			// until the search has ended in case the search had not started yet
+			while (searchThread.isAlive()) {
+				engine.stop();
+				searchThread.join(STOP_INTERVAL);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		searchThread = null;
+		if (stopTask != null) {
+			stopTask.cancel();
+			stopTask = null;
+		}
+	}
+
+	/**
+	 * This method writes a line to the output at once. It can be called from any thread.
+	 * 
+	 * @param line the line
+	 */
+	private synchronized void send(String line) {
+		output.println(line);
+		output.flush();
+	}
+}
@@ -59,6 +59,12 @@ public class GUI extends UserInterface {
 		}
 	}
 
+	@Override
+	public void invokeLater(Runnable task) {
+		// Swing components may only be changed on the event dispatch thread
+		SwingUtilities.invokeLater(task);
+	}
+
 	@Override
 	protected void display() {
 		board.drawBoard();
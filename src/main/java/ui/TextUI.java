@@ -23,7 +23,8 @@ public class TextUI extends UserInterface {
 			+ "by its row number, with no spaces.\n\n"
 			+ "You may also enter any of the following commands:\n" + "board     Show the board\n"
 			+ "details   View details on how the board is displayed\n"
-			+ "draw      Offer to end the game in a draw\n" + "resign    Resign the game\n";
+			+ "draw      Offer to end the game in a draw\n" + "resign    Resign the game\n"
+			+ "hint      Show a move from the opening book\n";
 	private final String promotionOptions = "Enter \"queen\", \"rook\", \"knight\", or \"bishop\" to promote your pawn.\n";
 	private final String boardDetails = "\n\nEach square is identified by a column letter (shown at the top and bottom \n"
 			+ "of each column) and a row number (shown at the left and right ends of each \n"
@@ -178,6 +179,13 @@ public class TextUI extends UserInterface {
 						return;
 					}
 				}
+			case "hint":
+				String hint = mediator.getBookHint();
+				System.out.println(
+						(hint == null) ? "The opening book has no move for this position."
+								: "The opening book suggests " + hint + ".");
+				handleInput();
+				break;
 			case "help":
 				System.out.println(optionsList);
 				handleInput();
@@ -208,6 +216,9 @@ public class TextUI extends UserInterface {
 	public void start() {
 		super.start();
 		while (true) {
+			// the user is prompted once the computer has moved
+			mediator.awaitComputerMove();
+
 			// if the game is over, exit after user confirmatioon
 			if (isGameOver) {
 				System.out.println("Press enter to exit the game.");
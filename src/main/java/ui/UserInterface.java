@@ -57,6 +57,26 @@ public abstract class UserInterface {
 	 */
 	protected abstract void display();
 
+	/**
+	 * This method runs the given task on the thread that updates this user interface. By default,
+	 * the task is run at once on the calling thread.
+	 * 
+	 * @param task the task
+	 */
+	public void invokeLater(Runnable task) {
+		task.run();
+	}
+
+	/**
+	 * This method makes the computer play one of the colors, starting with a new game. It should
+	 * be called before the user interface is started.
+	 * 
+	 * @param isComputerBlack true if the computer plays black and false if it plays white
+	 */
+	public void playComputer(boolean isComputerBlack) {
+		mediator.playComputer(isComputerBlack);
+	}
+
 	/**
 	 * This method starts the user interface.
 	 */
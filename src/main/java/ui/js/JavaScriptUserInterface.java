@@ -30,7 +30,19 @@ public class JavaScriptUserInterface extends UserInterface {
 	private static final String PROMOTION = "[\"Queen\",\"Rook\",\"Knight\",\"Bishop\"]";
 
 	public JavaScriptUserInterface(int session) {
+		this(session, false);
+	}
+
+	/**
+	 * This method creates a user interface for the given session.
+	 * 
+	 * @param session      the session to use
+	 * @param playComputer true if the computer plays black and false if two users play
+	 */
+	public JavaScriptUserInterface(int session, boolean playComputer) {
 		this.session = session;
+		if (playComputer)
+			playComputer(true);
 		this.mediator.start();
 	}
 
@@ -74,11 +86,33 @@ public class JavaScriptUserInterface extends UserInterface {
 	@RequestMapping(value = "/", method = RequestMethod.GET)
 	@CrossOrigin
 	public static String initialize() {
+		return getUI(newSession()).returnJson();
+	}
+
+	/**
+	 * This method initializes a user interface for a new session in which the computer plays
+	 * black, and it returns a JSON representation of the game state.
+	 * 
+	 * @return a JSON representation of the game state
+	 */
+	@RequestMapping(value = "/computer", method = RequestMethod.GET)
+	@CrossOrigin
+	public static String initializeComputerGame() {
+		int session = newSession();
+		JavaScriptUserInterface ui = new JavaScriptUserInterface(session, true);
+		map.put(session, ui);
+		return ui.returnJson();
+	}
+
+	/**
+	 * @return a random session number that is not negative
+	 */
+	private static int newSession() {
 		int session;
 		do {
 			session = random.nextInt();
 		} while (session < 0);
-		return getUI(session).returnJson();
+		return session;
 	}
 
 	/**
@@ -194,6 +228,22 @@ public class JavaScriptUserInterface extends UserInterface {
 		return returnJson();
 	}
 
+	/**
+	 * This method returns a move from the opening book for the player to move in the given
+	 * session, as a hint.
+	 * 
+	 * @param session the current session
+	 * @return a JSON representation of the move in coordinate notation, which is null if there is
+	 *         no opening book or it has no move for the position
+	 */
+	@RequestMapping(value = "/hint/{session:[\\d]+}", method = RequestMethod.GET)
+	@CrossOrigin
+	public static String getBookHint(@PathVariable int session) {
+		String hint = getUI(session).mediator.getBookHint();
+		return "{\"status\":200,\"hint\":" + ((hint == null) ? "null" : "\"" + hint + "\"")
+				+ "}";
+	}
+
 	/**
 	 * This method handles a click on a board square.
 	 * 
@@ -219,12 +269,25 @@ public class JavaScriptUserInterface extends UserInterface {
 		return ui.returnJson();
 	}
 
+	/**
+	 * This method returns the state of the board in the given session, so that the page can fetch
+	 * the computer's move once it is no longer thinking.
+	 * 
+	 * @param session the current session
+	 * @return the state of the board
+	 */
+	@RequestMapping(value = "/board/{session:[\\d]+}", method = RequestMethod.GET)
+	@CrossOrigin
+	public static String getBoard(@PathVariable int session) {
+		return getUI(session).returnJson();
+	}
+
 	/**
 	 * This method returns a JSON-formatted string indicating the current board state.
 	 * 
 	 * @return a JSON-formatted string indicating the current board state
 	 */
-	private String returnJson() {
+	public String returnJson() {
 		StringBuilder boardStr = new StringBuilder();
 		for (int i = 0; i < 8; i++) {
 			for (int j = 0; j < 8; j++) {
@@ -250,7 +313,8 @@ public class JavaScriptUserInterface extends UserInterface {
 			messageLine2 = "";
 		return "{\"status\":200,\"session\":" + session + ",\"board\":\"" + boardStr.toString()
 				+ "\",\"moves\":\"" + movesStr.toString() + "\",\"message1\":\"" + messageLine1
-				+ "\",\"message2\":\"" + messageLine2 + "\",\"buttons\":" + buttons + "}";
+				+ "\",\"message2\":\"" + messageLine2 + "\",\"buttons\":" + buttons
+				+ ",\"thinking\":" + mediator.isComputerThinking() + "}";
 	}
 
 	/**
@@ -0,0 +1,27 @@
+package test;
+
+import org.junit.jupiter.api.BeforeEach;
+
+import chess.BitBoard;
+import chess.Game;
+
+/**
+ * This class is used to run every test in GameTest on a game played on a BitBoard.
+ */
+class BitBoardGameTest extends GameTest {
+
+	@Override
+	@BeforeEach
+	void setUp() {
+		ui = new UserInterfaceTester();
+		mediator = ui.getMediator();
+		mediator.initializeGame(new BitBoard());
+		game = (Game) mediator.getGame();
+	}
+
+	@Override
+	Game createGame(String fen) {
+		return new Game(mediator, new BitBoard(fen), fen);
+	}
+
+}
@@ -0,0 +1,142 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.piece.Bishop;
+import chess.piece.ChessPiece;
+import chess.piece.King;
+import chess.piece.Knight;
+import chess.piece.Pawn;
+import chess.piece.Queen;
+import chess.piece.Rook;
+
+/**
+ * This class is used to test the BitBoard class. It runs every test in BoardTest against a
+ * BitBoard, replacing the tests that modify the array of pieces after creating the board.
+ */
+class BitBoardTest extends BoardTest {
+
+	@Override
+	AbstractBoard createBoard() {
+		return new BitBoard();
+	}
+
+	@Override
+	AbstractBoard createBoard(ChessPiece[][] pieces, King blackKing, King whiteKing) {
+		return new BitBoard(pieces, blackKing, whiteKing);
+	}
+
+	@Override
+	AbstractBoard createBoard(String fen) {
+		return new BitBoard(fen);
+	}
+
+	@Override
+	@Test
+	void testLegalMoves() {
+		// create board with one king of each color and one each of white rook, bishop,
+		// and queen in their starting positions, plus one white knight putting the black king
+		// in check and one black pawn attacking the white rook and bishop
+		ChessPiece[][] pieces = new ChessPiece[8][8];
+		King blackKing = new King(0, 4, true);
+		King whiteKing = new King(7, 4, false);
+		pieces[0][4] = blackKing;
+		pieces[7][4] = whiteKing;
+		pieces[7][0] = new Rook(7, 0, false);
+		pieces[7][2] = new Bishop(7, 2, false);
+		pieces[7][3] = new Queen(7, 3, false);
+		pieces[1][6] = new Knight(1, 6, false);
+		pieces[6][1] = new Pawn(6, 1, true);
+		board = createBoard(pieces, blackKing, whiteKing);
+
+		// the black king is in check, so it may only move out of check
+		assertTrue(board.isCheck(true));
+		assertEquals(board.getLegalMoves(0, 4, true).size(), 3);
+
+		// the pawn cannot get the black king out of check, and it cannot move on white's turn
+		assertEquals(board.getLegalMoves(6, 1, true).size(), 0);
+		assertEquals(board.getLegalMoves(6, 1, false).size(), 0);
+
+		// the knight should have four legal moves
+		assertEquals(board.getLegalMoves(1, 6, false).size(), 4);
+
+		// the queen should have 14 legal moves
+		assertEquals(board.getLegalMoves(7, 3, false).size(), 14);
+
+		// the rook should have 8 legal moves
+		assertEquals(board.getLegalMoves(7, 0, false).size(), 8);
+
+		// the bishop should have six legal moves
+		assertEquals(board.getLegalMoves(7, 2, false).size(), 6);
+
+		// if the king moves to d2, the bishop should have one legal move
+		move("e1", "d2", false);
+		assertEquals(board.getLegalMoves(7, 2, false).size(), 1);
+
+		// if the rook moves to b1, the rook should have 2 legal moves
+		move("a1", "b1", false);
+		assertEquals(board.getLegalMoves(7, 1, false).size(), 2);
+	}
+
+	/**
+	 * This method creates a board containing the black king on e8, the white king on c7, and the
+	 * given white piece.
+	 * 
+	 * @param piece the white piece to add
+	 */
+	void setUpCheck(ChessPiece piece) {
+		ChessPiece[][] pieces = new ChessPiece[8][8];
+		King blackKing = new King(0, 4, true);
+		King whiteKing = new King(1, 2, false);
+		pieces[0][4] = blackKing;
+		pieces[1][2] = whiteKing;
+		if (piece != null) {
+			pieces[piece.getRow()][piece.getCol()] = piece;
+		}
+		board = createBoard(pieces, blackKing, whiteKing);
+	}
+
+	@Override
+	@Test
+	void testCheck() {
+		// create board in which the black king is in check by the white king
+		ChessPiece[][] pieces = new ChessPiece[8][8];
+		King blackKing = new King(0, 4, true);
+		King whiteKing = new King(0, 3, false);
+		pieces[0][4] = blackKing;
+		pieces[0][3] = whiteKing;
+		board = createBoard(pieces, blackKing, whiteKing);
+
+		// verify that the king is in check
+		assertTrue(board.isCheck(true));
+
+		// move white king away, the black king should no longer be in check
+		move("d8", "c7", false);
+		assertFalse(board.isCheck(true));
+
+		// verify that each type of piece can put the king in check
+		setUpCheck(null);
+		assertFalse(board.isCheck(true));
+		setUpCheck(new Rook(0, 5, false));
+		assertTrue(board.isCheck(true));
+		setUpCheck(new Pawn(1, 3, false));
+		assertTrue(board.isCheck(true));
+		setUpCheck(new Queen(1, 4, false));
+		assertTrue(board.isCheck(true));
+		setUpCheck(new Bishop(1, 5, false));
+		assertTrue(board.isCheck(true));
+		setUpCheck(new Pawn(1, 5, false));
+		assertTrue(board.isCheck(true));
+		setUpCheck(new Knight(1, 6, false));
+		assertTrue(board.isCheck(true));
+
+		// a pawn directly in front of the king does not put it in check
+		setUpCheck(new Pawn(1, 4, false));
+		assertFalse(board.isCheck(true));
+	}
+
+}
@@ -7,8 +7,14 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import chess.AbstractBoard;
 import chess.Board;
+import chess.BitBoard;
 import chess.BoardState;
+import chess.Move;
+import chess.MoveList;
+import chess.Perft;
+import chess.UndoInfo;
 import chess.piece.Bishop;
 import chess.piece.ChessPiece;
 import chess.piece.King;
@@ -21,11 +27,42 @@ import chess.piece.Rook;
  * This class is used to test the Board class.
  */
 class BoardTest {
-	Board board;
+	AbstractBoard board;
 
 	@BeforeEach
 	void setUp() {
-		board = new Board();
+		board = createBoard();
+	}
+
+	/**
+	 * This method creates the board under test with all pieces in their starting positions.
+	 * 
+	 * @return the new board
+	 */
+	AbstractBoard createBoard() {
+		return new Board();
+	}
+
+	/**
+	 * This method creates the board under test with the specified array of pieces.
+	 * 
+	 * @param pieces    the pieces to use
+	 * @param blackKing the black king
+	 * @param whiteKing the white king
+	 * @return the new board
+	 */
+	AbstractBoard createBoard(ChessPiece[][] pieces, King blackKing, King whiteKing) {
+		return new Board(pieces, blackKing, whiteKing);
+	}
+
+	/**
+	 * This method creates the board under test with the position described by a FEN string.
+	 * 
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @return the new board
+	 */
+	AbstractBoard createBoard(String fen) {
+		return new Board(fen);
 	}
 
 	@Test
@@ -256,7 +293,7 @@ class BoardTest {
 		pieces[0][7] = new Rook(0, 7, true);
 		pieces[7][0] = new Rook(7, 0, false);
 		pieces[7][7] = new Rook(7, 7, false);
-		board = new Board(pieces, blackKing, whiteKing);
+		board = createBoard(pieces, blackKing, whiteKing);
 	}
 
 	@Test
@@ -406,6 +443,378 @@ class BoardTest {
 		assertEquals(board.handleSelectedSquare(4, 4, true), Board.FAILURE);
 	}
 
+	@Test
+	void testMakeUnmakeMove() {
+		// set up a position in which white can capture en passant, castle, and capture while
+		// promoting a pawn
+		ChessPiece[][] pieces = new ChessPiece[8][8];
+		King blackKing = new King(0, 4, true);
+		King whiteKing = new King(7, 4, false);
+		pieces[0][4] = blackKing;
+		pieces[7][4] = whiteKing;
+		pieces[0][7] = new Rook(0, 7, true);
+		pieces[7][7] = new Rook(7, 7, false);
+		pieces[1][0] = new Pawn(1, 0, false);
+		pieces[0][1] = new Knight(0, 1, true);
+		pieces[3][3] = new Pawn(3, 3, false);
+		pieces[1][2] = new Pawn(1, 2, true);
+		Board board = new Board(pieces, blackKing, whiteKing);
+		board.handleSelectedSquare(1, 2, true);
+		board.handleSelectedSquare(3, 2, true);
+		byte[][] array = board.toByteArray();
+		BoardState state = board.getBoardState(false);
+		assertEquals(new BoardState(array, false, true, true, true, true, true), state);
+
+		// en passant, castling, and capturing with promotion should each be undone exactly
+		int[][] moves = { { 3, 3, 2, 2 }, { 7, 4, 7, 6 }, { 1, 0, 0, 1 }, { 7, 7, 7, 5 } };
+		for (int[] move : moves) {
+			UndoInfo undo = board.makeMove(move[0], move[1], move[2], move[3], 'q');
+			assertFalse(board.getBoardState(false).equals(state));
+			board.unmakeMove(undo);
+			assertArrayEquals(array, board.toByteArray());
+			assertEquals(state, board.getBoardState(false));
+		}
+
+		// the moves made above should still be legal afterwards
+		assertEquals(board.getLegalMoves(3, 3, false).size(), 2);
+		assertEquals(board.getLegalMoves(7, 4, false).size(), 6);
+		assertEquals(board.getLegalMoves(1, 0, false).size(), 2);
+
+		// two moves undone in reverse order should restore the board
+		UndoInfo first = board.makeMove(1, 0, 0, 1, 'n');
+		UndoInfo second = board.makeMove(0, 4, 1, 4, (char) 0);
+		board.unmakeMove(second);
+		board.unmakeMove(first);
+		assertArrayEquals(array, board.toByteArray());
+		assertEquals(state, board.getBoardState(false));
+	}
+
+	/**
+	 * This method makes and undoes every legal move of the given player and of the opponent in
+	 * reply, verifying that the board is restored after each move, and returns the number of
+	 * replies.
+	 * 
+	 * @param blackToMove the color of the current player
+	 * @return the total number of legal replies to all legal moves
+	 */
+	int countReplies(boolean blackToMove) {
+		byte[][] array = board.toByteArray();
+		BoardState state = board.getBoardState(blackToMove);
+		MoveList moves = new MoveList();
+		MoveList replies = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		int count = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			replies.clear();
+			board.generateMoves(!blackToMove, replies);
+			count += replies.size();
+			for (int j = 0; j < replies.size(); j++) {
+				board.makeMove(replies.get(j));
+				board.unmakeMove(replies.get(j));
+			}
+			board.unmakeMove(moves.get(i));
+			assertArrayEquals(array, board.toByteArray());
+			assertEquals(state, board.getBoardState(blackToMove));
+		}
+		return count;
+	}
+
+	@Test
+	void testGenerateMoves() {
+		// each player has 20 moves in the starting position
+		MoveList moves = new MoveList();
+		board.generateMoves(false, moves);
+		assertEquals(moves.size(), 20);
+		assertTrue(moves.contains(Move.create(52, 36, Move.DOUBLE_PAWN_PUSH)));
+		assertTrue(moves.contains(Move.create(62, 45, Move.QUIET)));
+		assertEquals(countReplies(false), 400);
+
+		// set up a position in which white can castle on both sides, capture en passant, and
+		// promote a pawn with or without capturing
+		ChessPiece[][] pieces = new ChessPiece[8][8];
+		King blackKing = new King(0, 4, true);
+		King whiteKing = new King(7, 4, false);
+		pieces[0][4] = blackKing;
+		pieces[7][4] = whiteKing;
+		pieces[7][0] = new Rook(7, 0, false);
+		pieces[7][7] = new Rook(7, 7, false);
+		pieces[1][0] = new Pawn(1, 0, false);
+		pieces[0][1] = new Knight(0, 1, true);
+		pieces[3][3] = new Pawn(3, 3, false);
+		pieces[1][2] = new Pawn(1, 2, true);
+		board = createBoard(pieces, blackKing, whiteKing);
+		move("c7", "c5", true);
+		moves.clear();
+		board.generateMoves(false, moves);
+		assertTrue(moves.contains(Move.create(60, 62, Move.KING_CASTLE)));
+		assertTrue(moves.contains(Move.create(60, 58, Move.QUEEN_CASTLE)));
+		assertTrue(moves.contains(Move.create(27, 18, Move.EN_PASSANT)));
+		assertTrue(moves.contains(Move.createPromotion(8, 0, BitBoard.QUEEN, false)));
+		assertTrue(moves.contains(Move.createPromotion(8, 1, BitBoard.KNIGHT, true)));
+
+		// every move, including each special move, should be undone exactly
+		countReplies(false);
+
+		// after en passant, the captured pawn should be gone
+		board.makeMove(Move.create(27, 18, Move.EN_PASSANT));
+		assertNull(board.getPieceType(3, 2));
+		assertEquals(board.getPieceType(2, 2), "Pawn");
+
+		// after promoting, the new piece should replace the pawn
+		board.makeMove(Move.create(1, 16, Move.QUIET));
+		board.makeMove(Move.createPromotion(8, 0, BitBoard.ROOK, false));
+		assertEquals(board.getPieceType(0, 0), "Rook");
+		assertTrue(board.isCheck(true));
+	}
+
+	@Test
+	void testGenerateCapturesAndQuietMoves() {
+		for (String fen : Perft.POSITIONS) {
+			board = createBoard(fen);
+			boolean blackToMove = Perft.isBlackToMove(fen);
+			MoveList moves = new MoveList();
+			MoveList captures = new MoveList();
+			MoveList quietMoves = new MoveList();
+			board.generateMoves(blackToMove, moves);
+			board.generateCaptures(blackToMove, captures);
+			board.generateQuietMoves(blackToMove, quietMoves);
+
+			// the captures and quiet moves should split the moves between them
+			assertEquals(captures.size() + quietMoves.size(), moves.size());
+			for (int i = 0; i < captures.size(); i++) {
+				int move = captures.get(i);
+				assertTrue(moves.contains(move));
+				assertTrue(Move.isCapture(move) || Move.isPromotion(move));
+			}
+			for (int i = 0; i < quietMoves.size(); i++) {
+				int move = quietMoves.get(i);
+				assertTrue(moves.contains(move));
+				assertFalse(Move.isCapture(move) || Move.isPromotion(move));
+			}
+
+			// each move should be legal only for the player to move and with the right flags
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				assertTrue(board.isLegalMove(move, blackToMove));
+				assertFalse(board.isLegalMove(move, !blackToMove));
+				assertFalse(board.isLegalMove(move ^ (Move.CAPTURE << 12), blackToMove));
+			}
+			assertFalse(board.isLegalMove(Move.NONE, blackToMove));
+		}
+	}
+
+	@Test
+	void testZobristKey() {
+		// both kinds of board should give the starting position the same key
+		long startKey = board.getZobristKey(false);
+		assertEquals(startKey, new Board().getZobristKey(false));
+		assertEquals(startKey, new BitBoard().getZobristKey(false));
+		assertNotEquals(startKey, board.getZobristKey(true));
+
+		// moving the knights out and back should restore the key
+		move("g1", "f3", false);
+		assertNotEquals(startKey, board.getZobristKey(true));
+		move("g8", "f6", true);
+		move("f3", "g1", false);
+		move("f6", "g8", true);
+		assertEquals(startKey, board.getZobristKey(false));
+
+		// reaching the same position by a different move order should give the same key
+		move("e2", "e4", false);
+		move("e7", "e5", true);
+		long key = board.getZobristKey(false);
+		board = createBoard();
+		move("e2", "e3", false);
+		move("e7", "e6", true);
+		move("e3", "e4", false);
+		move("e6", "e5", true);
+		assertEquals(key, board.getZobristKey(false));
+
+		// moving the kings out and back should change the key, since they can no longer castle
+		move("e1", "e2", false);
+		move("e8", "e7", true);
+		move("e2", "e1", false);
+		move("e7", "e8", true);
+		assertNotEquals(key, board.getZobristKey(false));
+
+		// the key should depend on whether en passant is legal
+		board = createBoard();
+		move("e2", "e4", false);
+		move("g8", "f6", true);
+		move("e4", "e5", false);
+		move("f6", "g8", true);
+		move("g1", "f3", false);
+		move("d7", "d5", true);
+		String fen = "rnbqkbnr/ppp1pppp/8/3pP3/8/5N2/PPPP1PPP/RNBQKB1R w KQkq";
+		assertEquals(new BitBoard(fen + " d6").getZobristKey(false), board.getZobristKey(false));
+		assertNotEquals(new BitBoard(fen + " -").getZobristKey(false), board.getZobristKey(false));
+
+		// making and undoing every move should restore the key
+		MoveList moves = new MoveList();
+		board.generateMoves(true, moves);
+		key = board.getZobristKey(true);
+		for (int i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			assertNotEquals(key, board.getZobristKey(false));
+			board.unmakeMove(moves.get(i));
+			assertEquals(key, board.getZobristKey(true));
+		}
+	}
+
+	@Test
+	void testNullMove() {
+		// a null move should pass the turn, clear en passant, and be undone exactly
+		String fen = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6";
+		board = createBoard(fen + " 0 3");
+		long key = board.getZobristKey(false);
+		board.makeNullMove();
+		assertEquals(board.toFen(true), "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq -");
+		assertEquals(board.getEnPassantSquare(), -1);
+		assertEquals(board.getZobristKey(true),
+				createBoard(fen.replace(" w ", " b ").replace(" d6", " -") + " 0 3")
+						.getZobristKey(true));
+		MoveList moves = new MoveList();
+		board.generateMoves(true, moves);
+		assertEquals(moves.size(), 27);
+		board.unmakeNullMove();
+		assertEquals(board.toFen(false), fen);
+		assertEquals(board.getZobristKey(false), key);
+		assertTrue(board.isLegalMove(Move.create(28, 19, Move.EN_PASSANT), false));
+
+		// only knights, bishops, rooks, and queens count as material other than pawns
+		assertTrue(board.hasNonPawnMaterial(false));
+		assertTrue(board.hasNonPawnMaterial(true));
+		board = createBoard("4k3/pppp4/8/8/8/8/4PPPP/1N2K3 w - - 0 1");
+		assertTrue(board.hasNonPawnMaterial(false));
+		assertFalse(board.hasNonPawnMaterial(true));
+		board.makeMove(Move.create(57, 42, Move.QUIET));
+		assertTrue(board.hasNonPawnMaterial(false));
+	}
+
+	@Test
+	void testPinsAndDoubleCheck() {
+		// create board in which a white rook is pinned along the e-file and a white bishop is
+		// pinned along a diagonal
+		ChessPiece[][] pieces = new ChessPiece[8][8];
+		King blackKing = new King(0, 0, true);
+		King whiteKing = new King(7, 4, false);
+		pieces[0][0] = blackKing;
+		pieces[7][4] = whiteKing;
+		pieces[0][4] = new Rook(0, 4, true);
+		pieces[4][4] = new Rook(4, 4, false);
+		pieces[3][0] = new Bishop(3, 0, true);
+		pieces[6][3] = new Bishop(6, 3, false);
+		board = createBoard(pieces, blackKing, whiteKing);
+
+		// the pinned pieces may only move along the line of the pin
+		assertEquals(board.getLegalMoves(4, 4, false).size(), 6);
+		assertEquals(board.getLegalMoves(6, 3, false).size(), 3);
+
+		// create board in which the white king is in check by both a rook and a bishop
+		pieces = new ChessPiece[8][8];
+		blackKing = new King(0, 0, true);
+		whiteKing = new King(7, 4, false);
+		pieces[0][0] = blackKing;
+		pieces[7][4] = whiteKing;
+		pieces[0][4] = new Rook(0, 4, true);
+		pieces[4][1] = new Bishop(4, 1, true);
+		pieces[7][0] = new Queen(7, 0, false);
+		board = createBoard(pieces, blackKing, whiteKing);
+
+		// only the king may move, and not along the line of either check
+		assertTrue(board.isCheck(false));
+		assertEquals(board.getLegalMoves(7, 0, false).size(), 0);
+		assertEquals(board.getLegalMoves(7, 4, false).size(), 3);
+		assertTrue(board.anyLegalMoves(false));
+	}
+
+	@Test
+	void testFen() {
+		// every reference position should be written back the same way, without the counters
+		for (String fen : Perft.POSITIONS) {
+			String position = fen.substring(0, fen.lastIndexOf(' ', fen.lastIndexOf(' ') - 1));
+			assertEquals(position, createBoard(fen).toFen(Perft.isBlackToMove(fen)));
+		}
+
+		// the starting position should match a new board, including its key
+		AbstractBoard start = createBoard(Perft.START_POSITION);
+		assertArrayEquals(board.toByteArray(), start.toByteArray());
+		assertEquals(board.getZobristKey(false), start.getZobristKey(false));
+		assertEquals(board.toFen(false), "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -");
+
+		// the en passant square should be written after a pawn moves two spaces
+		move("e2", "e4", false);
+		assertEquals(board.getEnPassantSquare(), 44);
+		assertEquals(board.toFen(true), "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3");
+		move("g8", "f6", true);
+		assertEquals(board.getEnPassantSquare(), -1);
+
+		// castling rights should be dropped when the king or rook is not on its starting square
+		board = createBoard("r3k3/8/8/8/8/8/8/4K2R w KQkq - 0 1");
+		assertEquals(board.getCastlingRights(), BitBoard.WHITE_KINGSIDE | BitBoard.BLACK_QUEENSIDE);
+		assertEquals(board.getLegalMoves(7, 4, false).size(), 6);
+		assertEquals(board.getLegalMoves(0, 4, true).size(), 6);
+
+		// a pawn that can be captured by en passant should be loaded
+		board = createBoard("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+		assertEquals(board.getLegalMoves(3, 4, false).size(), 2);
+		assertEquals(board.handleSelectedSquare(3, 4, false), Board.SELECT);
+		assertEquals(board.handleSelectedSquare(2, 3, false), Board.CAPTURE);
+		assertEquals(board.toFen(true), "4k3/8/3P4/8/8/8/8/4K3 b - -");
+
+		// invalid placements should be rejected
+		assertThrows(IllegalArgumentException.class, () -> createBoard("8/8/8/8/8/8/8/8 w - -"));
+		assertThrows(IllegalArgumentException.class,
+				() -> createBoard("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq -"));
+		assertThrows(IllegalArgumentException.class,
+				() -> createBoard("4k3/8/8/8/8/8/8/4K3 w - e9"));
+	}
+
+	@Test
+	void testLegalMovesAfterMoves() {
+		// repeated requests in the same position should give the same moves
+		assertEquals(board.getLegalMoves(7, 6, false).size(), 2);
+		assertEquals(board.getLegalMoves(7, 6, false).size(), 2);
+		assertTrue(board.anyLegalMoves(false));
+
+		// the moves should be updated after each move, including moves for the other player
+		move("e2", "e4", false);
+		assertEquals(board.getLegalMoves(7, 5, false).size(), 5);
+		assertEquals(board.getLegalMoves(0, 6, true).size(), 2);
+		move("f7", "f6", true);
+		move("d1", "h5", false);
+		assertTrue(board.isCheck(true));
+		assertEquals(board.getLegalMoves(0, 6, true).size(), 0);
+		assertEquals(board.getLegalMoves(1, 6, true).size(), 1);
+
+		// a move that was legal in an earlier position should be rejected
+		assertEquals(board.handleSelectedSquare(0, 6, true), Board.SELECT);
+		assertEquals(board.handleSelectedSquare(2, 7, true), Board.FAILURE);
+		move("g7", "g6", true);
+		assertEquals(board.getLegalMoves(0, 6, true).size(), 1);
+		assertEquals(board.getLegalMoves(0, 6, false).size(), 0);
+	}
+
+	@Test
+	void testLegalMovesWithEnPassant() {
+		// the capture en passant should be listed, also when the moves come from the cache
+		move("e2", "e4", false);
+		move("a7", "a6", true);
+		move("e4", "e5", false);
+		move("d7", "d5", true);
+		assertEquals(board.getLegalMoves(3, 4, false).size(), 2);
+		assertEquals(board.getLegalMoves(3, 4, false).size(), 2);
+		MoveList moves = new MoveList();
+		board.generateMoves(false, moves);
+		assertTrue(moves.contains(Move.create(28, 19, Move.EN_PASSANT)));
+
+		// the capture is no longer possible after another move
+		move("a2", "a3", false);
+		move("a6", "a5", true);
+		assertEquals(board.getLegalMoves(3, 4, false).size(), 1);
+	}
+
 	@Test
 	void testIllegalMoves() {
 		// attempt to move white rook from a1 to a2
@@ -0,0 +1,371 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Board;
+import chess.ComputerGame;
+import chess.Game;
+import chess.Move;
+import chess.MoveList;
+import chess.engine.Engine;
+import chess.engine.SearchResult;
+import chess.engine.StaticExchange;
+import chess.engine.TimeManager;
+import main.Mediator;
+
+/**
+ * This class is used to test the Engine class and games against the computer.
+ */
+class EngineTest {
+
+	/**
+	 * This method searches a position to the given depth and checks that the board is restored.
+	 * 
+	 * @param board the board in the position to search
+	 * @param fen   the position in Forsyth-Edwards Notation
+	 * @param depth the depth to search
+	 * @return the result of the search
+	 */
+	SearchResult search(AbstractBoard board, String fen, int depth) {
+		Engine engine = new Engine();
+		engine.setMaxDepth(depth);
+		boolean blackToMove = fen.contains(" b ");
+		String before = board.toFen(blackToMove);
+		SearchResult result = engine.search(board, blackToMove);
+		assertEquals(before, board.toFen(blackToMove));
+		return result;
+	}
+
+	@Test
+	void testMateInOne() {
+		String fen = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+		for (AbstractBoard board : new AbstractBoard[] { new Board(fen), new BitBoard(fen) }) {
+			SearchResult result = search(board, fen, 4);
+			assertEquals(Move.toString(result.getBestMove()), "a1a8");
+			assertTrue(result.isMateScore());
+			assertEquals(result.getScore(), Engine.MATE - 1);
+			// the search should stop once the checkmate has been found
+			assertTrue(result.getDepth() <= 2);
+		}
+	}
+
+	@Test
+	void testMateInTwo() {
+		// the rooks force checkmate along the back rank after the black rook blocks the check
+		String fen = "6k1/5ppp/8/8/8/8/4r3/1R1R2K1 w - - 0 1";
+		SearchResult result = search(new BitBoard(fen), fen, 4);
+		assertTrue(result.isMateScore());
+		assertEquals(result.getScore(), Engine.MATE - 3);
+		assertTrue(result.toString().contains("mate 2"));
+	}
+
+	@Test
+	void testCapture() {
+		// the black queen can be captured for free
+		String fen = "4k3/8/8/3q4/8/2N5/8/4K3 w - - 0 1";
+		SearchResult result = search(new BitBoard(fen), fen, 3);
+		assertEquals(Move.toString(result.getBestMove()), "c3d5");
+		assertTrue(result.getScore() > 200);
+		assertEquals(result.getPrincipalVariation()[0], result.getBestMove());
+	}
+
+	@Test
+	void testNoLegalMoves() {
+		// black is stalemated
+		String fen = "k7/2Q5/1K6/8/8/8/8/8 b - - 0 1";
+		SearchResult result = search(new BitBoard(fen), fen, 3);
+		assertEquals(result.getBestMove(), Move.NONE);
+		assertEquals(result.getScore(), 0);
+	}
+
+	@Test
+	void testLimits() {
+		// the node limit should be respected, and a move should be found even if depth 1 is not
+		// completed
+		Engine engine = new Engine();
+		engine.setNodeLimit(5000);
+		SearchResult result = engine.search(new BitBoard(), false);
+		assertTrue(result.getNodes() <= 5000);
+		assertNotEquals(result.getBestMove(), Move.NONE);
+		engine.setNodeLimit(10);
+		result = engine.search(new BitBoard(), false);
+		assertEquals(result.getDepth(), 1);
+		assertNotEquals(result.getBestMove(), Move.NONE);
+
+		// a search stopped among the evasions of a check should not score a checkmate
+		for (int nodeLimit = 1; nodeLimit <= 20; nodeLimit++) {
+			engine.setNodeLimit(nodeLimit);
+			result = engine.search(new BitBoard("4k3/8/8/3Q4/8/8/8/4K3 w - - 0 1"), false);
+			assertFalse(result.isMateScore());
+			assertTrue(Math.abs(result.getScore()) < Engine.MATE - Engine.MAX_PLY);
+		}
+
+		// the time limit should be respected
+		engine = new Engine();
+		engine.setTimeLimit(200);
+		long start = System.currentTimeMillis();
+		result = engine.search(new BitBoard(), false);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertTrue(result.getDepth() >= 2);
+		assertTrue(result.getNodesPerSecond() > 0);
+	}
+
+	@Test
+	void testClock() {
+		// the hard limit should leave time on the clock, and most of it for later moves
+		TimeManager timeManager = new TimeManager(60000, 0, 0);
+		assertTrue(timeManager.getSoftLimit() < timeManager.getHardLimit());
+		assertTrue(timeManager.getHardLimit() <= 30000);
+		assertTrue(new TimeManager(60000, 1000, 0).getSoftLimit() > timeManager.getSoftLimit());
+		assertTrue(new TimeManager(60000, 0, 10).getSoftLimit() > timeManager.getSoftLimit());
+		assertTrue(new TimeManager(60000, 0, 1).getHardLimit() > 50000);
+		assertTrue(new TimeManager(60000, 0, 1).getHardLimit() <= 60000
+				- TimeManager.MOVE_OVERHEAD);
+		assertTrue(new TimeManager(10, 0, 0).getHardLimit() >= 1);
+		assertTrue(new TimeManager(1000, 5000, 0).getHardLimit() < 1000);
+
+		// a stable best move should stop the search before the soft limit, and a change of the best
+		// move or a drop of the score should extend it, but never beyond the hard limit
+		long soft = timeManager.getSoftLimit();
+		int move = Move.create(52, 36, Move.DOUBLE_PAWN_PUSH);
+		int otherMove = Move.create(51, 35, Move.DOUBLE_PAWN_PUSH);
+		assertFalse(timeManager.update(move, 20, 0));
+		for (int i = 0; i < 4; i++) {
+			timeManager.update(move, 20, 0);
+		}
+		assertTrue(timeManager.getCurrentLimit() < soft);
+		assertTrue(timeManager.update(move, 20, soft * 3 / 4));
+		assertFalse(timeManager.update(otherMove, 20, soft));
+		assertTrue(timeManager.getCurrentLimit() > soft);
+		timeManager.update(otherMove, -100, 0);
+		timeManager.update(otherMove, -300, 0);
+		timeManager.update(otherMove, -500, 0);
+		assertTrue(timeManager.getCurrentLimit() > soft * 3 / 2);
+		assertTrue(timeManager.getCurrentLimit() <= timeManager.getHardLimit());
+
+		// the engine should return within the hard limit
+		Engine engine = new Engine();
+		engine.setClock(1000, 0, 0);
+		long start = System.currentTimeMillis();
+		SearchResult result = engine.search(new BitBoard(), false);
+		assertTrue(System.currentTimeMillis() - start
+				<= new TimeManager(1000, 0, 0).getHardLimit() + 100);
+		assertNotEquals(result.getBestMove(), Move.NONE);
+		engine.setClock(600, 0, 1);
+		start = System.currentTimeMillis();
+		result = engine.search(new BitBoard(), false);
+		assertTrue(System.currentTimeMillis() - start <= 600 - TimeManager.MOVE_OVERHEAD + 100);
+		assertTrue(result.getDepth() >= 2);
+	}
+
+	/**
+	 * This method finds the legal move with the given name, such as "e2e4".
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param name        the name of the move
+	 * @return the encoded move, or Move.NONE if there is no such legal move
+	 */
+	int findMove(AbstractBoard board, boolean blackToMove, String name) {
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			if (Move.toString(moves.get(i)).equals(name))
+				return moves.get(i);
+		}
+		return Move.NONE;
+	}
+
+	@Test
+	void testGameHistory() {
+		// black, a queen down, can return to a position of the game by moving the king back
+		String fen = "6k1/8/8/8/8/Q7/8/K7 b - - 4 3";
+		long[] previousKeys = { new BitBoard("7k/8/8/8/8/Q7/8/K7 w - - 0 1").getZobristKey(false),
+				new BitBoard("7k/8/8/8/Q7/8/8/K7 b - - 0 1").getZobristKey(true),
+				new BitBoard("6k1/8/8/8/Q7/8/8/K7 w - - 0 1").getZobristKey(false) };
+		Engine engine = new Engine();
+		engine.setMaxDepth(3);
+		assertTrue(engine.search(new BitBoard(fen), true).getScore() < -500);
+		SearchResult result = engine.search(new BitBoard(fen), true, previousKeys, 4);
+		assertEquals(Move.toString(result.getBestMove()), "g8h8");
+		assertEquals(result.getScore(), 0);
+		// positions before the last capture or pawn move cannot be repeated
+		assertTrue(engine.search(new BitBoard(fen), true, previousKeys, 2).getScore() < -500);
+
+		// white cannot win before the fifty-move rule ends the game without a capture or pawn move
+		fen = "7k/8/8/8/8/Q7/8/K7 w - - 99 60";
+		assertTrue(engine.search(new BitBoard(fen), false).getScore() > 500);
+		assertEquals(engine.search(new BitBoard(fen), false, new long[0], 99).getScore(), 0);
+		// but a checkmate on the last move still counts
+		fen = "7k/8/6K1/8/8/8/8/Q7 w - - 99 60";
+		assertTrue(engine.search(new BitBoard(fen), false, new long[0], 99).isMateScore());
+	}
+
+	@Test
+	void testStaticExchange() {
+		String[][] exchanges = {
+				// an undefended pawn and a pawn defended by a pawn
+				{ "4k3/8/8/3p4/8/8/3R4/4K3 w - - 0 1", "d2d5", "100" },
+				{ "4k3/8/2p5/3p4/8/8/3Q4/4K3 w - - 0 1", "d2d5", "-800" },
+				// the rook behind the first rook recaptures once the first rook is taken
+				{ "4k3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5", "100" },
+				// the defender behind the rook cannot recapture while the rook is in the way
+				{ "3rk3/3r4/8/3p4/8/8/3R4/4K3 w - - 0 1", "d2d5", "-400" },
+				// the king can only recapture an undefended piece
+				{ "8/8/8/3k4/4p3/2N5/8/4R1K1 w - - 0 1", "c3e4", "100" },
+				{ "8/8/8/3k4/4p3/2N5/8/6K1 w - - 0 1", "c3e4", "-220" },
+				// en passant and a promotion that can be captured
+				{ "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", "100" },
+				{ "2r1k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q", "-100" } };
+		// an array reused across exchanges should give the same results
+		int[] gains = new int[StaticExchange.MAX_CAPTURES];
+		for (String[] exchange : exchanges) {
+			for (AbstractBoard board : new AbstractBoard[] { new Board(exchange[0]),
+					new BitBoard(exchange[0]) }) {
+				int move = findMove(board, false, exchange[1]);
+				assertNotEquals(move, Move.NONE);
+				assertEquals(StaticExchange.evaluate(board, move), Integer.parseInt(exchange[2]));
+				assertEquals(StaticExchange.evaluate(board, move, gains),
+						Integer.parseInt(exchange[2]));
+			}
+		}
+	}
+
+	@Test
+	void testQuiescence() {
+		// the queen should not take a defended pawn even at depth 1, and the score should count the
+		// pawns it could win instead
+		String fen = "4k3/8/2p5/3p4/8/8/3Q4/4K3 w - - 0 1";
+		SearchResult result = search(new BitBoard(fen), fen, 1);
+		assertNotEquals(Move.toString(result.getBestMove()), "d2d5");
+		assertTrue(result.getScore() > 500);
+
+		// a capture that starts an exchange should be scored after the exchange
+		fen = "4k3/8/8/3r4/8/8/3R4/3QK3 w - - 0 1";
+		result = search(new BitBoard(fen), fen, 1);
+		assertEquals(Move.toString(result.getBestMove()), "d2d5");
+		assertTrue(result.getScore() > 700);
+	}
+
+	@Test
+	void testSelectiveSearch() {
+		// every selective technique should be on by default and can be switched off
+		Engine engine = new Engine();
+		assertTrue(engine.isNullMovePruning());
+		assertTrue(engine.isLateMoveReductions());
+		assertTrue(engine.isFutilityPruning());
+		assertTrue(engine.isRazoring());
+		engine.setNullMovePruning(false);
+		engine.setLateMoveReductions(false);
+		engine.setFutilityPruning(false);
+		engine.setRazoring(false);
+		assertFalse(engine.isNullMovePruning());
+		assertFalse(engine.isLateMoveReductions());
+		assertFalse(engine.isFutilityPruning());
+		assertFalse(engine.isRazoring());
+
+		// the selective search should need far fewer nodes to reach the same depth
+		String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+		engine.setMaxDepth(5);
+		SearchResult fullResult = engine.search(new BitBoard(fen), false);
+		engine.setLateMoveReductions(true);
+		SearchResult reducedResult = engine.search(new BitBoard(fen), false);
+		assertTrue(reducedResult.getNodes() < fullResult.getNodes());
+		SearchResult result = search(new BitBoard(fen), fen, 5);
+		assertTrue(2 * result.getNodes() < fullResult.getNodes());
+
+		// the selective search should still find a checkmate that needs a quiet move
+		fen = "6k1/5ppp/8/8/8/8/4r3/1R1R2K1 w - - 0 1";
+		result = search(new Board(fen), fen, 4);
+		assertEquals(result.getScore(), Engine.MATE - 3);
+	}
+
+	@Test
+	void testThreads() {
+		// a search with one thread should be deterministic
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		SearchResult[] results = new SearchResult[2];
+		for (int i = 0; i < results.length; i++) {
+			Engine engine = new Engine();
+			engine.setMaxDepth(4);
+			results[i] = engine.search(new BitBoard(fen), false);
+		}
+		assertEquals(results[0].getBestMove(), results[1].getBestMove());
+		assertEquals(results[0].getScore(), results[1].getScore());
+		assertEquals(results[0].getNodes(), results[1].getNodes());
+
+		// several threads should find the same checkmate, restore the board, and share the limits
+		Engine engine = new Engine();
+		engine.setThreads(4);
+		assertEquals(engine.getThreads(), 4);
+		fen = "6k1/5ppp/8/8/8/8/4r3/1R1R2K1 w - - 0 1";
+		BitBoard board = new BitBoard(fen);
+		engine.setMaxDepth(4);
+		SearchResult result = engine.search(board, false);
+		assertEquals(board.toFen(false), "6k1/5ppp/8/8/8/8/4r3/1R1R2K1 w - -");
+		assertEquals(result.getScore(), Engine.MATE - 3);
+		engine.setMaxDepth(Engine.MAX_PLY);
+		engine.setNodeLimit(20000);
+		result = engine.search(new BitBoard(), false);
+		assertTrue(result.getNodes() <= 20000);
+		assertNotEquals(result.getBestMove(), Move.NONE);
+		engine.setNodeLimit(0);
+		engine.setTimeLimit(200);
+		long start = System.currentTimeMillis();
+		result = engine.search(new BitBoard(), false);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertNotEquals(result.getBestMove(), Move.NONE);
+	}
+
+	@Test
+	void testComputerGame() {
+		UserInterfaceTester ui = new UserInterfaceTester();
+		Mediator mediator = ui.getMediator();
+		Engine engine = new Engine();
+		engine.setMaxDepth(2);
+		ComputerGame game = new ComputerGame(mediator, new Board(), true, engine);
+		game.start();
+		assertNull(game.getLastResult());
+
+		// the computer should reply to each move of the user, and its pieces cannot be selected
+		assertEquals(game.handleSelectedSquare(6, 4), Board.SELECT);
+		assertEquals(game.handleSelectedSquare(4, 4), Board.PAWN_MOVE);
+		game.awaitComputerMove();
+		assertNotNull(game.getLastResult());
+		assertFalse(ui.blackToMove());
+		assertTrue(game.toFen().contains(" w KQkq "));
+		assertEquals(game.handleSelectedSquare(6, 3), Board.SELECT);
+		assertEquals(game.handleSelectedSquare(4, 3), Board.PAWN_MOVE);
+		game.awaitComputerMove();
+		assertFalse(ui.blackToMove());
+
+		// the computer should move first when it plays white
+		game = new ComputerGame(mediator, new Board(), false, engine);
+		game.start();
+		game.awaitComputerMove();
+		assertTrue(ui.blackToMove());
+		assertNotEquals(game.toFen(), new Game(mediator).toFen());
+		assertEquals(game.handleSelectedSquare(6, 4), Board.FAILURE);
+
+		// the user's move should return while the computer is still thinking, and the user
+		// cannot move until the computer has
+		engine = new Engine();
+		engine.setTimeLimit(500);
+		game = new ComputerGame(mediator, new Board(), true, engine);
+		game.start();
+		long start = System.currentTimeMillis();
+		assertEquals(game.handleSelectedSquare(6, 4), Board.SELECT);
+		assertEquals(game.handleSelectedSquare(4, 4), Board.PAWN_MOVE);
+		assertTrue(System.currentTimeMillis() - start < 250);
+		assertTrue(game.isComputerThinking());
+		assertTrue(ui.blackToMove());
+		assertEquals(game.handleSelectedSquare(6, 3), Board.FAILURE);
+		game.awaitComputerMove();
+		assertFalse(game.isComputerThinking());
+		assertFalse(ui.blackToMove());
+	}
+}
@@ -0,0 +1,175 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.Board;
+import chess.Move;
+import chess.MoveList;
+import chess.Perft;
+import chess.engine.Evaluation;
+import chess.engine.EvaluationParameters;
+import chess.engine.PawnTable;
+
+/**
+ * This class is used to test the Evaluation and EvaluationParameters classes.
+ */
+class EvaluationTest {
+
+	/**
+	 * This method checks that the evaluation a BitBoard keeps up to date matches a full evaluation
+	 * of the same position after each move and its reply, to the given depth, and that the pawn
+	 * table does not change the evaluation.
+	 * 
+	 * @param board       the board
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param depth       the number of moves to make
+	 * @param pawnTable   the pawn table
+	 */
+	void checkEvaluation(BitBoard board, boolean blackToMove, int depth, PawnTable pawnTable) {
+		int score = Evaluation.evaluate(board, blackToMove);
+		assertEquals(score, Evaluation.evaluate(board, blackToMove, pawnTable));
+		String fen = board.toFen(blackToMove);
+		assertEquals(score, Evaluation.evaluate(new Board(fen), blackToMove));
+		assertEquals(score, Evaluation.evaluate(new BitBoard(fen), blackToMove));
+		if (depth == 0)
+			return;
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			checkEvaluation(board, !blackToMove, depth - 1, pawnTable);
+			board.unmakeMove(moves.get(i));
+			assertEquals(Evaluation.evaluate(board, blackToMove), score);
+		}
+	}
+
+	@Test
+	void testIncrementalEvaluation() {
+		PawnTable pawnTable = new PawnTable(10);
+		for (String fen : Perft.POSITIONS) {
+			checkEvaluation(new BitBoard(fen), Perft.isBlackToMove(fen), 2, pawnTable);
+		}
+		assertTrue(pawnTable.getHitRate() > 0.5);
+	}
+
+	@Test
+	void testPawnTable() {
+		// the pawn key should only change when pawns move
+		BitBoard board = new BitBoard();
+		long key = board.getPawnKey();
+		int knightMove = Move.create(62, 45, Move.QUIET);
+		board.makeMove(knightMove);
+		assertEquals(board.getPawnKey(), key);
+		board.unmakeMove(knightMove);
+		int pawnMove = Move.create(52, 36, Move.DOUBLE_PAWN_PUSH);
+		board.makeMove(pawnMove);
+		assertNotEquals(board.getPawnKey(), key);
+		board.unmakeMove(pawnMove);
+		assertEquals(board.getPawnKey(), key);
+		assertEquals(new BitBoard("4k3/pppppppp/8/8/8/8/PPPPPPPP/4K3 w - - 0 1").getPawnKey(), key);
+
+		// an entry should be found once stored, until the parameters change
+		EvaluationParameters parameters = EvaluationParameters.getDefault();
+		PawnTable pawnTable = new PawnTable(4);
+		assertFalse(pawnTable.probe(key, parameters));
+		pawnTable.store(key, 10, -20, 1L << 12);
+		assertTrue(pawnTable.probe(key, parameters));
+		assertEquals(pawnTable.getMiddlegameScore(), 10);
+		assertEquals(pawnTable.getEndgameScore(), -20);
+		assertEquals(pawnTable.getPassedPawns(), 1L << 12);
+		assertEquals(pawnTable.getHitRate(), 0.5);
+		assertFalse(pawnTable.probe(key, parameters.with("tempo", 0)));
+	}
+
+	@Test
+	void testPawnStructure() {
+		// without the pawn structure terms, only the endgame scores of these positions differ
+		EvaluationParameters defaults = EvaluationParameters.getDefault();
+		EvaluationParameters parameters = defaults.with("pawn.doubled", 0, 0)
+				.with("pawn.isolated", 0, 0).with("pawn.backward", 0, 0)
+				.with("middlegame.passed", new int[8]).with("endgame.passed", new int[8])
+				.with("passed.unblocked", 0, 0).with("pawn.shield", 0, 0);
+		String[] fens = {
+				// a doubled pawn behind an unblocked passed pawn, both isolated
+				"4k3/8/8/8/8/P7/P7/4K3 w - - 0 1",
+				// a backward pawn on d3 and an isolated pawn on e5
+				"4k3/8/8/4p3/4P3/3P4/8/4K3 w - - 0 1" };
+		int[] differences = { -20 - 15 - 15 + 20 + 20, -10 + 15 };
+		for (int i = 0; i < fens.length; i++) {
+			int score = Evaluation.evaluate(new BitBoard(fens[i]), false);
+			try {
+				EvaluationParameters.setDefault(parameters);
+				assertEquals(score - Evaluation.evaluate(new BitBoard(fens[i]), false),
+						differences[i]);
+			} finally {
+				EvaluationParameters.setDefault(defaults);
+			}
+		}
+	}
+
+	@Test
+	void testEvaluation() {
+		// the starting position is equal apart from the bonus for the player to move
+		int tempo = EvaluationParameters.getDefault().getTempo();
+		assertEquals(Evaluation.evaluate(new BitBoard(), false), tempo);
+		assertEquals(Evaluation.evaluate(new BitBoard(), true), tempo);
+		assertEquals(new BitBoard().getPhase(), EvaluationParameters.getDefault().getMaxPhase());
+
+		// mirrored positions should have the same score for the player to move
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		String mirrored = "r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1";
+		assertEquals(Evaluation.evaluate(new BitBoard(fen), false),
+				Evaluation.evaluate(new BitBoard(mirrored), true));
+
+		// in the endgame, a centralized king is better than one in the corner
+		BitBoard center = new BitBoard("8/8/8/3k4/8/8/8/K7 w - - 0 1");
+		assertEquals(center.getPhase(), 0);
+		assertTrue(Evaluation.evaluate(center, true) > 50);
+	}
+
+	@Test
+	void testParameters() throws IOException {
+		EvaluationParameters defaults = EvaluationParameters.getDefault();
+		Path path = Files.createTempFile("evaluation", ".txt");
+		try {
+			// the default parameters should be read back unchanged
+			defaults.write(path);
+			assertEquals(EvaluationParameters.read(path), defaults);
+
+			// weights left out of a file keep their default values
+			String text = "# no tempo\ntempo 0\nbishop.pair 0 100\n";
+			Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+			EvaluationParameters parameters = EvaluationParameters.read(path);
+			assertEquals(parameters.getTempo(), 0);
+			assertEquals(parameters.getEndgameBishopPair(), 100);
+			assertArrayEquals(parameters.get("endgame.king"), defaults.get("endgame.king"));
+			assertEquals(parameters, defaults.with("tempo", 0).with("bishop.pair", 0, 100));
+
+			// unknown names and wrong numbers of values should be rejected
+			Files.write(path, "tempi 0\n".getBytes(StandardCharsets.UTF_8));
+			assertThrows(IllegalArgumentException.class, () -> EvaluationParameters.read(path));
+			Files.write(path, "bishop.pair 1\n".getBytes(StandardCharsets.UTF_8));
+			assertThrows(IllegalArgumentException.class, () -> EvaluationParameters.read(path));
+		} finally {
+			Files.delete(path);
+		}
+
+		// new boards should use new default parameters, while existing boards keep theirs
+		BitBoard board = new BitBoard();
+		try {
+			EvaluationParameters.setDefault(defaults.with("tempo", 0));
+			assertEquals(Evaluation.evaluate(new BitBoard(), false), 0);
+			assertEquals(Evaluation.evaluate(board, false), defaults.getTempo());
+		} finally {
+			EvaluationParameters.setDefault(defaults);
+		}
+	}
+}
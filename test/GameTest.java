@@ -5,8 +5,11 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import chess.AbstractBoard;
 import chess.Board;
 import chess.Game;
+import chess.Perft;
+import chess.engine.Tablebase;
 import main.Mediator;
 
 /**
@@ -24,6 +27,16 @@ class GameTest {
 		game = (Game) mediator.getGame();
 	}
 
+	/**
+	 * This method creates a game in the position described by a FEN string.
+	 * 
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @return the new game
+	 */
+	Game createGame(String fen) {
+		return new Game(mediator, fen);
+	}
+
 	/**
 	 * This method executes a move specified by the names of the start and stop squares
 	 * 
@@ -296,6 +309,26 @@ class GameTest {
 		assertTrue(ui.getMessage().toLowerCase().contains("threefold repetition"));
 	}
 
+	@Test
+	void testThreefoldRepetitionWithCastlingRights() {
+		// the positions after moving each king away and back differ from the first position,
+		// since neither player can castle any more
+		move("e2", "e4");
+		move("e7", "e5");
+		for (int i = 0; i < 2; i++) {
+			move("e1", "e2");
+			move("e8", "e7");
+			move("e2", "e1");
+			move("e7", "e8");
+			assertFalse(ui.isGameOver());
+		}
+		move("e1", "e2");
+		assertFalse(ui.isGameOver());
+		move("e8", "e7");
+		assertTrue(ui.isGameOver());
+		assertTrue(ui.getMessage().toLowerCase().contains("threefold repetition"));
+	}
+
 	@Test
 	void testFiftyMoveRule() {
 		// make exactly fifty moves per color with no captures and no pawn moves
@@ -503,4 +536,99 @@ class GameTest {
 		assertFalse(ui.isGameOver());
 	}
 
+	@Test
+	void testFen() {
+		// the counters should be updated after each move
+		assertEquals(game.toFen(), Perft.START_POSITION);
+		move("e2", "e4");
+		assertEquals(game.toFen(),
+				"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+		move("g8", "f6");
+		assertEquals(game.toFen(),
+				"rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2");
+
+		// a loaded game should continue from the player to move and counters of the position
+		game = createGame("4k3/8/8/8/8/8/8/R3K3 b Q - 99 60");
+		assertEquals(game.toFen(), "4k3/8/8/8/8/8/8/R3K3 b Q - 99 60");
+		assertEquals(game.handleSelectedSquare(7, 4), Board.FAILURE);
+		move("e8", "e7");
+		assertTrue(ui.isGameOver());
+		assertTrue(ui.getMessage().toLowerCase().contains("fifty-move rule"));
+		assertEquals(game.toFen(), "8/4k3/8/8/8/8/8/R3K3 w Q - 100 61");
+
+		// missing counters should default to those of a new game
+		game = createGame("4k3/8/8/8/8/8/8/R3K3 w Q -");
+		assertEquals(game.toFen(), "4k3/8/8/8/8/8/8/R3K3 w Q - 0 1");
+		assertThrows(IllegalArgumentException.class,
+				() -> createGame("4k3/8/8/8/8/8/8/R3K3 x Q - 0 1"));
+		assertThrows(IllegalArgumentException.class,
+				() -> createGame("4k3/8/8/8/8/8/8/R3K3 w Q - -1 1"));
+	}
+
+	@Test
+	void testTablebase() {
+		// a tablebase in which a king and rook always beat a king, and every other position with
+		// three pieces is a draw
+		Tablebase tablebase = new Tablebase() {
+			@Override
+			public int getMaxPieces() {
+				return 3;
+			}
+
+			@Override
+			public int probeWdl(AbstractBoard board, boolean blackToMove) {
+				if (Long.bitCount(board.getOccupancy()) > 3)
+					return UNKNOWN;
+				if (!getSignature(board).equals("KRK"))
+					return DRAW;
+				return blackToMove ? LOSS : WIN;
+			}
+
+			@Override
+			public int probeDtm(AbstractBoard board, boolean blackToMove) {
+				return (probeWdl(board, blackToMove) == DRAW) ? 0 : 21;
+			}
+		};
+
+		// the game should end as soon as the tablebase knows its result
+		game = createGame("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+		game.setTablebase(tablebase);
+		move("e1", "e2");
+		assertTrue(ui.isGameOver());
+		assertTrue(ui.getMessage().contains("White wins"));
+		assertTrue(ui.getMessage().contains("tablebase"));
+
+		game = createGame("4k3/8/8/8/8/8/8/N3K3 w - - 0 1");
+		game.setTablebase(tablebase);
+		move("e1", "e2");
+		assertTrue(ui.isGameOver());
+		assertTrue(ui.getMessage().toLowerCase().contains("draw"));
+
+		// a checkmate the fifty-move rule comes first should not be adjudicated
+		game = createGame("4k3/8/8/8/8/8/8/R3K3 w - - 80 60");
+		game.setTablebase(tablebase);
+		move("e1", "e2");
+		assertFalse(ui.isGameOver());
+		game = createGame("4k3/8/8/8/8/8/8/R3K3 w - - 78 60");
+		game.setTablebase(tablebase);
+		move("e1", "e2");
+		assertTrue(ui.isGameOver());
+		assertTrue(ui.getMessage().contains("White wins"));
+
+		// without a tablebase, the game should continue
+		game = createGame("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+		game.setTablebase(null);
+		move("e1", "e2");
+		assertFalse(ui.isGameOver());
+
+		// by default, a king and pawn against a king should be adjudicated by the KpkBitbase
+		// when it is drawn, but a win should be played out, since the bitbase has no distances
+		game = createGame("k7/8/8/8/8/K7/P7/8 w - - 0 1");
+		move("a3", "b3");
+		assertTrue(ui.isGameOver());
+		assertTrue(ui.getMessage().toLowerCase().contains("draw"));
+		game = createGame("7k/8/8/8/8/P7/8/K7 w - - 0 1");
+		move("a1", "b1");
+		assertFalse(ui.isGameOver());
+	}
 }
@@ -0,0 +1,113 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.Board;
+import chess.engine.Evaluation;
+import chess.engine.FileTablebase;
+import chess.engine.KpkBitbase;
+import chess.engine.Tablebase;
+import chess.engine.TablebaseGenerator;
+
+/**
+ * This class is used to test the KpkBitbase class.
+ */
+class KpkBitbaseTest {
+	/**
+	 * This method deletes a directory of tablebase files.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if a file cannot be deleted
+	 */
+	void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	void testGeneratedFile() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			new TablebaseGenerator(directory, 2).generate("KPK");
+			FileTablebase tablebase = new FileTablebase(directory);
+			KpkBitbase bitbase = KpkBitbase.getInstance();
+
+			// every legal position with a pawn of either color should have the result of the file
+			BitBoard board = new BitBoard();
+			int checked = 0;
+			for (int pawn = 8; pawn < 56; pawn++) {
+				for (int king = 0; king < 64; king++) {
+					for (int otherKing = 0; otherKing < 64; otherKing++) {
+						if ((king == pawn) || (otherKing == pawn) || (king == otherKing))
+							continue;
+						for (int offset : new int[] { 0, BitBoard.BLACK_OFFSET }) {
+							board.setPosition(new int[] { BitBoard.KING + offset,
+									BitBoard.PAWN + offset,
+									BitBoard.KING + BitBoard.BLACK_OFFSET - offset },
+									new int[] { king, pawn, otherKing });
+							for (boolean blackToMove : new boolean[] { false, true }) {
+								if (board.isCheck(!blackToMove))
+									continue;
+								assertEquals(bitbase.probeWdl(board, blackToMove),
+										tablebase.probeWdl(board, blackToMove));
+								checked++;
+							}
+						}
+					}
+				}
+			}
+			assertTrue(checked > 300000);
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testProbe() {
+		KpkBitbase bitbase = KpkBitbase.getInstance();
+		// other material is not covered
+		assertEquals(bitbase.probeWdl(new BitBoard(), false), Tablebase.UNKNOWN);
+		assertEquals(bitbase.probeWdl(new BitBoard("4k3/8/8/8/8/8/8/R3K3 w - - 0 1"), false),
+				Tablebase.UNKNOWN);
+		// a rook pawn draws against a king in front of it, whichever color it is
+		assertEquals(bitbase.probeWdl(new BitBoard("k7/8/8/8/8/K7/P7/8 w - - 0 1"), false),
+				Tablebase.DRAW);
+		assertEquals(bitbase.probeWdl(new BitBoard("8/p7/k7/8/8/8/8/K7 b - - 0 1"), true),
+				Tablebase.DRAW);
+		// a pawn the defending king cannot catch wins, also for black and on any board
+		assertEquals(bitbase.probeWdl(new BitBoard("7k/8/8/8/8/P7/8/K7 w - - 0 1"), false),
+				Tablebase.WIN);
+		assertEquals(bitbase.probeWdl(new BitBoard("7k/8/8/8/8/P7/8/K7 b - - 0 1"), true),
+				Tablebase.LOSS);
+		assertEquals(bitbase.probeWdl(new Board("k7/8/7p/8/8/8/8/K7 w - - 0 1"), false),
+				Tablebase.LOSS);
+		// the en passant square after a pawn moves two squares does not matter
+		assertEquals(bitbase.probeWdl(new BitBoard("7k/8/8/8/P7/8/8/K7 b - a3 0 1"), true),
+				Tablebase.LOSS);
+	}
+
+	@Test
+	void testEvaluation() {
+		// drawn positions are scored as draws, and won ones above any material advantage
+		assertEquals(Evaluation.evaluate(new BitBoard("k7/8/8/8/8/K7/P7/8 w - - 0 1"), false), 0);
+		assertTrue(Evaluation.evaluate(new BitBoard("7k/8/8/8/8/P7/8/K7 w - - 0 1"),
+				false) > Evaluation.KNOWN_WIN);
+		assertTrue(Evaluation.evaluate(new BitBoard("7k/8/8/8/8/P7/8/K7 b - - 0 1"),
+				true) < -Evaluation.KNOWN_WIN);
+		// the winner should prefer to advance the pawn
+		assertTrue(Evaluation.evaluate(new BitBoard("7k/8/8/8/P7/8/8/K7 w - - 0 1"),
+				false) > Evaluation.evaluate(new BitBoard("7k/8/8/8/8/P7/8/K7 w - - 0 1"), false));
+	}
+}
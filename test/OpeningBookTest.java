@@ -0,0 +1,221 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Board;
+import chess.Move;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.SearchResult;
+
+/**
+ * This class is used to test the OpeningBook class.
+ */
+class OpeningBookTest {
+	private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	private static final String CASTLING = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+	private static final String RANDOMS_RESOURCE = "/chess/engine/polyglot-random64.txt";
+
+	/**
+	 * This method creates random numbers to use in place of Polyglot's own.
+	 * 
+	 * @return the random numbers
+	 */
+	long[] createRandoms() {
+		Random random = new Random(1);
+		long[] randoms = new long[OpeningBook.RANDOMS];
+		for (int i = 0; i < randoms.length; i++) {
+			randoms[i] = random.nextLong();
+		}
+		return randoms;
+	}
+
+	/**
+	 * This method encodes a move as Polyglot does.
+	 * 
+	 * @param from      the starting square, such as "e2"
+	 * @param to        the target square, such as "e4"
+	 * @param promotion the promotion piece type as in BitBoard, or 0 for none
+	 * @return the encoded move
+	 */
+	int encode(String from, String to, int promotion) {
+		return (to.charAt(0) - 'a') | ((to.charAt(1) - '1') << 3) | ((from.charAt(0) - 'a') << 6)
+				| ((from.charAt(1) - '1') << 9) | (promotion << 12);
+	}
+
+	/**
+	 * This method writes a book with the given entries, sorting them by key.
+	 * 
+	 * @param path    the path of the book
+	 * @param entries the entries, each holding a key, a move in Polyglot's encoding, and a weight
+	 * @throws IOException if the book cannot be written
+	 */
+	void writeBook(Path path, long[][] entries) throws IOException {
+		long[][] sorted = entries.clone();
+		Arrays.sort(sorted, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+		ByteBuffer buffer = ByteBuffer.allocate(16 * sorted.length);
+		for (long[] entry : sorted) {
+			buffer.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2])
+					.putInt(0);
+		}
+		Files.write(path, buffer.array());
+	}
+
+	@Test
+	void testKey() throws IOException {
+		Path path = Files.createTempFile("book", ".bin");
+		try {
+			OpeningBook book = new OpeningBook(path, createRandoms());
+			assertEquals(book.size(), 0);
+
+			// both kinds of board should give the same keys, which depend on the player to move
+			for (String fen : new String[] { START, CASTLING }) {
+				long key = book.getKey(new Board(fen), false);
+				assertEquals(key, book.getKey(new BitBoard(fen), false));
+				assertNotEquals(key, book.getKey(new BitBoard(fen), true));
+			}
+
+			// en passant should only count when a pawn of the player to move is beside the pawn
+			String fen = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq ";
+			assertNotEquals(book.getKey(new BitBoard(fen + "d6"), false),
+					book.getKey(new BitBoard(fen + "-"), false));
+			fen = "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq ";
+			assertEquals(book.getKey(new BitBoard(fen + "d6"), false),
+					book.getKey(new BitBoard(fen + "-"), false));
+
+			// castling rights should change the key
+			assertNotEquals(book.getKey(new BitBoard(CASTLING), false),
+					book.getKey(new BitBoard("r3k2r/8/8/8/8/8/8/R3K2R w Kkq - 0 1"), false));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void testPolyglotKey() throws IOException {
+		// the keys given by the Polyglot format, which need its own random numbers
+		assumeTrue(OpeningBook.class.getResource(RANDOMS_RESOURCE) != null,
+				"the resource " + RANDOMS_RESOURCE + " is not supplied");
+		Path path = Files.createTempFile("book", ".bin");
+		try {
+			OpeningBook book = OpeningBook.open(path);
+			assertEquals(book.getKey(new BitBoard(START), false), 0x463b96181691fc9cL);
+			BitBoard board = new BitBoard(
+					"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+			assertEquals(book.getKey(board, true), 0x823c9b50fd114196L);
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void testMoves() throws IOException {
+		Path path = Files.createTempFile("book", ".bin");
+		try {
+			long[] randoms = createRandoms();
+			OpeningBook keys = new OpeningBook(path, randoms);
+			long startKey = keys.getKey(new BitBoard(START), false);
+			long castlingKey = keys.getKey(new BitBoard(CASTLING), false);
+			writeBook(path, new long[][] { { startKey, encode("e2", "e4", 0), 3 },
+					{ castlingKey, encode("e1", "h1", 0), 1 },
+					{ startKey, encode("e2", "e5", 0), 5 },
+					{ castlingKey, encode("e1", "a1", 0), 0 },
+					{ startKey, encode("d2", "d4", 0), 1 }, { 1, encode("a2", "a3", 0), 1 } });
+			OpeningBook book = new OpeningBook(path, randoms);
+			assertEquals(book.size(), 6);
+
+			// illegal moves should be left out, and the others kept in the order of the book
+			for (AbstractBoard board : new AbstractBoard[] { new Board(START),
+					new BitBoard(START) }) {
+				List<int[]> moves = book.getMoves(board, false);
+				assertEquals(moves.size(), 2);
+				assertEquals(Move.toString(moves.get(0)[0]), "e2e4");
+				assertEquals(moves.get(0)[1], 3);
+				assertEquals(Move.flags(moves.get(0)[0]), Move.DOUBLE_PAWN_PUSH);
+				assertEquals(Move.toString(moves.get(1)[0]), "d2d4");
+			}
+
+			// moves should be chosen in proportion to their weights
+			Random random = new Random(2);
+			BitBoard board = new BitBoard(START);
+			int kingPawnMoves = 0;
+			for (int i = 0; i < 4000; i++) {
+				if (Move.toString(book.chooseMove(board, false, random)).equals("e2e4"))
+					kingPawnMoves++;
+			}
+			assertTrue((kingPawnMoves > 2800) && (kingPawnMoves < 3200));
+
+			// castling should be converted from the king capturing its rook, and moves without
+			// weight should never be chosen
+			List<int[]> moves = book.getMoves(new Board(CASTLING), false);
+			assertEquals(moves.size(), 2);
+			assertEquals(moves.get(0)[0], Move.create(60, 62, Move.KING_CASTLE));
+			assertEquals(moves.get(1)[0], Move.create(60, 58, Move.QUEEN_CASTLE));
+			for (int i = 0; i < 100; i++) {
+				assertEquals(book.chooseMove(new BitBoard(CASTLING), false, random),
+						Move.create(60, 62, Move.KING_CASTLE));
+			}
+
+			// a position that is not in the book should have no moves
+			assertTrue(book.getMoves(board, true).isEmpty());
+			assertEquals(book.chooseMove(board, true), Move.NONE);
+
+			// the engine should play a book move without searching
+			Engine engine = new Engine();
+			engine.setMaxDepth(2);
+			engine.setOpeningBook(book);
+			SearchResult result = engine.search(board, false);
+			String bestMove = Move.toString(result.getBestMove());
+			assertTrue(bestMove.equals("e2e4") || bestMove.equals("d2d4"));
+			assertEquals(result.getDepth(), 0);
+			assertEquals(result.getNodes(), 0);
+			result = engine.search(board, true);
+			assertEquals(result.getDepth(), 2);
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void testInvalidBooks() throws IOException {
+		Path path = Files.createTempFile("book", ".bin");
+		try {
+			// a book must be a whole number of entries
+			Files.write(path, new byte[20]);
+			assertThrows(IOException.class, () -> new OpeningBook(path, createRandoms()));
+			assertThrows(IllegalArgumentException.class,
+					() -> new OpeningBook(path, new long[5]));
+		} finally {
+			Files.delete(path);
+		}
+
+		// random numbers should be read in the format of Polyglot's source code
+		StringBuilder text = new StringBuilder("# Polyglot random numbers\n");
+		for (int i = 0; i < OpeningBook.RANDOMS; i++) {
+			text.append((i == 0) ? "0x9D39247E33776D41ULL,\n" : "0x1U, ");
+		}
+		long[] randoms = OpeningBook.readRandoms(
+				new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(randoms[0], 0x9D39247E33776D41L);
+		assertEquals(randoms[OpeningBook.RANDOMS - 1], 1);
+		assertThrows(IllegalArgumentException.class, () -> OpeningBook.readRandoms(
+				new ByteArrayInputStream("1 2 3".getBytes(StandardCharsets.US_ASCII))));
+		assertThrows(IllegalArgumentException.class, () -> OpeningBook.readRandoms(
+				new ByteArrayInputStream("0xZZ".getBytes(StandardCharsets.US_ASCII))));
+	}
+}
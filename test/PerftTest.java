@@ -0,0 +1,87 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.Board;
+import chess.Perft;
+
+/**
+ * This class is used to test move generation by comparing the node counts of Perft with the known
+ * counts of the reference positions.
+ */
+class PerftTest {
+
+	/**
+	 * This method verifies the node counts of every reference position at each depth whose known
+	 * count is at most the given maximum.
+	 * 
+	 * @param perft    the Perft object to use
+	 * @param maxNodes the maximum count to verify
+	 */
+	void testPositions(Perft perft, long maxNodes) {
+		for (int i = 0; i < Perft.POSITIONS.length; i++) {
+			String fen = Perft.POSITIONS[i];
+			BitBoard board = new BitBoard(fen);
+			for (int depth = 1; depth <= Perft.NODE_COUNTS[i].length; depth++) {
+				long expected = Perft.NODE_COUNTS[i][depth - 1];
+				if (expected > maxNodes)
+					break;
+				assertEquals(expected, perft.perft(board, Perft.isBlackToMove(fen), depth), fen);
+			}
+		}
+	}
+
+	@Test
+	void testPerft() {
+		testPositions(new Perft(), 1_000_000);
+	}
+
+	@Test
+	void testPerftWithCache() {
+		// the cache is shared by all counts, so later counts use entries from earlier ones
+		testPositions(new Perft(16), 5_000_000);
+	}
+
+	@Test
+	void testParallelPerft() {
+		for (int i = 0; i < Perft.POSITIONS.length; i++) {
+			assertEquals(Perft.NODE_COUNTS[i][2], new Perft().parallelPerft(Perft.POSITIONS[i], 3));
+		}
+		assertEquals(Perft.NODE_COUNTS[0][4], new Perft(16).parallelPerft(Perft.START_POSITION, 5));
+	}
+
+	@Test
+	void testDivide() {
+		// the counts below each move should add up to the total count
+		String fen = Perft.POSITIONS[1];
+		Map<String, Long> counts = new Perft().divide(new BitBoard(fen), false, 3);
+		assertEquals(counts.size(), 48);
+		assertEquals((long) counts.get("e1g1"), 2059);
+		long total = 0;
+		for (long count : counts.values()) {
+			total += count;
+		}
+		assertEquals(Perft.NODE_COUNTS[1][2], total);
+	}
+
+	@Test
+	void testBoardPerft() {
+		Perft perft = new Perft();
+		for (int i = 0; i < Perft.POSITIONS.length; i++) {
+			String fen = Perft.POSITIONS[i];
+			for (int depth = 1; depth <= 3; depth++) {
+				long expected = Perft.NODE_COUNTS[i][depth - 1];
+				if (expected > 100_000)
+					break;
+				assertEquals(expected, perft.perft(new Board(fen), Perft.isBlackToMove(fen), depth),
+						fen);
+			}
+		}
+	}
+
+}
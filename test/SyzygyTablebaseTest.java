@@ -0,0 +1,214 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+import chess.engine.Engine;
+import chess.engine.FileTablebase;
+import chess.engine.SearchResult;
+import chess.engine.SyzygyTablebase;
+import chess.engine.Tablebase;
+import chess.engine.TablebaseGenerator;
+
+/**
+ * This class is used to test the SyzygyTablebase class with the small Syzygy files in the
+ * test/syzygy directory.
+ */
+class SyzygyTablebaseTest {
+	private static final Path SYZYGY_DIRECTORY = Paths.get("test", "syzygy");
+
+	/**
+	 * This method deletes a directory of tablebase files.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if a file cannot be deleted
+	 */
+	void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * This method checks that the distance of a position is one more than the distance after the
+	 * best move, as long as that move is not a capture, pawn move, or checkmate.
+	 * 
+	 * @param tablebase   the tablebase
+	 * @param board       the board, which is restored before this method returns
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @param distance    the distance of the position
+	 */
+	void checkDistance(SyzygyTablebase tablebase, BitBoard board, boolean blackToMove,
+			int distance) {
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		int best = Integer.MAX_VALUE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			boolean isZeroing = Move.isCapture(move)
+					|| (board.getPiece(Move.from(move)) % BitBoard.BLACK_OFFSET == BitBoard.PAWN);
+			board.makeMove(move);
+			int moveDistance;
+			if (board.isCheck(!blackToMove) && !board.anyLegalMoves(!blackToMove)) {
+				moveDistance = 1;
+			} else if (isZeroing) {
+				moveDistance = (tablebase.probeWdl(board, !blackToMove) == -Integer.signum(
+						distance)) ? Integer.signum(distance) : Integer.MAX_VALUE;
+			} else {
+				moveDistance = -tablebase.probeDtz(board, !blackToMove);
+				moveDistance += Integer.signum(moveDistance);
+			}
+			board.unmakeMove(move);
+			if ((Integer.signum(moveDistance) == Integer.signum(distance))
+					&& (moveDistance < best))
+				best = moveDistance;
+		}
+		assertEquals(best, distance);
+	}
+
+	@Test
+	void testResults() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			new TablebaseGenerator(directory, 2).generate("KPK");
+			FileTablebase expected = new FileTablebase(directory);
+			SyzygyTablebase tablebase = new SyzygyTablebase(SYZYGY_DIRECTORY);
+			assertEquals(tablebase.getMaxPieces(), 3);
+
+			// the files should give the results of the generated tablebase for either color,
+			// and without pawns the winner always heads for checkmate
+			Random random = new Random(1);
+			BitBoard board = new BitBoard();
+			int[] types = { BitBoard.QUEEN, BitBoard.ROOK, BitBoard.PAWN, BitBoard.BISHOP,
+					BitBoard.KNIGHT };
+			for (int i = 0; i < 5000; i++) {
+				int type = types[i % types.length];
+				int offset = ((i / types.length) % 2 == 0) ? 0 : BitBoard.BLACK_OFFSET;
+				int[] pieces = { BitBoard.KING + offset, type + offset,
+						BitBoard.KING + BitBoard.BLACK_OFFSET - offset };
+				int[] squares = { random.nextInt(64), random.nextInt(64), random.nextInt(64) };
+				boolean blackToMove = random.nextBoolean();
+				if ((squares[0] == squares[1]) || (squares[0] == squares[2])
+						|| (squares[1] == squares[2]))
+					continue;
+				if ((type == BitBoard.PAWN) && ((squares[1] < 8) || (squares[1] >= 56)))
+					continue;
+				board.setPosition(pieces, squares);
+				if (board.isCheck(!blackToMove))
+					continue;
+				int result = expected.probeWdl(board, blackToMove);
+				assertEquals(tablebase.probeWdl(board, blackToMove), result);
+				int distance = tablebase.probeDtz(board, blackToMove);
+				assertEquals(Integer.signum(distance), result);
+				if (result == Tablebase.DRAW)
+					continue;
+				if (type != BitBoard.PAWN) {
+					int plies = expected.probeDtm(board, blackToMove);
+					assertEquals(distance, (result == Tablebase.WIN) ? plies : -Math.max(plies, 1));
+				}
+				if (board.anyLegalMoves(blackToMove))
+					checkDistance(tablebase, board, blackToMove, distance);
+			}
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testPositions() throws IOException {
+		SyzygyTablebase tablebase = new SyzygyTablebase(SYZYGY_DIRECTORY);
+		assertTrue(tablebase.contains("KQvK"));
+		assertTrue(tablebase.contains("KvKR"));
+		assertFalse(tablebase.contains("KQvKR"));
+
+		// two kings are always drawn, and a capture of the last piece is found by the search
+		BitBoard board = new BitBoard("8/8/3k4/8/8/3K4/8/8 w - - 0 1");
+		assertEquals(tablebase.probeWdl(board, false), Tablebase.DRAW);
+		assertEquals(tablebase.probeDtz(board, false), 0);
+		board = new BitBoard("8/8/3k4/3Q4/8/8/8/7K b - - 0 1");
+		assertEquals(tablebase.probeWdl(board, true), Tablebase.DRAW);
+
+		// a promotion is the best move, so it is found without the files of the pawn
+		board = new BitBoard("8/3P4/8/1K6/8/8/8/7k w - - 0 1");
+		assertEquals(tablebase.probeWdl(board, false), Tablebase.WIN);
+		assertEquals(tablebase.probeDtz(board, false), 1);
+		board = new BitBoard("8/8/8/8/6k1/8/3p4/K7 b - - 0 1");
+		assertEquals(tablebase.probeWdl(board, true), Tablebase.WIN);
+		assertEquals(tablebase.probeDtz(board, true), 1);
+		// checkmate is the end of the distance for the loser
+		board = new BitBoard("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1");
+		assertEquals(tablebase.probeWdl(board, true), Tablebase.LOSS);
+		assertEquals(tablebase.probeDtz(board, true), -1);
+		board = new BitBoard("k7/8/1K6/8/8/8/8/7Q w - - 0 1");
+		assertEquals(tablebase.probeDtz(board, false), 1);
+
+		// positions with castling rights or more pieces are not covered
+		board = new BitBoard("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1");
+		assertEquals(tablebase.probeWdl(board, false), Tablebase.UNKNOWN);
+		assertEquals(tablebase.probeDtz(board, false), Tablebase.UNKNOWN);
+		board = new BitBoard("4k3/8/8/8/8/8/8/RR2K3 w - - 0 1");
+		assertEquals(tablebase.probeWdl(board, false), Tablebase.UNKNOWN);
+		assertEquals(tablebase.probeDtm(board, false), Tablebase.UNKNOWN);
+	}
+
+	@Test
+	void testInvalidFiles() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			Path path = directory.resolve("KQvK" + SyzygyTablebase.WDL_EXTENSION);
+			byte[] bytes = Files.readAllBytes(SYZYGY_DIRECTORY.resolve(path.getFileName()));
+			// a truncated file, a file of other pieces, and a bad name should all be rejected
+			Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+			assertThrows(IOException.class, () -> new SyzygyTablebase(directory));
+			Files.delete(path);
+			Files.write(directory.resolve("KPvK" + SyzygyTablebase.WDL_EXTENSION), bytes);
+			assertThrows(IOException.class, () -> new SyzygyTablebase(directory));
+			Files.delete(directory.resolve("KPvK" + SyzygyTablebase.WDL_EXTENSION));
+			Files.write(directory.resolve("KXvK" + SyzygyTablebase.WDL_EXTENSION), bytes);
+			assertThrows(IOException.class, () -> new SyzygyTablebase(directory));
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testSearch() throws IOException {
+		// without distances to checkmate, the engine should head for the next pawn move or
+		// checkmate without searching
+		SyzygyTablebase tablebase = new SyzygyTablebase(SYZYGY_DIRECTORY);
+		Engine engine = new Engine();
+		engine.setMaxDepth(3);
+		engine.setTablebase(tablebase);
+		for (String fen : new String[] { "8/8/4k3/8/8/2R5/8/1K6 w - - 0 1",
+				"3k4/8/3K4/3P4/8/8/8/8 w - - 0 1", "8/8/8/4k3/8/8/8/1Q2K3 b - - 0 1" }) {
+			BitBoard board = new BitBoard(fen);
+			boolean blackToMove = fen.contains(" b ");
+			int distance = tablebase.probeDtz(board, blackToMove);
+			SearchResult result = engine.search(board, blackToMove);
+			assertEquals(result.getDepth(), 0);
+			int move = result.getBestMove();
+			boolean isZeroing = Move.isCapture(move)
+					|| (board.getPiece(Move.from(move)) % BitBoard.BLACK_OFFSET == BitBoard.PAWN);
+			board.makeMove(move);
+			assertEquals(tablebase.probeWdl(board, !blackToMove), -Integer.signum(distance));
+			if (!isZeroing)
+				assertEquals(Math.abs(tablebase.probeDtz(board, !blackToMove)),
+						Math.abs(distance) - 1);
+		}
+	}
+}
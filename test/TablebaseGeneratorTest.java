@@ -0,0 +1,158 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.engine.Engine;
+import chess.engine.FileTablebase;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TablebaseGenerator;
+
+/**
+ * This class is used to test the TablebaseGenerator class.
+ */
+class TablebaseGeneratorTest {
+	/**
+	 * This method deletes a directory of tablebase files.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if a file cannot be deleted
+	 */
+	void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * This method returns the longest distance to checkmate in a tablebase file.
+	 * 
+	 * @param path the path of the file
+	 * @return the distance in moves
+	 * @throws IOException if the file cannot be read
+	 */
+	int getLongestMate(Path path) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		int longest = 0;
+		// the values follow a header of 16 bytes
+		for (int i = 16; i < bytes.length; i++) {
+			longest = Math.max(longest, bytes[i]);
+		}
+		return longest;
+	}
+
+	@Test
+	void testKnownResults() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			// the files a pawn can promote into should be generated first
+			TablebaseGenerator generator = new TablebaseGenerator(directory, 2);
+			generator.generate("KPK");
+			for (String signature : new String[] { "KQK", "KRK", "KBK", "KNK", "KPK" }) {
+				assertTrue(Files.exists(directory.resolve(signature + FileTablebase.EXTENSION)));
+			}
+			assertThrows(IllegalArgumentException.class, () -> generator.generate("KQRKR"));
+			assertThrows(IllegalArgumentException.class, () -> generator.generate("KQ"));
+
+			// the longest checkmates are well known, and a minor piece cannot checkmate
+			assertEquals(getLongestMate(directory.resolve("KQK.tb")), 10);
+			assertEquals(getLongestMate(directory.resolve("KRK.tb")), 16);
+			assertEquals(getLongestMate(directory.resolve("KBK.tb")), 0);
+			assertEquals(getLongestMate(directory.resolve("KNK.tb")), 0);
+
+			FileTablebase tablebase = new FileTablebase(directory);
+			// a king on the sixth row in front of its pawn wins whoever is to move
+			assertEquals(tablebase.probeWdl(new BitBoard("3k4/8/3K4/3P4/8/8/8/8 w - - 0 1"),
+					false), Tablebase.WIN);
+			assertEquals(tablebase.probeWdl(new BitBoard("3k4/8/3K4/3P4/8/8/8/8 b - - 0 1"),
+					true), Tablebase.LOSS);
+			// with the king on the fifth row in front of its pawn, it only wins with the opposition
+			assertEquals(tablebase.probeWdl(new BitBoard("8/3k4/8/3K4/3P4/8/8/8 w - - 0 1"),
+					false), Tablebase.DRAW);
+			assertEquals(tablebase.probeWdl(new BitBoard("8/3k4/8/3K4/3P4/8/8/8 b - - 0 1"),
+					true), Tablebase.LOSS);
+			// a rook pawn cannot win against a king in the corner, and black's pawn should be
+			// looked up in the same file
+			assertEquals(tablebase.probeWdl(new BitBoard("k7/8/K7/P7/8/8/8/8 w - - 0 1"), false),
+					Tablebase.DRAW);
+			assertEquals(tablebase.probeWdl(new BitBoard("8/8/8/8/p7/k7/8/K7 b - - 0 1"), true),
+					Tablebase.DRAW);
+			assertEquals(tablebase.probeWdl(new BitBoard("8/8/8/8/3p4/3k4/8/3K4 w - - 0 1"),
+					false), Tablebase.LOSS);
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testSearch() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			TablebaseGenerator generator = new TablebaseGenerator(directory, 2);
+			generator.generate("KQK");
+			generator.generate("KRK");
+			FileTablebase tablebase = new FileTablebase(directory);
+
+			// a full-width search should find checkmates at the distances of the tablebase
+			Engine engine = new Engine();
+			engine.setNullMovePruning(false);
+			engine.setLateMoveReductions(false);
+			engine.setFutilityPruning(false);
+			engine.setRazoring(false);
+			Random random = new Random(1);
+			BitBoard board = new BitBoard();
+			int blackKing = BitBoard.KING + BitBoard.BLACK_OFFSET;
+			int[][] pieceSets = { { BitBoard.KING, BitBoard.QUEEN, blackKing },
+					{ BitBoard.KING, BitBoard.ROOK, blackKing } };
+			int checked = 0;
+			while (checked < 40) {
+				int[] pieces = pieceSets[checked % 2];
+				int[] squares = { random.nextInt(64), random.nextInt(64), random.nextInt(64) };
+				boolean blackToMove = random.nextBoolean();
+				if ((squares[0] == squares[1]) || (squares[0] == squares[2])
+						|| (squares[1] == squares[2]))
+					continue;
+				board.setPosition(pieces, squares);
+				if (board.isCheck(!blackToMove) || !board.anyLegalMoves(blackToMove))
+					continue;
+				int result = tablebase.probeWdl(board, blackToMove);
+				int distance = tablebase.probeDtm(board, blackToMove);
+				if ((result == Tablebase.DRAW) || (distance > 7))
+					continue;
+				engine.setMaxDepth(distance + 1);
+				SearchResult searchResult = engine.search(board, blackToMove);
+				assertEquals(searchResult.getScore(), result * (Engine.MATE - distance));
+				checked++;
+			}
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testThreads() throws IOException {
+		Path directory1 = Files.createTempDirectory("tablebases");
+		Path directory2 = Files.createTempDirectory("tablebases");
+		try {
+			// the files should not depend on the number of threads
+			Path path1 = new TablebaseGenerator(directory1, 1).generate("KRK");
+			Path path2 = new TablebaseGenerator(directory2, 4).generate("KRK");
+			assertArrayEquals(Files.readAllBytes(path1), Files.readAllBytes(path2));
+		} finally {
+			deleteDirectory(directory1);
+			deleteDirectory(directory2);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import chess.AbstractBoard;
+import chess.BitBoard;
+import chess.Board;
+import chess.Move;
+import chess.MoveList;
+import chess.engine.Engine;
+import chess.engine.FileTablebase;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+
+/**
+ * This class is used to test the Tablebase and FileTablebase classes.
+ */
+class TablebaseTest {
+	// the number of positions of a file with three pieces and no pawns
+	private static final int KRK_SIZE = 2 * 10 * 64 * 64;
+
+	/**
+	 * This method deletes a directory of tablebase files.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if a file cannot be deleted
+	 */
+	void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * This method writes a file for a king and rook against a king in which white always wins and
+	 * black always loses, in a number of moves that depends on the index of the position.
+	 * 
+	 * @param directory the directory of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	void writeRookFile(Path directory) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(16 + KRK_SIZE);
+		buffer.putInt(0x43544231).put((byte) 3).put((byte) BitBoard.KING)
+				.put((byte) BitBoard.ROOK).put((byte) (BitBoard.KING + BitBoard.BLACK_OFFSET));
+		buffer.position(16);
+		for (int i = 0; i < KRK_SIZE; i++) {
+			int moves = 1 + (i % 100);
+			buffer.put((byte) ((i < KRK_SIZE / 2) ? moves : -moves));
+		}
+		Files.write(directory.resolve("KRK" + FileTablebase.EXTENSION), buffer.array());
+	}
+
+	/**
+	 * This method describes a position with a white king, a white rook, and a black king.
+	 * 
+	 * @param squares     the file and rank of each piece, from 0 to 7
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 * @return the position in Forsyth-Edwards Notation
+	 */
+	String createFen(int[][] squares, boolean blackToMove) {
+		char[][] rows = new char[8][8];
+		char[] pieces = { 'K', 'R', 'k' };
+		for (int i = 0; i < pieces.length; i++) {
+			rows[7 - squares[i][1]][squares[i][0]] = pieces[i];
+		}
+		StringBuilder fen = new StringBuilder();
+		for (char[] row : rows) {
+			int empty = 0;
+			for (char piece : row) {
+				if (piece == 0) {
+					empty++;
+					continue;
+				}
+				if (empty > 0)
+					fen.append(empty);
+				fen.append(piece);
+				empty = 0;
+			}
+			if (empty > 0)
+				fen.append(empty);
+			fen.append('/');
+		}
+		fen.setLength(fen.length() - 1);
+		return fen.append(blackToMove ? " b - - 0 1" : " w - - 0 1").toString();
+	}
+
+	/**
+	 * This method creates a tablebase that only knows results: a position with at most three
+	 * pieces is won by white if white has a rook on the eighth rank and drawn otherwise.
+	 * 
+	 * @return the tablebase
+	 */
+	Tablebase createRankTablebase() {
+		return new Tablebase() {
+			@Override
+			public int getMaxPieces() {
+				return 3;
+			}
+
+			@Override
+			public int probeWdl(AbstractBoard board, boolean blackToMove) {
+				long occupied = board.getOccupancy();
+				if (Long.bitCount(occupied) > 3)
+					return UNKNOWN;
+				for (int square = 0; square < 8; square++) {
+					if (board.getPiece(square) == BitBoard.ROOK)
+						return blackToMove ? LOSS : WIN;
+				}
+				return DRAW;
+			}
+		};
+	}
+
+	@Test
+	void testSignatures() {
+		assertEquals(Tablebase.getSignature(new BitBoard("4k3/8/8/8/8/8/8/R3K3 w - - 0 1")),
+				"KRK");
+		assertEquals(Tablebase.getSignature(new Board("1n2k3/8/8/3p4/8/8/8/Q3K2P w - - 0 1")),
+				"KQPKNP");
+		assertArrayEquals(Tablebase.getPieces("KQKP"), new int[] { BitBoard.KING,
+				BitBoard.QUEEN, BitBoard.KING + BitBoard.BLACK_OFFSET, BitBoard.BLACK_OFFSET });
+		for (String signature : new String[] { "KQ", "QKK", "KQKK", "KXK", "" }) {
+			assertThrows(IllegalArgumentException.class, () -> Tablebase.getPieces(signature));
+		}
+	}
+
+	@Test
+	void testProbe() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			writeRookFile(directory);
+			FileTablebase tablebase = new FileTablebase(directory);
+			assertEquals(tablebase.getMaxPieces(), 3);
+			assertTrue(tablebase.contains("KRK"));
+			assertTrue(tablebase.contains("KKR"));
+			assertFalse(tablebase.contains("KQK"));
+
+			// every mirror image of a position should have the same result and distance
+			int[][] squares = { { 1, 0 }, { 2, 2 }, { 4, 5 } };
+			int whiteDistance = tablebase.probeDtm(new BitBoard(createFen(squares, false)), false);
+			int blackDistance = tablebase.probeDtm(new BitBoard(createFen(squares, true)), true);
+			assertEquals(whiteDistance % 2, 1);
+			assertEquals(blackDistance % 2, 0);
+			for (int symmetry = 0; symmetry < 8; symmetry++) {
+				int[][] mirrored = new int[3][];
+				for (int i = 0; i < 3; i++) {
+					int file = squares[i][0];
+					int rank = squares[i][1];
+					if ((symmetry & 4) != 0) {
+						int swap = file;
+						file = rank;
+						rank = swap;
+					}
+					file = ((symmetry & 1) != 0) ? 7 - file : file;
+					rank = ((symmetry & 2) != 0) ? 7 - rank : rank;
+					mirrored[i] = new int[] { file, rank };
+				}
+				for (AbstractBoard board : new AbstractBoard[] {
+						new BitBoard(createFen(mirrored, false)),
+						new Board(createFen(mirrored, false)) }) {
+					assertEquals(tablebase.probeWdl(board, false), Tablebase.WIN);
+					assertEquals(tablebase.probeDtm(board, false), whiteDistance);
+				}
+				BitBoard board = new BitBoard(createFen(mirrored, true));
+				assertEquals(tablebase.probeWdl(board, true), Tablebase.LOSS);
+				assertEquals(tablebase.probeDtm(board, true), blackDistance);
+			}
+
+			// a position with the colors swapped should be looked up in the same file
+			BitBoard board = new BitBoard("1k6/8/2r5/8/8/4K3/8/8 b - - 0 1");
+			assertEquals(tablebase.probeWdl(board, true), Tablebase.WIN);
+			assertEquals(tablebase.probeDtm(board, true), whiteDistance);
+			board = new BitBoard("1k6/8/2r5/8/8/4K3/8/8 w - - 0 1");
+			assertEquals(tablebase.probeDtm(board, false), blackDistance);
+
+			// two kings are always a draw, and positions the files do not cover are unknown
+			assertEquals(tablebase.probeWdl(new BitBoard("8/8/4k3/8/8/8/8/1K6 w - - 0 1"), false),
+					Tablebase.DRAW);
+			assertEquals(tablebase.probeDtm(new BitBoard("8/8/4k3/8/8/8/8/1K6 w - - 0 1"), false),
+					0);
+			for (String fen : new String[] { "4k3/8/8/8/8/8/8/R3K3 w Q - 0 1",
+					"4k3/8/8/8/8/8/8/Q3K3 w - - 0 1", "4k3/8/8/8/8/8/8/RR2K3 w - - 0 1",
+					"4k3/8/8/8/Pp6/8/8/4K3 b - a3 0 1" }) {
+				board = new BitBoard(fen);
+				boolean blackToMove = fen.contains(" b ");
+				assertEquals(tablebase.probeWdl(board, blackToMove), Tablebase.UNKNOWN);
+				assertEquals(tablebase.probeDtm(board, blackToMove), Tablebase.UNKNOWN);
+			}
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testInvalidFiles() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			Path path = directory.resolve("KRK" + FileTablebase.EXTENSION);
+			Files.write(path, new byte[16]);
+			assertThrows(IOException.class, () -> new FileTablebase(directory));
+			Files.delete(path);
+			Files.write(directory.resolve("KXK" + FileTablebase.EXTENSION), new byte[16]);
+			assertThrows(IOException.class, () -> new FileTablebase(directory));
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void testSearch() throws IOException {
+		Path directory = Files.createTempDirectory("tablebases");
+		try {
+			// the engine should play the fastest checkmate without searching
+			writeRookFile(directory);
+			FileTablebase tablebase = new FileTablebase(directory);
+			Engine engine = new Engine();
+			engine.setMaxDepth(3);
+			engine.setTablebase(tablebase);
+			BitBoard board = new BitBoard("8/8/4k3/8/8/2R5/8/1K6 w - - 0 1");
+			MoveList moves = new MoveList();
+			board.generateMoves(false, moves);
+			int fastest = Integer.MAX_VALUE;
+			for (int i = 0; i < moves.size(); i++) {
+				board.makeMove(moves.get(i));
+				fastest = Math.min(fastest, tablebase.probeDtm(board, true));
+				board.unmakeMove(moves.get(i));
+			}
+			SearchResult result = engine.search(board, false);
+			assertEquals(result.getDepth(), 0);
+			assertEquals(result.getNodes(), 0);
+			assertEquals(result.getScore(), Engine.MATE - 1 - fastest);
+			board.makeMove(result.getBestMove());
+			assertEquals(tablebase.probeDtm(board, true), fastest);
+
+			// without distances, only the moves that keep the win should be searched
+			engine.setTablebase(createRankTablebase());
+			board = new BitBoard("R7/8/8/8/8/8/8/4K1k1 w - - 0 1");
+			result = engine.search(board, false);
+			assertEquals(result.getDepth(), 3);
+			board.makeMove(result.getBestMove());
+			assertEquals(engine.getTablebase().probeWdl(board, true), Tablebase.LOSS);
+
+			// a capture into a won position should score as a win without searching further
+			board = new BitBoard("n3k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+			engine.setTablebase(new Tablebase() {
+				@Override
+				public int getMaxPieces() {
+					return 3;
+				}
+
+				@Override
+				public int probeWdl(AbstractBoard board, boolean blackToMove) {
+					if (Long.bitCount(board.getOccupancy()) > 3)
+						return UNKNOWN;
+					return blackToMove ? LOSS : WIN;
+				}
+			});
+			result = engine.search(board, false);
+			assertEquals(result.getScore(), Engine.TABLEBASE_WIN - 1);
+			assertEquals(Move.toString(result.getBestMove()), "a1a8");
+			assertFalse(result.isMateScore());
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.Move;
+import chess.engine.Engine;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+
+/**
+ * This class is used to test the TranspositionTable class.
+ */
+class TranspositionTableTest {
+
+	@Test
+	void testStoreAndProbe() {
+		TranspositionTable table = new TranspositionTable(1);
+		assertEquals(table.getSizeInBytes(), 1 << 20);
+		int move = Move.create(52, 36, Move.DOUBLE_PAWN_PUSH);
+		table.store(12345, move, -250, 7, TranspositionTable.LOWER_BOUND, 3);
+		long entry = table.probe(12345);
+		assertNotEquals(entry, TranspositionTable.MISS);
+		assertEquals(TranspositionTable.getMove(entry), move);
+		assertEquals(TranspositionTable.getScore(entry, 3), -250);
+		assertEquals(TranspositionTable.getDepth(entry), 7);
+		assertEquals(TranspositionTable.getBound(entry), TranspositionTable.LOWER_BOUND);
+		assertEquals(table.probe(54321), TranspositionTable.MISS);
+
+		// a checkmate should be stored relative to the position and read relative to the root
+		table.store(777, move, Engine.MATE - 5, 4, TranspositionTable.EXACT, 2);
+		assertEquals(TranspositionTable.getScore(table.probe(777), 2), Engine.MATE - 5);
+		assertEquals(TranspositionTable.getScore(table.probe(777), 6), Engine.MATE - 9);
+
+		// an upper bound without a move should keep the move already stored
+		table.store(12345, Move.NONE, -300, 8, TranspositionTable.UPPER_BOUND, 3);
+		assertEquals(TranspositionTable.getMove(table.probe(12345)), move);
+		assertEquals(TranspositionTable.getDepth(table.probe(12345)), 8);
+
+		table.clear();
+		assertEquals(table.probe(12345), TranspositionTable.MISS);
+		table.resize(2);
+		assertEquals(table.getSizeInBytes(), 2 << 20);
+	}
+
+	@Test
+	void testRepeatedResize() {
+		BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+				.stream().filter(pool -> pool.getName().equals("direct")).findFirst().get();
+		TranspositionTable table = new TranspositionTable(1);
+		long usedBefore = directPool.getMemoryUsed();
+		int move = Move.create(52, 36, Move.DOUBLE_PAWN_PUSH);
+		for (int i = 0; i < 20; i++) {
+			int megabytes = (i % 4 < 2) ? 32 : 64;
+			table.store(12345, move, 10, 5, TranspositionTable.EXACT, 0);
+			table.resize(megabytes);
+			// each resize gives an empty table of the new size, even if the size is the same
+			assertEquals(table.getSizeInBytes(), megabytes << 20);
+			assertEquals(table.probe(12345), TranspositionTable.MISS);
+		}
+		// the old tables should be freed at once instead of waiting for the garbage collector
+		assertTrue(directPool.getMemoryUsed() - usedBefore <= 64 << 20);
+	}
+
+	@Test
+	void testReplacement() {
+		// keys that differ only above the index bits share a bucket of four entries
+		TranspositionTable table = new TranspositionTable(1);
+		long step = 1L << 40;
+		for (int i = 0; i < 4; i++) {
+			table.store(1 + i * step, Move.NONE, i, 10 - i, TranspositionTable.EXACT, 0);
+		}
+		// the shallowest entry should be replaced first
+		table.store(1 + 4 * step, Move.NONE, 4, 9, TranspositionTable.EXACT, 0);
+		assertEquals(table.probe(1 + 3 * step), TranspositionTable.MISS);
+		assertNotEquals(table.probe(1), TranspositionTable.MISS);
+
+		// entries from earlier searches should be replaced before deeper current ones
+		table.newSearch();
+		table.store(1 + 5 * step, Move.NONE, 5, 1, TranspositionTable.EXACT, 0);
+		table.store(1 + 6 * step, Move.NONE, 6, 1, TranspositionTable.EXACT, 0);
+		assertNotEquals(table.probe(1 + 5 * step), TranspositionTable.MISS);
+		assertNotEquals(table.probe(1 + 6 * step), TranspositionTable.MISS);
+		assertTrue(table.getUsage() >= 0);
+	}
+
+	@Test
+	void testConcurrentAccess() throws InterruptedException {
+		// threads write entries whose scores are derived from their keys, so a torn entry that
+		// passed the check would be noticed
+		TranspositionTable table = new TranspositionTable(1);
+		AtomicBoolean isCorrupt = new AtomicBoolean(false);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			int seed = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 200_000; i++) {
+					long key = ((i * 31L + seed) % 5000) * 0x9e3779b97f4a7c15L;
+					int score = (int) (key >>> 52);
+					table.store(key, Move.NONE, score, seed + 1, TranspositionTable.EXACT, 0);
+					long entry = table.probe(key);
+					if ((entry != TranspositionTable.MISS)
+							&& (TranspositionTable.getScore(entry, 0) != score))
+						isCorrupt.set(true);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse(isCorrupt.get());
+	}
+
+	@Test
+	void testSearchWithTable() {
+		// a second search of the same position should reuse the results of the first
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		Engine engine = new Engine(new TranspositionTable(8));
+		engine.setMaxDepth(4);
+		SearchResult first = engine.search(new BitBoard(fen), false);
+		SearchResult second = engine.search(new BitBoard(fen), false);
+		assertEquals(first.getScore(), second.getScore());
+		assertEquals(first.getBestMove(), second.getBestMove());
+		assertTrue(second.getNodes() < first.getNodes());
+	}
+}
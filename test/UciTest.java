@@ -0,0 +1,235 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveList;
+import main.Uci;
+
+/**
+ * This class is used to test the Uci class.
+ */
+class UciTest {
+	private static final long TIMEOUT = 30; // in seconds
+
+	private PipedOutputStream commands;
+	private BlockingQueue<String> lines;
+	private Thread thread;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		commands = new PipedOutputStream();
+		PipedInputStream input = new PipedInputStream(commands);
+		lines = new LinkedBlockingQueue<>();
+		// the output is split into lines as they are written
+		OutputStream output = new OutputStream() {
+			private final StringBuilder line = new StringBuilder();
+
+			@Override
+			public void write(int b) {
+				if (b == '\n') {
+					lines.add(line.toString().trim());
+					line.setLength(0);
+				} else {
+					line.append((char) b);
+				}
+			}
+		};
+		Uci uci = new Uci(input, new PrintStream(output, true));
+		thread = new Thread(uci::run);
+		thread.start();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException, InterruptedException {
+		send("quit");
+		commands.close();
+		thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		assertFalse(thread.isAlive());
+	}
+
+	/**
+	 * This method sends a command to the interface.
+	 * 
+	 * @param command the command
+	 * @throws IOException if the command cannot be sent
+	 */
+	void send(String command) throws IOException {
+		commands.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+		commands.flush();
+	}
+
+	/**
+	 * This method waits for the interface to write a line starting with the given prefix.
+	 * 
+	 * @param prefix the prefix
+	 * @return every line written before it, followed by the line itself
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	List<String> receive(String prefix) throws InterruptedException {
+		List<String> received = new ArrayList<>();
+		while (true) {
+			String line = lines.poll(TIMEOUT, TimeUnit.SECONDS);
+			assertNotNull(line, "no line starting with " + prefix + " after " + received);
+			received.add(line);
+			if (line.startsWith(prefix))
+				return received;
+		}
+	}
+
+	/**
+	 * This method checks that a bestmove line names a legal move of the given position.
+	 * 
+	 * @param line        the bestmove line
+	 * @param board       the board in the position
+	 * @param blackToMove true if it is black's turn to move and false if it is white's turn
+	 */
+	void assertLegalBestMove(String line, BitBoard board, boolean blackToMove) {
+		String[] tokens = line.split(" ");
+		MoveList moves = new MoveList();
+		board.generateMoves(blackToMove, moves);
+		boolean isLegal = false;
+		for (int i = 0; i < moves.size(); i++) {
+			isLegal |= Move.toString(moves.get(i)).equals(tokens[1]);
+		}
+		assertTrue(isLegal, line);
+	}
+
+	@Test
+	void testHandshake() throws IOException, InterruptedException {
+		send("uci");
+		List<String> received = receive("uciok");
+		assertTrue(received.get(0).startsWith("id name "));
+		assertTrue(received.contains("option name Hash type spin default 16 min 1 max 1024"));
+		assertTrue(received.stream().anyMatch(line -> line.startsWith("option name Threads ")));
+		send("isready");
+		assertEquals(receive("readyok").size(), 1);
+	}
+
+	@Test
+	void testSearch() throws IOException, InterruptedException {
+		// one info line with the speed for each depth, and a legal move after the moves played
+		send("position startpos moves e2e4 e7e5 g1f3");
+		send("go depth 4");
+		List<String> received = receive("bestmove");
+		assertEquals(received.size(), 5);
+		for (int depth = 1; depth <= 4; depth++) {
+			String info = received.get(depth - 1);
+			assertTrue(info.startsWith("info depth " + depth + " score "), info);
+			assertTrue(info.contains(" nps "), info);
+		}
+		BitBoard board = new BitBoard(
+				"rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2");
+		assertLegalBestMove(received.get(4), board, true);
+
+		// a position from FEN, with the options changed
+		send("setoption name Hash value 1");
+		send("setoption name Threads value 2");
+		send("position fen 4k3/8/8/8/8/8/8/R3K3 w Q - 0 1 moves e1c1");
+		send("go nodes 5000");
+		received = receive("bestmove");
+		assertLegalBestMove(received.get(received.size() - 1),
+				new BitBoard("4k3/8/8/8/8/8/8/2KR4 b - - 1 1"), true);
+
+		// a checkmated player has no move, and an illegal move is reported
+		send("position fen 7k/6Q1/6K1/8/8/8/8/8 b - - 0 1");
+		send("go depth 3");
+		assertEquals(receive("bestmove").get(1), "bestmove 0000");
+		send("position startpos moves e2e5");
+		assertEquals(receive("info string").get(0), "info string illegal move e2e5");
+	}
+
+	@Test
+	void testGameHistory() throws IOException, InterruptedException {
+		// black, a queen down, returns to a position of the moves played to draw by repetition
+		send("position fen 6k1/8/8/8/8/Q7/8/K7 b - - 0 1 moves g8h8 a3a4 h8g8 a4a3");
+		send("go depth 3");
+		List<String> received = receive("bestmove");
+		assertTrue(received.get(received.size() - 2).contains(" score cp 0 "));
+		assertEquals(lastLine(received), "bestmove g8h8");
+
+		// the halfmove clock of the position counts towards the fifty-move rule
+		send("position fen 7k/8/8/8/8/Q7/8/K7 w - - 98 60 moves a3a4 h8g8");
+		send("go depth 3");
+		received = receive("bestmove");
+		assertTrue(received.get(received.size() - 2).contains(" score cp 0 "));
+		// a new position starts a new history
+		send("position fen 7k/8/8/8/8/Q7/8/K7 w - - 0 1");
+		send("go depth 3");
+		received = receive("bestmove");
+		assertFalse(received.get(received.size() - 2).contains(" score cp 0 "));
+	}
+
+	@Test
+	void testStop() throws IOException, InterruptedException {
+		// an infinite search only reports its move after stop
+		send("position startpos");
+		send("go infinite");
+		Thread.sleep(200);
+		send("isready");
+		for (String line : receive("readyok")) {
+			assertFalse(line.startsWith("bestmove"), line);
+		}
+		send("stop");
+		assertLegalBestMove(lastLine(receive("bestmove")), new BitBoard(), false);
+
+		// a stop sent at once still ends the search
+		send("go infinite");
+		send("stop");
+		assertLegalBestMove(lastLine(receive("bestmove")), new BitBoard(), false);
+	}
+
+	@Test
+	void testPonder() throws IOException, InterruptedException {
+		// pondering waits for ponderhit, and then uses the time of the clock
+		send("position startpos moves e2e4");
+		send("go ponder wtime 1000 btime 1000");
+		Thread.sleep(200);
+		send("isready");
+		for (String line : receive("readyok")) {
+			assertFalse(line.startsWith("bestmove"), line);
+		}
+		long start = System.currentTimeMillis();
+		send("ponderhit");
+		String bestMove = lastLine(receive("bestmove"));
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		BitBoard board = new BitBoard(
+				"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+		assertLegalBestMove(bestMove, board, true);
+
+		// without any limit, the move found while pondering is played at once
+		send("go ponder");
+		Thread.sleep(200);
+		start = System.currentTimeMillis();
+		send("ponderhit");
+		assertLegalBestMove(lastLine(receive("bestmove")), board, true);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+
+	/**
+	 * This method returns the last line of a list.
+	 * 
+	 * @param received the lines
+	 * @return the last line
+	 */
+	String lastLine(List<String> received) {
+		return received.get(received.size() - 1);
+	}
+}
@@ -70,6 +70,22 @@ export default class App extends React.Component {
       var message2 = result['message2'];
       var buttonsStr = result['buttons'];
       var session = result['session'];
+      // the computer's move is fetched once it has finished thinking
+      if (result['thinking']) {
+        setTimeout(() => {
+          fetch("https://chartung17-chess.herokuapp.com/board/" + session, {
+            method: 'GET'
+          })
+          .then(res => {
+            return res.json();
+          }, err => {
+            // Print the error if there is one.
+            console.log(err);
+          }).then(result => {
+            this.handleResult(result);
+          });
+        }, 250);
+      }
     }
     let board = [];
     for (let i = 0; i < 64; i++) {